@@ -0,0 +1,7 @@
+#!/bin/bash
+# local build gate (JDK 8)
+export JAVA_HOME=/root/.sdkman/candidates/java/8.0.392-tem
+export PATH=$JAVA_HOME/bin:$PATH
+cd /root/project
+mvn -B -q compile 2>&1 | tail -30 || exit 1
+mvn -B test "$@" 2>&1 | grep -E "Tests run:|FAIL|ERROR|BUILD" | grep -v "Tests run:.*Failures: 0, Errors: 0" | tail -30
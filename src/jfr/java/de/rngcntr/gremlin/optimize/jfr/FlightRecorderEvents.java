@@ -0,0 +1,81 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import de.rngcntr.gremlin.optimize.metrics.NoOpOptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerMetrics;
+import jdk.jfr.EventType;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Emits all {@link OptimizerEvents} as Java Flight Recorder events. This implementation is registered as a service,
+ * so it is picked up automatically once it is on the class path. All events are disabled by default and have to be
+ * enabled in the recording settings, e.g. <code>de.rngcntr.gremlin.optimize.OptimizerPhase#enabled=true</code>. As
+ * long as an event is disabled, no event objects are retained and none of it's attributes are computed.
+ */
+public class FlightRecorderEvents implements OptimizerEvents {
+
+    private static final EventType PHASE = EventType.getEventType(OptimizerPhaseEvent.class);
+    private static final EventType JOIN_BUILD = EventType.getEventType(JoinBuildEvent.class);
+    private static final EventType JOIN_PROBE = EventType.getEventType(JoinProbeEvent.class);
+    private static final EventType STATISTICS_CACHE = EventType.getEventType(StatisticsCacheEvent.class);
+
+    @Override
+    public boolean isEnabled() {
+        return PHASE.isEnabled() || JOIN_BUILD.isEnabled() || JOIN_PROBE.isEnabled() || STATISTICS_CACHE.isEnabled();
+    }
+
+    @Override
+    public PhaseSpan beginPhase(OptimizerMetrics.Phase phase) {
+        final OptimizerPhaseEvent event = new OptimizerPhaseEvent(phase);
+        if (!event.isEnabled()) {
+            return NoOpOptimizerEvents.instance();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public JoinBuildSpan beginJoinBuild() {
+        final JoinBuildEvent event = new JoinBuildEvent();
+        if (!event.isEnabled()) {
+            return NoOpOptimizerEvents.instance();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public JoinProbeSpan beginJoinProbe() {
+        final JoinProbeEvent event = new JoinProbeEvent();
+        if (!event.isEnabled()) {
+            return NoOpOptimizerEvents.instance();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void statisticsCacheAccess(boolean shared, boolean hit) {
+        final StatisticsCacheEvent event = new StatisticsCacheEvent();
+        if (event.isEnabled()) {
+            event.shared = shared;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+}
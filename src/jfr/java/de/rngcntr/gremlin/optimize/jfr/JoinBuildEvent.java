@@ -0,0 +1,56 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The build phase of a join step, which executes the inner traversal and collects all join candidates.
+ */
+@Name("de.rngcntr.gremlin.optimize.JoinBuild")
+@Label("Join Build")
+@Category({"Gremlin Optimizer", "Execution"})
+@Enabled(false)
+@StackTrace(false)
+class JoinBuildEvent extends Event implements OptimizerEvents.JoinBuildSpan {
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Estimated Size")
+    @Description("Shallow size of the collected tuples, excluding the graph elements they refer to")
+    @DataAmount
+    long estimatedBytes;
+
+    @Override
+    public void finish(long rows, long estimatedBytes) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.estimatedBytes = estimatedBytes;
+            commit();
+        }
+    }
+}
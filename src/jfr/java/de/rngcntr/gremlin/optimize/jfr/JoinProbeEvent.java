@@ -0,0 +1,52 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A batch of traversers that a join step probed against it's join candidates.
+ */
+@Name("de.rngcntr.gremlin.optimize.JoinProbe")
+@Label("Join Probe Batch")
+@Category({"Gremlin Optimizer", "Execution"})
+@Enabled(false)
+@StackTrace(false)
+class JoinProbeEvent extends Event implements OptimizerEvents.JoinProbeSpan {
+
+    @Label("Probed Rows")
+    long probedRows;
+
+    @Label("Joined Rows")
+    long joinedRows;
+
+    @Override
+    public void finish(long probedRows, long joinedRows) {
+        end();
+        if (shouldCommit()) {
+            this.probedRows = probedRows;
+            this.joinedRows = joinedRows;
+            commit();
+        }
+    }
+}
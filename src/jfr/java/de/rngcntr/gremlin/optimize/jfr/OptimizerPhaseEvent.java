@@ -0,0 +1,72 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerMetrics;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A single phase of an optimization, as reported to {@link OptimizerMetrics}.
+ */
+@Name("de.rngcntr.gremlin.optimize.OptimizerPhase")
+@Label("Optimizer Phase")
+@Category({"Gremlin Optimizer", "Optimization"})
+@Enabled(false)
+@StackTrace(false)
+class OptimizerPhaseEvent extends Event implements OptimizerEvents.PhaseSpan {
+
+    @Label("Phase")
+    final String phase;
+
+    @Label("Pattern Vertices")
+    int patternVertices;
+
+    @Label("Pattern Edges")
+    int patternEdges;
+
+    @Label("Query Fingerprint")
+    @Description("Equal for queries that only differ in the values they filter for")
+    String queryFingerprint;
+
+    @Label("Plan Fingerprint")
+    @Description("Equal for equal queries with the same plan, missing before the estimation is complete")
+    String planFingerprint;
+
+    OptimizerPhaseEvent(OptimizerMetrics.Phase phase) {
+        this.phase = phase.name();
+    }
+
+    @Override
+    public void finish(PatternGraph pattern) {
+        end();
+        if (shouldCommit()) {
+            patternVertices = pattern.getVertices().size();
+            patternEdges = pattern.getEdges().size();
+            queryFingerprint = pattern.getQueryFingerprint().getId();
+            planFingerprint = pattern.getPlanFingerprint();
+            commit();
+        }
+    }
+}
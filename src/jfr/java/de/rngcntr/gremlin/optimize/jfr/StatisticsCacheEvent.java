@@ -0,0 +1,43 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A lookup of a statistic in a caching statistics provider.
+ */
+@Name("de.rngcntr.gremlin.optimize.StatisticsCache")
+@Label("Statistics Cache Lookup")
+@Category({"Gremlin Optimizer", "Optimization"})
+@Enabled(false)
+@StackTrace(false)
+class StatisticsCacheEvent extends Event {
+
+    @Label("Shared")
+    @Description("Whether the cache is shared between optimizations or lives for a single optimization only")
+    boolean shared;
+
+    @Label("Hit")
+    boolean hit;
+}
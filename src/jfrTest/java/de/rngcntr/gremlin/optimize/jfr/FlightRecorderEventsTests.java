@@ -0,0 +1,143 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.jfr;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerMetrics;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsSnapshot;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTests {
+
+    private static final String PREFIX = "de.rngcntr.gremlin.optimize.";
+
+    /*
+        vertex counts are underestimated and edge counts are overestimated, so all vertices are retrieved directly
+     */
+    private static StatisticsProvider joiningStatistics() {
+        return StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 1)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 1)
+                .withLabel(new LabelFilter<>(Edge.class, "created"), 400)
+                .withLabel(new LabelFilter<>(Edge.class, "knows"), 400)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "created"), 400)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "software"), 400)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "knows"), 400)
+                .connections(new LabelFilter<>(Edge.class, "knows"), new LabelFilter<>(Vertex.class, "person"), 400)
+                .build();
+    }
+
+    private static GraphTraversal<?,?> chainTraversal(GraphTraversalSource g) {
+        return g.V().hasLabel("person").as("a")
+                .out("knows").hasLabel("person").as("c")
+                .out("created").hasLabel("software").as("b")
+                .select("a", "c", "b");
+    }
+
+    @Test
+    public void testServiceIsLoaded() {
+        assertTrue(OptimizerEvents.get() instanceof FlightRecorderEvents);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(OptimizerEvents.get().isEnabled());
+        try (Recording recording = new Recording()) {
+            recording.start();
+            assertFalse(OptimizerEvents.get().isEnabled());
+        }
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        List<?> unoptimizedResults = chainTraversal(g).toList();
+
+        Path file = Files.createTempFile("optimizer", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PREFIX + "OptimizerPhase");
+            recording.enable(PREFIX + "JoinBuild");
+            recording.enable(PREFIX + "JoinProbe");
+            recording.enable(PREFIX + "StatisticsCache");
+            recording.start();
+            assertTrue(OptimizerEvents.get().isEnabled());
+
+            GraphTraversal<?,?> optimizedTraversal = new PatternGraph(chainTraversal(g)).optimize(joiningStatistics());
+            assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            List<RecordedEvent> phases = ofType(events, "OptimizerPhase");
+            Set<String> recordedPhases = phases.stream().map(e -> e.getString("phase")).collect(Collectors.toSet());
+            for (OptimizerMetrics.Phase phase : OptimizerMetrics.Phase.values()) {
+                assertTrue(recordedPhases.contains(phase.name()), phase.name());
+            }
+            for (RecordedEvent phase : phases) {
+                assertEquals(3, phase.getInt("patternVertices"));
+                assertEquals(2, phase.getInt("patternEdges"));
+                assertEquals(16, phase.getString("queryFingerprint").length());
+            }
+            assertTrue(phases.stream()
+                    .filter(e -> e.getString("phase").equals(OptimizerMetrics.Phase.BUILD_TRAVERSAL.name()))
+                    .allMatch(e -> e.getString("planFingerprint") != null));
+
+            List<RecordedEvent> builds = ofType(events, "JoinBuild");
+            assertFalse(builds.isEmpty());
+            assertTrue(builds.stream().allMatch(e -> e.getLong("estimatedBytes") >= e.getLong("rows")));
+
+            List<RecordedEvent> probes = ofType(events, "JoinProbe");
+            assertFalse(probes.isEmpty());
+            assertTrue(probes.stream().mapToLong(e -> e.getLong("probedRows")).sum() > 0);
+
+            assertFalse(ofType(events, "StatisticsCache").isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(PREFIX + name))
+                .collect(Collectors.toList());
+    }
+}
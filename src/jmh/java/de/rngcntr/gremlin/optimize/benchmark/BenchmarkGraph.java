@@ -0,0 +1,112 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsSnapshot;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Generates random graphs that use the labels of {@link PatternFamily}, so that the generated patterns have results
+ * and the statistics of all labels are non-zero.
+ */
+public class BenchmarkGraph {
+
+    private BenchmarkGraph() {
+    }
+
+    /**
+     * Generates a graph with uniformly distributed labels and uniformly chosen edge endpoints.
+     *
+     * @param vertices The number of vertices.
+     * @param edges The number of edges.
+     * @param seed The seed of the generator.
+     * @return The generated graph.
+     */
+    public static Graph generate(int vertices, int edges, long seed) {
+        final Random random = new Random(seed);
+        final Graph graph = TinkerGraph.open();
+        final List<Vertex> createdVertices = new ArrayList<>(vertices);
+        for (int i = 0; i < vertices; ++i) {
+            createdVertices.add(graph.addVertex(
+                    PatternFamily.vertexLabel(random.nextInt(PatternFamily.VERTEX_LABELS))));
+        }
+        for (int i = 0; i < edges; ++i) {
+            final Vertex from = createdVertices.get(random.nextInt(vertices));
+            final Vertex to = createdVertices.get(random.nextInt(vertices));
+            from.addEdge(PatternFamily.edgeLabel(random.nextInt(PatternFamily.EDGE_LABELS)), to);
+        }
+        return graph;
+    }
+
+    /**
+     * Assigns a uniformly distributed integer property to all vertices and edges, so that property filters with a
+     * known selectivity can be applied.
+     *
+     * @param graph The graph.
+     * @param key The key of the property.
+     * @param range The exclusive upper bound of the values, the lower bound is <code>0</code>.
+     * @param seed The seed of the values.
+     */
+    public static void assignValues(Graph graph, String key, int range, long seed) {
+        final Random random = new Random(seed);
+        graph.vertices().forEachRemaining(v -> v.property(key, random.nextInt(range)));
+        graph.edges().forEachRemaining(e -> e.property(key, random.nextInt(range)));
+    }
+
+    /**
+     * Precomputes all statistics that are requested for patterns of the {@link PatternFamily}s.
+     *
+     * @param stats The provider that computes the statistics.
+     * @return A snapshot of the statistics.
+     */
+    public static StatisticsSnapshot snapshotOf(StatisticsProvider stats) {
+        final StatisticsSnapshot.Builder builder = StatisticsSnapshot.builder()
+                .totals(Vertex.class, stats.totals(Vertex.class))
+                .totals(Edge.class, stats.totals(Edge.class));
+        for (int v = 0; v < PatternFamily.VERTEX_LABELS; ++v) {
+            final LabelFilter<Vertex> vertexLabel = new LabelFilter<>(Vertex.class, PatternFamily.vertexLabel(v));
+            builder.withLabel(vertexLabel, stats.withLabel(vertexLabel));
+            for (int e = 0; e < PatternFamily.EDGE_LABELS; ++e) {
+                final LabelFilter<Edge> edgeLabel = new LabelFilter<>(Edge.class, PatternFamily.edgeLabel(e));
+                builder.connections(vertexLabel, edgeLabel, stats.connections(vertexLabel, edgeLabel));
+                builder.connections(edgeLabel, vertexLabel, stats.connections(edgeLabel, vertexLabel));
+            }
+            builder.connections(LabelFilter.empty(Edge.class), vertexLabel,
+                    stats.connections(LabelFilter.empty(Edge.class), vertexLabel));
+            builder.connections(vertexLabel, LabelFilter.empty(Edge.class),
+                    stats.connections(vertexLabel, LabelFilter.empty(Edge.class)));
+        }
+        for (int e = 0; e < PatternFamily.EDGE_LABELS; ++e) {
+            final LabelFilter<Edge> edgeLabel = new LabelFilter<>(Edge.class, PatternFamily.edgeLabel(e));
+            builder.withLabel(edgeLabel, stats.withLabel(edgeLabel));
+            builder.connections(LabelFilter.empty(Vertex.class), edgeLabel,
+                    stats.connections(LabelFilter.empty(Vertex.class), edgeLabel));
+            builder.connections(edgeLabel, LabelFilter.empty(Vertex.class),
+                    stats.connections(edgeLabel, LabelFilter.empty(Vertex.class)));
+        }
+        return builder.build();
+    }
+}
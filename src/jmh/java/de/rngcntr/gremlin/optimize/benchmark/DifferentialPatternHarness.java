@@ -0,0 +1,196 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.statistics.CachingStatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Runs randomly generated patterns of the {@link RandomPatternGenerator} optimized and unoptimized on a generated graph.
+ * Every query is checked for equal results and the distribution of the speedups, including the planning time, is
+ * reported for each {@link RandomPatternGenerator.Shape}. Queries that can not be optimized, that return different
+ * results and that are slowed down most are listed individually. The harness is started with
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -cp target/jmh/benchmarks.jar de.rngcntr.gremlin.optimize.benchmark.DifferentialPatternHarness [queries] [seed]
+ * </pre>
+ * and exits with a non-zero status if any query fails or returns different results.
+ */
+public class DifferentialPatternHarness {
+
+    private static final int GRAPH_VERTICES = 2_000;
+    private static final int GRAPH_EDGES = 6_000;
+    private static final int MIN_PATTERN_VERTICES = 2;
+    private static final int MAX_PATTERN_VERTICES = 5;
+    private static final double SAMPLING_RATE = 0.1;
+    private static final int REPETITIONS = 3;
+    private static final int REPORTED_SLOWDOWNS = 5;
+    private static final double[] PERCENTILES = {0, 10, 50, 90, 100};
+
+    private final GraphTraversalSource g;
+    private final StatisticsProvider stats;
+
+    /**
+     * Creates a harness on a graph whose elements carry the property {@value RandomPatternGenerator#VALUE_KEY}.
+     *
+     * @param graph The queried graph.
+     * @param seed The seed of the sampled statistics.
+     */
+    public DifferentialPatternHarness(Graph graph, long seed) {
+        this.g = graph.traversal();
+        this.stats = CachingStatisticsProvider.shared(new SamplingStatisticsProvider(graph, SAMPLING_RATE, seed),
+                1, TimeUnit.DAYS, Long.MAX_VALUE);
+    }
+
+    public static void main(String[] args) {
+        final int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        final Graph graph = BenchmarkGraph.generate(GRAPH_VERTICES, GRAPH_EDGES, seed);
+        BenchmarkGraph.assignValues(graph, RandomPatternGenerator.VALUE_KEY, RandomPatternGenerator.VALUE_RANGE, seed);
+        final DifferentialPatternHarness harness = new DifferentialPatternHarness(graph, seed);
+        final RandomPatternGenerator generator =
+                new RandomPatternGenerator(seed, MIN_PATTERN_VERTICES, MAX_PATTERN_VERTICES);
+
+        final List<Result> results = new ArrayList<>();
+        for (int q = 0; q < queries; ++q) {
+            final RandomPatternGenerator.Shape shape =
+                    RandomPatternGenerator.Shape.values()[q % RandomPatternGenerator.Shape.values().length];
+            results.add(harness.run(shape, generator.next(harness.g, shape)));
+        }
+
+        System.out.printf("%-8s %7s %7s %7s   speedup %s%n", "shape", "queries", "failed", "differ",
+                Arrays.stream(PERCENTILES).mapToObj(p -> String.format("p%.0f", p))
+                        .collect(Collectors.joining("/")));
+        for (RandomPatternGenerator.Shape shape : RandomPatternGenerator.Shape.values()) {
+            printSummary(shape.toString(), results.stream().filter(r -> r.shape == shape).collect(Collectors.toList()));
+        }
+        printSummary("ALL", results);
+
+        final List<Result> problems = results.stream().filter(r -> !r.isCorrect()).collect(Collectors.toList());
+        problems.forEach(r -> System.out.println(r.failure != null
+                ? "FAILED  " + r.query + ": " + r.failure
+                : "DIFFERS " + r.query));
+        System.out.println("Largest slowdowns:");
+        results.stream().filter(Result::isCorrect)
+                .sorted(Comparator.comparingDouble(Result::getSpeedup))
+                .limit(REPORTED_SLOWDOWNS)
+                .forEach(r -> System.out.printf("%7.2fx %s%n", r.getSpeedup(), r.query));
+        if (!problems.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void printSummary(String name, List<Result> results) {
+        final double[] speedups = results.stream().filter(Result::isCorrect).mapToDouble(Result::getSpeedup)
+                .sorted().toArray();
+        System.out.printf("%-8s %7d %7d %7d   %s%n", name, results.size(),
+                results.stream().filter(r -> r.failure != null).count(),
+                results.stream().filter(r -> r.failure == null && !r.equal).count(),
+                speedups.length == 0 ? "-" : Arrays.stream(PERCENTILES)
+                        .mapToObj(p -> String.format("%.2fx", speedups[(int) Math.round(p / 100 * (speedups.length - 1))]))
+                        .collect(Collectors.joining("/")));
+    }
+
+    /**
+     * Executes a query optimized and unoptimized.
+     *
+     * @param shape The shape of the query.
+     * @param query The unoptimized query, which is not modified.
+     * @return The outcome of the comparison.
+     */
+    public Result run(RandomPatternGenerator.Shape shape, GraphTraversal<?,?> query) {
+        final String text = query.asAdmin().getBytecode().toString();
+        final long[] unoptimized = new long[REPETITIONS];
+        final long[] optimized = new long[REPETITIONS];
+        List<?> unoptimizedResults = null;
+        List<?> optimizedResults = null;
+        try {
+            for (int i = 0; i < REPETITIONS; ++i) {
+                long start = System.nanoTime();
+                unoptimizedResults = query.asAdmin().clone().toList();
+                unoptimized[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                optimizedResults = new PatternGraph(query.asAdmin().clone()).optimize(stats).toList();
+                optimized[i] = System.nanoTime() - start;
+            }
+        } catch (RuntimeException e) {
+            return new Result(shape, text, false, 0, 0, String.valueOf(e));
+        }
+        final boolean equal = HashMultiset.create(unoptimizedResults).equals(HashMultiset.create(optimizedResults));
+        return new Result(shape, text, equal, median(unoptimized), median(optimized), null);
+    }
+
+    private static long median(long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * The outcome of a single query, where the optimized time includes the planning time.
+     */
+    public static class Result {
+        private final RandomPatternGenerator.Shape shape;
+        private final String query;
+        private final boolean equal;
+        private final long unoptimizedNanos;
+        private final long optimizedNanos;
+        private final String failure;
+
+        private Result(RandomPatternGenerator.Shape shape, String query, boolean equal, long unoptimizedNanos,
+                       long optimizedNanos, String failure) {
+            this.shape = shape;
+            this.query = query;
+            this.equal = equal;
+            this.unoptimizedNanos = unoptimizedNanos;
+            this.optimizedNanos = optimizedNanos;
+            this.failure = failure;
+        }
+
+        /**
+         * Checks whether the query could be optimized and returned the same results as the unoptimized query.
+         *
+         * @return <ul>
+         *     <li><code>true</code> if the optimized query is correct.</li>
+         *     <li><code>false</code> otherwise.</li>
+         * </ul>
+         */
+        public boolean isCorrect() {
+            return failure == null && equal;
+        }
+
+        /**
+         * Computes by which factor the optimized query including it's planning is faster than the unoptimized one.
+         *
+         * @return The speedup, which is below <code>1</code> for slowdowns.
+         */
+        public double getSpeedup() {
+            return (double) unoptimizedNanos / Math.max(optimizedNanos, 1);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.metrics.LogHistogram;
+import de.rngcntr.gremlin.optimize.query.AdaptivePlanner;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+
+import java.util.*;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Measures the accuracy of the cardinality estimations of {@link Retrieval}s. Each retrieval of a generated pattern
+ * estimates the size of a sub-pattern, which consists of the retrieval itself and the chain of best retrievals of it's
+ * sources down to a direct retrieval. The true size of this sub-pattern is counted on the graph and compared with the
+ * estimation. The q-errors are reported per {@link RandomPatternGenerator.Shape} and depth, i.e. the number of
+ * dependent retrievals in the chain, for statistics of different accuracy. Exact statistics isolate the error of the
+ * estimation model, while sampled statistics add the error of the statistics themselves. The harness is started with
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -cp target/jmh/benchmarks.jar de.rngcntr.gremlin.optimize.benchmark.EstimationAccuracyHarness [patterns] [seed]
+ * </pre>
+ * where q-errors are scaled by {@value #SCALE} to be recorded in a {@link LogHistogram}.
+ */
+public class EstimationAccuracyHarness {
+
+    private static final int GRAPH_VERTICES = 2_000;
+    private static final int GRAPH_EDGES = 6_000;
+    private static final int MIN_PATTERN_VERTICES = 2;
+    private static final int MAX_PATTERN_VERTICES = 5;
+    private static final double[] SAMPLING_RATES = {1.0, 0.1, 0.01};
+    private static final long SCALE = 100;
+
+    private final Graph graph;
+    private final Map<String, Long> trueSizes = new HashMap<>();
+
+    /**
+     * Creates a harness on a graph whose elements carry the property {@value RandomPatternGenerator#VALUE_KEY}.
+     *
+     * @param graph The queried graph.
+     */
+    public EstimationAccuracyHarness(Graph graph) {
+        this.graph = graph;
+    }
+
+    public static void main(String[] args) {
+        final int patterns = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        final Graph graph = BenchmarkGraph.generate(GRAPH_VERTICES, GRAPH_EDGES, seed);
+        BenchmarkGraph.assignValues(graph, RandomPatternGenerator.VALUE_KEY, RandomPatternGenerator.VALUE_RANGE, seed);
+        final EstimationAccuracyHarness harness = new EstimationAccuracyHarness(graph);
+
+        for (double samplingRate : SAMPLING_RATES) {
+            final StatisticsProvider stats = new SamplingStatisticsProvider(graph, samplingRate, seed);
+            // the same patterns are generated for each statistics provider
+            final RandomPatternGenerator generator =
+                    new RandomPatternGenerator(seed, MIN_PATTERN_VERTICES, MAX_PATTERN_VERTICES);
+            final Map<String, LogHistogram> qErrors = new TreeMap<>();
+            for (int p = 0; p < patterns; ++p) {
+                final RandomPatternGenerator.Shape shape =
+                        RandomPatternGenerator.Shape.values()[p % RandomPatternGenerator.Shape.values().length];
+                harness.measure(generator.next(graph.traversal(), shape), stats, (depth, qError) -> {
+                    final long scaled = Math.min(Math.round(qError * SCALE), Long.MAX_VALUE / 2);
+                    qErrors.computeIfAbsent(String.format("%-6s depth %d", shape, depth), k -> new LogHistogram())
+                            .record(scaled);
+                    qErrors.computeIfAbsent(String.format("ALL    depth %d", depth), k -> new LogHistogram())
+                            .record(scaled);
+                });
+            }
+            System.out.printf("%nStatistics sampled at %.0f%%%n", samplingRate * 100);
+            System.out.printf("%-15s %8s %10s %10s %10s %12s%n", "", "count", "p50", "p90", "p99", "max");
+            qErrors.forEach((key, histogram) -> System.out.printf("%-15s %8d %10.2f %10.2f %10.2f %12.2f%n", key,
+                    histogram.getCount(),
+                    histogram.getValueAtPercentile(50) / (double) SCALE,
+                    histogram.getValueAtPercentile(90) / (double) SCALE,
+                    histogram.getValueAtPercentile(99) / (double) SCALE,
+                    histogram.getMax() / (double) SCALE));
+        }
+    }
+
+    /**
+     * Receives the q-error of a single retrieval.
+     */
+    @FunctionalInterface
+    public interface QErrorConsumer {
+        void accept(int depth, double qError);
+    }
+
+    /**
+     * Estimates all retrievals of a pattern and compares each feasible estimation with the true size of it's
+     * sub-pattern.
+     *
+     * @param pattern The pattern.
+     * @param stats The statistics used for the estimation.
+     * @param consumer The receiver of the q-errors.
+     */
+    public void measure(GraphTraversal<?,?> pattern, StatisticsProvider stats, QErrorConsumer consumer) {
+        final PatternGraph patternGraph = new PatternGraph(pattern);
+        patternGraph.explain(stats);
+        for (PatternElement<?> element : patternGraph.getElements()) {
+            for (Retrieval<?> retrieval : element.getRetrievals()) {
+                if (Double.isInfinite(retrieval.getEstimatedSize())) {
+                    continue;
+                }
+                final List<Retrieval<?>> chain = chainOf(retrieval);
+                if (chain == null) {
+                    continue;
+                }
+                consumer.accept(chain.size() - 1,
+                        AdaptivePlanner.qError(retrieval.getEstimatedSize(), trueSize(chain)));
+            }
+        }
+    }
+
+    /**
+     * Collects the retrievals whose estimations are the basis of a retrieval's estimation.
+     *
+     * @return The chain starting with a direct retrieval and ending with the given retrieval or <code>null</code> if
+     * the chain is cyclic.
+     */
+    private static List<Retrieval<?>> chainOf(Retrieval<?> retrieval) {
+        final LinkedList<Retrieval<?>> chain = new LinkedList<>();
+        final Set<PatternElement<?>> visited = new HashSet<>();
+        Retrieval<?> current = retrieval;
+        while (true) {
+            if (!visited.add(current.getElement())) {
+                return null;
+            }
+            chain.addFirst(current);
+            if (!(current instanceof DependentRetrieval)) {
+                return chain;
+            }
+            current = ((DependentRetrieval<?>) current).getSource().getBestRetrieval();
+        }
+    }
+
+    /**
+     * Counts the matches of the sub-pattern of a chain of retrievals in the same way as a
+     * {@link de.rngcntr.gremlin.optimize.query.DependencyTree} would retrieve them.
+     */
+    private long trueSize(List<Retrieval<?>> chain) {
+        GraphTraversal<?,?> traversal = chain.get(0).asTraversal();
+        if (chain.size() > 1) {
+            traversal = traversal.match(chain.subList(1, chain.size()).stream()
+                    .map(Retrieval::asTraversal).toArray(GraphTraversal[]::new));
+        }
+        final GraphTraversal<?,Long> count = traversal.count();
+        return trueSizes.computeIfAbsent(count.asAdmin().getBytecode().toString(), k -> {
+            count.asAdmin().setGraph(graph);
+            return count.next();
+        });
+    }
+}
@@ -0,0 +1,186 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.query.JoinAttribute;
+import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.structure.PatternEdge;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.structure.PatternVertex;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Measures the throughput of a {@link JoinStep} that joins synthetic probe tuples with the tuples of it's inner
+ * traversal. The join keys of both sides are drawn from {@value #KEYS} vertices following a Zipf distribution with the
+ * given skew, where a skew of <code>0</code> is uniform. For endpoint joins, the inner tuples contain edges that are
+ * matched on their in or out vertex. Besides the throughput of whole joins, the throughput of joined rows is reported
+ * as <code>rows</code>, so the allocations per output row are the <code>gc.alloc.rate</code> of the GC profiler
+ * divided by the <code>rows</code> rate:
+ * <pre>
+ * java -jar target/jmh/benchmarks.jar JoinStepBenchmark -prof gc -rf json -rff target/jmh/join.json
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinStepBenchmark {
+
+    private static final int KEYS = 100;
+    private static final long SEED = 42L;
+
+    @Param({"10", "100", "1000"})
+    public int buildSize;
+
+    @Param({"10", "100", "1000"})
+    public int probeSize;
+
+    @Param({"0.0", "1.0"})
+    public double skew;
+
+    @Param({"1", "10"})
+    public int bulk;
+
+    @Param({"1", "2"})
+    public int attributes;
+
+    @Param({"ELEMENT", "IN", "OUT"})
+    public JoinAttribute.MatchOn matchOn;
+
+    private Object[] probeTuples;
+    private Object[] buildTuples;
+    private Set<JoinAttribute> joinAttributes;
+
+    /**
+     * Counts the joined rows of all invocations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(SEED);
+        final Graph graph = TinkerGraph.open();
+        final Vertex hub = graph.addVertex();
+        final Vertex[] keys = new Vertex[KEYS];
+        final Edge[] inEdges = new Edge[KEYS];
+        final Edge[] outEdges = new Edge[KEYS];
+        for (int i = 0; i < KEYS; ++i) {
+            keys[i] = graph.addVertex();
+            inEdges[i] = hub.addEdge("in", keys[i]);
+            outEdges[i] = keys[i].addEdge("out", hub);
+        }
+        final ZipfDistribution distribution = new ZipfDistribution(KEYS, skew);
+
+        final List<PatternElement<?>> probeElements = new ArrayList<>();
+        final List<PatternElement<?>> buildElements = new ArrayList<>();
+        joinAttributes = new HashSet<>();
+        for (int a = 0; a < attributes; ++a) {
+            final PatternVertex probeElement = new PatternVertex();
+            final PatternElement<?> buildElement = matchOn == JoinAttribute.MatchOn.ELEMENT
+                    ? probeElement
+                    : new PatternEdge();
+            probeElements.add(probeElement);
+            buildElements.add(buildElement);
+            joinAttributes.add(new JoinAttribute(probeElement, JoinAttribute.MatchOn.ELEMENT, buildElement, matchOn));
+        }
+
+        probeTuples = new Object[probeSize];
+        for (int i = 0; i < probeSize; ++i) {
+            final Map<String, Object> tuple = new HashMap<>();
+            tuple.put("probe", i);
+            for (PatternElement<?> element : probeElements) {
+                tuple.put(String.valueOf(element.getId()), keys[distribution.sample(random)]);
+            }
+            probeTuples[i] = tuple;
+        }
+
+        buildTuples = new Object[buildSize];
+        for (int i = 0; i < buildSize; ++i) {
+            final Map<String, Object> tuple = new HashMap<>();
+            tuple.put("build", i);
+            for (PatternElement<?> element : buildElements) {
+                final int key = distribution.sample(random);
+                final Object value;
+                switch (matchOn) {
+                    case IN:
+                        value = inEdges[key];
+                        break;
+                    case OUT:
+                        value = outEdges[key];
+                        break;
+                    default:
+                        value = keys[key];
+                }
+                tuple.put(String.valueOf(element.getId()), value);
+            }
+            buildTuples[i] = tuple;
+        }
+    }
+
+    @Benchmark
+    public void join(Rows rows, Blackhole blackhole) {
+        final Traversal.Admin<Object, Object> traversal = __.inject(probeTuples).asAdmin();
+        traversal.addStep(new BulkStep<>(traversal, bulk));
+        traversal.addStep(new JoinStep<>(traversal, __.inject(buildTuples), joinAttributes));
+        while (traversal.hasNext()) {
+            blackhole.consume(traversal.nextTraverser());
+            ++rows.rows;
+        }
+    }
+
+    /**
+     * Sets the bulk of all passing traversers, which represents duplicate probe tuples.
+     */
+    private static class BulkStep<S> extends AbstractStep<S,S> {
+        private final long bulk;
+
+        BulkStep(Traversal.Admin<?,?> traversal, long bulk) {
+            super(traversal);
+            this.bulk = bulk;
+        }
+
+        @Override
+        protected Traverser.Admin<S> processNextStart() {
+            final Traverser.Admin<S> traverser = this.starts.next();
+            traverser.setBulk(bulk);
+            return traverser;
+        }
+    }
+}
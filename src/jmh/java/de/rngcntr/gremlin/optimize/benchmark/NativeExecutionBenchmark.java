@@ -0,0 +1,80 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Measures the latency of natively executing generated patterns depending on the batch size of the retrievals. A
+ * batch size of <code>1</code> processes one intermediate result at a time. The optimization of the pattern is
+ * measured as well, but it does not depend on the batch size:
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -jar target/jmh/benchmarks.jar NativeExecutionBenchmark -prof gc -rf json -rff target/jmh/native.json
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeExecutionBenchmark {
+
+    private static final int GRAPH_VERTICES = 10_000;
+    private static final int GRAPH_EDGES = 50_000;
+    private static final double SAMPLING_RATE = 0.05;
+    private static final long SEED = 42L;
+
+    @Param({"CHAIN", "STAR"})
+    public PatternFamily family;
+
+    @Param({"3", "5"})
+    public int elements;
+
+    @Param({"1", "16", "128", "1024"})
+    public int batchSize;
+
+    private PatternGraph patternGraph;
+    private StatisticsProvider stats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Graph graph = BenchmarkGraph.generate(GRAPH_VERTICES, GRAPH_EDGES, SEED);
+        stats = BenchmarkGraph.snapshotOf(new SamplingStatisticsProvider(graph, SAMPLING_RATE, SEED));
+        patternGraph = new PatternGraph(family.generate(graph.traversal(), elements));
+        patternGraph.setExecutionMode(ExecutionMode.NATIVE);
+        patternGraph.setBatchSize(batchSize);
+    }
+
+    @Benchmark
+    public void execute(Blackhole blackhole) {
+        final GraphTraversal<?,?> traversal = patternGraph.optimize(stats);
+        while (traversal.hasNext()) {
+            blackhole.consume(traversal.next());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Measures the latency of parsing generated patterns into {@link PatternGraph}s. See {@link PlanningBenchmark} for
+ * how to run the benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"CHAIN", "STAR", "CYCLE", "CLIQUE"})
+    public PatternFamily family;
+
+    @Param({"2", "10", "50", "200"})
+    public int elements;
+
+    private GraphTraversal<?,?> traversal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // parsing does not access the graph
+        traversal = family.generate(TinkerGraph.open().traversal(), elements);
+    }
+
+    @Benchmark
+    public PatternGraph parse() {
+        return new PatternGraph(traversal);
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Generates pattern queries of a given shape and size. Vertices are named <code>v0</code> to <code>vn</code> and
+ * labeled round robin with {@link #VERTEX_LABELS} different labels, edges are labeled round robin with
+ * {@link #EDGE_LABELS} different labels. Patterns that contain cycles are expressed as <code>match()</code> steps
+ * whose closing traversals end at an already bound vertex.
+ */
+public enum PatternFamily {
+    /**
+     * <code>v0 -&gt; v1 -&gt; ... -&gt; vn</code>
+     */
+    CHAIN {
+        @Override
+        int vertexCount(int elements) {
+            return (elements + 1) / 2;
+        }
+
+        @Override
+        List<int[]> edges(int vertices) {
+            final List<int[]> edges = new ArrayList<>();
+            for (int i = 1; i < vertices; ++i) {
+                edges.add(new int[]{i - 1, i});
+            }
+            return edges;
+        }
+    },
+    /**
+     * <code>v0 -&gt; vi</code> for all <code>i &gt; 0</code>
+     */
+    STAR {
+        @Override
+        int vertexCount(int elements) {
+            return (elements + 1) / 2;
+        }
+
+        @Override
+        List<int[]> edges(int vertices) {
+            final List<int[]> edges = new ArrayList<>();
+            for (int i = 1; i < vertices; ++i) {
+                edges.add(new int[]{0, i});
+            }
+            return edges;
+        }
+    },
+    /**
+     * <code>v0 -&gt; v1 -&gt; ... -&gt; vn -&gt; v0</code>
+     */
+    CYCLE {
+        @Override
+        int vertexCount(int elements) {
+            return elements / 2;
+        }
+
+        @Override
+        List<int[]> edges(int vertices) {
+            final List<int[]> edges = CHAIN.edges(vertices);
+            edges.add(new int[]{vertices - 1, 0});
+            return edges;
+        }
+    },
+    /**
+     * <code>vi -&gt; vj</code> for all <code>i &lt; j</code>
+     */
+    CLIQUE {
+        @Override
+        int vertexCount(int elements) {
+            int vertices = 1;
+            while (vertices + 1 + (vertices + 1) * vertices / 2 <= elements) {
+                ++vertices;
+            }
+            return vertices;
+        }
+
+        @Override
+        List<int[]> edges(int vertices) {
+            final List<int[]> edges = new ArrayList<>();
+            for (int i = 0; i < vertices; ++i) {
+                for (int j = i + 1; j < vertices; ++j) {
+                    edges.add(new int[]{i, j});
+                }
+            }
+            return edges;
+        }
+    };
+
+    public static final int VERTEX_LABELS = 4;
+    public static final int EDGE_LABELS = 4;
+
+    /**
+     * Computes the number of vertices of the largest pattern of this family that has at most the given number of
+     * elements.
+     *
+     * @param elements The maximum number of vertices and edges.
+     * @return The number of vertices.
+     */
+    abstract int vertexCount(int elements);
+
+    /**
+     * Lists the edges of a pattern of this family. Each edge is represented by the indices of it's start and end
+     * vertex.
+     *
+     * @param vertices The number of vertices.
+     * @return The edges in an order in which each edge starts at a vertex that is connected to <code>v0</code>.
+     */
+    abstract List<int[]> edges(int vertices);
+
+    public static String vertexLabel(int vertex) {
+        return "vl" + vertex % VERTEX_LABELS;
+    }
+
+    public static String edgeLabel(int edge) {
+        return "el" + edge % EDGE_LABELS;
+    }
+
+    /**
+     * Generates the pattern of this family with the most elements that does not exceed the given size. Each pattern
+     * has at least two vertices.
+     *
+     * @param g The traversal source of the queried graph.
+     * @param elements The maximum number of vertices and edges.
+     * @return A traversal that selects all vertices of the pattern.
+     */
+    public GraphTraversal<?,?> generate(GraphTraversalSource g, int elements) {
+        final int vertices = Math.max(2, vertexCount(elements));
+        final List<int[]> edges = edges(vertices);
+        final boolean[] bound = new boolean[vertices];
+        bound[0] = true;
+
+        final List<Traversal<?,?>> matchTraversals = new ArrayList<>();
+        for (int i = 0; i < edges.size(); ++i) {
+            final int[] edge = edges.get(i);
+            GraphTraversal<?,?> t = __.as("v" + edge[0]).out(edgeLabel(i));
+            if (!bound[edge[1]]) {
+                t = t.hasLabel(vertexLabel(edge[1]));
+                bound[edge[1]] = true;
+            }
+            matchTraversals.add(t.as("v" + edge[1]));
+        }
+
+        final String[] remainingLabels = new String[vertices - 2];
+        for (int i = 2; i < vertices; ++i) {
+            remainingLabels[i - 2] = "v" + i;
+        }
+        return g.V().hasLabel(vertexLabel(0)).as("v0")
+                .match(matchTraversals.toArray(new Traversal[0]))
+                .select("v0", "v1", remainingLabels);
+    }
+}
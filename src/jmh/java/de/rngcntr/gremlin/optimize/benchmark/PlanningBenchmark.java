@@ -0,0 +1,87 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Measures the latency of optimizing generated patterns. The benchmarks are built and run with
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -jar target/jmh/benchmarks.jar PlanningBenchmark -prof gc -rf json -rff target/jmh/planning.json
+ * </pre>
+ * where <code>-prof gc</code> adds the allocation rate and <code>-rf json</code> writes machine readable results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanningBenchmark {
+
+    /**
+     * The origin of the statistics used by the optimizer.
+     */
+    public enum StatisticsSource {
+        /**
+         * All statistics are precomputed and looked up in a {@link de.rngcntr.gremlin.optimize.statistics.StatisticsSnapshot}.
+         */
+        SNAPSHOT,
+        /**
+         * Each statistic is computed by scanning a sample of the graph.
+         */
+        SAMPLING
+    }
+
+    private static final int GRAPH_VERTICES = 10_000;
+    private static final int GRAPH_EDGES = 50_000;
+    private static final double SAMPLING_RATE = 0.05;
+    private static final long SEED = 42L;
+
+    @Param({"CHAIN", "STAR", "CYCLE", "CLIQUE"})
+    public PatternFamily family;
+
+    @Param({"2", "10", "50", "200"})
+    public int elements;
+
+    @Param({"SNAPSHOT", "SAMPLING"})
+    public StatisticsSource statistics;
+
+    private StatisticsProvider stats;
+    private PatternGraph patternGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Graph graph = BenchmarkGraph.generate(GRAPH_VERTICES, GRAPH_EDGES, SEED);
+        final StatisticsProvider sampling = new SamplingStatisticsProvider(graph, SAMPLING_RATE, SEED);
+        stats = statistics == StatisticsSource.SNAPSHOT ? BenchmarkGraph.snapshotOf(sampling) : sampling;
+        // each optimization discards the retrievals of the previous one, so the pattern graph can be reused
+        patternGraph = new PatternGraph(family.generate(graph.traversal(), elements));
+    }
+
+    @Benchmark
+    public GraphTraversal<?,?> optimize() {
+        return patternGraph.optimize(stats);
+    }
+}
@@ -0,0 +1,250 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.log.QueryLogEntry;
+import de.rngcntr.gremlin.optimize.log.QueryLogReader;
+import de.rngcntr.gremlin.optimize.statistics.CachingStatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.jsr223.JavaTranslator;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Replays a query log that has been recorded by a {@link de.rngcntr.gremlin.optimize.log.QueryLogWriter} against a
+ * local snapshot of the graph. Every logged traversal is executed optimized and unoptimized and the median planning and
+ * execution times are reported per query and in aggregate, next to the latency that was recorded in production. The
+ * format of the snapshot is derived from the file extension, i.e. <code>.json</code> for GraphSON and
+ * <code>.kryo</code> for Gryo. The tool is started with
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -cp target/jmh/benchmarks.jar de.rngcntr.gremlin.optimize.benchmark.QueryLogReplay graph.kryo queries.log [repetitions]
+ * </pre>
+ * and exits with a non-zero status if any optimized query returns different results.
+ */
+public class QueryLogReplay {
+
+    private static final double SAMPLING_RATE = 0.1;
+    private static final long SEED = 42L;
+    private static final int WARMUP_REPETITIONS = 1;
+
+    private final GraphTraversalSource g;
+    private final StatisticsProvider stats;
+    private final int repetitions;
+
+    /**
+     * Creates a replay on a loaded graph.
+     *
+     * @param graph The graph snapshot.
+     * @param repetitions The number of measured executions per query.
+     */
+    public QueryLogReplay(Graph graph, int repetitions) {
+        this.g = graph.traversal();
+        this.stats = CachingStatisticsProvider.shared(new SamplingStatisticsProvider(graph, SAMPLING_RATE, SEED),
+                1, TimeUnit.DAYS, Long.MAX_VALUE);
+        this.repetitions = repetitions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: QueryLogReplay <graph.json|graph.kryo> <query log> [repetitions]");
+            System.exit(2);
+        }
+        final int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        final Graph graph = TinkerGraph.open();
+        graph.traversal().io(args[0]).read().iterate();
+        final List<QueryLogEntry> entries;
+        try (QueryLogReader reader = new QueryLogReader(new File(args[1]))) {
+            entries = reader.readAll();
+        }
+        System.out.printf("Replaying %d queries on %d vertices and %d edges%n", entries.size(),
+                graph.traversal().V().count().next(), graph.traversal().E().count().next());
+
+        final QueryLogReplay replay = new QueryLogReplay(graph, repetitions);
+        System.out.printf("%5s %8s %6s %12s %12s %10s %12s %8s%n",
+                "query", "results", "equal", "logged ms", "unopt ms", "plan ms", "opt ms", "speedup");
+        final List<Result> results = new ArrayList<>();
+        for (int i = 0; i < entries.size(); ++i) {
+            final Result result = replay.run(entries.get(i));
+            results.add(result);
+            if (result.failure != null) {
+                System.out.printf("%5d FAILED %s: %s%n", i, entries.get(i).getBytecode(), result.failure);
+            } else {
+                System.out.printf("%5d %8d %6s %12.3f %12.3f %10.3f %12.3f %7.2fx%n", i, result.results,
+                        result.equal, entries.get(i).getDurationNanos() / 1e6, result.unoptimizedNanos / 1e6,
+                        result.planningNanos / 1e6, result.optimizedNanos / 1e6, result.getSpeedup());
+            }
+        }
+        printAggregate(entries, results);
+        if (results.stream().anyMatch(r -> r.failure == null && !r.equal)) {
+            System.exit(1);
+        }
+    }
+
+    private static void printAggregate(List<QueryLogEntry> entries, List<Result> results) {
+        final long[] unoptimized = results.stream().filter(r -> r.failure == null)
+                .mapToLong(r -> r.unoptimizedNanos).sorted().toArray();
+        final long[] optimized = results.stream().filter(r -> r.failure == null)
+                .mapToLong(r -> r.planningNanos + r.optimizedNanos).sorted().toArray();
+        final long planning = results.stream().filter(r -> r.failure == null).mapToLong(r -> r.planningNanos).sum();
+        System.out.printf("%nfailed: %d, different results: %d%n",
+                results.stream().filter(r -> r.failure != null).count(),
+                results.stream().filter(r -> r.failure == null && !r.equal).count());
+        System.out.printf("total ms: logged %.3f, unoptimized %.3f, optimized %.3f (%.1f%% planning)%n",
+                entries.stream().mapToLong(QueryLogEntry::getDurationNanos).sum() / 1e6,
+                Arrays.stream(unoptimized).sum() / 1e6, Arrays.stream(optimized).sum() / 1e6,
+                100.0 * planning / Math.max(Arrays.stream(optimized).sum(), 1));
+        if (unoptimized.length > 0) {
+            System.out.printf("p50/p90/p99 ms: unoptimized %s, optimized including planning %s%n",
+                    percentiles(unoptimized), percentiles(optimized));
+        }
+    }
+
+    private static String percentiles(long[] sorted) {
+        return String.format("%.3f/%.3f/%.3f", percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                percentile(sorted, 99) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.round(percentile / 100 * (sorted.length - 1))];
+    }
+
+    /**
+     * Replays a single logged query optimized and unoptimized.
+     *
+     * @param entry The logged query.
+     * @return The measured times.
+     */
+    @SuppressWarnings("unchecked")
+    public Result run(QueryLogEntry entry) {
+        final long[] planning = new long[repetitions];
+        final long[] unoptimized = new long[repetitions];
+        final long[] optimized = new long[repetitions];
+        List<?> unoptimizedResults = null;
+        List<?> optimizedResults = null;
+        try {
+            for (int i = -WARMUP_REPETITIONS; i < repetitions; ++i) {
+                long start = System.nanoTime();
+                unoptimizedResults = translate(entry).toList();
+                final long unoptimizedTime = System.nanoTime() - start;
+
+                final GraphTraversal<?,?> query = (GraphTraversal<?,?>) translate(entry);
+                start = System.nanoTime();
+                final GraphTraversal<?,?> traversal = new PatternGraph(query).optimize(stats);
+                final long planningTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                optimizedResults = traversal.toList();
+                final long optimizedTime = System.nanoTime() - start;
+
+                if (i >= 0) {
+                    unoptimized[i] = unoptimizedTime;
+                    planning[i] = planningTime;
+                    optimized[i] = optimizedTime;
+                }
+            }
+        } catch (RuntimeException e) {
+            return new Result(0, false, 0, 0, 0, String.valueOf(e));
+        }
+        final boolean equal = HashMultiset.create(unoptimizedResults).equals(HashMultiset.create(optimizedResults));
+        return new Result(unoptimizedResults.size(), equal, median(planning), median(unoptimized), median(optimized),
+                null);
+    }
+
+    private Traversal.Admin<?,?> translate(QueryLogEntry entry) {
+        return JavaTranslator.of(g).translate(entry.getBytecode());
+    }
+
+    private static long median(long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * The comparison of a single logged query, where all times are medians in nanoseconds.
+     */
+    public static class Result {
+        private final int results;
+        private final boolean equal;
+        private final long planningNanos;
+        private final long unoptimizedNanos;
+        private final long optimizedNanos;
+        private final String failure;
+
+        private Result(int results, boolean equal, long planningNanos, long unoptimizedNanos, long optimizedNanos,
+                       String failure) {
+            this.results = results;
+            this.equal = equal;
+            this.planningNanos = planningNanos;
+            this.unoptimizedNanos = unoptimizedNanos;
+            this.optimizedNanos = optimizedNanos;
+            this.failure = failure;
+        }
+
+        public int getResults() {
+            return results;
+        }
+
+        public boolean isEqual() {
+            return equal;
+        }
+
+        public long getPlanningNanos() {
+            return planningNanos;
+        }
+
+        public long getUnoptimizedNanos() {
+            return unoptimizedNanos;
+        }
+
+        public long getOptimizedNanos() {
+            return optimizedNanos;
+        }
+
+        /**
+         * Gets the reason why the query could not be replayed.
+         *
+         * @return The failure or <code>null</code> if the query has been replayed.
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        /**
+         * Computes by which factor the optimized query including it's planning is faster than the unoptimized one.
+         *
+         * @return The speedup, which is below <code>1</code> for slowdowns.
+         */
+        public double getSpeedup() {
+            return (double) unoptimizedNanos / Math.max(planningNanos + optimizedNanos, 1);
+        }
+    }
+}
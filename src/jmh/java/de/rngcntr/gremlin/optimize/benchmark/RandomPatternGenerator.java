@@ -0,0 +1,232 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Generates random pattern traversals that are supported by the {@link de.rngcntr.gremlin.optimize.util.GremlinParser}.
+ * The vertices and edges of a pattern use the labels of {@link PatternFamily} and are optionally filtered by their
+ * label and by an integer property {@value #VALUE_KEY}, whose values are expected to be uniformly distributed between
+ * <code>0</code> and <code>99</code>. The thresholds of the property filters result in selectivities between 1% and
+ * 90%.
+ */
+public class RandomPatternGenerator {
+
+    public static final String VALUE_KEY = "value";
+    public static final int VALUE_RANGE = 100;
+
+    private static final int[] VALUE_THRESHOLDS = {1, 10, 50, 90};
+    private static final double LABEL_PROBABILITY = 0.7;
+    private static final double VERTEX_VALUE_PROBABILITY = 0.3;
+    private static final double EDGE_VALUE_PROBABILITY = 0.2;
+
+    /**
+     * The structure of a generated pattern.
+     */
+    public enum Shape {
+        /**
+         * A path written as a linear traversal.
+         */
+        CHAIN,
+        /**
+         * Edges around a center vertex, written as a traversal that returns to the center with <code>select()</code>.
+         */
+        STAR,
+        /**
+         * A single cycle written as a <code>match()</code> step.
+         */
+        CYCLE,
+        /**
+         * A random tree with additional edges written as a <code>match()</code> step.
+         */
+        MATCH
+    }
+
+    private final Random random;
+    private final int minVertices;
+    private final int maxVertices;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed The seed of the generated patterns.
+     * @param minVertices The minimum number of vertices of a pattern, at least <code>2</code>.
+     * @param maxVertices The maximum number of vertices of a pattern.
+     */
+    public RandomPatternGenerator(long seed, int minVertices, int maxVertices) {
+        if (minVertices < 2 || maxVertices < minVertices) {
+            throw new IllegalArgumentException(String.format("Invalid pattern size: [%d, %d]", minVertices, maxVertices));
+        }
+        this.random = new Random(seed);
+        this.minVertices = minVertices;
+        this.maxVertices = maxVertices;
+    }
+
+    /**
+     * Generates a pattern of a random shape.
+     *
+     * @param g The traversal source of the queried graph.
+     * @return The generated traversal.
+     */
+    public GraphTraversal<?,?> next(GraphTraversalSource g) {
+        return next(g, Shape.values()[random.nextInt(Shape.values().length)]);
+    }
+
+    /**
+     * Generates a pattern of the given shape.
+     *
+     * @param g The traversal source of the queried graph.
+     * @param shape The shape of the pattern.
+     * @return The generated traversal.
+     */
+    public GraphTraversal<?,?> next(GraphTraversalSource g, Shape shape) {
+        final int lower = shape == Shape.CYCLE ? Math.max(3, minVertices) : minVertices;
+        final int vertices = lower + random.nextInt(Math.max(lower, maxVertices) - lower + 1);
+        final List<int[]> edges = new ArrayList<>();
+        switch (shape) {
+            case CHAIN:
+                for (int v = 1; v < vertices; ++v) {
+                    edges.add(new int[]{v - 1, v});
+                }
+                return linear(g, vertices, edges, false);
+            case STAR:
+                for (int v = 1; v < vertices; ++v) {
+                    edges.add(new int[]{0, v});
+                }
+                return linear(g, vertices, edges, true);
+            case CYCLE:
+                for (int v = 1; v <= vertices; ++v) {
+                    edges.add(new int[]{v - 1, v % vertices});
+                }
+                return matching(g, vertices, edges);
+            default:
+                final Set<Long> connected = new HashSet<>();
+                for (int v = 1; v < vertices; ++v) {
+                    final int parent = random.nextInt(v);
+                    edges.add(new int[]{parent, v});
+                    connected.add(pair(parent, v));
+                }
+                final int extraEdges = random.nextInt(vertices);
+                for (int e = 0; e < extraEdges; ++e) {
+                    final int from = random.nextInt(vertices);
+                    final int to = random.nextInt(vertices);
+                    if (from != to && connected.add(pair(from, to))) {
+                        edges.add(new int[]{from, to});
+                    }
+                }
+                return matching(g, vertices, edges);
+        }
+    }
+
+    private static long pair(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /**
+     * Writes a pattern whose edges either form a path or all start at the first vertex as a linear traversal.
+     */
+    private GraphTraversal<?,?> linear(GraphTraversalSource g, int vertices, List<int[]> edges, boolean star) {
+        GraphTraversal<?,?> traversal = filterVertex(g.V()).as(label(0));
+        for (int[] edge : edges) {
+            if (star && edge[0] != 0) {
+                throw new IllegalStateException("Star edges must start at the center");
+            }
+            if (star && edge[1] > 1) {
+                traversal = traversal.select(label(0));
+            }
+            traversal = filterVertex(step(traversal, random.nextBoolean())).as(label(edge[1]));
+        }
+        return select(traversal, vertices);
+    }
+
+    /**
+     * Writes a pattern as a <code>match()</code> step, in which each edge is traversed starting at an already bound
+     * vertex. The direction of each edge is chosen randomly.
+     */
+    private GraphTraversal<?,?> matching(GraphTraversalSource g, int vertices, List<int[]> edges) {
+        final List<Traversal<?,?>> matchTraversals = new ArrayList<>();
+        final boolean[] bound = new boolean[vertices];
+        bound[0] = true;
+        for (int[] edge : edges) {
+            // the tree edges are ordered, so that at least one endpoint is bound
+            final boolean forward = bound[edge[0]];
+            final int from = forward ? edge[0] : edge[1];
+            final int to = forward ? edge[1] : edge[0];
+            GraphTraversal<?,?> matchTraversal = step(__.as(label(from)), random.nextBoolean());
+            if (!bound[to]) {
+                matchTraversal = filterVertex(matchTraversal);
+                bound[to] = true;
+            }
+            matchTraversals.add(matchTraversal.as(label(to)));
+        }
+        final GraphTraversal<?,?> traversal = filterVertex(g.V()).as(label(0))
+                .match(matchTraversals.toArray(new Traversal[0]));
+        return select(traversal, vertices);
+    }
+
+    /**
+     * Appends an edge step with random filters to the current vertex.
+     */
+    private GraphTraversal<?,?> step(GraphTraversal<?,?> traversal, boolean outgoing) {
+        final String[] edgeLabel = random.nextDouble() < LABEL_PROBABILITY
+                ? new String[]{PatternFamily.edgeLabel(random.nextInt(PatternFamily.EDGE_LABELS))}
+                : new String[0];
+        if (random.nextDouble() < EDGE_VALUE_PROBABILITY) {
+            final GraphTraversal<?,?> edge = outgoing ? traversal.outE(edgeLabel) : traversal.inE(edgeLabel);
+            final GraphTraversal<?,?> filtered = edge.has(VALUE_KEY, P.lt(threshold()));
+            return outgoing ? filtered.inV() : filtered.outV();
+        }
+        return outgoing ? traversal.out(edgeLabel) : traversal.in(edgeLabel);
+    }
+
+    private GraphTraversal<?,?> filterVertex(GraphTraversal<?,?> traversal) {
+        if (random.nextDouble() < LABEL_PROBABILITY) {
+            traversal = traversal.hasLabel(PatternFamily.vertexLabel(random.nextInt(PatternFamily.VERTEX_LABELS)));
+        }
+        if (random.nextDouble() < VERTEX_VALUE_PROBABILITY) {
+            traversal = traversal.has(VALUE_KEY, P.lt(threshold()));
+        }
+        return traversal;
+    }
+
+    private int threshold() {
+        return VALUE_THRESHOLDS[random.nextInt(VALUE_THRESHOLDS.length)];
+    }
+
+    private static GraphTraversal<?,?> select(GraphTraversal<?,?> traversal, int vertices) {
+        final String[] others = new String[vertices - 2];
+        for (int v = 2; v < vertices; ++v) {
+            others[v - 2] = label(v);
+        }
+        return traversal.select(label(0), label(1), others);
+    }
+
+    private static String label(int vertex) {
+        return "v" + vertex;
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Estimates statistics by scanning a uniform random sample of the graph's vertices and edges on every request and
+ * extrapolating the counts to the whole graph. This resembles the cost of statistics that are computed on demand
+ * instead of being read from a precomputed catalog.
+ */
+public class SamplingStatisticsProvider implements StatisticsProvider {
+
+    private final List<Vertex> sampledVertices;
+    private final List<Edge> sampledEdges;
+    private final long vertexCount;
+    private final long edgeCount;
+    private final double samplingRate;
+
+    /**
+     * Draws the sample.
+     *
+     * @param graph The sampled graph.
+     * @param samplingRate The probability of each element to be part of the sample.
+     * @param seed The seed of the random sample.
+     */
+    public SamplingStatisticsProvider(Graph graph, double samplingRate, long seed) {
+        if (samplingRate <= 0.0 || samplingRate > 1.0) {
+            throw new IllegalArgumentException("Sampling rate must be in (0, 1]: " + samplingRate);
+        }
+        this.samplingRate = samplingRate;
+        final Random random = new Random(seed);
+        sampledVertices = new ArrayList<>();
+        sampledEdges = new ArrayList<>();
+        long vertices = 0;
+        long edges = 0;
+        for (Vertex v : (Iterable<Vertex>) graph::vertices) {
+            ++vertices;
+            if (random.nextDouble() < samplingRate) {
+                sampledVertices.add(v);
+            }
+        }
+        for (Edge e : (Iterable<Edge>) graph::edges) {
+            ++edges;
+            if (random.nextDouble() < samplingRate) {
+                sampledEdges.add(e);
+            }
+        }
+        vertexCount = vertices;
+        edgeCount = edges;
+    }
+
+    @Override
+    public <E extends Element> double totals(Class<E> clazz) {
+        return clazz == Vertex.class ? vertexCount : edgeCount;
+    }
+
+    @Override
+    public <E extends Element> double withLabel(LabelFilter<E> label) {
+        return count(sample(label.getFilteredType()), e -> hasLabel(e, label));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Element> double withProperty(LabelFilter<E> label, PropertyFilter<E> property) {
+        final P<Object> predicate = (P<Object>) property.getPredicate();
+        return count(sample(label.getFilteredType()), e -> {
+            if (!hasLabel(e, label)) {
+                return false;
+            }
+            final Property<Object> value = e.property(property.getKey());
+            return value.isPresent() && predicate.test(value.value());
+        });
+    }
+
+    @Override
+    public <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel,
+                                                                       LabelFilter<E2> toLabel) {
+        if (fromLabel.getFilteredType() == Vertex.class && toLabel.getFilteredType() == Edge.class) {
+            return count(sampledEdges, e -> hasLabel(e, toLabel) && hasLabel(e.outVertex(), fromLabel));
+        } else if (fromLabel.getFilteredType() == Edge.class && toLabel.getFilteredType() == Vertex.class) {
+            return count(sampledEdges, e -> hasLabel(e, fromLabel) && hasLabel(e.inVertex(), toLabel));
+        } else {
+            return count(sampledEdges, e -> hasLabel(e.outVertex(), fromLabel) && hasLabel(e.inVertex(), toLabel));
+        }
+    }
+
+    private List<? extends Element> sample(Class<?> type) {
+        return type == Vertex.class ? sampledVertices : sampledEdges;
+    }
+
+    private static boolean hasLabel(Element element, LabelFilter<?> label) {
+        return label.getLabel() == null || label.getLabel().equals(element.label());
+    }
+
+    private <E extends Element> double count(List<E> sample, Predicate<E> predicate) {
+        long matches = 0;
+        for (E element : sample) {
+            if (predicate.test(element)) {
+                ++matches;
+            }
+        }
+        return matches / samplingRate;
+    }
+}
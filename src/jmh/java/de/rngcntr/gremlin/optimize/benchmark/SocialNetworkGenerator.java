@@ -0,0 +1,163 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Generates social network graphs that resemble the schema of the LDBC social network benchmark. The graph consists of
+ * the vertex labels <code>person</code>, <code>post</code>, <code>comment</code>, <code>tag</code> and
+ * <code>place</code>, which are connected by the edge labels <code>knows</code>, <code>isLocatedIn</code>,
+ * <code>hasInterest</code>, <code>hasCreator</code>, <code>hasTag</code>, <code>replyOf</code> and <code>likes</code>.
+ * <p>
+ * The degrees follow power laws: friendships are created by preferential attachment, active persons create and like
+ * more messages, and the popularity of tags and places follows a Zipf distribution. All element counts scale linearly
+ * with the scale factor, a scale factor of <code>1</code> results in 1000 persons and about 60000 edges.
+ */
+public class SocialNetworkGenerator {
+
+    public static final int PERSONS = 1000;
+    public static final int TAGS = 200;
+    public static final int PLACES = 50;
+    public static final String[] LANGUAGES = {"en", "de", "fr", "es"};
+
+    private static final int KNOWS_PER_PERSON = 5;
+    private static final int INTERESTS_PER_PERSON = 3;
+    private static final int POSTS_PER_PERSON = 5;
+    private static final int COMMENTS_PER_PERSON = 10;
+    private static final int LIKES_PER_PERSON = 20;
+    private static final int MAX_TAGS_PER_POST = 3;
+    private static final double POPULARITY_SKEW = 1.0;
+
+    private final Random random;
+    private final Graph graph;
+    private final List<Vertex> persons = new ArrayList<>();
+    private final List<Vertex> tags = new ArrayList<>();
+    private final List<Vertex> places = new ArrayList<>();
+    private final List<Vertex> posts = new ArrayList<>();
+    private final List<Vertex> messages = new ArrayList<>();
+    // each person is contained once plus once per friendship, which makes sampling proportional to the degree
+    private final List<Vertex> activity = new ArrayList<>();
+
+    private SocialNetworkGenerator(long seed) {
+        this.random = new Random(seed);
+        this.graph = TinkerGraph.open();
+    }
+
+    /**
+     * Generates a social network graph.
+     *
+     * @param scaleFactor The factor by which the number of persons, messages and edges is scaled.
+     * @param seed The seed of the generator.
+     * @return The generated graph.
+     */
+    public static Graph generate(double scaleFactor, long seed) {
+        if (scaleFactor <= 0.0) {
+            throw new IllegalArgumentException("Scale factor must be positive: " + scaleFactor);
+        }
+        final SocialNetworkGenerator generator = new SocialNetworkGenerator(seed);
+        generator.createPlacesAndTags();
+        generator.createPersons(Math.max(2, (int) Math.round(PERSONS * scaleFactor)));
+        generator.createFriendships();
+        generator.createPosts();
+        generator.createComments();
+        generator.createLikes();
+        return generator.graph;
+    }
+
+    private void createPlacesAndTags() {
+        for (int i = 0; i < PLACES; ++i) {
+            places.add(graph.addVertex(T.label, "place", "name", "place" + i));
+        }
+        for (int i = 0; i < TAGS; ++i) {
+            tags.add(graph.addVertex(T.label, "tag", "name", "tag" + i));
+        }
+    }
+
+    private void createPersons(int count) {
+        final ZipfDistribution placePopularity = new ZipfDistribution(PLACES, POPULARITY_SKEW);
+        final ZipfDistribution tagPopularity = new ZipfDistribution(TAGS, POPULARITY_SKEW);
+        for (int i = 0; i < count; ++i) {
+            final Vertex person = graph.addVertex(T.label, "person",
+                    "name", "person" + i,
+                    "age", 18 + random.nextInt(63),
+                    "gender", random.nextBoolean() ? "male" : "female");
+            person.addEdge("isLocatedIn", places.get(placePopularity.sample(random)));
+            for (int t = 0; t < INTERESTS_PER_PERSON; ++t) {
+                person.addEdge("hasInterest", tags.get(tagPopularity.sample(random)));
+            }
+            persons.add(person);
+            activity.add(person);
+        }
+    }
+
+    private void createFriendships() {
+        for (Vertex person : persons) {
+            for (int k = 0; k < KNOWS_PER_PERSON; ++k) {
+                final Vertex friend = activity.get(random.nextInt(activity.size()));
+                if (friend == person) {
+                    continue;
+                }
+                person.addEdge("knows", friend);
+                activity.add(person);
+                activity.add(friend);
+            }
+        }
+    }
+
+    private void createPosts() {
+        final ZipfDistribution tagPopularity = new ZipfDistribution(TAGS, POPULARITY_SKEW);
+        for (int i = 0; i < persons.size() * POSTS_PER_PERSON; ++i) {
+            final Vertex post = graph.addVertex(T.label, "post",
+                    "language", LANGUAGES[random.nextInt(LANGUAGES.length)],
+                    "length", random.nextInt(1000));
+            post.addEdge("hasCreator", activePerson());
+            final int postTags = 1 + random.nextInt(MAX_TAGS_PER_POST);
+            for (int t = 0; t < postTags; ++t) {
+                post.addEdge("hasTag", tags.get(tagPopularity.sample(random)));
+            }
+            posts.add(post);
+            messages.add(post);
+        }
+    }
+
+    private void createComments() {
+        for (int i = 0; i < persons.size() * COMMENTS_PER_PERSON; ++i) {
+            final Vertex comment = graph.addVertex(T.label, "comment", "length", random.nextInt(200));
+            comment.addEdge("hasCreator", activePerson());
+            comment.addEdge("replyOf", messages.get(random.nextInt(messages.size())));
+            messages.add(comment);
+        }
+    }
+
+    private void createLikes() {
+        for (int i = 0; i < persons.size() * LIKES_PER_PERSON; ++i) {
+            activePerson().addEdge("likes", messages.get(random.nextInt(messages.size())));
+        }
+    }
+
+    private Vertex activePerson() {
+        return activity.get(random.nextInt(activity.size()));
+    }
+}
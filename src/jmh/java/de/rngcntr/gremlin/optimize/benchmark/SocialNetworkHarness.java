@@ -0,0 +1,195 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.statistics.CachingStatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Runs the {@link SocialNetworkWorkload} on a generated social network and compares the optimized with the unoptimized
+ * execution of each query. For each query, the median planning time and the median execution times of both variants are
+ * reported together with a check that both variants return the same results. The harness is started with
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java -cp target/jmh/benchmarks.jar de.rngcntr.gremlin.optimize.benchmark.SocialNetworkHarness [scaleFactor] [repetitions] [seed]
+ * </pre>
+ * and exits with a non-zero status if any optimized query returns different results.
+ */
+public class SocialNetworkHarness {
+
+    private static final double SAMPLING_RATE = 0.1;
+    private static final int WARMUP_REPETITIONS = 2;
+
+    private final Graph graph;
+    private final StatisticsProvider stats;
+    private final int repetitions;
+
+    /**
+     * Creates a harness on a generated graph.
+     *
+     * @param graph The social network graph.
+     * @param repetitions The number of measured executions per query.
+     * @param seed The seed of the sampled statistics.
+     */
+    public SocialNetworkHarness(Graph graph, int repetitions, long seed) {
+        this.graph = graph;
+        // statistics are cached across queries, so the planning time does not include sampling
+        this.stats = CachingStatisticsProvider.shared(new SamplingStatisticsProvider(graph, SAMPLING_RATE, seed),
+                1, TimeUnit.DAYS, Long.MAX_VALUE);
+        this.repetitions = repetitions;
+    }
+
+    public static void main(String[] args) {
+        final double scaleFactor = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        final int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        final long start = System.nanoTime();
+        final Graph graph = SocialNetworkGenerator.generate(scaleFactor, seed);
+        final GraphTraversalSource g = graph.traversal();
+        System.out.printf("Generated scale factor %s with %d vertices and %d edges in %.0f ms%n", scaleFactor,
+                g.V().count().next(), g.E().count().next(), (System.nanoTime() - start) / 1e6);
+
+        final SocialNetworkHarness harness = new SocialNetworkHarness(graph, repetitions, seed);
+        System.out.printf("%-20s %8s %6s %10s %12s %12s %8s%n",
+                "query", "results", "equal", "plan ms", "unopt ms", "opt ms", "speedup");
+        boolean allEqual = true;
+        for (SocialNetworkWorkload query : SocialNetworkWorkload.values()) {
+            final Result result = harness.run(query);
+            allEqual &= result.isEqual();
+            System.out.println(result);
+        }
+        if (!allEqual) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Executes a query optimized and unoptimized.
+     *
+     * @param query The query.
+     * @return The measured times.
+     */
+    public Result run(SocialNetworkWorkload query) {
+        final GraphTraversalSource g = graph.traversal();
+        final long[] planning = new long[repetitions];
+        final long[] unoptimized = new long[repetitions];
+        final long[] optimized = new long[repetitions];
+        List<?> unoptimizedResults = null;
+        List<?> optimizedResults = null;
+
+        for (int i = -WARMUP_REPETITIONS; i < repetitions; ++i) {
+            long start = System.nanoTime();
+            unoptimizedResults = query.traversal(g).toList();
+            final long unoptimizedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final GraphTraversal<?,?> traversal = new PatternGraph(query.traversal(g)).optimize(stats);
+            final long planningTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            optimizedResults = traversal.toList();
+            final long optimizedTime = System.nanoTime() - start;
+
+            if (i >= 0) {
+                unoptimized[i] = unoptimizedTime;
+                planning[i] = planningTime;
+                optimized[i] = optimizedTime;
+            }
+        }
+
+        final boolean equal = HashMultiset.create(unoptimizedResults).equals(HashMultiset.create(optimizedResults));
+        return new Result(query, unoptimizedResults.size(), equal, median(planning), median(unoptimized),
+                median(optimized));
+    }
+
+    private static long median(long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * The comparison of a single query, where all times are medians in nanoseconds.
+     */
+    public static class Result {
+        private final SocialNetworkWorkload query;
+        private final int results;
+        private final boolean equal;
+        private final long planningNanos;
+        private final long unoptimizedNanos;
+        private final long optimizedNanos;
+
+        private Result(SocialNetworkWorkload query, int results, boolean equal, long planningNanos,
+                       long unoptimizedNanos, long optimizedNanos) {
+            this.query = query;
+            this.results = results;
+            this.equal = equal;
+            this.planningNanos = planningNanos;
+            this.unoptimizedNanos = unoptimizedNanos;
+            this.optimizedNanos = optimizedNanos;
+        }
+
+        public SocialNetworkWorkload getQuery() {
+            return query;
+        }
+
+        public int getResults() {
+            return results;
+        }
+
+        public boolean isEqual() {
+            return equal;
+        }
+
+        public long getPlanningNanos() {
+            return planningNanos;
+        }
+
+        public long getUnoptimizedNanos() {
+            return unoptimizedNanos;
+        }
+
+        public long getOptimizedNanos() {
+            return optimizedNanos;
+        }
+
+        /**
+         * Computes by which factor the optimized query including it's planning is faster than the unoptimized one.
+         *
+         * @return The speedup, which is below <code>1</code> for slowdowns.
+         */
+        public double getSpeedup() {
+            return (double) unoptimizedNanos / Math.max(planningNanos + optimizedNanos, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %8d %6s %10.3f %12.3f %12.3f %7.2fx", query, results, equal,
+                    planningNanos / 1e6, unoptimizedNanos / 1e6, optimizedNanos / 1e6, getSpeedup());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+
+import java.util.function.Function;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The pattern queries that are executed on graphs of the {@link SocialNetworkGenerator}. The queries are written in the
+ * order a user would naturally write them, which is not necessarily the cheapest order of retrieval.
+ */
+public enum SocialNetworkWorkload {
+
+    /**
+     * Friends of friends of a well connected person.
+     */
+    FRIENDS_OF_FRIENDS(g -> g.V().hasLabel("person").has("name", "person0").as("a")
+            .out("knows").hasLabel("person").as("b")
+            .out("knows").hasLabel("person").as("c")
+            .select("a", "b", "c")),
+
+    /**
+     * Young creators of german posts about the most popular tag.
+     */
+    TAG_CREATORS(g -> g.V().hasLabel("person").has("age", P.lt(20)).as("a")
+            .in("hasCreator").hasLabel("post").has("language", "de").as("p")
+            .out("hasTag").hasLabel("tag").has("name", "tag0").as("t")
+            .select("a", "p", "t")),
+
+    /**
+     * Comments on the posts of a person's friends.
+     */
+    REPLIES_TO_FRIENDS(g -> g.V().hasLabel("comment").as("c")
+            .out("replyOf").hasLabel("post").as("p")
+            .out("hasCreator").hasLabel("person").as("f")
+            .in("knows").hasLabel("person").has("name", "person1").as("a")
+            .select("a", "f", "p", "c")),
+
+    /**
+     * Persons of a place that like posts about a tag.
+     */
+    LOCAL_LIKES(g -> g.V().hasLabel("post").as("p")
+            .out("hasTag").hasLabel("tag").has("name", "tag1").as("t")
+            .select("p")
+            .in("likes").hasLabel("person").as("a")
+            .out("isLocatedIn").hasLabel("place").has("name", "place0").as("pl")
+            .select("a", "p", "t", "pl")),
+
+    /**
+     * Persons that share an interest with a given person.
+     */
+    SHARED_INTERESTS(g -> g.V().hasLabel("person").has("name", "person2").as("a")
+            .out("hasInterest").hasLabel("tag").as("t")
+            .in("hasInterest").hasLabel("person").as("b")
+            .out("isLocatedIn").hasLabel("place").as("pl")
+            .select("a", "t", "b", "pl")),
+
+    /**
+     * Friendship triangles among the oldest persons.
+     */
+    TRIANGLES(g -> g.V().hasLabel("person").has("age", P.gt(78)).as("a")
+            .match(__.as("a").out("knows").hasLabel("person").as("b"),
+                    __.as("b").out("knows").hasLabel("person").as("c"),
+                    __.as("a").out("knows").as("c"))
+            .select("a", "b", "c"));
+
+    private final Function<GraphTraversalSource, GraphTraversal<?,?>> query;
+
+    SocialNetworkWorkload(Function<GraphTraversalSource, GraphTraversal<?,?>> query) {
+        this.query = query;
+    }
+
+    /**
+     * Creates the traversal of this query.
+     *
+     * @param g The traversal source of the generated graph.
+     * @return The unoptimized traversal.
+     */
+    public GraphTraversal<?,?> traversal(GraphTraversalSource g) {
+        return query.apply(g);
+    }
+}
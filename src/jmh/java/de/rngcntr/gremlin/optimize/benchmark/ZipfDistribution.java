@@ -0,0 +1,61 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Samples ranks from a Zipf distribution, where the probability of rank <code>k</code> is proportional to
+ * <code>1 / k^exponent</code>. An exponent of <code>0</code> results in a uniform distribution.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    /**
+     * Precomputes the cumulative probabilities of all ranks.
+     *
+     * @param size The number of ranks.
+     * @param exponent The skew of the distribution.
+     */
+    public ZipfDistribution(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        cumulative = new double[size];
+        double sum = 0.0;
+        for (int i = 0; i < size; ++i) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; ++i) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random The source of randomness.
+     * @return A rank between <code>0</code> (the most frequent one) and <code>size - 1</code>.
+     */
+    public int sample(Random random) {
+        final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.execution;
+
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.computer.ComputerResult;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Executes an optimized query plan on a {@link GraphComputer}. The whole plan is executed by a single
+ * {@link PlanVertexProgram}, whose vertices retrieve the pattern elements, send the intermediate results to each other
+ * and join them at the vertices that hold their join attributes. The results stay at the vertices that completed
+ * them and are streamed from the result graph when they are requested, so no side of a join is collected by the
+ * driver or by a single <code>JoinStep</code>.<br>
+ * Like the results of OLAP traversals, the results hold references to the graph elements instead of the elements
+ * themselves.
+ *
+ * @author Florian Grieskamp
+ */
+public class ComputerExecutor {
+
+    private final Graph graph;
+    private final Class<? extends GraphComputer> graphComputer;
+    private final Map<PatternElement<?>, Integer> slots;
+    private final List<Integer> returnedSlots;
+    private final List<String> returnedLabels;
+    private final PartialQueryPlan plan;
+
+    /**
+     * Prepares a query plan for the execution on a graph computer.
+     *
+     * @param graph The graph to retrieve the elements from.
+     * @param graphComputer The graph computer to use or <code>null</code> to use the graph's default computer.
+     * @param elementsToReturn The returned elements and the labels that they are returned with.
+     * @param plan The query plan.
+     */
+    public ComputerExecutor(Graph graph, Class<? extends GraphComputer> graphComputer,
+                            Map<PatternElement<?>, String> elementsToReturn, PartialQueryPlan plan) {
+        this.graph = graph;
+        this.graphComputer = graphComputer;
+        this.slots = new IdentityHashMap<>();
+        for (PatternElement<?> element : plan.getElements()) {
+            slots.put(element, slots.size());
+        }
+        this.returnedSlots = new ArrayList<>(elementsToReturn.size());
+        for (PatternElement<?> element : elementsToReturn.keySet()) {
+            if (!slots.containsKey(element)) {
+                throw new IllegalArgumentException(String.format("%s is not part of the plan", element));
+            }
+            returnedSlots.add(slots.get(element));
+        }
+        this.returnedLabels = new ArrayList<>(elementsToReturn.values());
+        this.plan = plan;
+    }
+
+    /**
+     * Executes the plan. The vertex program is completed before the first result is returned, the results are read
+     * from the vertices of the result graph lazily.
+     *
+     * @return The results of the pattern. Like in the translated traversal, these are the returned elements if only a
+     * single element is returned and maps from the returned labels to the elements otherwise.
+     */
+    public Iterator<Object> execute() {
+        final Iterator<Vertex> vertices = graph.vertices();
+        if (!vertices.hasNext()) {
+            CloseableIterator.closeIterator(vertices);
+            return Collections.emptyIterator();
+        }
+        // any vertex can join the intermediate results that share no elements
+        final Vertex hub = vertices.next();
+        CloseableIterator.closeIterator(vertices);
+
+        final GraphComputer computer = graphComputer == null ? graph.compute() : graph.compute(graphComputer);
+        try {
+            final ComputerResult result = computer.program(new PlanVertexProgram(plan, slots, hub)).submit().get();
+            return IteratorUtils.flatMap(result.graph().vertices(),
+                    vertex -> IteratorUtils.map(PlanVertexProgram.results(vertex), this::project));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing a plan on a graph computer", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The plan failed on the graph computer", e.getCause());
+        }
+    }
+
+    private Object project(Object[] row) {
+        if (returnedSlots.size() < 2) {
+            return returnedSlots.isEmpty() ? null : row[returnedSlots.get(0)];
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < returnedSlots.size(); ++i) {
+            result.put(returnedLabels.get(i), row[returnedSlots.get(i)]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,480 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.execution;
+
+import de.rngcntr.gremlin.optimize.filter.ElementFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.query.DependencyTree;
+import de.rngcntr.gremlin.optimize.query.EmptyQueryPlan;
+import de.rngcntr.gremlin.optimize.query.Join;
+import de.rngcntr.gremlin.optimize.query.JoinAttribute;
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentEdgeRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentVertexRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectEdgeRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectVertexRetrieval;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import java.util.*;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Executes an optimized query plan directly against the Structure API of a graph instead of translating it into
+ * Gremlin steps. Intermediate results are arrays that hold the bound graph element of each pattern element at a fixed
+ * position, so that neither paths nor traversers have to be created for them. Each dependency tree is executed as a
+ * pipeline of it's retrievals and each join as a hash join on it's join attributes, whose inner side is collected
+ * once per execution. Label and property filters are evaluated on the retrieved elements.<br>
+ * With a batch size greater than one, each retrieval consumes the intermediate results in blocks. The candidates of a
+ * block are fetched in batches of the same size, each filter is evaluated over all candidates of a batch before the
+ * next filter is applied, and the extended intermediate results are handed to the next retrieval as a block again.
+ */
+public class NativeExecutor {
+
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    private final Graph graph;
+    private final int batchSize;
+    private final Map<PatternElement<?>, Integer> slots;
+    private final List<PatternElement<?>> returnedElements;
+    private final List<String> returnedLabels;
+    private final Operator root;
+
+    /**
+     * Processes a stream of intermediate results and emits the intermediate results that extend them.
+     */
+    @FunctionalInterface
+    private interface Operator {
+        Iterator<Object[]> apply(Iterator<Object[]> rows);
+    }
+
+    /**
+     * Compiles a query plan for native execution.
+     *
+     * @param graph The graph to retrieve the elements from.
+     * @param elements All elements of the pattern graph that the plan was built for.
+     * @param elementsToReturn The returned elements and the labels that they are returned with.
+     * @param plan The query plan.
+     */
+    public NativeExecutor(Graph graph, List<PatternElement<?>> elements,
+                          Map<PatternElement<?>, String> elementsToReturn, PartialQueryPlan plan) {
+        this(graph, elements, elementsToReturn, plan, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Compiles a query plan for native execution in batches.
+     *
+     * @param graph The graph to retrieve the elements from.
+     * @param elements All elements of the pattern graph that the plan was built for.
+     * @param elementsToReturn The returned elements and the labels that they are returned with.
+     * @param plan The query plan.
+     * @param batchSize The number of intermediate results that each retrieval processes at once.
+     */
+    public NativeExecutor(Graph graph, List<PatternElement<?>> elements,
+                          Map<PatternElement<?>, String> elementsToReturn, PartialQueryPlan plan, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(String.format("The batch size must be positive but was %d", batchSize));
+        }
+        this.graph = graph;
+        this.batchSize = batchSize;
+        this.slots = new IdentityHashMap<>();
+        for (PatternElement<?> element : elements) {
+            slots.put(element, slots.size());
+        }
+        this.returnedElements = new ArrayList<>(elementsToReturn.keySet());
+        this.returnedLabels = new ArrayList<>(elementsToReturn.values());
+        this.root = compile(plan);
+    }
+
+    /**
+     * Executes the plan lazily.
+     *
+     * @return The results of the pattern. Like in the translated traversal, these are the returned elements if only a
+     * single element is returned and maps from the returned labels to the elements otherwise.
+     */
+    public Iterator<Object> execute() {
+        return IteratorUtils.map(root.apply(IteratorUtils.of(new Object[slots.size()])), this::project);
+    }
+
+    private Object project(Object[] row) {
+        if (returnedElements.size() < 2) {
+            return returnedElements.isEmpty() ? null : row[slot(returnedElements.get(0))];
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < returnedElements.size(); ++i) {
+            result.put(returnedLabels.get(i), row[slot(returnedElements.get(i))]);
+        }
+        return result;
+    }
+
+    private int slot(PatternElement<?> element) {
+        final Integer slot = slots.get(element);
+        if (slot == null) {
+            throw new IllegalArgumentException(String.format("%s is not part of the pattern", element));
+        }
+        return slot;
+    }
+
+    private Operator compile(PartialQueryPlan plan) {
+        if (plan instanceof DependencyTree) {
+            return compileTree((DependencyTree) plan);
+        } else if (plan instanceof Join) {
+            return compileJoin((Join) plan);
+        } else if (plan instanceof EmptyQueryPlan) {
+            return rows -> rows;
+        }
+        throw new IllegalArgumentException(String.format("Unsupported plan for native execution: %s", plan));
+    }
+
+    /*
+        the branches of a tree are independent given it's root, so they are chained after the root's retrieval
+     */
+    private Operator compileTree(DependencyTree tree) {
+        final List<Operator> operators = new ArrayList<>();
+        operators.add(compileRetrieval(tree.getRoot()));
+        tree.getChildren().forEach(child -> operators.add(compileTree(child)));
+        return chain(operators);
+    }
+
+    private static Operator chain(List<Operator> operators) {
+        return rows -> {
+            Iterator<Object[]> result = rows;
+            for (Operator operator : operators) {
+                result = operator.apply(result);
+            }
+            return result;
+        };
+    }
+
+    private Operator compileRetrieval(Retrieval<?> retrieval) {
+        final PatternElement<?> element = retrieval.getElement();
+        final int slot = slot(element);
+        final Candidates candidates = compileCandidates(retrieval);
+        if (batchSize > 1) {
+            return rows -> new BatchedRetrieval(rows, element, slot, candidates);
+        }
+        return rows -> IteratorUtils.flatMap(rows, row -> IteratorUtils.flatMap(candidates.of(row), candidate -> {
+            if (!matches(element, candidate)) {
+                return Collections.emptyIterator();
+            }
+            if (row[slot] != null) {
+                // the element has been bound by another retrieval, which is only confirmed
+                return row[slot].equals(candidate) ? IteratorUtils.of(row) : Collections.emptyIterator();
+            }
+            final Object[] extended = row.clone();
+            extended[slot] = candidate;
+            return IteratorUtils.of(extended);
+        }));
+    }
+
+    /**
+     * Retrieves the unfiltered candidates of a retrieval for an intermediate result.
+     */
+    @FunctionalInterface
+    private interface Candidates {
+        Iterator<? extends Element> of(Object[] row);
+    }
+
+    private Candidates compileCandidates(Retrieval<?> retrieval) {
+        if (retrieval instanceof DirectVertexRetrieval) {
+            return row -> graph.vertices();
+        } else if (retrieval instanceof DirectEdgeRetrieval) {
+            return row -> graph.edges();
+        }
+
+        final DependentRetrieval<?> dependent = (DependentRetrieval<?>) retrieval;
+        final int sourceSlot = slot(dependent.getSource());
+        final Direction direction = dependent.getDirection();
+        if (retrieval instanceof DependentEdgeRetrieval) {
+            // the label of the edge can be passed to the graph, which may use it to find the edges
+            final String[] labels = retrieval.getElement().hasLabelFilter()
+                    && retrieval.getElement().getLabelFilter().getLabel() != null
+                    ? new String[]{retrieval.getElement().getLabelFilter().getLabel()}
+                    : new String[0];
+            return row -> ((Vertex) bound(row, sourceSlot, dependent)).edges(direction.opposite(), labels);
+        } else if (retrieval instanceof DependentVertexRetrieval) {
+            return row -> ((Edge) bound(row, sourceSlot, dependent)).vertices(direction);
+        }
+        throw new IllegalArgumentException(String.format("Unsupported retrieval for native execution: %s", retrieval));
+    }
+
+    private static Object bound(Object[] row, int slot, DependentRetrieval<?> retrieval) {
+        if (row[slot] == null) {
+            throw new IllegalStateException(
+                    String.format("%s is executed before it's source has been retrieved", retrieval));
+        }
+        return row[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Element> boolean matches(PatternElement<E> element, Element candidate) {
+        if (element.hasLabelFilter() && !element.getLabelFilter().test((E) candidate)) {
+            return false;
+        }
+        for (PropertyFilter<E> propertyFilter : element.getPropertyFilters()) {
+            if (!propertyFilter.test((E) candidate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes a retrieval on blocks of intermediate results. The candidates of a block are kept in two columns, the
+     * candidate elements and the positions of the intermediate results that they were retrieved for. At most one
+     * batch of candidates is fetched at once, so the candidates of a block, e.g. all elements of the graph for the
+     * single intermediate result of a direct retrieval, are processed in several steps if there are more of them.
+     */
+    private class BatchedRetrieval implements Iterator<Object[]> {
+        private final Iterator<Object[]> input;
+        private final PatternElement<?> element;
+        private final int slot;
+        private final Candidates candidates;
+
+        private final Object[][] block;
+        private final Element[] candidateColumn;
+        private final int[] rowColumn;
+        private final List<Object[]> output;
+        private int outputPosition;
+
+        // the intermediate results of the block whose candidates are not fetched completely yet
+        private int blockSize;
+        private int fetchPosition;
+        private Iterator<? extends Element> rowCandidates;
+
+        private BatchedRetrieval(Iterator<Object[]> input, PatternElement<?> element, int slot, Candidates candidates) {
+            this.input = input;
+            this.element = element;
+            this.slot = slot;
+            this.candidates = candidates;
+            this.block = new Object[batchSize][];
+            this.candidateColumn = new Element[batchSize];
+            this.rowColumn = new int[batchSize];
+            this.output = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (outputPosition == output.size() && (fetchPosition < blockSize || input.hasNext())) {
+                processBatch();
+            }
+            return outputPosition < output.size();
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return output.get(outputPosition++);
+        }
+
+        private void processBatch() {
+            output.clear();
+            outputPosition = 0;
+            if (fetchPosition == blockSize) {
+                Arrays.fill(block, 0, blockSize, null);
+                blockSize = 0;
+                fetchPosition = 0;
+                while (blockSize < batchSize && input.hasNext()) {
+                    block[blockSize++] = input.next();
+                }
+            }
+
+            int size = fetch();
+            if (element.hasLabelFilter()) {
+                size = select(element.getLabelFilter(), size);
+            }
+            for (PropertyFilter<?> propertyFilter : element.getPropertyFilters()) {
+                size = select(propertyFilter, size);
+            }
+
+            for (int i = 0; i < size; ++i) {
+                final Object[] row = block[rowColumn[i]];
+                if (row[slot] != null) {
+                    // the element has been bound by another retrieval, which is only confirmed
+                    if (row[slot].equals(candidateColumn[i])) {
+                        output.add(row);
+                    }
+                } else {
+                    final Object[] extended = row.clone();
+                    extended[slot] = candidateColumn[i];
+                    output.add(extended);
+                }
+            }
+            Arrays.fill(candidateColumn, 0, size, null);
+        }
+
+        /*
+            retrieves the next batch of candidates of the intermediate results in the block
+         */
+        private int fetch() {
+            int size = 0;
+            while (size < batchSize && fetchPosition < blockSize) {
+                if (rowCandidates == null) {
+                    rowCandidates = candidates.of(block[fetchPosition]);
+                }
+                if (rowCandidates.hasNext()) {
+                    candidateColumn[size] = rowCandidates.next();
+                    rowColumn[size] = fetchPosition;
+                    ++size;
+                } else {
+                    rowCandidates = null;
+                    ++fetchPosition;
+                }
+            }
+            return size;
+        }
+
+        /*
+            compacts the columns to the candidates that satisfy the filter
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private int select(ElementFilter filter, int size) {
+            int selected = 0;
+            for (int i = 0; i < size; ++i) {
+                if (filter.test(candidateColumn[i])) {
+                    candidateColumn[selected] = candidateColumn[i];
+                    rowColumn[selected] = rowColumn[i];
+                    ++selected;
+                }
+            }
+            Arrays.fill(candidateColumn, selected, size, null);
+            return selected;
+        }
+    }
+
+    private Operator compileJoin(Join join) {
+        final Operator left = compile(join.getLeft());
+        final Operator right = compile(join.getRight());
+        final List<JoinAttribute> attributes = new ArrayList<>(join.getJoinAttributes());
+        final List<Operator> operators = new ArrayList<>();
+        operators.add(rows -> {
+            // the collected inner side belongs to a single execution of the plan
+            final HashJoin hashJoin = new HashJoin(right, attributes);
+            return IteratorUtils.flatMap(left.apply(rows), hashJoin::probe);
+        });
+        join.getAfter().forEach(after -> operators.add(compile(after)));
+        return chain(operators);
+    }
+
+    /**
+     * Joins intermediate results with the results of an independent plan. The results of the independent plan are
+     * collected on the first probe and grouped by the values of their join attributes. A hash join is only used for a
+     * single execution of the plan.
+     */
+    private class HashJoin {
+        private final Operator build;
+        private final List<JoinAttribute> attributes;
+        private Map<List<Object>, List<Object[]>> buildRows;
+        private List<Object[]> unboundRows;
+
+        private HashJoin(Operator build, List<JoinAttribute> attributes) {
+            this.build = build;
+            this.attributes = attributes;
+        }
+
+        private void collect() {
+            buildRows = new HashMap<>();
+            unboundRows = new ArrayList<>();
+            final Iterator<Object[]> rows = build.apply(IteratorUtils.of(new Object[slots.size()]));
+            while (rows.hasNext()) {
+                final Object[] row = rows.next();
+                final List<Object> key = key(row, false);
+                if (key == null) {
+                    unboundRows.add(row);
+                } else {
+                    buildRows.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+                }
+            }
+        }
+
+        private Iterator<Object[]> probe(Object[] row) {
+            if (buildRows == null) {
+                collect();
+            }
+            final List<Object> key = key(row, true);
+            final List<Object[]> candidates = new ArrayList<>();
+            if (key == null) {
+                // unbound attributes match any value
+                buildRows.values().forEach(candidates::addAll);
+            } else {
+                candidates.addAll(buildRows.getOrDefault(key, Collections.emptyList()));
+            }
+            candidates.addAll(unboundRows);
+
+            final List<Object[]> results = new ArrayList<>(candidates.size());
+            for (Object[] candidate : candidates) {
+                final Object[] merged = matches(row, candidate) ? merge(row, candidate) : null;
+                if (merged != null) {
+                    results.add(merged);
+                }
+            }
+            return results.iterator();
+        }
+
+        /*
+            null if any of the attributes is unbound
+         */
+        private List<Object> key(Object[] row, boolean leftSide) {
+            final List<Object> key = new ArrayList<>(attributes.size());
+            for (JoinAttribute attribute : attributes) {
+                final Object value = leftSide
+                        ? attribute.resolveLeftCandidate(row[slot(attribute.getLeftElement())])
+                        : attribute.resolveRightCandidate(row[slot(attribute.getRightElement())]);
+                if (value == null) {
+                    return null;
+                }
+                key.add(value);
+            }
+            return key;
+        }
+
+        private boolean matches(Object[] left, Object[] right) {
+            for (JoinAttribute attribute : attributes) {
+                final Object leftValue = attribute.resolveLeftCandidate(left[slot(attribute.getLeftElement())]);
+                final Object rightValue = attribute.resolveRightCandidate(right[slot(attribute.getRightElement())]);
+                if (leftValue != null && rightValue != null && !leftValue.equals(rightValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+            null if the rows bind an element to different graph elements
+         */
+        private Object[] merge(Object[] left, Object[] right) {
+            final Object[] merged = left.clone();
+            for (int i = 0; i < merged.length; ++i) {
+                if (merged[i] == null) {
+                    merged[i] = right[i];
+                } else if (right[i] != null && !merged[i].equals(right[i])) {
+                    return null;
+                }
+            }
+            return merged;
+        }
+    }
+}
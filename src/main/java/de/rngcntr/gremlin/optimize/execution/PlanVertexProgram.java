@@ -0,0 +1,698 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.execution;
+
+import de.rngcntr.gremlin.optimize.filter.ElementFilter;
+import de.rngcntr.gremlin.optimize.query.DependencyTree;
+import de.rngcntr.gremlin.optimize.query.EmptyQueryPlan;
+import de.rngcntr.gremlin.optimize.query.Join;
+import de.rngcntr.gremlin.optimize.query.JoinAttribute;
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentEdgeRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentVertexRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectEdgeRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectVertexRetrieval;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.commons.configuration.Configuration;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.process.computer.Memory;
+import org.apache.tinkerpop.gremlin.process.computer.MemoryComputeKey;
+import org.apache.tinkerpop.gremlin.process.computer.MessageScope;
+import org.apache.tinkerpop.gremlin.process.computer.Messenger;
+import org.apache.tinkerpop.gremlin.process.computer.VertexComputeKey;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.util.VertexProgramHelper;
+import org.apache.tinkerpop.gremlin.process.traversal.Operator;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.reference.ReferenceFactory;
+import org.apache.tinkerpop.gremlin.structure.util.reference.ReferenceVertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Matches a pattern on a {@link GraphComputer} by executing an optimized query plan as a whole. Like in the
+ * {@link NativeExecutor}, intermediate results are arrays that hold the references of the bound graph elements at a
+ * fixed position per pattern element. They are created and extended by the vertices themselves and sent as messages
+ * to the vertex that can extend them next:
+ * <ul>
+ *     <li>Direct retrievals are evaluated by every vertex on itself or on it's outgoing edges in the first
+ *     iteration.</li>
+ *     <li>Dependent edge retrievals are evaluated by the vertex that the edges are retrieved from and dependent vertex
+ *     retrievals by the retrieved vertices, which check their own filters.</li>
+ *     <li>Joins are symmetric hash joins. The intermediate results of both sides are sent to the vertex that holds the
+ *     value of the first join attribute, which stores them in it's local state and matches them with the stored
+ *     results of the other side as soon as they arrive. Intermediate results without join attributes meet at a
+ *     single hub vertex.</li>
+ * </ul>
+ * The results are kept in the {@link #RESULTS} property of the vertices that completed them, so neither the
+ * intermediate results nor the results pass through the driver before they are read from the result graph, e.g.
+ * via {@link #results(Vertex)}. The program terminates as soon as no more intermediate results are sent.
+ *
+ * @author Florian Grieskamp
+ */
+public class PlanVertexProgram implements VertexProgram<PlanVertexProgram.Message> {
+
+    public static final String RESULTS = "gremlin.planVertexProgram.results";
+    private static final String JOIN_STATE = "gremlin.planVertexProgram.joinState";
+    private static final String ACTIVE = "gremlin.planVertexProgram.active";
+    private static final String OPERATIONS = "gremlin.planVertexProgram.operations";
+    private static final String WIDTH = "gremlin.planVertexProgram.width";
+    private static final String HUB = "gremlin.planVertexProgram.hub";
+
+    // intermediate results that are sent to this operation are results of the whole plan
+    private static final int SINK = -1;
+
+    private static final Set<MessageScope> MESSAGE_SCOPES =
+            Collections.singleton(MessageScope.Global.instance());
+    private static final Set<MemoryComputeKey> MEMORY_COMPUTE_KEYS =
+            Collections.singleton(MemoryComputeKey.of(ACTIVE, Operator.or, false, true));
+    private static final Set<VertexComputeKey> VERTEX_COMPUTE_KEYS = new HashSet<>(Arrays.asList(
+            VertexComputeKey.of(RESULTS, false),
+            VertexComputeKey.of(JOIN_STATE, true)));
+
+    private List<Operation> operations;
+    private int width;
+    private ReferenceVertex hub;
+
+    private PlanVertexProgram() {
+        // used by VertexProgram#createVertexProgram, which loads the state afterwards
+    }
+
+    /**
+     * Compiles a query plan for the execution on a graph computer.
+     *
+     * @param plan The query plan.
+     * @param slots The positions of the pattern elements in the intermediate results.
+     * @param hub The vertex that joins intermediate results without join attributes.
+     */
+    public PlanVertexProgram(PartialQueryPlan plan, Map<PatternElement<?>, Integer> slots, Vertex hub) {
+        this.operations = new ArrayList<>();
+        this.width = slots.size();
+        this.hub = ReferenceFactory.detach(hub);
+        new Compiler(slots).compile(plan, SINK);
+    }
+
+    /**
+     * Gets the results of the plan that a vertex of the result graph holds.
+     *
+     * @param vertex A vertex of the result graph.
+     * @return The completed intermediate results, which hold the references of the bound graph elements at the
+     * positions given to {@link #PlanVertexProgram(PartialQueryPlan, Map, Vertex)}.
+     */
+    public static Iterator<Object[]> results(Vertex vertex) {
+        final VertexProperty<List<Object[]>> results = vertex.property(RESULTS);
+        return results.isPresent() ? results.value().iterator() : Collections.emptyIterator();
+    }
+
+    @Override
+    public void storeState(Configuration configuration) {
+        VertexProgram.super.storeState(configuration);
+        VertexProgramHelper.serialize(operations, configuration, OPERATIONS);
+        configuration.setProperty(WIDTH, width);
+        VertexProgramHelper.serialize(hub, configuration, HUB);
+    }
+
+    @Override
+    public void loadState(Graph graph, Configuration configuration) {
+        operations = VertexProgramHelper.deserialize(configuration, OPERATIONS);
+        width = configuration.getInt(WIDTH);
+        hub = VertexProgramHelper.deserialize(configuration, HUB);
+    }
+
+    @Override
+    public void setup(Memory memory) {
+        memory.set(ACTIVE, false);
+    }
+
+    @Override
+    public void execute(Vertex vertex, Messenger<Message> messenger, Memory memory) {
+        final Execution execution = new Execution(vertex, messenger);
+        if (memory.isInitialIteration()) {
+            operations.forEach(operation -> operation.start(execution));
+        } else {
+            messenger.receiveMessages().forEachRemaining(message ->
+                    operations.get(message.operation).process(execution, message.row));
+        }
+        execution.complete(memory);
+    }
+
+    @Override
+    public boolean terminate(Memory memory) {
+        final boolean active = memory.get(ACTIVE);
+        memory.set(ACTIVE, false);
+        return !active;
+    }
+
+    @Override
+    public Set<MemoryComputeKey> getMemoryComputeKeys() {
+        return MEMORY_COMPUTE_KEYS;
+    }
+
+    @Override
+    public Set<VertexComputeKey> getVertexComputeKeys() {
+        return VERTEX_COMPUTE_KEYS;
+    }
+
+    @Override
+    public Set<MessageScope> getMessageScopes(Memory memory) {
+        return MESSAGE_SCOPES;
+    }
+
+    @Override
+    public PlanVertexProgram clone() {
+        try {
+            // the operations are not modified during the execution, so they can be shared by all clones
+            return (PlanVertexProgram) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public GraphComputer.ResultGraph getPreferredResultGraph() {
+        return GraphComputer.ResultGraph.NEW;
+    }
+
+    @Override
+    public GraphComputer.Persist getPreferredPersist() {
+        return GraphComputer.Persist.VERTEX_PROPERTIES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlanVertexProgram%s", operations);
+    }
+
+    /**
+     * Translates the parts of a query plan into operations. Each part is compiled after the part that consumes it's
+     * intermediate results, so that it knows the operation to send them to.
+     */
+    private class Compiler {
+        private final Map<PatternElement<?>, Integer> slots;
+
+        private Compiler(Map<PatternElement<?>, Integer> slots) {
+            this.slots = slots;
+        }
+
+        private int add(Operation operation) {
+            operations.add(operation);
+            return operations.size() - 1;
+        }
+
+        private int slot(PatternElement<?> element) {
+            final Integer slot = slots.get(element);
+            if (slot == null) {
+                throw new IllegalArgumentException(String.format("%s is not part of the pattern", element));
+            }
+            return slot;
+        }
+
+        /*
+            compiles a plan that retrieves it's elements independently of other plans
+         */
+        private void compile(PartialQueryPlan plan, int next) {
+            if (plan instanceof DependencyTree) {
+                compileTree(independent((DependencyTree) plan), next);
+            } else if (plan instanceof Join) {
+                compileJoin((Join) plan, next);
+            } else if (plan instanceof EmptyQueryPlan) {
+                add(new Unit(next));
+            } else {
+                throw new IllegalArgumentException(
+                        String.format("Unsupported plan for execution on a graph computer: %s", plan));
+            }
+        }
+
+        /*
+            trees that start from bound elements retrieve these elements themselves
+         */
+        private DependencyTree independent(DependencyTree tree) {
+            return tree.getRoot() instanceof DependentRetrieval ? tree.withDirectSource() : tree;
+        }
+
+        /*
+            the branches of a tree are independent given it's root, so they are chained after the root's retrieval
+         */
+        private int compileTree(DependencyTree tree, int next) {
+            final List<DependencyTree> children = new ArrayList<>(tree.getChildren());
+            int entry = next;
+            for (int i = children.size() - 1; i >= 0; --i) {
+                entry = compileTree(children.get(i), entry);
+            }
+            return add(compileRetrieval(tree.getRoot(), entry));
+        }
+
+        private Operation compileRetrieval(Retrieval<?> retrieval, int next) {
+            final PatternElement<?> element = retrieval.getElement();
+            final List<ElementFilter<?>> filters = new ArrayList<>();
+            if (element.hasLabelFilter()) {
+                filters.add(element.getLabelFilter());
+            }
+            filters.addAll(element.getPropertyFilters());
+
+            if (retrieval instanceof DirectVertexRetrieval) {
+                return new ScanVertices(slot(element), filters, next);
+            } else if (retrieval instanceof DirectEdgeRetrieval) {
+                return new ScanEdges(slot(element), filters, next);
+            }
+
+            final DependentRetrieval<?> dependent = (DependentRetrieval<?>) retrieval;
+            final int source = slot(dependent.getSource());
+            if (retrieval instanceof DependentEdgeRetrieval) {
+                // the label of the edge can be passed to the graph, which may use it to find the edges
+                final String[] labels = element.hasLabelFilter() && element.getLabelFilter().getLabel() != null
+                        ? new String[]{element.getLabelFilter().getLabel()}
+                        : new String[0];
+                return new ExpandEdges(source, dependent.getDirection().opposite(), labels, slot(element), filters,
+                        next);
+            } else if (retrieval instanceof DependentVertexRetrieval) {
+                return new ExpandVertices(source, dependent.getDirection(), slot(element), filters, next);
+            }
+            throw new IllegalArgumentException(
+                    String.format("Unsupported retrieval for execution on a graph computer: %s", retrieval));
+        }
+
+        private void compileJoin(Join join, int next) {
+            // the elements that are bound before each plan that is executed after the join
+            final List<PartialQueryPlan> after = join.getAfter();
+            final List<Set<PatternElement<?>>> boundBefore = new ArrayList<>(after.size());
+            final Set<PatternElement<?>> boundElements = new HashSet<>(join.getLeft().getElements());
+            boundElements.addAll(join.getRight().getElements());
+            for (PartialQueryPlan plan : after) {
+                boundBefore.add(new HashSet<>(boundElements));
+                boundElements.addAll(plan.getElements());
+            }
+
+            int entry = next;
+            for (int i = after.size() - 1; i >= 0; --i) {
+                entry = compileAfter(after.get(i), boundBefore.get(i), entry);
+            }
+
+            // a side without elements produces a single empty intermediate result, which matches everything
+            if (join.getLeft() instanceof EmptyQueryPlan) {
+                compile(join.getRight(), entry);
+            } else if (join.getRight() instanceof EmptyQueryPlan) {
+                compile(join.getLeft(), entry);
+            } else {
+                final int left = addJoin(new ArrayList<>(join.getJoinAttributes()), entry);
+                compile(join.getLeft(), left);
+                compile(join.getRight(), left + 1);
+            }
+        }
+
+        /*
+            trees that depend on a bound element continue the intermediate results of the join, other plans are
+            executed independently and joined on all elements that they share with them
+         */
+        private int compileAfter(PartialQueryPlan plan, Set<PatternElement<?>> boundElements, int next) {
+            PartialQueryPlan independentPlan = plan;
+            if (plan instanceof DependencyTree) {
+                final Retrieval<?> root = ((DependencyTree) plan).getRoot();
+                if (root instanceof DependentRetrieval
+                        && boundElements.contains(((DependentRetrieval<?>) root).getSource())) {
+                    return compileTree((DependencyTree) plan, next);
+                }
+                independentPlan = independent((DependencyTree) plan);
+            }
+            final List<JoinAttribute> attributes = new ArrayList<>();
+            independentPlan.getElements().stream()
+                    .filter(boundElements::contains)
+                    .forEach(e -> attributes.add(new JoinAttribute(e)));
+            final int left = addJoin(attributes, next);
+            compile(independentPlan, left + 1);
+            return left;
+        }
+
+        private int addJoin(List<JoinAttribute> attributes, int next) {
+            final List<Key> leftKeys = new ArrayList<>(attributes.size());
+            final List<Key> rightKeys = new ArrayList<>(attributes.size());
+            for (JoinAttribute attribute : attributes) {
+                leftKeys.add(new Key(slot(attribute.getLeftElement()), attribute.getLeftMatch()));
+                rightKeys.add(new Key(slot(attribute.getRightElement()), attribute.getRightMatch()));
+            }
+            final int left = operations.size();
+            add(new JoinInput(left, left + 1, leftKeys, next));
+            add(new JoinInput(left + 1, left, rightKeys, next));
+            return left;
+        }
+    }
+
+    /**
+     * The execution of the program on a single vertex in a single iteration.
+     */
+    private class Execution {
+        private final Vertex vertex;
+        private final Messenger<Message> messenger;
+        private List<Object[]> results;
+        private Map<Integer, Map<List<Object>, List<Object[]>>> joinState;
+        private boolean sent;
+
+        private Execution(Vertex vertex, Messenger<Message> messenger) {
+            this.vertex = vertex;
+            this.messenger = messenger;
+        }
+
+        private Object[] emptyRow() {
+            return new Object[width];
+        }
+
+        private boolean isHub() {
+            return hub.id().equals(vertex.id());
+        }
+
+        private void emit(int operation, Object[] row) {
+            if (operation == SINK) {
+                if (results == null) {
+                    final VertexProperty<List<Object[]>> property = vertex.property(RESULTS);
+                    results = property.isPresent() ? property.value() : new ArrayList<>();
+                }
+                results.add(row);
+                return;
+            }
+            for (Vertex target : operations.get(operation).locate(row, hub)) {
+                messenger.sendMessage(MessageScope.Global.of(target), new Message(operation, row));
+                sent = true;
+            }
+        }
+
+        private Map<List<Object>, List<Object[]>> joinState(int operation) {
+            if (joinState == null) {
+                final VertexProperty<Map<Integer, Map<List<Object>, List<Object[]>>>> property =
+                        vertex.property(JOIN_STATE);
+                joinState = property.isPresent() ? property.value() : new HashMap<>();
+            }
+            return joinState.computeIfAbsent(operation, o -> new HashMap<>());
+        }
+
+        private void complete(Memory memory) {
+            if (results != null) {
+                vertex.property(VertexProperty.Cardinality.single, RESULTS, results);
+            }
+            if (joinState != null) {
+                vertex.property(VertexProperty.Cardinality.single, JOIN_STATE, joinState);
+            }
+            if (sent) {
+                memory.add(ACTIVE, true);
+            }
+        }
+    }
+
+    /**
+     * An intermediate result that is sent to the vertex where an operation processes it.
+     */
+    public static class Message implements Serializable {
+        private final int operation;
+        private final Object[] row;
+
+        private Message(int operation, Object[] row) {
+            this.operation = operation;
+            this.row = row;
+        }
+    }
+
+    /**
+     * A step of the plan, which emits intermediate results to the next operation.
+     */
+    private abstract static class Operation implements Serializable {
+        protected final int next;
+
+        private Operation(int next) {
+            this.next = next;
+        }
+
+        /*
+            creates intermediate results in the first iteration
+         */
+        void start(Execution execution) {
+        }
+
+        /*
+            the vertices that process an intermediate result which is sent to this operation
+         */
+        List<Vertex> locate(Object[] row, Vertex hub) {
+            throw new IllegalStateException(String.format("%s does not receive intermediate results", this));
+        }
+
+        void process(Execution execution, Object[] row) {
+            throw new IllegalStateException(String.format("%s does not receive intermediate results", this));
+        }
+    }
+
+    /**
+     * Emits a single intermediate result without bound elements at the hub vertex.
+     */
+    private static class Unit extends Operation {
+        private Unit(int next) {
+            super(next);
+        }
+
+        @Override
+        void start(Execution execution) {
+            if (execution.isHub()) {
+                execution.emit(next, execution.emptyRow());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Unit->%d", next);
+        }
+    }
+
+    /**
+     * Binds a pattern element to the graph elements that satisfy it's filters.
+     */
+    private abstract static class Retrieve extends Operation {
+        protected final int slot;
+        protected final List<ElementFilter<?>> filters;
+
+        private Retrieve(int slot, List<ElementFilter<?>> filters, int next) {
+            super(next);
+            this.slot = slot;
+            this.filters = filters;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected void bind(Execution execution, Object[] row, Element candidate) {
+            for (ElementFilter<?> filter : filters) {
+                if (!((ElementFilter<Element>) filter).test(candidate)) {
+                    return;
+                }
+            }
+            final Element reference = ReferenceFactory.detach(candidate);
+            if (row[slot] != null) {
+                // the element has been bound by another retrieval, which is only confirmed
+                if (row[slot].equals(reference)) {
+                    execution.emit(next, row);
+                }
+                return;
+            }
+            final Object[] extended = row.clone();
+            extended[slot] = reference;
+            execution.emit(next, extended);
+        }
+
+        protected static Object bound(Object[] row, int slot, Operation operation) {
+            if (row[slot] == null) {
+                throw new IllegalStateException(
+                        String.format("%s is executed before it's source has been retrieved", operation));
+            }
+            return row[slot];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%d%s)->%d", getClass().getSimpleName(), slot, filters, next);
+        }
+    }
+
+    private static class ScanVertices extends Retrieve {
+        private ScanVertices(int slot, List<ElementFilter<?>> filters, int next) {
+            super(slot, filters, next);
+        }
+
+        @Override
+        void start(Execution execution) {
+            bind(execution, execution.emptyRow(), execution.vertex);
+        }
+    }
+
+    /*
+        each edge is scanned by it's out vertex
+     */
+    private static class ScanEdges extends Retrieve {
+        private ScanEdges(int slot, List<ElementFilter<?>> filters, int next) {
+            super(slot, filters, next);
+        }
+
+        @Override
+        void start(Execution execution) {
+            execution.vertex.edges(Direction.OUT).forEachRemaining(e -> bind(execution, execution.emptyRow(), e));
+        }
+    }
+
+    /*
+        the edges of a vertex are retrieved by the vertex itself
+     */
+    private static class ExpandEdges extends Retrieve {
+        private final int source;
+        private final Direction direction;
+        private final String[] labels;
+
+        private ExpandEdges(int source, Direction direction, String[] labels, int slot,
+                            List<ElementFilter<?>> filters, int next) {
+            super(slot, filters, next);
+            this.source = source;
+            this.direction = direction;
+            this.labels = labels;
+        }
+
+        @Override
+        List<Vertex> locate(Object[] row, Vertex hub) {
+            return Collections.singletonList((Vertex) bound(row, source, this));
+        }
+
+        @Override
+        void process(Execution execution, Object[] row) {
+            execution.vertex.edges(direction, labels).forEachRemaining(e -> bind(execution, row, e));
+        }
+    }
+
+    /*
+        the vertices of an edge are known by it's reference, but only the vertices themselves can check their filters
+     */
+    private static class ExpandVertices extends Retrieve {
+        private final int source;
+        private final Direction direction;
+
+        private ExpandVertices(int source, Direction direction, int slot, List<ElementFilter<?>> filters, int next) {
+            super(slot, filters, next);
+            this.source = source;
+            this.direction = direction;
+        }
+
+        @Override
+        List<Vertex> locate(Object[] row, Vertex hub) {
+            return IteratorUtils.list(((Edge) bound(row, source, this)).vertices(direction));
+        }
+
+        @Override
+        void process(Execution execution, Object[] row) {
+            bind(execution, row, execution.vertex);
+        }
+    }
+
+    /**
+     * One side of a symmetric hash join, whose partner is the operation of the other side.
+     */
+    private static class JoinInput extends Operation {
+        private final int index;
+        private final int partner;
+        private final List<Key> keys;
+
+        private JoinInput(int index, int partner, List<Key> keys, int next) {
+            super(next);
+            this.index = index;
+            this.partner = partner;
+            this.keys = keys;
+        }
+
+        /*
+            edges are held by their out vertex
+         */
+        @Override
+        List<Vertex> locate(Object[] row, Vertex hub) {
+            if (keys.isEmpty()) {
+                // without join attributes, there is no vertex that the intermediate results could be sent to
+                return Collections.singletonList(hub);
+            }
+            final Object value = keys.get(0).resolve(row);
+            return Collections.singletonList(value instanceof Edge ? ((Edge) value).outVertex() : (Vertex) value);
+        }
+
+        /*
+            each pair of intermediate results is matched by the one that arrives last
+         */
+        @Override
+        void process(Execution execution, Object[] row) {
+            final List<Object> key = new ArrayList<>(keys.size());
+            keys.forEach(k -> key.add(k.resolve(row)));
+            execution.joinState(index).computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            for (Object[] other : execution.joinState(partner).getOrDefault(key, Collections.emptyList())) {
+                final Object[] joined = merge(row, other);
+                if (joined != null) {
+                    execution.emit(next, joined);
+                }
+            }
+        }
+
+        /*
+            null if the intermediate results bind an element to different graph elements
+         */
+        private static Object[] merge(Object[] row, Object[] other) {
+            final Object[] merged = row.clone();
+            for (int i = 0; i < merged.length; ++i) {
+                if (other[i] == null) {
+                    continue;
+                }
+                if (merged[i] == null) {
+                    merged[i] = other[i];
+                } else if (!merged[i].equals(other[i])) {
+                    return null;
+                }
+            }
+            return merged;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("JoinInput(%d%s)->%d", partner, keys, next);
+        }
+    }
+
+    /**
+     * A serializable side of a {@link JoinAttribute}, which refers to the pattern element by it's position.
+     */
+    private static class Key implements Serializable {
+        private final int slot;
+        private final JoinAttribute.MatchOn match;
+
+        private Key(int slot, JoinAttribute.MatchOn match) {
+            this.slot = slot;
+            this.match = match;
+        }
+
+        private Object resolve(Object[] row) {
+            if (row[slot] == null) {
+                throw new IllegalArgumentException(String.format("%d is not bound in %s", slot, Arrays.toString(row)));
+            }
+            return JoinAttribute.resolve(row[slot], match);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d.%s", slot, match);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.feedback;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Learns from executed queries by comparing the estimated and the actually observed output sizes of plan operators.
+ * For each {@link FeedbackKey}, a multiplicative correction factor is maintained that is applied to future estimations
+ * of equally keyed operators.
+ * <p>
+ * Correction factors are smoothed exponentially over subsequent observations and decay towards <code>1</code> with a
+ * configurable half life, so that outdated observations lose their influence once the data changes. The number of
+ * stored factors is bounded, the least recently used factors are evicted first. Instances are thread safe and are
+ * meant to be shared between optimizations.
+ */
+public class CardinalityFeedback implements CardinalityObserver {
+    /**
+     * The default maximum number of stored correction factors.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * The default weight of a new observation compared to the previous correction factor.
+     */
+    public static final double DEFAULT_SMOOTHING = 0.5;
+
+    /**
+     * The default half life of correction factors in minutes.
+     */
+    public static final long DEFAULT_HALF_LIFE_MINUTES = 60;
+
+    // corrections are limited to six orders of magnitude in both directions
+    private static final double MAX_LOG_FACTOR = Math.log(1e6);
+
+    private final Cache<FeedbackKey, Correction> corrections;
+    private final double smoothing;
+    private final double halfLifeNanos;
+    private final Ticker ticker;
+
+    /**
+     * Creates a feedback store with default settings.
+     */
+    public CardinalityFeedback() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_SMOOTHING, DEFAULT_HALF_LIFE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a feedback store.
+     *
+     * @param maximumSize The maximum number of stored correction factors.
+     * @param smoothing The weight of a new observation compared to the previous correction factor, within
+     *                  <code>(0, 1]</code>.
+     * @param halfLife The duration after which a correction factor has lost half of it's influence.
+     * @param unit The unit of <code>halfLife</code>.
+     */
+    public CardinalityFeedback(long maximumSize, double smoothing, long halfLife, TimeUnit unit) {
+        this(maximumSize, smoothing, halfLife, unit, Ticker.systemTicker());
+    }
+
+    CardinalityFeedback(long maximumSize, double smoothing, long halfLife, TimeUnit unit, Ticker ticker) {
+        if (!(smoothing > 0.0 && smoothing <= 1.0)) {
+            throw new IllegalArgumentException("Smoothing must be within (0, 1] but was " + smoothing);
+        }
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("Half life must be positive but was " + halfLife);
+        }
+        this.corrections = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.smoothing = smoothing;
+        this.halfLifeNanos = unit.toNanos(halfLife);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Records the output size of an executed operator. Sizes below one are treated as one, since the relative error of
+     * tiny estimations is meaningless.
+     *
+     * @param key The key of the operator.
+     * @param estimatedSize The uncorrected estimation of the operator's output size.
+     * @param actualSize The observed output size.
+     */
+    @Override
+    public void observe(FeedbackKey key, double estimatedSize, double actualSize) {
+        if (Double.isInfinite(estimatedSize) || Double.isNaN(estimatedSize)) {
+            return;
+        }
+        final double observed = clamp(Math.log(Math.max(actualSize, 1.0) / Math.max(estimatedSize, 1.0)));
+        final long now = ticker.read();
+        corrections.asMap().merge(key, new Correction(observed, now),
+                (previous, ignored) -> new Correction((1.0 - smoothing) * decay(previous, now) + smoothing * observed, now));
+    }
+
+    /**
+     * Gets the factor that estimations of the given operator are multiplied with.
+     *
+     * @param key The key of the operator.
+     * @return The correction factor, <code>1</code> if nothing is known about the operator.
+     */
+    public double getCorrection(FeedbackKey key) {
+        Correction correction = corrections.getIfPresent(key);
+        return correction == null ? 1.0 : Math.exp(decay(correction, ticker.read()));
+    }
+
+    /**
+     * Gets the number of stored correction factors.
+     *
+     * @return The number of correction factors.
+     */
+    public long size() {
+        return corrections.size();
+    }
+
+    /**
+     * Forgets all observations.
+     */
+    public void invalidateAll() {
+        corrections.invalidateAll();
+    }
+
+    private double decay(Correction correction, long now) {
+        long elapsed = Math.max(0, now - correction.timestamp);
+        return correction.logFactor * Math.pow(0.5, elapsed / halfLifeNanos);
+    }
+
+    private static double clamp(double logFactor) {
+        return Math.max(-MAX_LOG_FACTOR, Math.min(MAX_LOG_FACTOR, logFactor));
+    }
+
+    /**
+     * An immutable correction factor in logarithmic space together with the time it was last updated.
+     */
+    private static final class Correction {
+        private final double logFactor;
+        private final long timestamp;
+
+        private Correction(double logFactor, long timestamp) {
+            this.logFactor = logFactor;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.feedback;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Receives the estimated and the actually observed output sizes of the operators of executed query plans. Optimized
+ * traversals only contain the steps that count output sizes if an observer is attached to the plan.
+ */
+@FunctionalInterface
+public interface CardinalityObserver {
+
+    /**
+     * Records the output size of an executed operator.
+     *
+     * @param key The key of the operator.
+     * @param estimatedSize The uncorrected estimation of the operator's output size.
+     * @param actualSize The observed output size.
+     */
+    void observe(FeedbackKey key, double estimatedSize, double actualSize);
+
+    /**
+     * Combines two observers into one that forwards each observation to both of them.
+     *
+     * @param first The first observer or <code>null</code>.
+     * @param second The second observer or <code>null</code>.
+     * @return The combined observer or <code>null</code> if both observers are <code>null</code>.
+     */
+    static CardinalityObserver combine(CardinalityObserver first, CardinalityObserver second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        }
+        return (key, estimatedSize, actualSize) -> {
+            first.observe(key, estimatedSize, actualSize);
+            second.observe(key, estimatedSize, actualSize);
+        };
+    }
+}
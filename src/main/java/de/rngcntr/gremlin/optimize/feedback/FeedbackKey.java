@@ -0,0 +1,155 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.feedback;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Identifies an operator of a query plan by the filters of the elements it produces instead of the pattern element
+ * ids, so that observations made while executing one query can be applied to structurally similar operators of other
+ * queries.
+ */
+public final class FeedbackKey {
+    private final Set<Signature> elements;
+    private final Set<Signature> sources;
+    private final Direction direction;
+    private final int hashCode;
+
+    private FeedbackKey(Set<Signature> elements, Set<Signature> sources, Direction direction) {
+        this.elements = elements;
+        this.sources = sources;
+        this.direction = direction;
+        this.hashCode = Objects.hash(elements, sources, direction);
+    }
+
+    /**
+     * Creates the key of a retrieval that fetches an element directly from the graph.
+     *
+     * @param element The retrieved element.
+     * @return The key.
+     */
+    public static FeedbackKey direct(PatternElement<?> element) {
+        return new FeedbackKey(signaturesOf(Collections.singleton(element)), null, null);
+    }
+
+    /**
+     * Creates the key of a retrieval that fetches an element via one of it's neighbors.
+     *
+     * @param element The retrieved element.
+     * @param source The neighbor that the retrieval starts from.
+     * @param direction The direction of the dependency.
+     * @return The key.
+     */
+    public static FeedbackKey dependent(PatternElement<?> element, PatternElement<?> source, Direction direction) {
+        return new FeedbackKey(signaturesOf(Collections.singleton(element)),
+                signaturesOf(Collections.singleton(source)), direction);
+    }
+
+    /**
+     * Creates the key of a join between two partial query plans. The key does not depend on the order of both sides.
+     *
+     * @param leftElements The elements produced by one side of the join.
+     * @param rightElements The elements produced by the other side of the join.
+     * @return The key.
+     */
+    public static FeedbackKey join(Collection<PatternElement<?>> leftElements,
+                                   Collection<PatternElement<?>> rightElements) {
+        Set<Signature> left = signaturesOf(leftElements);
+        Set<Signature> right = signaturesOf(rightElements);
+        // order both sides by their hash, so that a.join(b) and b.join(a) share the same key
+        return left.hashCode() <= right.hashCode()
+                ? new FeedbackKey(left, right, Direction.BOTH)
+                : new FeedbackKey(right, left, Direction.BOTH);
+    }
+
+    private static Set<Signature> signaturesOf(Collection<PatternElement<?>> elements) {
+        return elements.stream().map(Signature::new).collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof FeedbackKey)) return false;
+        FeedbackKey otherKey = (FeedbackKey) other;
+        return hashCode == otherKey.hashCode
+                && direction == otherKey.direction
+                && elements.equals(otherKey.elements)
+                && Objects.equals(sources, otherKey.sources);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Represents this key as a human readable text.
+     *
+     * @return A text representation of the key.
+     */
+    @Override
+    public String toString() {
+        return sources == null
+                ? String.valueOf(elements)
+                : String.format("%s %s %s", elements, direction, sources);
+    }
+
+    /**
+     * The filters of a single pattern element.
+     */
+    private static final class Signature {
+        private final Class<? extends Element> type;
+        private final LabelFilter<?> label;
+        private final Set<PropertyFilter<?>> properties;
+
+        private Signature(PatternElement<?> element) {
+            this.type = element.getType();
+            this.label = element.hasLabelFilter() ? element.getLabelFilter() : null;
+            this.properties = new HashSet<>(element.getPropertyFilters());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Signature)) return false;
+            Signature otherSignature = (Signature) other;
+            return type == otherSignature.type
+                    && Objects.equals(label, otherSignature.label)
+                    && properties.equals(otherSignature.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, label, properties);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%s%s", type.getSimpleName(), label == null ? "" : "(" + label + ")", properties);
+        }
+    }
+}
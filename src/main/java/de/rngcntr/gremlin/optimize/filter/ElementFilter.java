@@ -17,16 +17,19 @@ package de.rngcntr.gremlin.optimize.filter;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.io.Serializable;
+
 /**
  * @author Florian Grieskamp
  *
  * An element filter expresses a constraint for a pattern element. For specific constraints, see the subclasses.
+ * Filters are serializable, so that they can be evaluated by the workers of a graph computer.
  *
  * @param <E> The type of element, that this filter matches on.
  *            Either {@link org.apache.tinkerpop.gremlin.structure.Vertex} or
  *            {@link org.apache.tinkerpop.gremlin.structure.Edge}.
  */
-public abstract class ElementFilter<E extends Element> {
+public abstract class ElementFilter<E extends Element> implements Serializable {
     /**
      * The type of element, that this filter matches on.
      * Either {@link org.apache.tinkerpop.gremlin.structure.Vertex} or
@@ -57,4 +60,14 @@ public abstract class ElementFilter<E extends Element> {
      * @param t The traversal to apply the filter on.
      */
     public abstract void applyTo(GraphTraversal<?,E> t);
+
+    /**
+     * Checks whether a graph element satisfies this filter, without using a traversal.
+     * @param element The element to check.
+     * @return <ul>
+     *     <li><code>true</code> if the element satisfies this filter.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public abstract boolean test(E element);
 }
\ No newline at end of file
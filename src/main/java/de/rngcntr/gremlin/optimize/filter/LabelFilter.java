@@ -18,6 +18,8 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.util.Objects;
+
 /**
  * @author Florian Grieskamp
  *
@@ -73,11 +75,37 @@ public class LabelFilter<E extends Element> extends ElementFilter<E> {
                 && StringUtils.equals(label, otherFilter.label);
     }
 
+    /**
+     * Computes a hash code that is consistent with {@link #equals(Object)}, so that label filters can be used as keys
+     * in hash based collections.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getFilteredType(), label);
+    }
+
     @Override
     public void applyTo(GraphTraversal<?,E> t) {
         t.hasLabel(label);
     }
 
+    /**
+     * Checks whether an element has the label of this filter, like the <code>hasLabel(label)</code> step does. The
+     * empty filter matches every element.
+     *
+     * @param element The element to check.
+     * @return <ul>
+     *     <li><code>true</code> if the element has the label or the filter is empty.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    @Override
+    public boolean test(E element) {
+        return label == null || label.equals(element.label());
+    }
+
     /**
      * Gets the label of the filter.
      * @return The label.
@@ -18,6 +18,10 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.tinkerpop.gremlin.process.traversal.P;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+
+import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * @author Florian Grieskamp
@@ -65,11 +69,45 @@ public class PropertyFilter<E extends Element> extends ElementFilter<E> {
         return predicate.equals(((PropertyFilter<?>) other).predicate);
     }
 
+    /**
+     * Computes a hash code that is consistent with {@link #equals(Object)}, so that property filters can be used as
+     * keys in hash based collections.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getFilteredType(), key, predicate);
+    }
+
     @Override
     public void applyTo(GraphTraversal<?,E> t) {
         t.has(key, predicate);
     }
 
+    /**
+     * Checks whether any property of the element with the filtered key satisfies the predicate, like a
+     * <code>has(key, predicate)</code> step does.
+     *
+     * @param element The element to check.
+     * @return <ul>
+     *     <li><code>true</code> if a property value satisfies the predicate.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean test(E element) {
+        final Iterator<? extends Property<Object>> properties = element.properties(key);
+        while (properties.hasNext()) {
+            final Property<Object> property = properties.next();
+            if (predicate == null || ((P<Object>) predicate).test(property.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the key of the property.
      *
@@ -0,0 +1,58 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.log;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Bytecode;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A single traversal of a query log together with the time at which it was started and the time it took to execute.
+ */
+public class QueryLogEntry {
+    private final Bytecode bytecode;
+    private final long timestampMillis;
+    private final long durationNanos;
+
+    /**
+     * Creates an entry.
+     *
+     * @param bytecode The bytecode of the traversal as it was submitted.
+     * @param timestampMillis The start of the execution in milliseconds since the epoch.
+     * @param durationNanos The duration of the execution in nanoseconds.
+     */
+    public QueryLogEntry(Bytecode bytecode, long timestampMillis, long durationNanos) {
+        this.bytecode = bytecode;
+        this.timestampMillis = timestampMillis;
+        this.durationNanos = durationNanos;
+    }
+
+    public Bytecode getBytecode() {
+        return bytecode;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d: %s (%.3f ms)", timestampMillis, bytecode, durationNanos / 1e6);
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.log;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Bytecode;
+import org.apache.tinkerpop.gremlin.structure.io.gryo.GryoMapper;
+import org.apache.tinkerpop.shaded.kryo.Kryo;
+import org.apache.tinkerpop.shaded.kryo.io.Input;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Reads the entries of a query log that has been written by a {@link QueryLogWriter}.
+ */
+public class QueryLogReader implements Closeable {
+
+    private final Kryo kryo;
+    private final Input input;
+
+    /**
+     * Creates a reader and validates the header of the log.
+     *
+     * @param stream The stream that contains the log.
+     * @throws IOException if the stream does not contain a query log of a supported version.
+     */
+    public QueryLogReader(InputStream stream) throws IOException {
+        this.kryo = GryoMapper.build().create().createMapper();
+        this.input = new Input(stream);
+        if (input.eof()) {
+            throw new IOException("Not a query log: the stream is empty");
+        }
+        final byte[] magic = input.readBytes(QueryLogWriter.MAGIC.length);
+        if (!Arrays.equals(magic, QueryLogWriter.MAGIC)) {
+            throw new IOException("Not a query log: " + Arrays.toString(magic));
+        }
+        final byte version = input.readByte();
+        if (version != QueryLogWriter.VERSION) {
+            throw new IOException("Unsupported query log version: " + version);
+        }
+    }
+
+    /**
+     * Creates a reader of a file.
+     *
+     * @param file The log file.
+     * @throws IOException if the file can not be opened or does not contain a query log.
+     */
+    public QueryLogReader(File file) throws IOException {
+        this(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * Reads the next entry of the log.
+     *
+     * @return The entry or <code>null</code> if the end of the log has been reached.
+     */
+    public QueryLogEntry next() {
+        if (input.eof()) {
+            return null;
+        }
+        final long timestamp = input.readLong(true);
+        final long duration = input.readLong(true);
+        final Bytecode bytecode = kryo.readObject(input, Bytecode.class);
+        return new QueryLogEntry(bytecode, timestamp, duration);
+    }
+
+    /**
+     * Reads all remaining entries of the log.
+     *
+     * @return The entries in the order they have been recorded.
+     */
+    public List<QueryLogEntry> readAll() {
+        final List<QueryLogEntry> entries = new ArrayList<>();
+        QueryLogEntry entry;
+        while ((entry = next()) != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
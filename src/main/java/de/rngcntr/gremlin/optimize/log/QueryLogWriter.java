@@ -0,0 +1,102 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.log;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Bytecode;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.structure.io.gryo.GryoMapper;
+import org.apache.tinkerpop.shaded.kryo.Kryo;
+import org.apache.tinkerpop.shaded.kryo.io.Output;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Records traversals to a query log, which can later be replayed to compare the optimized and the unoptimized execution
+ * of a real workload. Each traversal is stored as it's {@link Bytecode} in the binary Gryo format, preceded by the start
+ * time and the duration of it's execution in variable length encoding. Records are written in the order of calls to
+ * {@link #record}, which is thread safe.
+ */
+public class QueryLogWriter implements Closeable, Flushable {
+
+    static final byte[] MAGIC = {'G', 'O', 'Q', 'L'};
+    static final byte VERSION = 1;
+
+    private final Kryo kryo;
+    private final Output output;
+
+    /**
+     * Creates a writer that appends to a stream. The header of the log is written immediately.
+     *
+     * @param stream The stream that the log is written to.
+     */
+    public QueryLogWriter(OutputStream stream) {
+        this.kryo = GryoMapper.build().create().createMapper();
+        this.output = new Output(stream);
+        output.writeBytes(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    /**
+     * Creates a writer that creates or overwrites a file.
+     *
+     * @param file The log file.
+     * @throws FileNotFoundException if the file can not be created.
+     */
+    public QueryLogWriter(File file) throws FileNotFoundException {
+        this(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Appends a traversal to the log.
+     *
+     * @param bytecode The bytecode of the traversal, which must be captured before the traversal is optimized.
+     * @param timestampMillis The start of the execution in milliseconds since the epoch.
+     * @param durationNanos The duration of the execution in nanoseconds.
+     */
+    public synchronized void record(Bytecode bytecode, long timestampMillis, long durationNanos) {
+        output.writeLong(timestampMillis, true);
+        output.writeLong(durationNanos, true);
+        kryo.writeObject(output, bytecode);
+    }
+
+    /**
+     * Executes a traversal and appends it to the log together with the measured execution time.
+     *
+     * @param traversal The traversal as it was submitted, which must not have been executed yet.
+     * @param <E> The type of the traversal's results.
+     * @return The results of the traversal.
+     */
+    public <E> List<E> execute(Traversal<?,E> traversal) {
+        final Bytecode bytecode = traversal.asAdmin().getBytecode().clone();
+        final long timestamp = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        final List<E> results = traversal.toList();
+        record(bytecode, timestamp, System.nanoTime() - start);
+        return results;
+    }
+
+    @Override
+    public synchronized void flush() {
+        output.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        output.close();
+    }
+}
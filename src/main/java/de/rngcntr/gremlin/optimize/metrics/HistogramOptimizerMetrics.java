@@ -0,0 +1,120 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Aggregates the metrics of many optimizations into {@link LogHistogram}s, one per phase and one for each counter. The
+ * aggregated values can be read per phase or dumped as a table. A single instance may be shared by concurrent
+ * optimizations.
+ */
+public class HistogramOptimizerMetrics implements OptimizerMetrics {
+
+    private final Map<Phase, LogHistogram> phaseDurations;
+    private final LogHistogram estimationIterations;
+    private final LogHistogram patternVertices;
+    private final LogHistogram patternEdges;
+
+    public HistogramOptimizerMetrics() {
+        phaseDurations = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phaseDurations.put(phase, new LogHistogram());
+        }
+        estimationIterations = new LogHistogram();
+        patternVertices = new LogHistogram();
+        patternEdges = new LogHistogram();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordPhase(Phase phase, long durationNanos) {
+        // the clock is not guaranteed to be monotonic on all platforms
+        phaseDurations.get(phase).record(Math.max(0, durationNanos));
+    }
+
+    @Override
+    public void recordEstimationIterations(long iterations) {
+        estimationIterations.record(iterations);
+    }
+
+    @Override
+    public void recordPatternSize(int vertices, int edges) {
+        patternVertices.record(vertices);
+        patternEdges.record(edges);
+    }
+
+    /**
+     * Gets the durations of a phase in nanoseconds.
+     *
+     * @param phase The phase.
+     * @return The histogram of durations.
+     */
+    public LogHistogram getPhaseDurations(Phase phase) {
+        return phaseDurations.get(phase);
+    }
+
+    public LogHistogram getEstimationIterations() {
+        return estimationIterations;
+    }
+
+    public LogHistogram getPatternVertices() {
+        return patternVertices;
+    }
+
+    public LogHistogram getPatternEdges() {
+        return patternEdges;
+    }
+
+    /**
+     * Discards all aggregated values.
+     */
+    public void reset() {
+        phaseDurations.values().forEach(LogHistogram::reset);
+        estimationIterations.reset();
+        patternVertices.reset();
+        patternEdges.reset();
+    }
+
+    /**
+     * Prints a table of all phases with their durations in microseconds, followed by the counters.
+     *
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out) {
+        out.printf("%-34s %8s %10s %10s %10s %10s %10s%n", "phase [us]", "count", "mean", "p50", "p99", "p99.9", "max");
+        for (Phase phase : Phase.values()) {
+            final LogHistogram durations = phaseDurations.get(phase);
+            out.printf("%-34s %8d %10.1f %10d %10d %10d %10d%n", phase, durations.getCount(),
+                    durations.getMean() / TimeUnit.MICROSECONDS.toNanos(1),
+                    TimeUnit.NANOSECONDS.toMicros(durations.getValueAtPercentile(50)),
+                    TimeUnit.NANOSECONDS.toMicros(durations.getValueAtPercentile(99)),
+                    TimeUnit.NANOSECONDS.toMicros(durations.getValueAtPercentile(99.9)),
+                    TimeUnit.NANOSECONDS.toMicros(durations.getMax()));
+        }
+        out.printf("%-34s %s%n", "estimation iterations", estimationIterations);
+        out.printf("%-34s %s%n", "pattern vertices", patternVertices);
+        out.printf("%-34s %s%n", "pattern edges", patternEdges);
+    }
+}
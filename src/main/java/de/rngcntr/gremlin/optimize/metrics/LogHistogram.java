@@ -0,0 +1,156 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A histogram of non-negative values with a bounded relative error, similar to an HdrHistogram. Values below
+ * {@value #SUB_BUCKET_COUNT} are counted exactly. Larger values are counted in buckets whose width doubles with every
+ * power of two, where each power of two is split into {@value #HALF_SUB_BUCKET_COUNT} linear sub buckets. Reported
+ * values therefore deviate from the recorded ones by less than 2 percent. Recording is lock free.
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records a single value.
+     *
+     * @param value The value to record.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values can not be recorded: " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS + 1;
+        final int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        final int shift = exponent - SUB_BUCKET_BITS + 1;
+        final long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return The exact minimum or <code>0</code> if nothing has been recorded.
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The exact maximum or <code>0</code> if nothing has been recorded.
+     */
+    public long getMax() {
+        return getCount() == 0 ? 0 : max.get();
+    }
+
+    /**
+     * Gets the arithmetic mean of all recorded values.
+     *
+     * @return The exact mean or <code>0</code> if nothing has been recorded.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0.0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Gets the smallest value that is greater than or equal to the given percentage of all recorded values, up to the
+     * precision of the buckets.
+     *
+     * @param percentile The percentile between <code>0</code> and <code>100</code>.
+     * @return The value at the percentile or <code>0</code> if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        final long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Discards all recorded values. Values that are recorded concurrently may be lost or counted partially.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, min=%d, mean=%.1f, p50=%d, p90=%d, p99=%d, p99.9=%d, max=%d",
+                getCount(), getMin(), getMean(), getValueAtPercentile(50), getValueAtPercentile(90),
+                getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
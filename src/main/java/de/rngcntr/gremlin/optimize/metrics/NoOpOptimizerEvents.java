@@ -0,0 +1,68 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The default {@link OptimizerEvents}, which discards everything. It serves as it's own started event, so no event
+ * objects are allocated.
+ */
+public class NoOpOptimizerEvents implements OptimizerEvents, OptimizerEvents.PhaseSpan,
+        OptimizerEvents.JoinBuildSpan, OptimizerEvents.JoinProbeSpan {
+
+    private static final NoOpOptimizerEvents INSTANCE = new NoOpOptimizerEvents();
+
+    private NoOpOptimizerEvents() {
+    }
+
+    public static NoOpOptimizerEvents instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public PhaseSpan beginPhase(OptimizerMetrics.Phase phase) {
+        return this;
+    }
+
+    @Override
+    public JoinBuildSpan beginJoinBuild() {
+        return this;
+    }
+
+    @Override
+    public JoinProbeSpan beginJoinProbe() {
+        return this;
+    }
+
+    @Override
+    public void statisticsCacheAccess(boolean shared, boolean hit) {
+    }
+
+    @Override
+    public void finish(PatternGraph pattern) {
+    }
+
+    @Override
+    public void finish(long rows, long estimatedBytes) {
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The default {@link OptimizerMetrics}, which discards everything. Since it is disabled, no timestamps are taken.
+ */
+public class NoOpOptimizerMetrics implements OptimizerMetrics {
+
+    private static final NoOpOptimizerMetrics INSTANCE = new NoOpOptimizerMetrics();
+
+    private NoOpOptimizerMetrics() {
+    }
+
+    public static NoOpOptimizerMetrics instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void recordPhase(Phase phase, long durationNanos) {
+    }
+
+    @Override
+    public void recordEstimationIterations(long iterations) {
+    }
+
+    @Override
+    public void recordPatternSize(int vertices, int edges) {
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Emits events about optimizations and join executions to an external profiler, such as the Java Flight Recorder.
+ * While {@link OptimizerMetrics} aggregates durations, every event is reported individually with it's start time and
+ * duration, so that slow queries can be correlated with other activities of the JVM like garbage collections.
+ * <p>
+ * The implementation is looked up once via {@link ServiceLoader}. If none is found on the class path, all events are
+ * discarded by {@link NoOpOptimizerEvents}. Callers check {@link #isEnabled()} before they compute any attributes of
+ * an event, so that disabled events do not cause any overhead.
+ */
+public interface OptimizerEvents {
+
+    /**
+     * Gets the implementation that was found on the class path.
+     *
+     * @return The events implementation or {@link NoOpOptimizerEvents} if there is none.
+     */
+    static OptimizerEvents get() {
+        return Loader.INSTANCE;
+    }
+
+    /**
+     * Checks whether any of the events is currently recorded.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if events are recorded.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts an event for a phase of an optimization.
+     *
+     * @param phase The phase that is about to be executed.
+     * @return The started event, which must be finished once the phase is complete.
+     */
+    PhaseSpan beginPhase(OptimizerMetrics.Phase phase);
+
+    /**
+     * Starts an event for the build phase of a join, i.e. the execution of it's inner traversal.
+     *
+     * @return The started event, which must be finished once all join candidates are collected.
+     */
+    JoinBuildSpan beginJoinBuild();
+
+    /**
+     * Starts an event for a batch of traversers that are probed against the join candidates.
+     *
+     * @return The started event, which must be finished once the batch is complete.
+     */
+    JoinProbeSpan beginJoinProbe();
+
+    /**
+     * Reports a single lookup of a cached statistic.
+     *
+     * @param shared <code>true</code> if the cache is shared between optimizations.
+     * @param hit <code>true</code> if the statistic was cached already.
+     */
+    void statisticsCacheAccess(boolean shared, boolean hit);
+
+    /**
+     * A started event for a phase of an optimization.
+     */
+    interface PhaseSpan {
+        /**
+         * Finishes the event.
+         *
+         * @param pattern The optimized pattern, which supplies the size of the pattern and the fingerprints.
+         */
+        void finish(PatternGraph pattern);
+    }
+
+    /**
+     * A started event for the build phase of a join.
+     */
+    interface JoinBuildSpan {
+        /**
+         * Finishes the event.
+         *
+         * @param rows The number of collected join candidates.
+         * @param estimatedBytes The estimated memory occupied by the join candidates.
+         */
+        void finish(long rows, long estimatedBytes);
+    }
+
+    /**
+     * A started event for a batch of probed traversers.
+     */
+    interface JoinProbeSpan {
+        /**
+         * Finishes the event.
+         *
+         * @param probedRows The number of probed traversers.
+         * @param joinedRows The number of joined tuples produced by the probed traversers.
+         */
+        void finish(long probedRows, long joinedRows);
+    }
+
+    /**
+     * Loads the implementation lazily on first use.
+     */
+    final class Loader {
+        private static final OptimizerEvents INSTANCE = load();
+
+        private Loader() {
+        }
+
+        private static OptimizerEvents load() {
+            final Iterator<OptimizerEvents> implementations = ServiceLoader.load(OptimizerEvents.class).iterator();
+            return implementations.hasNext() ? implementations.next() : NoOpOptimizerEvents.instance();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Receives timings and counters of the optimizer's phases. Implementations are called synchronously from the thread
+ * that optimizes a pattern, so they must be thread safe if the same instance is shared between optimizations.
+ */
+public interface OptimizerMetrics {
+
+    /**
+     * The phases of an optimization. The build phase includes the strategy passes, which are reported separately as
+     * well.
+     */
+    enum Phase {
+        PARSE,
+        INITIALIZE_RETRIEVALS,
+        ESTIMATION,
+        BUILD_TRAVERSAL,
+        FLATTEN_MATCH_STEP_STRATEGY,
+        REMOVE_REDUNDANT_SELECT_STRATEGY,
+        BARRIER_INSERTION_STRATEGY,
+        REMOVE_UNUSED_LABELS_STRATEGY,
+        SKIP_EDGE_STRATEGY
+    }
+
+    /**
+     * Checks whether this listener records anything. Callers skip taking timestamps for disabled listeners.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if the listener records metrics.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    boolean isEnabled();
+
+    /**
+     * Records the duration of a single execution of a phase.
+     *
+     * @param phase The executed phase.
+     * @param durationNanos The duration in nanoseconds.
+     */
+    void recordPhase(Phase phase, long durationNanos);
+
+    /**
+     * Records the number of iterations that the estimation needed to reach a fixpoint.
+     *
+     * @param iterations The number of updated elements.
+     */
+    void recordEstimationIterations(long iterations);
+
+    /**
+     * Records the size of an optimized pattern.
+     *
+     * @param vertices The number of pattern vertices.
+     * @param edges The number of pattern edges.
+     */
+    void recordPatternSize(int vertices, int edges);
+
+    /**
+     * Takes a timestamp for the start of a phase.
+     *
+     * @return The current time in nanoseconds or <code>0</code> if this listener is disabled.
+     */
+    default long startPhase() {
+        return isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the duration of a phase that started at the given timestamp.
+     *
+     * @param phase The executed phase.
+     * @param startNanos The timestamp returned by {@link #startPhase()}.
+     */
+    default void endPhase(Phase phase, long startNanos) {
+        if (isEnabled()) {
+            recordPhase(phase, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A compact histogram of q-errors, i.e. factors of at least <code>1</code>, over a rolling time window. Each power of
+ * two is split into {@value #BUCKETS_PER_DOUBLING} logarithmic buckets, so reported values deviate from the recorded
+ * ones by less than 19 percent. Q-errors beyond <code>2^{@value #MAX_EXPONENT}</code> are counted in the last bucket.
+ * <p>
+ * Values are recorded into the current window. Once a window has elapsed, it replaces the previous window and a new
+ * window is started, so that all reported values stem from the last one to two windows. Recording is lock free except
+ * for the rotation of windows.
+ */
+public class QErrorHistogram {
+
+    private static final int BUCKETS_PER_DOUBLING = 4;
+    private static final int MAX_EXPONENT = 20;
+    private static final int BUCKET_COUNT = BUCKETS_PER_DOUBLING * MAX_EXPONENT + 1;
+
+    private final long windowNanos;
+    private final Ticker ticker;
+    private volatile Window current;
+    private volatile Window previous;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param windowNanos The duration of a window in nanoseconds.
+     * @param ticker The clock that determines the age of windows.
+     */
+    public QErrorHistogram(long windowNanos, Ticker ticker) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Window must be positive but was " + windowNanos);
+        }
+        this.windowNanos = windowNanos;
+        this.ticker = ticker;
+        this.current = new Window(ticker.read());
+        this.previous = new Window(current.start - windowNanos);
+    }
+
+    /**
+     * Records a single q-error.
+     *
+     * @param qError The q-error, where values below <code>1</code> are treated as <code>1</code>.
+     * @throws IllegalArgumentException if the q-error is not a number.
+     */
+    public void record(double qError) {
+        if (Double.isNaN(qError)) {
+            throw new IllegalArgumentException("NaN can not be recorded");
+        }
+        currentWindow().counts.incrementAndGet(indexOf(qError));
+    }
+
+    private static int indexOf(double qError) {
+        if (qError <= 1.0) {
+            return 0;
+        }
+        final double index = Math.floor(Math.log(qError) / Math.log(2) * BUCKETS_PER_DOUBLING);
+        return (int) Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    private static double highestValueOf(int index) {
+        return Math.pow(2, (index + 1) / (double) BUCKETS_PER_DOUBLING);
+    }
+
+    private Window currentWindow() {
+        final long now = ticker.read();
+        Window window = current;
+        if (now - window.start < windowNanos) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (now - window.start >= windowNanos) {
+                // a window that ended before the last window started is outdated entirely
+                previous = now - window.start < 2 * windowNanos ? window : new Window(now - windowNanos);
+                current = new Window(now);
+            }
+            return current;
+        }
+    }
+
+    private long[] snapshot() {
+        final Window window = currentWindow();
+        final Window previousWindow = previous;
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = window.counts.get(i) + previousWindow.counts.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of q-errors recorded within the last one to two windows.
+     *
+     * @return The number of q-errors.
+     */
+    public long getCount() {
+        long count = 0;
+        for (long bucketCount : snapshot()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the smallest q-error that is greater than or equal to the given percentage of all q-errors recorded within
+     * the last one to two windows, up to the precision of the buckets.
+     *
+     * @param percentile The percentile between <code>0</code> and <code>100</code>.
+     * @return The q-error at the percentile or <code>1</code> if nothing has been recorded.
+     */
+    public double getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        final long[] counts = snapshot();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 1.0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, p50=%.2f, p90=%.2f, p99=%.2f, max=%.2f", getCount(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+                getValueAtPercentile(100));
+    }
+
+    private static final class Window {
+        private final long start;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
+import de.rngcntr.gremlin.optimize.query.AdaptivePlanner;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Tracks the q-errors of the estimated result sizes of optimized traversals in production. Only a configurable
+ * fraction of the optimized traversals is sampled; the others are executed without any observation overhead. Each
+ * operator of a sampled traversal, i.e. each retrieval and each join, records the deviation between its estimated and
+ * its actual result size into a {@link QErrorHistogram}. The histograms are kept per {@link QueryFingerprint} and per
+ * operator, which is identified by the labels and properties of the elements it produces, so that the operators that
+ * need better statistics can be found. The number of tracked queries is bounded, the least recently used ones are
+ * evicted first. Instances are thread safe and are meant to be shared between optimizations.
+ */
+public class QErrorTracker {
+    /**
+     * The default maximum number of tracked query fingerprints.
+     */
+    public static final long DEFAULT_MAXIMUM_QUERIES = 1_000;
+
+    private final double sampleRate;
+    private final long windowNanos;
+    private final Ticker ticker;
+    private final Cache<QueryFingerprint, ConcurrentMap<FeedbackKey, QErrorHistogram>> queries;
+
+    /**
+     * Creates a tracker that keeps at most {@value #DEFAULT_MAXIMUM_QUERIES} queries.
+     *
+     * @param sampleRate The fraction of optimized traversals that are sampled, within <code>[0, 1]</code>.
+     * @param window The duration of a window of the rolling histograms.
+     * @param unit The unit of <code>window</code>.
+     */
+    public QErrorTracker(double sampleRate, long window, TimeUnit unit) {
+        this(sampleRate, window, unit, DEFAULT_MAXIMUM_QUERIES);
+    }
+
+    /**
+     * Creates a tracker.
+     *
+     * @param sampleRate The fraction of optimized traversals that are sampled, within <code>[0, 1]</code>.
+     * @param window The duration of a window of the rolling histograms.
+     * @param unit The unit of <code>window</code>.
+     * @param maximumQueries The maximum number of tracked query fingerprints.
+     */
+    public QErrorTracker(double sampleRate, long window, TimeUnit unit, long maximumQueries) {
+        this(sampleRate, window, unit, maximumQueries, Ticker.systemTicker());
+    }
+
+    QErrorTracker(double sampleRate, long window, TimeUnit unit, long maximumQueries, Ticker ticker) {
+        if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+            throw new IllegalArgumentException("Sample rate must be within [0, 1] but was " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.windowNanos = unit.toNanos(window);
+        this.ticker = ticker;
+        this.queries = CacheBuilder.newBuilder().maximumSize(maximumQueries).build();
+    }
+
+    /**
+     * Decides randomly whether the next optimized traversal is sampled.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if the traversal should be observed.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean sample() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Creates an observer that records the q-errors of all operators of a sampled traversal.
+     *
+     * @param fingerprint The fingerprint of the sampled query.
+     * @return The observer.
+     */
+    public CardinalityObserver observerFor(QueryFingerprint fingerprint) {
+        return (key, estimatedSize, actualSize) -> {
+            if (Double.isInfinite(estimatedSize) || Double.isNaN(estimatedSize)) {
+                return;
+            }
+            queries.asMap().computeIfAbsent(fingerprint, f -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key, k -> new QErrorHistogram(windowNanos, ticker))
+                    .record(AdaptivePlanner.qError(estimatedSize, actualSize));
+        };
+    }
+
+    /**
+     * Gets the fingerprints of all tracked queries.
+     *
+     * @return The fingerprints.
+     */
+    public Set<QueryFingerprint> getQueries() {
+        return Collections.unmodifiableSet(new HashSet<>(queries.asMap().keySet()));
+    }
+
+    /**
+     * Gets the q-errors of all observed operators of a query.
+     *
+     * @param fingerprint The fingerprint of the query.
+     * @return The histograms by operator, which are empty if the query is not tracked.
+     */
+    public Map<FeedbackKey, QErrorHistogram> getHistograms(QueryFingerprint fingerprint) {
+        final Map<FeedbackKey, QErrorHistogram> histograms = queries.getIfPresent(fingerprint);
+        return histograms == null ? Collections.emptyMap() : Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * Forgets all tracked queries.
+     */
+    public void reset() {
+        queries.invalidateAll();
+    }
+
+    /**
+     * Prints the q-errors of all tracked queries, where the operators of each query are ordered by their 90th
+     * percentile in descending order.
+     *
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out) {
+        queries.asMap().forEach((fingerprint, histograms) -> {
+            out.println(fingerprint);
+            out.printf("  %8s %10s %10s %10s  %s%n", "count", "p50", "p90", "max", "operator");
+            histograms.entrySet().stream()
+                    .sorted(Comparator.comparingDouble(
+                            (Map.Entry<FeedbackKey, QErrorHistogram> e) -> e.getValue().getValueAtPercentile(90))
+                            .reversed())
+                    .forEach(e -> out.printf("  %8d %10.2f %10.2f %10.2f  %s%n", e.getValue().getCount(),
+                            e.getValue().getValueAtPercentile(50), e.getValue().getValueAtPercentile(90),
+                            e.getValue().getValueAtPercentile(100), e.getKey()));
+        });
+    }
+}
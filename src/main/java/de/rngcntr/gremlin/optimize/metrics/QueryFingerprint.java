@@ -0,0 +1,137 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import com.google.common.hash.Hashing;
+import org.apache.tinkerpop.gremlin.process.traversal.Bytecode;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Identifies queries that only differ in the values they filter for. The fingerprint is derived from the bytecode of a
+ * traversal, in which the compared values of property filters are replaced by placeholders, while labels, property
+ * keys, predicates and step labels are kept.
+ */
+public final class QueryFingerprint {
+
+    private static final Set<String> VALUE_STEPS = new HashSet<>(Arrays.asList("hasId", "hasValue", "is"));
+    private static final String PLACEHOLDER = "?";
+
+    private final String text;
+    private final String id;
+
+    private QueryFingerprint(String text) {
+        this.text = text;
+        this.id = hash(text);
+    }
+
+    /**
+     * Computes a short hash of a text, which is used for the identifiers of fingerprints.
+     *
+     * @param text The text to hash.
+     * @return The hash as 16 hexadecimal digits.
+     */
+    public static String hash(String text) {
+        return Hashing.murmur3_128().hashString(text, StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
+    /**
+     * Creates the fingerprint of a traversal's bytecode.
+     *
+     * @param bytecode The bytecode of the traversal.
+     * @return The fingerprint.
+     */
+    public static QueryFingerprint of(Bytecode bytecode) {
+        return new QueryFingerprint(normalize(bytecode));
+    }
+
+    private static String normalize(Bytecode bytecode) {
+        final StringBuilder builder = new StringBuilder();
+        for (Bytecode.Instruction instruction : bytecode.getInstructions()) {
+            if (builder.length() > 0) {
+                builder.append('.');
+            }
+            final String operator = instruction.getOperator();
+            final Object[] arguments = instruction.getArguments();
+            builder.append(operator).append('(');
+            for (int i = 0; i < arguments.length; ++i) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                // the last argument of has() is the compared value, unless it is a predicate or a traversal
+                final boolean value = VALUE_STEPS.contains(operator)
+                        || (operator.equals("has") && arguments.length > 1 && i == arguments.length - 1);
+                builder.append(normalize(arguments[i], value));
+            }
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    private static String normalize(Object argument, boolean value) {
+        if (argument instanceof Bytecode) {
+            return "[" + normalize((Bytecode) argument) + "]";
+        } else if (argument instanceof Traversal) {
+            return "[" + normalize(((Traversal<?,?>) argument).asAdmin().getBytecode()) + "]";
+        } else if (argument instanceof P) {
+            return ((P<?>) argument).getBiPredicate() + "(" + PLACEHOLDER + ")";
+        } else if (value) {
+            return PLACEHOLDER;
+        }
+        return String.valueOf(argument);
+    }
+
+    /**
+     * Gets a short hash of the fingerprint.
+     *
+     * @return The hash as 16 hexadecimal digits.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the normalized bytecode that the fingerprint is derived from.
+     *
+     * @return The normalized text.
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof QueryFingerprint)) return false;
+        return text.equals(((QueryFingerprint) other).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + text;
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.query;
+
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.AdaptiveStep;
+import de.rngcntr.gremlin.optimize.structure.PatternEdge;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.DefaultGraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+
+import java.util.*;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Re-optimizes the plan that follows a {@link Join} once the size of the join's inner traversal is known. If the
+ * observed size deviates from the estimation by more than a given factor, the estimations of all elements of the inner
+ * traversal are scaled by the observed deviation and the remaining elements are planned again. The scaled estimations
+ * only apply to a single re-optimization, so the estimations of the pattern elements remain unchanged. Since all
+ * elements of both join sides are bound at that point, each remaining element is retrieved greedily via the cheapest
+ * dependent retrieval whose source is already bound.
+ */
+public class AdaptivePlanner implements AdaptiveStep.Replanner {
+
+    private final Set<PatternElement<?>> boundElements;
+    private final Set<PatternElement<?>> buildElements;
+    private final Set<PatternElement<?>> remainingElements;
+    private final double estimatedBuildSize;
+    private final StatisticsProvider stats;
+    private final double threshold;
+
+    /**
+     * Creates a planner for the remaining elements of a join.
+     *
+     * @param boundElements The elements that are bound by both sides of the join.
+     * @param buildElements The elements that are bound by the inner traversal of the join.
+     * @param remainingElements The elements that are retrieved after the join.
+     * @param estimatedBuildSize The estimated number of tuples produced by the inner traversal of the join.
+     * @param stats The statistics provider that is used to estimate the remaining retrievals.
+     * @param threshold The factor by which the observed size must deviate from the estimation to trigger a
+     *                  re-optimization.
+     */
+    public AdaptivePlanner(Set<PatternElement<?>> boundElements, Set<PatternElement<?>> buildElements,
+                           Set<PatternElement<?>> remainingElements, double estimatedBuildSize,
+                           StatisticsProvider stats, double threshold) {
+        this.boundElements = boundElements;
+        this.buildElements = buildElements;
+        this.remainingElements = remainingElements;
+        this.estimatedBuildSize = estimatedBuildSize;
+        this.stats = stats;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Computes the factor by which an estimation deviates from the actual size. Both sizes are treated as at least one.
+     *
+     * @param estimatedSize The estimated size.
+     * @param actualSize The actual size.
+     * @return The deviation, which is at least <code>1</code>.
+     */
+    public static double qError(double estimatedSize, double actualSize) {
+        final double estimated = Math.max(estimatedSize, 1.0);
+        final double actual = Math.max(actualSize, 1.0);
+        return Math.max(estimated / actual, actual / estimated);
+    }
+
+    @Override
+    public Traversal.Admin<?,?> replan(long observedBuildSize) {
+        if (observedBuildSize < 0 || remainingElements.isEmpty()
+                || qError(estimatedBuildSize, observedBuildSize) < threshold) {
+            return null;
+        }
+
+        // substitute the observed size for the estimation of the inner traversal
+        // the estimations are shared by all executions of the traversal, so the corrected sizes are kept locally
+        final double factor = Math.max(observedBuildSize, 1.0) / Math.max(estimatedBuildSize, 1.0);
+        final Map<PatternElement<?>, Double> sizes = new HashMap<>();
+        boundElements.forEach(e -> sizes.put(e, buildElements.contains(e)
+                ? e.getBestRetrieval().getEstimatedSize() * factor
+                : e.getBestRetrieval().getEstimatedSize()));
+
+        final List<DependentRetrieval<?>> retrievals = chooseRetrievals(sizes);
+        if (retrievals == null) {
+            return null;
+        }
+
+        final List<Traversal<?,?>> matchTraversals = new ArrayList<>();
+        retrievals.forEach(r -> matchTraversals.add(r.asTraversal()));
+        matchTraversals.addAll(adjacencyChecks(retrievals));
+
+        final GraphTraversal<Object,Object> remainder = new DefaultGraphTraversal<>();
+        remainder.select(String.valueOf(retrievals.get(0).getSource().getId()))
+                .match(matchTraversals.toArray(new Traversal[0]));
+        return remainder.asAdmin();
+    }
+
+    /**
+     * Greedily chooses the cheapest dependent retrieval for each remaining element, starting from the bound elements.
+     *
+     * @param sizes The estimated sizes of the bound elements, which are extended by the estimated sizes of the chosen
+     *              retrievals.
+     * @return The chosen retrievals in the order of their dependencies or <code>null</code> if some remaining element
+     * can not be reached from the bound elements.
+     */
+    private List<DependentRetrieval<?>> chooseRetrievals(Map<PatternElement<?>, Double> sizes) {
+        final Set<PatternElement<?>> available = new HashSet<>(boundElements);
+        final Set<PatternElement<?>> missing = new HashSet<>(remainingElements);
+        final List<DependentRetrieval<?>> chosen = new ArrayList<>();
+
+        while (!missing.isEmpty()) {
+            DependentRetrieval<?> best = null;
+            double bestSize = Retrieval.IMPOSSIBLE;
+            for (PatternElement<?> element : missing) {
+                for (Retrieval<?> retrieval : element.getRetrievals()) {
+                    if (!(retrieval instanceof DependentRetrieval)
+                            || !available.contains(((DependentRetrieval<?>) retrieval).getSource())) {
+                        continue;
+                    }
+                    final DependentRetrieval<?> dependentRetrieval = (DependentRetrieval<?>) retrieval;
+                    final double size =
+                            dependentRetrieval.estimateFor(sizes.get(dependentRetrieval.getSource()), stats);
+                    if (best == null || size < bestSize) {
+                        best = dependentRetrieval;
+                        bestSize = size;
+                    }
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            chosen.add(best);
+            sizes.put(best.getElement(), bestSize);
+            available.add(best.getElement());
+            missing.remove(best.getElement());
+        }
+
+        return chosen;
+    }
+
+    /**
+     * Creates traversals that check all connections between remaining elements and bound or remaining elements,
+     * which are not already ensured by the chosen retrievals.
+     *
+     * @param chosen The chosen retrievals.
+     * @return The checking traversals.
+     */
+    private List<Traversal<?,?>> adjacencyChecks(List<DependentRetrieval<?>> chosen) {
+        final Set<PatternElement<?>> available = new HashSet<>(boundElements);
+        available.addAll(remainingElements);
+
+        final List<Traversal<?,?>> checks = new ArrayList<>();
+        for (PatternElement<?> element : available) {
+            if (!(element instanceof PatternEdge)) {
+                continue;
+            }
+            for (PatternElement<?> vertex : element.getNeighbors(Direction.BOTH)) {
+                if (!available.contains(vertex)
+                        || !(remainingElements.contains(element) || remainingElements.contains(vertex))
+                        || isCovered(chosen, element, vertex)) {
+                    continue;
+                }
+                vertex.getDependentRetrieval(element).ifPresent(r -> checks.add(r.asTraversal()));
+            }
+        }
+        return checks;
+    }
+
+    private static boolean isCovered(List<DependentRetrieval<?>> chosen, PatternElement<?> a, PatternElement<?> b) {
+        return chosen.stream().anyMatch(r -> (r.getElement() == a && r.getSource() == b)
+                || (r.getElement() == b && r.getSource() == a));
+    }
+}
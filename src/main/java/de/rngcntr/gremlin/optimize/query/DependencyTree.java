@@ -17,6 +17,9 @@ package de.rngcntr.gremlin.optimize.query;
 import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
 import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
 import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.step.BranchCountStep;
+import de.rngcntr.gremlin.optimize.step.PartitionedScanStep;
+import de.rngcntr.gremlin.optimize.step.SharedScanStep;
 import de.rngcntr.gremlin.optimize.structure.PatternEdge;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
 import de.rngcntr.gremlin.optimize.structure.PatternVertex;
@@ -25,6 +28,7 @@ import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -32,10 +36,14 @@ public class DependencyTree implements PartialQueryPlan {
 
     private final Retrieval<?> root;
     private final Set<DependencyTree> children;
+    private final Set<DependencyTree> factorizedChildren;
+    private int partitions;
+    private Executor partitionExecutor;
 
     public DependencyTree(Retrieval<?> root) {
         this.root = root;
         children = new HashSet<>();
+        factorizedChildren = new HashSet<>();
     }
 
     public static DependencyTree of(Retrieval<?> root) {
@@ -62,6 +70,26 @@ public class DependencyTree implements PartialQueryPlan {
         }
     }
 
+    /**
+     * Creates a tree that retrieves the source element of this tree's dependent root directly and retrieves this tree
+     * from it, so that the tree no longer depends on elements that are bound elsewhere.
+     *
+     * @return A tree whose only child is this tree.
+     */
+    public DependencyTree withDirectSource() {
+        if (!(root instanceof DependentRetrieval)) {
+            throw new IllegalStateException(String.format("%s does not depend on another element", this));
+        }
+        final PatternElement<?> source = ((DependentRetrieval<?>) root).getSource();
+        final Retrieval<?> sourceRetrieval = source.getRetrievals().stream()
+                .filter(r -> r instanceof DirectRetrieval)
+                .findAny()
+                .orElseThrow(() -> new IllegalStateException(String.format("%s can not be retrieved directly", source)));
+        final DependencyTree tree = new DependencyTree(sourceRetrieval);
+        tree.children.add(this);
+        return tree;
+    }
+
     public <E> Set<E> getRecursive(Function<Retrieval<?>, E> mapper) {
         final Set<E> set = new HashSet<>(Collections.singleton(mapper.apply(root)));
         children.forEach(c -> set.addAll(c.getRecursive(mapper)));
@@ -70,10 +98,15 @@ public class DependencyTree implements PartialQueryPlan {
 
     public GraphTraversal<Object, Object> asTraversal() {
         final Set<Retrieval<?>> allRetrievals = getRecursive(ret -> ret);
+        factorizedChildren.forEach(c -> allRetrievals.removeAll(c.getRecursive(ret -> ret)));
         GraphTraversal<?,?> assembledTraversal;
         if (root instanceof DirectRetrieval) {
             assembledTraversal = root.asTraversal();
             allRetrievals.remove(root);
+            if (isPartitioned()) {
+                final GraphTraversal.Admin<?,?> admin = assembledTraversal.asAdmin();
+                admin.addStep(new SharedScanStep<>(admin));
+            }
         } else {
             assembledTraversal = new DefaultGraphTraversal<>();
             final DependentRetrieval<?> dependentRoot = (DependentRetrieval<?>) root;
@@ -83,10 +116,71 @@ public class DependencyTree implements PartialQueryPlan {
             assembledTraversal = assembledTraversal.match(allRetrievals.stream()
                     .map(Retrieval::asTraversal).toArray(GraphTraversal[]::new));
         }
+        for (DependencyTree factorizedChild : factorizedChildren) {
+            final GraphTraversal.Admin<?,?> admin = assembledTraversal.asAdmin();
+            admin.addStep(new BranchCountStep<>(admin, factorizedChild.asTraversal().asAdmin()));
+        }
 
+        if (isPartitioned()) {
+            final GraphTraversal.Admin<Object,Object> partitionedTraversal = new DefaultGraphTraversal<>();
+            partitionedTraversal.addStep(new PartitionedScanStep<>(partitionedTraversal,
+                    (GraphTraversal.Admin<?,Object>) assembledTraversal.asAdmin(), partitions, partitionExecutor));
+            return partitionedTraversal;
+        }
         return (GraphTraversal<Object, Object>) assembledTraversal;
     }
 
+    /**
+     * Lets this tree split the scan of it's root element into disjoint partitions, each of which retrieves the
+     * dependent elements of it's root elements on a thread of the executor. The root elements are only scanned once
+     * and handed to the partitions as they become ready. Only trees whose root is retrieved
+     * directly can be partitioned.
+     *
+     * @param partitions The number of partitions or <code>0</code> to scan the root elements on a single thread.
+     * @param executor The executor that runs the partitions.
+     */
+    public void setPartitioning(int partitions, Executor executor) {
+        this.partitions = partitions;
+        this.partitionExecutor = executor;
+    }
+
+    public boolean isPartitioned() {
+        return partitions > 0 && root instanceof DirectRetrieval;
+    }
+
+    /**
+     * Decides which branches of this tree are kept factorized. A branch is independent of the rest of the query if
+     * none of it's elements is required elsewhere, e.g. returned, joined or matched by another branch. Such branches
+     * only multiply the number of tuples per root element, so they are counted instead of being matched together with
+     * the other branches, which avoids materializing the cross product of the branches.
+     *
+     * @param requiredElements The elements that are needed outside of this tree.
+     */
+    @Override
+    public void factorizeBranches(Set<PatternElement<?>> requiredElements) {
+        factorizedChildren.clear();
+        for (DependencyTree child : children) {
+            final Set<PatternElement<?>> requiredByChild = Collections.newSetFromMap(new IdentityHashMap<>());
+            requiredByChild.addAll(requiredElements);
+            requiredByChild.add(root.getElement());
+            children.stream().filter(c -> c != child).forEach(c -> requiredByChild.addAll(c.getElements()));
+
+            if (child.getElements().stream().noneMatch(requiredByChild::contains)) {
+                factorizedChildren.add(child);
+            } else {
+                child.factorizeBranches(requiredByChild);
+            }
+        }
+    }
+
+    public Set<DependencyTree> getChildren() {
+        return Collections.unmodifiableSet(children);
+    }
+
+    public Set<DependencyTree> getFactorizedChildren() {
+        return Collections.unmodifiableSet(factorizedChildren);
+    }
+
     @Override
     public Set<PartialQueryPlan> generalCut(Set<PatternElement<?>> elementsToKeep) {
         Set<PartialQueryPlan> cutBranches = new HashSet<>();
@@ -103,6 +197,7 @@ public class DependencyTree implements PartialQueryPlan {
             }
         });
         children.removeAll(removedChildren);
+        factorizedChildren.removeAll(removedChildren);
 
         return cutBranches;
     }
@@ -125,6 +220,7 @@ public class DependencyTree implements PartialQueryPlan {
             }
         });
         children.removeAll(removedChildren);
+        factorizedChildren.removeAll(removedChildren);
 
         return cutBranches;
     }
@@ -135,6 +231,24 @@ public class DependencyTree implements PartialQueryPlan {
         return !(root instanceof DirectRetrieval);
     }
 
+    @Override
+    public double getEstimatedSize() {
+        // each branch multiplies the number of tuples by the number of matches per root element
+        final double rootSize = root.getEstimatedSize();
+        double size = rootSize;
+        for (DependencyTree child : children) {
+            size = rootSize == 0.0 ? 0.0 : size * child.getEstimatedSize() / rootSize;
+        }
+        return size;
+    }
+
+    @Override
+    public PlanNode explain() {
+        final PlanNode node = PlanNode.of(root);
+        children.forEach(c -> node.addChild(c.explain()));
+        return node;
+    }
+
     @Override
     public Set<PatternElement<?>> getElements() {
         return getRecursive(Retrieval::getElement);
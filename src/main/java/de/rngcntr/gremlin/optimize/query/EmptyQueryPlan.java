@@ -42,11 +42,27 @@ public class EmptyQueryPlan implements PartialQueryPlan {
         return Collections.emptySet();
     }
 
+    @Override
+    public void factorizeBranches(Set<PatternElement<?>> requiredElements) {
+        // there are no branches to factorize
+    }
+
     @Override
     public boolean isMovable() {
         return false;
     }
 
+    @Override
+    public double getEstimatedSize() {
+        // the empty plan passes on the single tuple it is applied to
+        return 1.0;
+    }
+
+    @Override
+    public PlanNode explain() {
+        return new PlanNode(PlanNode.Kind.EMPTY, this, "empty", getEstimatedSize());
+    }
+
     @Override
     public String toString() {
         return "empty";
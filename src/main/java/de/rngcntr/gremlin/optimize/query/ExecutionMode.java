@@ -0,0 +1,52 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.query;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The engine that executes an optimized query plan.
+ */
+public enum ExecutionMode {
+    /**
+     * Translates the plan into Gremlin steps, which are executed by TinkerPop like any other traversal.
+     */
+    TRAVERSAL,
+
+    /**
+     * Interprets the plan directly against the Structure API of the graph, which avoids the step machinery, the
+     * path tracking and the traverser allocations of TinkerPop for each intermediate result.
+     *
+     * @see de.rngcntr.gremlin.optimize.execution.NativeExecutor
+     */
+    NATIVE,
+
+    /**
+     * Translates the plan into Gremlin steps like {@link #TRAVERSAL}, but splits each scan that starts a dependency
+     * tree into disjoint partitions, which retrieve the whole tree concurrently.
+     *
+     * @see de.rngcntr.gremlin.optimize.step.PartitionedScanStep
+     */
+    PARTITIONED,
+
+    /**
+     * Executes the whole plan as a vertex program on a graph computer, which sends the tuples to the vertices that
+     * extend them and joins them at the vertices that hold their join attributes.
+     *
+     * @see de.rngcntr.gremlin.optimize.execution.ComputerExecutor
+     */
+    COMPUTER
+}
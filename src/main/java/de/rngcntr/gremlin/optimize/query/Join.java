@@ -14,14 +14,21 @@
 
 package de.rngcntr.gremlin.optimize.query;
 
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
 import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.AdaptiveStep;
 import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.DefaultGraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,6 +39,13 @@ public class Join implements PartialQueryPlan {
     Set<PartialQueryPlan> directAfter;
     Set<PartialQueryPlan> generalAfter;
     Set<JoinAttribute> joinAttributes;
+    private CardinalityFeedback feedback;
+    private CardinalityObserver observer;
+    private StatisticsProvider reoptimizationStats;
+    private double reoptimizationThreshold = Double.POSITIVE_INFINITY;
+    private long limit = -1;
+    private boolean countOnly;
+    private Executor executor;
 
     public Join(PartialQueryPlan left, PartialQueryPlan right) {
         this.left = left;
@@ -99,13 +113,54 @@ public class Join implements PartialQueryPlan {
         final GraphTraversal.Admin<Object, Object> leftAdmin = left.asTraversal().asAdmin();
         final GraphTraversal.Admin<Object, Object> rightAdmin = right.asTraversal().asAdmin();
         final JoinStep<?> joinStep = new JoinStep<>(leftAdmin, rightAdmin, joinAttributes);
+        if (limit >= 0 && directAfter.isEmpty() && generalAfter.isEmpty() && !isReoptimizable()) {
+            // no subsequent retrieval can filter the joined tuples
+            joinStep.setLimit(limit);
+        }
+        joinStep.setCountOnly(countOnly);
+        joinStep.setExecutor(executor);
         leftAdmin.addStep(joinStep);
+        if (observer != null) {
+            leftAdmin.addStep(new ObservationStep<>(leftAdmin, observer, this, getFeedbackKey(),
+                    getUncorrectedEstimatedSize()));
+        }
 
-        directAfter.forEach(pqp -> TraversalHelper.insertTraversal(leftAdmin.getEndStep(), pqp.asTraversal().asAdmin(), leftAdmin));
-        generalAfter.forEach(pqp -> TraversalHelper.insertTraversal(leftAdmin.getEndStep(), pqp.asTraversal().asAdmin(), leftAdmin));
+        if (isReoptimizable()) {
+            leftAdmin.addStep(createAdaptiveStep(leftAdmin));
+        } else {
+            directAfter.forEach(pqp -> TraversalHelper.insertTraversal(leftAdmin.getEndStep(), pqp.asTraversal().asAdmin(), leftAdmin));
+            generalAfter.forEach(pqp -> TraversalHelper.insertTraversal(leftAdmin.getEndStep(), pqp.asTraversal().asAdmin(), leftAdmin));
+        }
         return leftAdmin;
     }
 
+    private boolean isReoptimizable() {
+        return reoptimizationStats != null && !Double.isInfinite(reoptimizationThreshold)
+                && !(directAfter.isEmpty() && generalAfter.isEmpty());
+    }
+
+    /*
+        wraps all plans that are executed after the join, so that they can be replaced once the size of the
+        inner traversal is known
+     */
+    private AdaptiveStep<Object, Object> createAdaptiveStep(GraphTraversal.Admin<Object, Object> leftAdmin) {
+        final GraphTraversal.Admin<Object, Object> remainder = new DefaultGraphTraversal<>();
+        directAfter.forEach(pqp -> TraversalHelper.insertTraversal(remainder.getEndStep(), pqp.asTraversal().asAdmin(), remainder));
+        generalAfter.forEach(pqp -> TraversalHelper.insertTraversal(remainder.getEndStep(), pqp.asTraversal().asAdmin(), remainder));
+
+        final Set<PatternElement<?>> boundElements = new HashSet<>(left.getElements());
+        boundElements.addAll(right.getElements());
+        final Set<PatternElement<?>> remainingElements = getElements();
+        remainingElements.removeAll(boundElements);
+
+        final AdaptivePlanner planner = new AdaptivePlanner(boundElements, right.getElements(), remainingElements,
+                right.getEstimatedSize(), reoptimizationStats, reoptimizationThreshold);
+        final Set<String> scopeKeys = getElements().stream()
+                .map(e -> String.valueOf(e.getId()))
+                .collect(Collectors.toSet());
+        return new AdaptiveStep<>(leftAdmin, remainder, planner, scopeKeys);
+    }
+
     @Override
     public Set<PartialQueryPlan> generalCut(Set<PatternElement<?>> elementsToKeep) {
         Set<PartialQueryPlan> cutParts = new HashSet<>();
@@ -132,11 +187,149 @@ public class Join implements PartialQueryPlan {
         return new HashSet<>();
     }
 
+    @Override
+    public void factorizeBranches(Set<PatternElement<?>> requiredElements) {
+        final List<PartialQueryPlan> parts = new ArrayList<>(Arrays.asList(left, right));
+        parts.addAll(directAfter);
+        parts.addAll(generalAfter);
+        for (PartialQueryPlan part : parts) {
+            // elements that are shared with other parts of the join are needed to match the parts
+            final Set<PatternElement<?>> requiredByPart = Collections.newSetFromMap(new IdentityHashMap<>());
+            requiredByPart.addAll(requiredElements);
+            joinAttributes.forEach(attr -> requiredByPart.addAll(attr.getElements()));
+            parts.stream().filter(p -> p != part).forEach(p -> requiredByPart.addAll(p.getElements()));
+            part.factorizeBranches(requiredByPart);
+        }
+    }
+
     @Override
     public boolean isMovable() {
         return false;
     }
 
+    /**
+     * Estimates the number of tuples emitted by the join step itself, that is before the rearranged plans are
+     * appended. Each join attribute is assumed to be uniformly distributed over the candidates of it's element.
+     *
+     * @return The estimated number of joined tuples.
+     */
+    @Override
+    public double getEstimatedSize() {
+        final double uncorrectedSize = getUncorrectedEstimatedSize();
+        return feedback == null ? uncorrectedSize : uncorrectedSize * feedback.getCorrection(getFeedbackKey());
+    }
+
+    private double getUncorrectedEstimatedSize() {
+        double size = left.getEstimatedSize() * right.getEstimatedSize();
+        for (JoinAttribute attribute : joinAttributes) {
+            size /= Math.max(1.0, attribute.getElements().stream()
+                    .mapToDouble(e -> e.getBestRetrieval().getEstimatedSize())
+                    .min().orElse(1.0));
+        }
+        return size;
+    }
+
+    @Override
+    public PlanNode explain() {
+        final PlanNode node = new PlanNode(PlanNode.Kind.JOIN, this, String.format("Join on {%s}",
+                joinAttributes.stream().map(String::valueOf).collect(Collectors.joining(", "))), getEstimatedSize());
+        node.addChild(left.explain());
+        node.addChild(right.explain());
+        directAfter.forEach(pqp -> node.addChild(pqp.explain()));
+        generalAfter.forEach(pqp -> node.addChild(pqp.explain()));
+        return node;
+    }
+
+    public PartialQueryPlan getLeft() {
+        return left;
+    }
+
+    public PartialQueryPlan getRight() {
+        return right;
+    }
+
+    /**
+     * Gets the plans that are executed on the joined tuples, in the order in which they are appended to the join.
+     *
+     * @return The rearranged plans.
+     */
+    public List<PartialQueryPlan> getAfter() {
+        final List<PartialQueryPlan> after = new ArrayList<>(directAfter);
+        after.addAll(generalAfter);
+        return after;
+    }
+
+    public Set<JoinAttribute> getJoinAttributes() {
+        return Collections.unmodifiableSet(joinAttributes);
+    }
+
+    public FeedbackKey getFeedbackKey() {
+        return FeedbackKey.join(left.getElements(), right.getElements());
+    }
+
+    public void setFeedback(CardinalityFeedback feedback) {
+        this.feedback = feedback;
+    }
+
+    public void setObserver(CardinalityObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Lets the join step execute the right side of this join on the given executor, concurrently to the left side.
+     *
+     * @param executor The executor or <code>null</code> to execute both sides on the same thread.
+     * @see JoinStep#setExecutor(Executor)
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Limits the number of tuples that are needed from this join. The limit is only passed to the join step if the
+     * join is not followed by any retrieval, since these could filter the joined tuples.
+     *
+     * @param limit The number of needed tuples or <code>-1</code> if all tuples are needed.
+     */
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Prepares this join and all joins on it's inputs for a counting plan. A join only counts the matching tuples of
+     * it's right side, instead of merging them into the joined tuples, if none of the right side's elements is needed
+     * after the join. This is the case if the join is not followed by any retrieval and the elements are not part of
+     * a subsequent join attribute.
+     *
+     * @param requiredLater The elements that are needed by the joins and retrievals after this join.
+     */
+    public void setFactorizedCounting(Set<PatternElement<?>> requiredLater) {
+        final boolean hasAfters = !(directAfter.isEmpty() && generalAfter.isEmpty());
+        countOnly = !hasAfters && !isReoptimizable() && right.getElements().stream().noneMatch(requiredLater::contains);
+
+        final Set<PatternElement<?>> requiredByInputs = Collections.newSetFromMap(new IdentityHashMap<>());
+        requiredByInputs.addAll(requiredLater);
+        joinAttributes.forEach(attr -> requiredByInputs.addAll(attr.getElements()));
+        if (hasAfters) {
+            requiredByInputs.addAll(getElements());
+        }
+        if (left instanceof Join) {
+            ((Join) left).setFactorizedCounting(requiredByInputs);
+        }
+        if (right instanceof Join) {
+            ((Join) right).setFactorizedCounting(requiredByInputs);
+        }
+    }
+
+    public boolean isCountOnly() {
+        return countOnly;
+    }
+
+    public void setReoptimization(StatisticsProvider stats, double threshold) {
+        this.reoptimizationStats = stats;
+        this.reoptimizationThreshold = threshold;
+    }
+
     @Override
     public String toString() {
         return String.format("Join on {%s} trees {%s, %s} then {%s}",
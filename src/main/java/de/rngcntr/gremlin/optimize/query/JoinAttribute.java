@@ -59,14 +59,76 @@ public class JoinAttribute {
     }
 
     public boolean doMatch(Map<String, Object> left, Map<String, Object> right) {
-        Object leftCandidate = left.get(String.valueOf(leftElement.getId()));
-        Object rightCandidate = right.get(String.valueOf(rightElement.getId()));
+        Object leftValue = resolveLeft(left);
+        Object rightValue = resolveRight(right);
 
-        if (leftCandidate == null || rightCandidate == null) {
+        if (leftValue == null || rightValue == null) {
             return true;
         }
 
-        return resolve(leftCandidate, leftMatch) == resolve(rightCandidate, rightMatch);
+        // graphs may create a new object for each read of an element, which is equal to the others by it's id
+        return leftValue.equals(rightValue);
+    }
+
+    /**
+     * Gets the value of the left side of this attribute that has to be equal to the right side's value.
+     *
+     * @param left A tuple of the left side of the join.
+     * @return The bound element, the resolved vertex of a bound edge or <code>null</code> if the element is not bound,
+     * which matches any value.
+     */
+    public Object resolveLeft(Map<String, Object> left) {
+        return resolveLeftCandidate(left.get(String.valueOf(leftElement.getId())));
+    }
+
+    /**
+     * Gets the value of a bound left element that has to be equal to the right side's value.
+     *
+     * @param leftCandidate The graph element that is bound to the left element or <code>null</code> if it is unbound.
+     * @return The element itself, it's resolved vertex if the attribute matches on an edge's vertex or
+     * <code>null</code> if the element is not bound.
+     */
+    public Object resolveLeftCandidate(Object leftCandidate) {
+        return leftCandidate == null ? null : resolve(leftCandidate, leftMatch);
+    }
+
+    /**
+     * Gets the value of the right side of this attribute that has to be equal to the left side's value.
+     *
+     * @param right A tuple of the right side of the join.
+     * @return The bound element, the resolved vertex of a bound edge or <code>null</code> if the element is not bound,
+     * which matches any value.
+     */
+    public Object resolveRight(Map<String, Object> right) {
+        return resolveRightCandidate(right.get(String.valueOf(rightElement.getId())));
+    }
+
+    /**
+     * Gets the value of a bound right element that has to be equal to the left side's value.
+     *
+     * @param rightCandidate The graph element that is bound to the right element or <code>null</code> if it is
+     *                       unbound.
+     * @return The element itself, it's resolved vertex if the attribute matches on an edge's vertex or
+     * <code>null</code> if the element is not bound.
+     */
+    public Object resolveRightCandidate(Object rightCandidate) {
+        return rightCandidate == null ? null : resolve(rightCandidate, rightMatch);
+    }
+
+    public PatternElement<?> getLeftElement() {
+        return leftElement;
+    }
+
+    public PatternElement<?> getRightElement() {
+        return rightElement;
+    }
+
+    public MatchOn getLeftMatch() {
+        return leftMatch;
+    }
+
+    public MatchOn getRightMatch() {
+        return rightMatch;
     }
 
     public void reformat(DependentRetrieval<?> reorderedRetrieval, JoinPosition pos) {
@@ -89,7 +151,14 @@ public class JoinAttribute {
         }
     }
 
-    private Object resolve(Object candidate, MatchOn matchOn) {
+    /**
+     * Resolves the value of a bound element that is compared by a join attribute.
+     *
+     * @param candidate The graph element that is bound to the element.
+     * @param matchOn The part of the element that is compared.
+     * @return The element itself or the resolved vertex of an edge.
+     */
+    public static Object resolve(Object candidate, MatchOn matchOn) {
         if (matchOn == MatchOn.ELEMENT) {
             return candidate;
         }
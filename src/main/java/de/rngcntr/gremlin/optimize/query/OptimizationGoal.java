@@ -0,0 +1,38 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.query;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * The cost that the optimizer minimizes when it chooses the retrievals of a pattern.
+ */
+public enum OptimizationGoal {
+    /**
+     * Minimizes the estimated number of intermediate results that are needed to compute all results. Elements are
+     * retrieved directly whenever that is cheaper than a dependent retrieval, even if the independently retrieved
+     * parts of the pattern have to be joined afterwards.
+     */
+    ALL_RESULTS,
+
+    /**
+     * Minimizes the time until the first results are streamed, which suits traversals that end in a
+     * <code>limit()</code>. Each connected part of the pattern is retrieved as a single pipeline of dependent
+     * retrievals, so that no join has to collect it's inner traversal before the first result is emitted.
+     *
+     * @see PipelinedPlanner
+     */
+    FIRST_RESULTS
+}
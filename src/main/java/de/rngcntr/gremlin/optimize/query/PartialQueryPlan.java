@@ -25,4 +25,28 @@ public interface PartialQueryPlan {
     Set<PartialQueryPlan> generalCut(Set<PatternElement<?>> elementsToKeep);
     Set<DependencyTree> explicitCut(Set<PatternElement<?>> elementsToKeep);
     boolean isMovable();
+
+    /**
+     * Lets all parts of this plan keep the branches factorized that are not needed outside of their dependency tree.
+     * Factorized branches are only counted, so this must be called after the plan has been arranged completely.
+     *
+     * @param requiredElements The elements that are needed outside of this plan, e.g. because they are returned.
+     */
+    void factorizeBranches(Set<PatternElement<?>> requiredElements);
+
+    /**
+     * Estimates the number of tuples that this plan produces, assuming that the selectivities of all contained
+     * retrievals are independent.
+     *
+     * @return The estimated number of tuples.
+     */
+    double getEstimatedSize();
+
+    /**
+     * Represents this plan as a tree of it's operators, including the estimations that the optimizer based it's
+     * decisions on.
+     *
+     * @return The root node of the plan.
+     */
+    PlanNode explain();
 }
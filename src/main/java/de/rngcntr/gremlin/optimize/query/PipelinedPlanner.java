@@ -0,0 +1,96 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.query;
+
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+
+import java.util.*;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * Chooses the retrievals of an estimated pattern for {@link OptimizationGoal#FIRST_RESULTS}. Starting at the element
+ * with the cheapest direct retrieval, every other element of the same connected component is retrieved greedily via
+ * the cheapest dependent retrieval whose source has been chosen already. Each connected component thereby becomes a
+ * single dependency tree, whose results are streamed without waiting for the inner traversal of a join, at the cost of
+ * possibly larger intermediate results. Only components that are not connected at all are still joined.
+ */
+public final class PipelinedPlanner {
+
+    private PipelinedPlanner() {
+    }
+
+    /**
+     * Pins the chosen retrieval of each element, so that it is used when the plan is built.
+     *
+     * @param elements The estimated elements of the pattern.
+     * @param stats The statistics provider that is used to estimate the dependent retrievals again, since their
+     *              sources may be retrieved differently than assumed during the estimation.
+     */
+    public static void pinRetrievals(List<PatternElement<?>> elements, StatisticsProvider stats) {
+        final Set<PatternElement<?>> bound = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<PatternElement<?>> missing = new ArrayList<>(elements);
+
+        while (!missing.isEmpty()) {
+            Retrieval<?> best = cheapestDependentRetrieval(missing, bound, stats);
+            if (best == null) {
+                // the next connected component starts at it's cheapest direct retrieval
+                best = cheapestDirectRetrieval(missing);
+            }
+            final PatternElement<?> chosenElement = best.getElement();
+            chosenElement.pinRetrieval(best);
+            bound.add(chosenElement);
+            missing.removeIf(e -> e == chosenElement);
+        }
+    }
+
+    private static Retrieval<?> cheapestDependentRetrieval(List<PatternElement<?>> missing,
+                                                           Set<PatternElement<?>> bound, StatisticsProvider stats) {
+        Retrieval<?> best = null;
+        for (PatternElement<?> element : missing) {
+            for (Retrieval<?> retrieval : element.getRetrievals()) {
+                if (!(retrieval instanceof DependentRetrieval)
+                        || !bound.contains(((DependentRetrieval<?>) retrieval).getSource())) {
+                    continue;
+                }
+                retrieval.estimate(stats);
+                if (!Double.isInfinite(retrieval.getEstimatedSize())
+                        && (best == null || retrieval.compareTo(best) < 0)) {
+                    best = retrieval;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static Retrieval<?> cheapestDirectRetrieval(List<PatternElement<?>> missing) {
+        Retrieval<?> best = null;
+        for (PatternElement<?> element : missing) {
+            for (Retrieval<?> retrieval : element.getRetrievals()) {
+                if (retrieval instanceof DirectRetrieval && (best == null || retrieval.compareTo(best) < 0)) {
+                    best = retrieval;
+                }
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No direct retrieval for elements " + missing);
+        }
+        return best;
+    }
+}
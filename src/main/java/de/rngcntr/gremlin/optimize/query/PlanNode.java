@@ -0,0 +1,283 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.query;
+
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.util.Metrics;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalMetrics;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A node of the structured representation of a query plan as returned by
+ * {@link de.rngcntr.gremlin.optimize.structure.PatternGraph#explain}. Each node represents an operator of the plan,
+ * that is either a join or a retrieval. The children of a retrieval are the retrievals that depend on it, the children
+ * of a join are it's left side, it's right side and the plans that are executed on the join results.
+ * <p>
+ * Nodes of a profiled plan are additionally annotated with the observed number of results and the time spent in the
+ * operator.
+ */
+public class PlanNode {
+
+    /**
+     * The type of operator represented by a node.
+     */
+    public enum Kind {
+        JOIN, DIRECT_RETRIEVAL, DEPENDENT_RETRIEVAL, EMPTY
+    }
+
+    private final Kind kind;
+    private final Object operator;
+    private final String description;
+    private final double estimatedSize;
+    private final List<Alternative> alternatives;
+    private final List<PlanNode> children;
+    private long actualSize;
+    private long durationNanos;
+    private boolean profiled;
+
+    /**
+     * Creates a node without alternatives.
+     *
+     * @param kind The type of operator.
+     * @param operator The operator of the query plan, which is used to match the node with the executed steps.
+     * @param description A human readable description of the operator.
+     * @param estimatedSize The estimated number of results of the operator.
+     */
+    public PlanNode(Kind kind, Object operator, String description, double estimatedSize) {
+        this(kind, operator, description, estimatedSize, Collections.emptyList());
+    }
+
+    private PlanNode(Kind kind, Object operator, String description, double estimatedSize,
+                     List<Alternative> alternatives) {
+        this.kind = kind;
+        this.operator = operator;
+        this.description = description;
+        this.estimatedSize = estimatedSize;
+        this.alternatives = alternatives;
+        this.children = new ArrayList<>();
+    }
+
+    /**
+     * Creates the node of a retrieval. All other retrievals of the same element are listed as alternatives.
+     *
+     * @param retrieval The chosen retrieval.
+     * @return The node.
+     */
+    public static PlanNode of(Retrieval<?> retrieval) {
+        List<Alternative> alternatives = retrieval.getElement().getRetrievals().stream()
+                .filter(r -> r != retrieval)
+                .map(r -> new Alternative(describe(r), r.getEstimatedSize()))
+                .sorted((a, b) -> Double.compare(a.getEstimatedSize(), b.getEstimatedSize()))
+                .collect(Collectors.toList());
+        Kind kind = retrieval instanceof DependentRetrieval ? Kind.DEPENDENT_RETRIEVAL : Kind.DIRECT_RETRIEVAL;
+        return new PlanNode(kind, retrieval, describe(retrieval), retrieval.getEstimatedSize(), alternatives);
+    }
+
+    private static String describe(Retrieval<?> retrieval) {
+        if (retrieval instanceof DependentRetrieval) {
+            DependentRetrieval<?> dependentRetrieval = (DependentRetrieval<?>) retrieval;
+            return String.format("%d via %d (%s)", retrieval.getElement().getId(),
+                    dependentRetrieval.getSource().getId(), dependentRetrieval.getDirection());
+        }
+        return String.format("%d Direct", retrieval.getElement().getId());
+    }
+
+    void addChild(PlanNode child) {
+        children.add(child);
+    }
+
+    /**
+     * Annotates this node and all of it's descendants with the observations of a profiled execution. The actual size
+     * of a node is counted by the {@link ObservationStep} of it's operator. The duration of a node is the time spent in
+     * the steps between the previous observation step of the same traversal and the node's observation step, including
+     * the nested traversals of these steps.
+     *
+     * @param traversal The completely iterated traversal that was assembled from the plan of this node.
+     * @param metrics The metrics collected by the profiled execution.
+     */
+    public void annotate(Traversal.Admin<?,?> traversal, TraversalMetrics metrics) {
+        final Map<String, Metrics> metricsById = new HashMap<>();
+        metrics.getMetrics().forEach(m -> collectMetrics(m, metricsById));
+        final Map<Object, long[]> actuals = new IdentityHashMap<>();
+        collectActuals(traversal, metricsById, actuals);
+        setActuals(actuals);
+    }
+
+    private static void collectMetrics(Metrics metrics, Map<String, Metrics> metricsById) {
+        metricsById.put(metrics.getId(), metrics);
+        metrics.getNested().forEach(m -> collectMetrics(m, metricsById));
+    }
+
+    private static void collectActuals(Traversal.Admin<?,?> traversal, Map<String, Metrics> metricsById,
+                                       Map<Object, long[]> actuals) {
+        long durationNanos = 0;
+        for (Step<?,?> step : traversal.getSteps()) {
+            if (step instanceof TraversalParent) {
+                final TraversalParent parent = (TraversalParent) step;
+                parent.getGlobalChildren().forEach(c -> collectActuals(c, metricsById, actuals));
+                parent.getLocalChildren().forEach(c -> collectActuals(c, metricsById, actuals));
+            }
+            if (step instanceof ObservationStep) {
+                final ObservationStep<?> observationStep = (ObservationStep<?>) step;
+                final long[] actual = actuals.computeIfAbsent(observationStep.getOperator(), o -> new long[2]);
+                actual[0] += observationStep.getObservedSize();
+                actual[1] += durationNanos;
+                durationNanos = 0;
+            } else if (metricsById.containsKey(step.getId())) {
+                durationNanos += metricsById.get(step.getId()).getDuration(TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void setActuals(Map<Object, long[]> actuals) {
+        final long[] actual = actuals.get(operator);
+        if (actual != null) {
+            this.actualSize = actual[0];
+            this.durationNanos = actual[1];
+            this.profiled = true;
+        }
+        children.forEach(c -> c.setActuals(actuals));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * Gets the retrievals that could have been used instead of the chosen one, ordered by their estimated size.
+     *
+     * @return The alternatives, which are empty for joins.
+     */
+    public List<Alternative> getAlternatives() {
+        return alternatives;
+    }
+
+    public List<PlanNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Checks whether this node has been annotated with observations of an execution.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if the node is profiled.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean isProfiled() {
+        return profiled;
+    }
+
+    /**
+     * Gets the observed number of results of this operator.
+     *
+     * @return The actual size or <code>-1</code> if the node is not profiled.
+     */
+    public long getActualSize() {
+        return profiled ? actualSize : -1;
+    }
+
+    /**
+     * Gets the time that was spent in the steps of this operator.
+     *
+     * @param unit The unit of the returned duration.
+     * @return The duration or <code>-1</code> if the node is not profiled.
+     */
+    public long getDuration(TimeUnit unit) {
+        return profiled ? unit.convert(durationNanos, TimeUnit.NANOSECONDS) : -1;
+    }
+
+    /**
+     * Gets the factor by which the estimated size deviates from the actual size.
+     *
+     * @return The q-error or {@link Double#NaN} if the node is not profiled.
+     */
+    public double getQError() {
+        return profiled ? AdaptivePlanner.qError(estimatedSize, actualSize) : Double.NaN;
+    }
+
+    /**
+     * Represents this node and all of it's descendants as an indented text.
+     *
+     * @return A text representation of the plan.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder, 0);
+        return builder.toString();
+    }
+
+    private void appendTo(StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            builder.append("  ");
+        }
+        builder.append(String.format("%s: %s, Estimation: ~%.2f", kind, description, estimatedSize));
+        if (profiled) {
+            builder.append(String.format(", Actual: %d, q-error: %.2f, Time: %.3f ms",
+                    actualSize, getQError(), durationNanos / 1e6));
+        }
+        if (!alternatives.isEmpty()) {
+            builder.append(alternatives.stream().map(Alternative::toString)
+                    .collect(Collectors.joining(", ", ", Alternatives: [", "]")));
+        }
+        builder.append('\n');
+        children.forEach(c -> c.appendTo(builder, depth + 1));
+    }
+
+    /**
+     * A retrieval that has not been chosen by the optimizer.
+     */
+    public static class Alternative {
+        private final String description;
+        private final double estimatedSize;
+
+        private Alternative(String description, double estimatedSize) {
+            this.description = description;
+            this.estimatedSize = estimatedSize;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public double getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s ~%.2f", description, estimatedSize);
+        }
+    }
+}
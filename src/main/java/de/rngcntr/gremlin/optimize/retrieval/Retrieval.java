@@ -14,12 +14,19 @@
 
 package de.rngcntr.gremlin.optimize.retrieval;
 
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
 import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
 import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsRequest;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.util.Collection;
+
 /**
  * @author Florian Grieskamp
  *
@@ -43,6 +50,21 @@ public abstract class Retrieval<E extends Element> implements Comparable<Retriev
      */
     protected double estimatedSize;
 
+    /**
+     * The most recent result size estimation for this retrieval before feedback corrections were applied.
+     */
+    protected double uncorrectedEstimatedSize;
+
+    /**
+     * The feedback store that corrects the estimations of this retrieval.
+     */
+    protected CardinalityFeedback feedback;
+
+    /**
+     * The observer that receives the actual result sizes of this retrieval.
+     */
+    protected CardinalityObserver observer;
+
     /**
      * The pattern element that defines a pattern for matching elements in the graph.
      */
@@ -58,14 +80,54 @@ public abstract class Retrieval<E extends Element> implements Comparable<Retriev
      */
     public Retrieval() {
         estimatedSize = IMPOSSIBLE;
+        uncorrectedEstimatedSize = IMPOSSIBLE;
+    }
+
+    /**
+     * Updates the estimation for this retrieval based on the provided statistics. If a feedback store is attached,
+     * the estimation is multiplied with the correction factor that was learned from previous executions.
+     *
+     * @param stats The statistics provider that is used.
+     */
+    public void estimate(StatisticsProvider stats) {
+        uncorrectedEstimatedSize = computeEstimate(stats);
+        estimatedSize = correct(uncorrectedEstimatedSize);
     }
 
     /**
-     * Updates the estimation for this retrieval based on the provided statistics.
+     * Applies the correction factor that was learned from previous executions to an estimation of this retrieval.
+     *
+     * @param uncorrectedSize The estimation based on statistics only.
+     * @return The corrected estimation or the given one if no feedback store is attached.
+     */
+    protected double correct(double uncorrectedSize) {
+        return feedback == null
+                ? uncorrectedSize
+                : uncorrectedSize * feedback.getCorrection(getFeedbackKey());
+    }
+
+    /**
+     * Computes the estimation for this retrieval based on the provided statistics only.
      *
      * @param stats The statistics provider that is used.
+     * @return The estimated result size.
+     */
+    protected abstract double computeEstimate(StatisticsProvider stats);
+
+    /**
+     * Gets the key under which observations of this retrieval are stored in a {@link CardinalityFeedback}.
+     *
+     * @return The feedback key.
      */
-    public abstract void estimate(StatisticsProvider stats);
+    public abstract FeedbackKey getFeedbackKey();
+
+    /**
+     * Lists all statistical values that {@link #estimate} requests from a statistics provider. Since the requests only
+     * depend on the filters of the involved pattern elements, they can be fetched in advance.
+     *
+     * @return The required statistics.
+     */
+    public abstract Collection<StatisticsRequest> getRequiredStatistics();
 
     /**
      * Generates a traversal that retrieves all candidates for the pattern element without applying the element's filters.
@@ -91,9 +153,22 @@ public abstract class Retrieval<E extends Element> implements Comparable<Retriev
             propertyFilter.applyTo(t);
         }
 
+        if (observer != null) {
+            addObservationSteps(t.asAdmin());
+        }
+
         return t.as(String.valueOf(getElement().getId()));
     }
 
+    /**
+     * Appends the steps that observe the actual result size of this retrieval to it's traversal.
+     *
+     * @param t The traversal that retrieves and filters the candidates.
+     */
+    protected void addObservationSteps(GraphTraversal.Admin<?,E> t) {
+        t.addStep(new ObservationStep<>(t, observer, this, getFeedbackKey(), uncorrectedEstimatedSize));
+    }
+
     /**
      * Gets the latest estimation of this retrieval's result size.
      *
@@ -103,6 +178,33 @@ public abstract class Retrieval<E extends Element> implements Comparable<Retriev
         return estimatedSize;
     }
 
+    /**
+     * Gets the latest estimation of this retrieval's result size without feedback corrections.
+     *
+     * @return The uncorrected estimated result size.
+     */
+    public double getUncorrectedEstimatedSize() {
+        return uncorrectedEstimatedSize;
+    }
+
+    /**
+     * Attaches a feedback store to this retrieval. Subsequent estimations are corrected by it.
+     *
+     * @param feedback The feedback store or <code>null</code> to disable feedback.
+     */
+    public void setFeedback(CardinalityFeedback feedback) {
+        this.feedback = feedback;
+    }
+
+    /**
+     * Attaches an observer to this retrieval. Subsequently generated traversals report their actual result sizes to it.
+     *
+     * @param observer The observer or <code>null</code> to disable observation.
+     */
+    public void setObserver(CardinalityObserver observer) {
+        this.observer = observer;
+    }
+
     /**
      * Compares itself to another retrieval based on their estimated sizes.
      *
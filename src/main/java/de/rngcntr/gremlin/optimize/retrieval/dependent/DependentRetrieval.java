@@ -14,14 +14,23 @@
 
 package de.rngcntr.gremlin.optimize.retrieval.dependent;
 
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
 import de.rngcntr.gremlin.optimize.filter.LabelFilter;
 import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
 import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsRequest;
+import de.rngcntr.gremlin.optimize.step.InputCountStep;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * @author Florian Grieskamp
@@ -44,11 +53,18 @@ public abstract class DependentRetrieval<E extends Element>  extends Retrieval<E
      */
     protected Direction direction;
 
+    /**
+     * The most recent estimation of the number of elements that are retrieved per source element, before feedback
+     * corrections were applied.
+     */
+    protected double uncorrectedSelectivity;
+
     /**
      * Creates a dependent retrieval and estimates it as impossible.
      */
     public DependentRetrieval() {
         super();
+        uncorrectedSelectivity = IMPOSSIBLE;
     }
 
     /**
@@ -70,52 +86,54 @@ public abstract class DependentRetrieval<E extends Element>  extends Retrieval<E
     }
 
     /**
-     * Updates the estimation for this retrieval based on the provided statistics.
+     * Updates the estimation for this retrieval based on the provided statistics and the current estimation of the
+     * source element's best retrieval. The number of elements retrieved per source element is kept as well, since
+     * the observations of this retrieval are compared with it instead of the estimation of the whole result size.
+     *
+     * @param stats The statistics provider that is used.
+     */
+    @Override
+    public void estimate(StatisticsProvider stats) {
+        uncorrectedSelectivity = isSelfDependent() ? IMPOSSIBLE : computeEstimate(1.0, stats);
+        super.estimate(stats);
+    }
+
+    /**
+     * Computes the estimation for this retrieval based on the provided statistics.
      * If the retrieval is self dependent, it is considered impossible, otherwise the estimation of the source element's
      * best retrieval is used as a basis, to which the selectivities of label and property constraints are applied.
      *
      * @param stats The statistics provider that is used.
+     * @return The estimated result size.
      */
     @Override
-    public void estimate(StatisticsProvider stats) {
+    protected double computeEstimate(StatisticsProvider stats) {
         if (isSelfDependent()) {
-            estimatedSize = IMPOSSIBLE;
-            return;
+            return IMPOSSIBLE;
         }
 
-        double incomingSize = getSource().getBestRetrieval().getEstimatedSize();
+        return computeEstimate(getSource().getBestRetrieval().getEstimatedSize(), stats);
+    }
+
+    /**
+     * Estimates the result size of this retrieval for a given number of source elements, e.g. an observed one. Unlike
+     * {@link #estimate(StatisticsProvider)}, the estimation of this retrieval is left unchanged.
+     *
+     * @param incomingSize The number of source elements.
+     * @param stats The statistics provider that is used.
+     * @return The estimated result size, corrected by the attached feedback store.
+     */
+    public double estimateFor(double incomingSize, StatisticsProvider stats) {
+        return correct(computeEstimate(incomingSize, stats));
+    }
 
+    private double computeEstimate(double incomingSize, StatisticsProvider stats) {
         /*
             determine selectivity of label filter
+            calculate #{eLabel -> vLabel} / #{vLabel}, where missing labels are replaced by the empty label filter
          */
-        double labelSelectivity;
-        if (getElement().hasLabelFilter()) {
-            if (getSource().hasLabelFilter()) {
-                // calculate #{eLabel -> vLabel} / #{eLabel}
-                double absoluteConnections = getDirection() == Direction.OUT
-                        ? stats.connections(getElement().getLabelFilter(), getSource().getLabelFilter())
-                        : stats.connections(getSource().getLabelFilter(), getElement().getLabelFilter());
-                labelSelectivity = absoluteConnections / stats.withLabel(getSource().getLabelFilter());
-            } else {
-                // calculate #{e* -> vLabel} / #{e*}
-                double absoluteConnections = getDirection() == Direction.OUT
-                        ? stats.connections(getElement().getLabelFilter(), LabelFilter.empty(getSource().getType()))
-                        : stats.connections(LabelFilter.empty(getSource().getType()), getElement().getLabelFilter());
-                labelSelectivity = absoluteConnections / stats.totals(getSource().getType());
-            }
-        } else {
-            if (getSource().hasLabelFilter()) {
-                double absoluteConnections = getDirection() == Direction.OUT
-                        ? stats.connections(LabelFilter.empty(getElement().getType()), getSource().getLabelFilter())
-                        : stats.connections(getSource().getLabelFilter(), LabelFilter.empty((getElement().getType())));
-                labelSelectivity = absoluteConnections / stats.withLabel(getSource().getLabelFilter());
-            } else {
-                double absoluteConnections = getDirection() == Direction.OUT
-                        ? stats.connections(LabelFilter.empty(getElement().getType()), LabelFilter.empty(getSource().getType()))
-                        : stats.connections(LabelFilter.empty(getSource().getType()), LabelFilter.empty((getElement().getType())));
-                labelSelectivity = absoluteConnections / stats.totals(getSource().getType());
-            }
-        }
+        double absoluteConnections = connectionsRequest().evaluate(stats);
+        double labelSelectivity = absoluteConnections / sourceTotalRequest().evaluate(stats);
 
         /*
             determine selectivity of property filter
@@ -123,9 +141,9 @@ public abstract class DependentRetrieval<E extends Element>  extends Retrieval<E
 
         double filterSelectivity = 1.0;
         if (getElement().hasLabelFilter()) {
-            double total = stats.withLabel(getElement().getLabelFilter());
-            Optional<Double> totalFiltered = getElement().getPropertyFilters().stream()
-                    .map(f -> stats.withProperty(getElement().getLabelFilter(), f))
+            double total = StatisticsRequest.withLabel(getElement().getLabelFilter()).evaluate(stats);
+            Optional<Double> totalFiltered = propertyRequests().stream()
+                    .map(r -> r.evaluate(stats))
                     .min(Double::compare);
             filterSelectivity = totalFiltered.orElse(total) / total;
         }
@@ -133,7 +151,78 @@ public abstract class DependentRetrieval<E extends Element>  extends Retrieval<E
         /*
             combine to estimation
          */
-        estimatedSize = incomingSize * labelSelectivity * filterSelectivity;
+        return incomingSize * labelSelectivity * filterSelectivity;
+    }
+
+    /**
+     * Observes the result size of this retrieval relative to the number of source elements that it is executed for.
+     * The estimation of the source elements may have been corrected already, so an observation that is compared with
+     * the estimation of the whole result size would attribute the source's misestimation to this retrieval as well.
+     *
+     * @param t The traversal that retrieves and filters the candidates.
+     */
+    @Override
+    protected void addObservationSteps(GraphTraversal.Admin<?,E> t) {
+        // the first step is the start of the traversal, which binds the source element
+        t.addStep(1, new InputCountStep<>(t));
+        t.addStep(new ObservationStep<>(t, observer, this, getFeedbackKey(), uncorrectedSelectivity, true));
+    }
+
+    @Override
+    public FeedbackKey getFeedbackKey() {
+        return FeedbackKey.dependent(getElement(), getSource(), getDirection());
+    }
+
+    @Override
+    public Collection<StatisticsRequest> getRequiredStatistics() {
+        List<StatisticsRequest> requests = new ArrayList<>();
+        requests.add(connectionsRequest());
+        requests.add(sourceTotalRequest());
+        if (getElement().hasLabelFilter()) {
+            requests.add(StatisticsRequest.withLabel(getElement().getLabelFilter()));
+            requests.addAll(propertyRequests());
+        }
+        return requests;
+    }
+
+    /**
+     * Creates the request for the number of connections between the source element and the retrieved element with
+     * respect to the direction of the dependency.
+     *
+     * @return The request.
+     */
+    private StatisticsRequest connectionsRequest() {
+        LabelFilter<?> elementLabel = getElement().hasLabelFilter()
+                ? getElement().getLabelFilter()
+                : LabelFilter.empty(getElement().getType());
+        LabelFilter<?> sourceLabel = getSource().hasLabelFilter()
+                ? getSource().getLabelFilter()
+                : LabelFilter.empty(getSource().getType());
+        return getDirection() == Direction.OUT
+                ? StatisticsRequest.connections(elementLabel, sourceLabel)
+                : StatisticsRequest.connections(sourceLabel, elementLabel);
+    }
+
+    /**
+     * Creates the request for the number of elements that match the label filter of the source element.
+     *
+     * @return The request.
+     */
+    private StatisticsRequest sourceTotalRequest() {
+        return getSource().hasLabelFilter()
+                ? StatisticsRequest.withLabel(getSource().getLabelFilter())
+                : StatisticsRequest.totals(getSource().getType());
+    }
+
+    /**
+     * Creates the requests for the number of labeled elements that match each of the property filters.
+     *
+     * @return The requests.
+     */
+    private List<StatisticsRequest> propertyRequests() {
+        return getElement().getPropertyFilters().stream()
+                .map(f -> StatisticsRequest.withProperty(getElement().getLabelFilter(), f))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -14,10 +14,17 @@
 
 package de.rngcntr.gremlin.optimize.retrieval.direct;
 
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
 import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
 import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsRequest;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * @author Florian Grieskamp
  *
@@ -37,26 +44,63 @@ public abstract class DirectRetrieval<E extends Element>  extends Retrieval<E> {
     }
 
     /**
-     * Updates the estimation for this retrieval based on the provided statistics.
+     * Computes the estimation for this retrieval based on the provided statistics.
      * If the retrieved element has no label constraint, the absolute estimation of elements with the same type is used.
      * Else, the most selective property or label constraint is used.
      *
      * @param stats The statistics provider that is used.
+     * @return The estimated result size.
      */
     @Override
-    public void estimate(StatisticsProvider stats) {
+    protected double computeEstimate(StatisticsProvider stats) {
         // if filters are available, use the most selective
         if (!getElement().hasLabelFilter()) {
-            this.estimatedSize = stats.totals(getElement().getType());
+            return totalRequest().evaluate(stats);
         } else {
-            Double estimateByProperties = getElement().getPropertyFilters().stream()
-                    .map(f -> stats.withProperty(getElement().getLabelFilter(), f))
+            Double estimateByProperties = propertyRequests().stream()
+                    .map(r -> r.evaluate(stats))
                     .min(Double::compare)
                     .orElse(IMPOSSIBLE);
-            double estimateByLabel = stats.withLabel(getElement().getLabelFilter());
-            this.estimatedSize = Math.min(estimateByProperties, estimateByLabel);
+            double estimateByLabel = totalRequest().evaluate(stats);
+            return Math.min(estimateByProperties, estimateByLabel);
         }
+    }
+
+    @Override
+    public FeedbackKey getFeedbackKey() {
+        return FeedbackKey.direct(getElement());
+    }
+
+    @Override
+    public Collection<StatisticsRequest> getRequiredStatistics() {
+        List<StatisticsRequest> requests = new ArrayList<>();
+        requests.add(totalRequest());
+        if (getElement().hasLabelFilter()) {
+            requests.addAll(propertyRequests());
+        }
+        return requests;
+    }
 
+    /**
+     * Creates the request for the number of elements that match the label filter of the retrieved element.
+     *
+     * @return The request.
+     */
+    private StatisticsRequest totalRequest() {
+        return getElement().hasLabelFilter()
+                ? StatisticsRequest.withLabel(getElement().getLabelFilter())
+                : StatisticsRequest.totals(getElement().getType());
+    }
+
+    /**
+     * Creates the requests for the number of labeled elements that match each of the property filters.
+     *
+     * @return The requests.
+     */
+    private List<StatisticsRequest> propertyRequests() {
+        return getElement().getPropertyFilters().stream()
+                .map(f -> StatisticsRequest.withProperty(getElement().getLabelFilter(), f))
+                .collect(Collectors.toList());
     }
 
     /**
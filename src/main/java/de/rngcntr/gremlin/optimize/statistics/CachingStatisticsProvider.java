@@ -0,0 +1,202 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A decorator for an arbitrary {@link StatisticsProvider} that memoizes all answers of the decorated provider. Each
+ * distinct {@link StatisticsRequest} is forwarded to the decorated provider at most once per cache lifetime.
+ * <p>
+ * Two scopes are supported:
+ * <ul>
+ *     <li>{@link #perOptimization} creates an unbounded cache that lives as long as a single optimization.</li>
+ *     <li>{@link #shared} creates a bounded cache with a time to live that can be shared by many optimizations.</li>
+ * </ul>
+ */
+public class CachingStatisticsProvider implements StatisticsProvider {
+    private static final OptimizerEvents EVENTS = OptimizerEvents.get();
+
+    private final StatisticsProvider delegate;
+    private final Cache<StatisticsRequest, Double> cache;
+    private final boolean shared;
+
+    private CachingStatisticsProvider(StatisticsProvider delegate, Cache<StatisticsRequest, Double> cache,
+                                      boolean shared) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.shared = shared;
+    }
+
+    /**
+     * Creates an unbounded cache for the duration of a single optimization.
+     *
+     * @param delegate The statistics provider whose answers are cached.
+     * @return The caching statistics provider.
+     */
+    public static CachingStatisticsProvider perOptimization(StatisticsProvider delegate) {
+        return new CachingStatisticsProvider(delegate, CacheBuilder.newBuilder().recordStats().build(), false);
+    }
+
+    /**
+     * Creates a bounded cache whose entries expire after the given duration. The returned instance is thread safe and
+     * is meant to be shared between optimizations.
+     *
+     * @param delegate The statistics provider whose answers are cached.
+     * @param timeToLive The duration after which a cached answer is requested again.
+     * @param unit The unit of <code>timeToLive</code>.
+     * @param maximumSize The maximum number of cached answers.
+     * @return The caching statistics provider.
+     */
+    public static CachingStatisticsProvider shared(StatisticsProvider delegate, long timeToLive, TimeUnit unit,
+                                                   long maximumSize) {
+        return shared(delegate, timeToLive, unit, maximumSize, Ticker.systemTicker());
+    }
+
+    static CachingStatisticsProvider shared(StatisticsProvider delegate, long timeToLive, TimeUnit unit,
+                                            long maximumSize, Ticker ticker) {
+        return new CachingStatisticsProvider(delegate, CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLive, unit)
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .recordStats()
+                .build(), true);
+    }
+
+    /**
+     * Gets the answer to a request, either from the cache or from the decorated provider.
+     *
+     * @param request The request.
+     * @return The answer.
+     */
+    public double get(StatisticsRequest request) {
+        if (EVENTS.isEnabled()) {
+            EVENTS.statisticsCacheAccess(shared, cache.asMap().containsKey(request));
+        }
+        try {
+            return cache.get(request, () -> request.evaluate(delegate));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Statistics request failed: " + request, e.getCause());
+        }
+    }
+
+    /**
+     * Fetches the answers to all given requests that are not cached yet in a single batch via
+     * {@link StatisticsProvider#estimateAll} and waits for them to arrive. Requests that the decorated provider fails
+     * to answer in the batch are not cached and will be requested individually once they are needed.
+     *
+     * @param requests The requests to prefetch.
+     */
+    public void prefetch(Collection<StatisticsRequest> requests) {
+        Set<StatisticsRequest> missing = requests.stream()
+                .filter(r -> !cache.asMap().containsKey(r))
+                .collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<StatisticsRequest, CompletableFuture<Double>> answers = delegate.estimateAll(missing);
+        answers.forEach((request, answer) -> {
+            try {
+                Double value = answer.join();
+                if (value != null) {
+                    cache.put(request, value);
+                }
+            } catch (CompletionException | CancellationException ignored) {
+                // the request is retried individually
+            }
+        });
+    }
+
+    /**
+     * Answers a batch of requests by prefetching all uncached answers from the decorated provider in one batch.
+     *
+     * @param requests The requests to answer.
+     * @return An answer for each of the requests.
+     */
+    @Override
+    public Map<StatisticsRequest, CompletableFuture<Double>> estimateAll(Collection<StatisticsRequest> requests) {
+        prefetch(requests);
+        return StatisticsProvider.super.estimateAll(requests);
+    }
+
+    @Override
+    public <E extends Element> double totals(Class<E> clazz) {
+        return get(StatisticsRequest.totals(clazz));
+    }
+
+    @Override
+    public <E extends Element> double withLabel(LabelFilter<E> label) {
+        return get(StatisticsRequest.withLabel(label));
+    }
+
+    @Override
+    public <E extends Element> double withProperty(LabelFilter<E> label, PropertyFilter<E> property) {
+        return get(StatisticsRequest.withProperty(label, property));
+    }
+
+    @Override
+    public <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel, LabelFilter<E2> toLabel) {
+        return get(StatisticsRequest.connections(fromLabel, toLabel));
+    }
+
+    /**
+     * Gets the hit and miss counters of the cache. The hit rate can be obtained via {@link CacheStats#hitRate()}.
+     *
+     * @return A snapshot of the cache metrics.
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Removes all cached answers, so that subsequent requests are forwarded to the decorated provider.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets the statistics provider whose answers are cached.
+     *
+     * @return The decorated statistics provider.
+     */
+    public StatisticsProvider getDelegate() {
+        return delegate;
+    }
+}
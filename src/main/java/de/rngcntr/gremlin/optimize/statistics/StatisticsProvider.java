@@ -18,6 +18,11 @@ import de.rngcntr.gremlin.optimize.filter.LabelFilter;
 import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
 import org.apache.tinkerpop.gremlin.structure.Element;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Florian Grieskamp
  *
@@ -78,4 +83,26 @@ public interface StatisticsProvider {
      * @return The number of matching connections.
      */
     <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel, LabelFilter<E2> toLabel);
+
+    /**
+     * Answers a batch of requests at once. Providers that are backed by a remote service should override this method
+     * to fetch all values in as few round trips as possible. The default implementation answers each request
+     * synchronously by calling the methods above.
+     *
+     * @param requests The requests to answer.
+     * @return A (possibly not yet completed) answer for each of the requests.
+     */
+    default Map<StatisticsRequest, CompletableFuture<Double>> estimateAll(Collection<StatisticsRequest> requests) {
+        Map<StatisticsRequest, CompletableFuture<Double>> answers = new HashMap<>();
+        for (StatisticsRequest request : requests) {
+            CompletableFuture<Double> answer = new CompletableFuture<>();
+            try {
+                answer.complete(request.evaluate(this));
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+            }
+            answers.put(request, answer);
+        }
+        return answers;
+    }
 }
\ No newline at end of file
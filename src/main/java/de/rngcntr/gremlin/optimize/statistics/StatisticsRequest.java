@@ -0,0 +1,167 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+import java.util.Objects;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * A single question that can be answered by a {@link StatisticsProvider}. Requests are immutable, hashable values
+ * and are interned, so that equal requests share one instance and can efficiently be used as cache keys.
+ */
+public final class StatisticsRequest {
+    private static final Interner<StatisticsRequest> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * The method of {@link StatisticsProvider} that answers a request.
+     */
+    public enum Kind {
+        TOTALS, WITH_LABEL, WITH_PROPERTY, CONNECTIONS
+    }
+
+    private final Kind kind;
+    private final Class<? extends Element> type;
+    private final LabelFilter<?> firstLabel;
+    private final LabelFilter<?> secondLabel;
+    private final PropertyFilter<?> property;
+    private final int hashCode;
+
+    private StatisticsRequest(Kind kind, Class<? extends Element> type, LabelFilter<?> firstLabel,
+                              LabelFilter<?> secondLabel, PropertyFilter<?> property) {
+        this.kind = kind;
+        this.type = type;
+        this.firstLabel = firstLabel;
+        this.secondLabel = secondLabel;
+        this.property = property;
+        this.hashCode = Objects.hash(kind, type, firstLabel, secondLabel, property);
+    }
+
+    /**
+     * Creates a request for {@link StatisticsProvider#totals}.
+     *
+     * @param clazz The type of element.
+     * @return The interned request.
+     */
+    public static StatisticsRequest totals(Class<? extends Element> clazz) {
+        return INTERNER.intern(new StatisticsRequest(Kind.TOTALS, clazz, null, null, null));
+    }
+
+    /**
+     * Creates a request for {@link StatisticsProvider#withLabel}.
+     *
+     * @param label The label filter.
+     * @return The interned request.
+     */
+    public static StatisticsRequest withLabel(LabelFilter<?> label) {
+        return INTERNER.intern(new StatisticsRequest(Kind.WITH_LABEL, null, label, null, null));
+    }
+
+    /**
+     * Creates a request for {@link StatisticsProvider#withProperty}.
+     *
+     * @param label The label filter.
+     * @param property The property filter.
+     * @return The interned request.
+     */
+    public static StatisticsRequest withProperty(LabelFilter<?> label, PropertyFilter<?> property) {
+        return INTERNER.intern(new StatisticsRequest(Kind.WITH_PROPERTY, null, label, null, property));
+    }
+
+    /**
+     * Creates a request for {@link StatisticsProvider#connections}.
+     *
+     * @param fromLabel The label filter of the incoming element.
+     * @param toLabel The label filter of the outgoing element.
+     * @return The interned request.
+     */
+    public static StatisticsRequest connections(LabelFilter<?> fromLabel, LabelFilter<?> toLabel) {
+        return INTERNER.intern(new StatisticsRequest(Kind.CONNECTIONS, null, fromLabel, toLabel, null));
+    }
+
+    /**
+     * Answers this request by calling the matching method of the given statistics provider.
+     *
+     * @param stats The statistics provider.
+     * @return The answer of the statistics provider.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public double evaluate(StatisticsProvider stats) {
+        switch (kind) {
+            case TOTALS:
+                return stats.totals(type);
+            case WITH_LABEL:
+                return stats.withLabel(firstLabel);
+            case WITH_PROPERTY:
+                return stats.withProperty((LabelFilter) firstLabel, (PropertyFilter) property);
+            case CONNECTIONS:
+                return stats.connections(firstLabel, secondLabel);
+            default:
+                throw new IllegalStateException("Unhandled request kind: " + kind);
+        }
+    }
+
+    /**
+     * Gets the method of {@link StatisticsProvider} that answers this request.
+     *
+     * @return The kind of request.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof StatisticsRequest)) return false;
+        StatisticsRequest otherRequest = (StatisticsRequest) other;
+        return hashCode == otherRequest.hashCode
+                && kind == otherRequest.kind
+                && type == otherRequest.type
+                && Objects.equals(firstLabel, otherRequest.firstLabel)
+                && Objects.equals(secondLabel, otherRequest.secondLabel)
+                && Objects.equals(property, otherRequest.property);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Represents this request as a human readable text.
+     *
+     * @return A text representation of the request.
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TOTALS:
+                return String.format("totals(%s)", type.getSimpleName());
+            case WITH_PROPERTY:
+                return String.format("withProperty(%s, %s)", firstLabel, property);
+            case CONNECTIONS:
+                return String.format("connections(%s, %s)", firstLabel, secondLabel);
+            default:
+                return String.format("withLabel(%s)", firstLabel);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.DoubleConsumer;
+
+/**
+ * @author Florian Grieskamp
+ *
+ * An immutable, serializable snapshot of everything a {@link StatisticsProvider} answers. Snapshots are stored in a
+ * compact, versioned binary format that can be memory-mapped, so that a freshly started node can serve optimized
+ * plans without recomputing its statistics first.
+ * <p>
+ * The binary layout (all numbers big endian) is:
+ * <ul>
+ *     <li>Header: magic number (int), format version (int), number of entries (int), offset of the key area (int)</li>
+ *     <li>Index: one slot per entry, sorted by key hash: hash (long), key offset (int), key length (int),
+ *     value (double)</li>
+ *     <li>Key area: the UTF-8 encoded keys of all entries</li>
+ * </ul>
+ * Lookups perform a binary search on the index and compare the key bytes in place, so reading a value never copies
+ * data out of the mapped file.
+ * <p>
+ * A value that the snapshot does not contain is not answered as <code>0</code>, which would make the planner prefer
+ * the retrieval that it belongs to. Instead, it is answered by a fallback provider (see {@link #withFallback}) or,
+ * without a fallback, derived from a coarser value: a missing property count is replaced by the count of it's label,
+ * a missing connection count by the larger label count of both sides and a missing label count by the total count of
+ * it's element type. Only a missing total count is answered as <code>0</code>.
+ */
+public class StatisticsSnapshot implements StatisticsProvider {
+    /**
+     * The magic number that identifies statistics snapshot files (ASCII "STRP").
+     */
+    public static final int MAGIC = 0x53545250;
+
+    /**
+     * The format version written by this implementation.
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 24;
+    private static final char SEPARATOR = '\u001F';
+    private static final String NO_LABEL = "\u0000";
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final StatisticsProvider fallback;
+
+    private StatisticsSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        this.fallback = null;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a statistics snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported statistics snapshot version: " + buffer.getInt(4));
+        }
+        this.entryCount = buffer.getInt(8);
+        if (entryCount < 0 || HEADER_SIZE + (long) entryCount * SLOT_SIZE > buffer.getInt(12)
+                || buffer.getInt(12) > buffer.limit()) {
+            throw new IOException("Corrupted statistics snapshot");
+        }
+    }
+
+    private StatisticsSnapshot(StatisticsSnapshot snapshot, StatisticsProvider fallback) {
+        this.buffer = snapshot.buffer;
+        this.entryCount = snapshot.entryCount;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Loads a snapshot by memory-mapping the given file. The file is not read eagerly, pages are loaded on demand
+     * when values are looked up.
+     *
+     * @param file The snapshot file.
+     * @return The loaded snapshot.
+     * @throws IOException If the file can not be mapped or is not a valid snapshot.
+     */
+    public static StatisticsSnapshot load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StatisticsSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes this snapshot to the given file. The data is written to a temporary file in the same directory first,
+     * which then atomically replaces the target, so that concurrent readers never observe a partially written file.
+     *
+     * @param file The target file.
+     * @throws IOException If the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer content = buffer.duplicate();
+                content.clear();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Gets the number of statistical values stored in this snapshot.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Creates a view of this snapshot that answers the values that the snapshot does not contain by the given
+     * provider, e.g. by a provider that computes them on demand.
+     *
+     * @param fallback The provider that answers missing values.
+     * @return The snapshot with the fallback.
+     */
+    public StatisticsSnapshot withFallback(StatisticsProvider fallback) {
+        return new StatisticsSnapshot(this, fallback);
+    }
+
+    /**
+     * Captures the answers of a statistics provider into a new snapshot, e.g. to persist statistics that are expensive
+     * to compute. The snapshot contains the totals of vertices and edges, the count of each label, the count of each
+     * label combined with each property filter of the same element type and the connections between each pair of a
+     * vertex and an edge label in both directions. Unlabeled elements are only captured if the empty label filter is
+     * one of the labels. All values are requested in a single batch (see {@link StatisticsProvider#estimateAll}).
+     *
+     * @param stats The provider to capture.
+     * @param labels The label filters to capture the values for.
+     * @param properties The property filters to capture the values for.
+     * @return The snapshot.
+     */
+    public static StatisticsSnapshot capture(StatisticsProvider stats, Collection<? extends LabelFilter<?>> labels,
+                                             Collection<? extends PropertyFilter<?>> properties) {
+        Builder builder = builder();
+        Map<StatisticsRequest, DoubleConsumer> targets = new LinkedHashMap<>();
+        for (Class<? extends Element> type : Arrays.asList(Vertex.class, Edge.class)) {
+            targets.put(StatisticsRequest.totals(type), value -> builder.totals(type, value));
+        }
+        for (LabelFilter<?> label : labels) {
+            targets.put(StatisticsRequest.withLabel(label), value -> builder.withLabel(label, value));
+            for (PropertyFilter<?> property : properties) {
+                if (property.getFilteredType() == label.getFilteredType()) {
+                    targets.put(StatisticsRequest.withProperty(label, property),
+                            value -> builder.withProperty(label, property, value));
+                }
+            }
+            for (LabelFilter<?> other : labels) {
+                if (other.getFilteredType() != label.getFilteredType()) {
+                    targets.put(StatisticsRequest.connections(label, other),
+                            value -> builder.connections(label, other, value));
+                }
+            }
+        }
+
+        Map<StatisticsRequest, CompletableFuture<Double>> answers = stats.estimateAll(targets.keySet());
+        targets.forEach((request, target) -> {
+            Double value;
+            try {
+                CompletableFuture<Double> answer = answers.get(request);
+                value = answer != null ? answer.join() : null;
+            } catch (CompletionException | CancellationException e) {
+                value = null;
+            }
+            // failed or missing answers of the batch are requested individually
+            target.accept(value != null ? value : request.evaluate(stats));
+        });
+        return builder.build();
+    }
+
+    /**
+     * Creates a builder that collects statistical values for a new snapshot.
+     *
+     * @return The builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public <E extends Element> double totals(Class<E> clazz) {
+        double value = lookup(totalsKey(clazz));
+        if (isAbsent(value)) {
+            return fallback != null ? fallback.totals(clazz) : 0.0;
+        }
+        return value;
+    }
+
+    @Override
+    public <E extends Element> double withLabel(LabelFilter<E> label) {
+        double value = lookup(labelKey(label));
+        if (isAbsent(value)) {
+            return fallback != null ? fallback.withLabel(label) : totals(label.getFilteredType());
+        }
+        return value;
+    }
+
+    @Override
+    public <E extends Element> double withProperty(LabelFilter<E> label, PropertyFilter<E> property) {
+        double value = lookup(propertyKey(label, property));
+        if (isAbsent(value)) {
+            // without further knowledge, the property filter is not assumed to be selective
+            return fallback != null ? fallback.withProperty(label, property) : withLabel(label);
+        }
+        return value;
+    }
+
+    @Override
+    public <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel, LabelFilter<E2> toLabel) {
+        double value = lookup(connectionsKey(fromLabel, toLabel));
+        if (isAbsent(value)) {
+            // without further knowledge, every element of the larger side is assumed to have one connection
+            return fallback != null
+                    ? fallback.connections(fromLabel, toLabel)
+                    : Math.max(withLabel(fromLabel), withLabel(toLabel));
+        }
+        return value;
+    }
+
+    private static boolean isAbsent(double value) {
+        return Double.isNaN(value);
+    }
+
+    /**
+     * Looks up a single value by performing a binary search over the hash-sorted index.
+     *
+     * @param key The key of the value.
+     * @return The stored value or {@link Double#NaN} if the snapshot does not contain the key.
+     */
+    private double lookup(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = buffer.getLong(slot(mid));
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // hash collisions are resolved by scanning all slots with an equal hash
+                int first = mid;
+                while (first > 0 && buffer.getLong(slot(first - 1)) == hash) first--;
+                for (int i = first; i < entryCount && buffer.getLong(slot(i)) == hash; ++i) {
+                    if (keyEquals(i, keyBytes)) {
+                        return buffer.getDouble(slot(i) + 16);
+                    }
+                }
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private boolean keyEquals(int index, byte[] keyBytes) {
+        int offset = buffer.getInt(slot(index) + 8);
+        int length = buffer.getInt(slot(index) + 12);
+        if (length != keyBytes.length) return false;
+        for (int i = 0; i < length; ++i) {
+            if (buffer.get(offset + i) != keyBytes[i]) return false;
+        }
+        return true;
+    }
+
+    private static int slot(int index) {
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    /**
+     * Computes the 64 bit FNV-1a hash of the given bytes. The hash is part of the file format and must not change
+     * without increasing {@link #VERSION}.
+     *
+     * @param bytes The input bytes.
+     * @return The hash value.
+     */
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String typeKey(Class<? extends Element> clazz) {
+        return Vertex.class.isAssignableFrom(clazz) ? "V" : "E";
+    }
+
+    private static String labelKey(Class<? extends Element> clazz, String label) {
+        return typeKey(clazz) + SEPARATOR + (label == null ? NO_LABEL : label);
+    }
+
+    private static String totalsKey(Class<? extends Element> clazz) {
+        return "T" + SEPARATOR + typeKey(clazz);
+    }
+
+    private static String labelKey(LabelFilter<?> label) {
+        return "L" + SEPARATOR + labelKey(label.getFilteredType(), label.getLabel());
+    }
+
+    private static String propertyKey(LabelFilter<?> label, PropertyFilter<?> property) {
+        return "P" + SEPARATOR + labelKey(label.getFilteredType(), label.getLabel())
+                + SEPARATOR + property.getKey() + SEPARATOR + property.getPredicate();
+    }
+
+    private static String connectionsKey(LabelFilter<?> fromLabel, LabelFilter<?> toLabel) {
+        return "C" + SEPARATOR + labelKey(fromLabel.getFilteredType(), fromLabel.getLabel())
+                + SEPARATOR + labelKey(toLabel.getFilteredType(), toLabel.getLabel());
+    }
+
+    /**
+     * Collects statistical values and encodes them into a {@link StatisticsSnapshot}. Property filters are identified
+     * by their key and the textual representation of their predicate.
+     */
+    public static class Builder {
+        private final Map<String, Double> values = new TreeMap<>();
+
+        private Builder() {}
+
+        /**
+         * Stores the value answered by {@link StatisticsProvider#totals}.
+         *
+         * @param clazz The type of element.
+         * @param value The number of elements.
+         * @return This builder.
+         */
+        public Builder totals(Class<? extends Element> clazz, double value) {
+            values.put(totalsKey(clazz), value);
+            return this;
+        }
+
+        /**
+         * Stores the value answered by {@link StatisticsProvider#withLabel}.
+         *
+         * @param label The label filter.
+         * @param value The number of elements.
+         * @return This builder.
+         */
+        public Builder withLabel(LabelFilter<?> label, double value) {
+            values.put(labelKey(label), value);
+            return this;
+        }
+
+        /**
+         * Stores the value answered by {@link StatisticsProvider#withProperty}.
+         *
+         * @param label The label filter.
+         * @param property The property filter.
+         * @param value The number of elements.
+         * @return This builder.
+         */
+        public Builder withProperty(LabelFilter<?> label, PropertyFilter<?> property, double value) {
+            values.put(propertyKey(label, property), value);
+            return this;
+        }
+
+        /**
+         * Stores the value answered by {@link StatisticsProvider#connections}.
+         *
+         * @param fromLabel The label filter of the incoming element.
+         * @param toLabel The label filter of the outgoing element.
+         * @param value The number of connections.
+         * @return This builder.
+         */
+        public Builder connections(LabelFilter<?> fromLabel, LabelFilter<?> toLabel, double value) {
+            values.put(connectionsKey(fromLabel, toLabel), value);
+            return this;
+        }
+
+        /**
+         * Encodes all collected values into a heap-backed snapshot, which can then be written to a file.
+         *
+         * @return The snapshot.
+         */
+        public StatisticsSnapshot build() {
+            List<byte[]> keys = new ArrayList<>(values.size());
+            List<Double> entries = new ArrayList<>(values.size());
+            int keyAreaSize = 0;
+            for (Map.Entry<String, Double> entry : values.entrySet()) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                keys.add(key);
+                entries.add(entry.getValue());
+                keyAreaSize += key.length;
+            }
+
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; ++i) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(hash(keys.get(a)), hash(keys.get(b))));
+
+            int keyAreaOffset = HEADER_SIZE + order.length * SLOT_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(keyAreaOffset + keyAreaSize);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(order.length).putInt(keyAreaOffset);
+
+            int keyOffset = keyAreaOffset;
+            for (int index : order) {
+                byte[] key = keys.get(index);
+                buffer.putLong(hash(key)).putInt(keyOffset).putInt(key.length).putDouble(entries.get(index));
+                keyOffset += key.length;
+            }
+            for (int index : order) {
+                buffer.put(keys.get(index));
+            }
+            buffer.flip();
+
+            try {
+                return new StatisticsSnapshot(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException("Created an invalid statistics snapshot", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Scoping;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.EmptyStep;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This step follows a {@link JoinStep} and contains the part of the query plan that is executed on the join results.
+ * Once the join step has materialized it's inner traversal, the observed number of join candidates is handed to a
+ * {@link Replanner}, which may replace the contained plan before the first traverser is processed. All traversers are
+ * passed to the contained plan unchanged, so that the path information of the join is preserved.
+ *
+ * @author Florian Grieskamp
+ */
+public class AdaptiveStep<S,E> extends AbstractStep<S,E> implements TraversalParent, Scoping {
+
+    /**
+     * Decides whether the remaining plan needs to be replaced based on the observed size of a join's inner traversal.
+     */
+    @FunctionalInterface
+    public interface Replanner {
+        /**
+         * Creates a new plan for the remaining part of the query.
+         *
+         * @param observedBuildSize The number of tuples that were produced by the inner traversal of the join.
+         * @return The new plan or <code>null</code> if the current plan should be kept.
+         */
+        Traversal.Admin<?,?> replan(long observedBuildSize);
+    }
+
+    private Traversal.Admin<S,E> remainder;
+    private final Replanner replanner;
+    private final Set<String> scopeKeys;
+    private boolean adapted;
+    private boolean replanned;
+
+    /**
+     * Creates an {@link AdaptiveStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param remainder The initial plan for the remaining part of the query.
+     * @param replanner The replanner that may replace the remaining plan.
+     * @param scopeKeys The labels that a replaced plan may refer to.
+     */
+    public AdaptiveStep(Traversal.Admin<?,?> traversal, Traversal.Admin<S,E> remainder, Replanner replanner,
+                        Set<String> scopeKeys) {
+        super(traversal);
+        this.remainder = this.integrateChild(remainder);
+        this.replanner = replanner;
+        this.scopeKeys = scopeKeys;
+    }
+
+    @Override
+    protected Traverser.Admin<E> processNextStart() {
+        while (true) {
+            if (adapted && remainder.hasNext()) {
+                return remainder.nextTraverser();
+            }
+            final Traverser.Admin<S> start = this.starts.next();
+            if (!adapted) {
+                // the join step has been initialized while producing the first start
+                adapt();
+            }
+            remainder.addStart(start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void adapt() {
+        adapted = true;
+        final JoinStep<?> joinStep = findJoinStep();
+        if (joinStep == null) {
+            return;
+        }
+        final Traversal.Admin<?,?> newRemainder = replanner.replan(joinStep.getBuildSize());
+        if (newRemainder != null) {
+            remainder = this.integrateChild((Traversal.Admin<S,E>) newRemainder);
+            replanned = true;
+        }
+    }
+
+    private JoinStep<?> findJoinStep() {
+        Step<?,?> step = this.getPreviousStep();
+        while (!(step instanceof EmptyStep) && !(step instanceof JoinStep)) {
+            step = step.getPreviousStep();
+        }
+        return step instanceof JoinStep ? (JoinStep<?>) step : null;
+    }
+
+    /**
+     * Checks whether the remaining plan has been replaced during execution.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if the plan has been replaced.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean isReplanned() {
+        return replanned;
+    }
+
+    @Override
+    public List<Traversal.Admin<S,E>> getLocalChildren() {
+        return Collections.singletonList(remainder);
+    }
+
+    @Override
+    public Set<String> getScopeKeys() {
+        return scopeKeys;
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return this.getSelfAndChildRequirements(TraverserRequirement.LABELED_PATH);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        remainder.reset();
+    }
+
+    @Override
+    public AdaptiveStep<S,E> clone() {
+        final AdaptiveStep<S,E> clone = (AdaptiveStep<S,E>) super.clone();
+        clone.remainder = this.remainder.clone();
+        clone.adapted = false;
+        clone.replanned = false;
+        return clone;
+    }
+
+    @Override
+    public void setTraversal(Traversal.Admin<?,?> parentTraversal) {
+        super.setTraversal(parentTraversal);
+        this.integrateChild(remainder);
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the adaptive step.
+     */
+    @Override
+    public String toString() {
+        return String.format("AdaptiveStep(%s)", remainder);
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Scoping;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.FilterStep;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This step keeps an independent branch of a pattern factorized. Instead of emitting one traverser per match of the
+ * branch, each incoming traverser is passed on once, with it's bulk multiplied by the number of matches of the
+ * branch. Traversers without any match are filtered. The elements matched by the branch are not part of the
+ * emitted path, so the step must only be used for branches whose elements are neither returned nor referenced by
+ * any other part of the query.
+ *
+ * @author Florian Grieskamp
+ */
+public class BranchCountStep<S> extends FilterStep<S> implements TraversalParent, Scoping {
+
+    private Traversal.Admin<S,?> branchTraversal;
+    private List<CountingStep> countingSteps;
+
+    /**
+     * Creates a {@link BranchCountStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param branchTraversal The traversal that matches the branch, starting from the incoming traverser.
+     */
+    public BranchCountStep(Traversal.Admin<?,?> traversal, Traversal.Admin<S,?> branchTraversal) {
+        super(traversal);
+        this.branchTraversal = this.integrateChild(branchTraversal);
+    }
+
+    @Override
+    protected boolean filter(Traverser.Admin<S> traverser) {
+        final Traverser.Admin<S> branchStart = traverser.split();
+        branchStart.setBulk(1L);
+        resetBranch();
+        branchTraversal.addStart(branchStart);
+
+        long matches = 0;
+        while (branchTraversal.hasNext()) {
+            matches += branchTraversal.nextTraverser().bulk();
+        }
+        if (matches == 0) {
+            return false;
+        }
+        traverser.setBulk(traverser.bulk() * matches);
+        return true;
+    }
+
+    /**
+     * Resets the branch for the next incoming traverser. The observation and input count steps of the branch count the
+     * traversers of all incoming traversers together, so their counts are carried over the reset.
+     */
+    private void resetBranch() {
+        if (countingSteps == null) {
+            countingSteps = TraversalHelper.getStepsOfAssignableClassRecursively(CountingStep.class,
+                    branchTraversal);
+        }
+        final long[] observedSizes = new long[countingSteps.size()];
+        for (int i = 0; i < observedSizes.length; ++i) {
+            observedSizes[i] = countingSteps.get(i).getObservedSize();
+        }
+        branchTraversal.reset();
+        for (int i = 0; i < observedSizes.length; ++i) {
+            countingSteps.get(i).addObservedSize(observedSizes[i]);
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        branchTraversal.reset();
+    }
+
+    @Override
+    public List<Traversal.Admin<S,?>> getLocalChildren() {
+        return Collections.singletonList(branchTraversal);
+    }
+
+    /**
+     * Gets the labels that the branch refers to, which must not be retracted from the incoming paths.
+     *
+     * @return The scope keys of all steps of the branch.
+     */
+    @Override
+    public Set<String> getScopeKeys() {
+        final Set<String> scopeKeys = new HashSet<>();
+        TraversalHelper.getStepsOfAssignableClassRecursively(Scoping.class, branchTraversal)
+                .forEach(step -> scopeKeys.addAll(step.getScopeKeys()));
+        return scopeKeys;
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return this.getSelfAndChildRequirements(TraverserRequirement.LABELED_PATH);
+    }
+
+    @Override
+    public BranchCountStep<S> clone() {
+        final BranchCountStep<S> clone = (BranchCountStep<S>) super.clone();
+        clone.branchTraversal = this.branchTraversal.clone();
+        clone.countingSteps = null;
+        return clone;
+    }
+
+    @Override
+    public void setTraversal(Traversal.Admin<?,?> parentTraversal) {
+        super.setTraversal(parentTraversal);
+        this.integrateChild(branchTraversal);
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the branch count step.
+     */
+    @Override
+    public String toString() {
+        return String.format("BranchCountStep(%s)", branchTraversal);
+    }
+}
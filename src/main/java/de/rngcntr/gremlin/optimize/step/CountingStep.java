@@ -0,0 +1,78 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+
+/**
+ * This step passes all traversers through unchanged and counts them, including their bulk. The counts are kept until
+ * the step is reset.
+ *
+ * @author Florian Grieskamp
+ */
+public abstract class CountingStep<S> extends AbstractStep<S,S> {
+
+    private long observedSize;
+
+    /**
+     * Creates a {@link CountingStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     */
+    protected CountingStep(Traversal.Admin<?,?> traversal) {
+        super(traversal);
+    }
+
+    @Override
+    protected Traverser.Admin<S> processNextStart() {
+        final Traverser.Admin<S> traverser = this.starts.next();
+        observedSize += traverser.bulk();
+        return traverser;
+    }
+
+    /**
+     * Gets the number of traversers that passed this step since the last reset.
+     *
+     * @return The observed size.
+     */
+    public long getObservedSize() {
+        return observedSize;
+    }
+
+    /**
+     * Adds traversers that have been counted before a reset of this step, e.g. by a nested traversal that is reset
+     * for each of it's inputs.
+     *
+     * @param observedSize The number of traversers to add to the observed size.
+     */
+    public void addObservedSize(long observedSize) {
+        this.observedSize += observedSize;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        observedSize = 0;
+    }
+
+    @Override
+    public CountingStep<S> clone() {
+        final CountingStep<S> clone = (CountingStep<S>) super.clone();
+        clone.observedSize = 0;
+        return clone;
+    }
+}
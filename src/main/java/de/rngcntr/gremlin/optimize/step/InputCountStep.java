@@ -0,0 +1,51 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+
+/**
+ * This step is placed at the start of the traversal of a dependent retrieval and counts the traversers that enter it.
+ * The {@link ObservationStep} of the retrieval relates it's output size to this count, so that it only observes the
+ * selectivity of the retrieval itself and not the misestimation of the retrievals that the traversers come from.
+ *
+ * @author Florian Grieskamp
+ */
+public class InputCountStep<S> extends CountingStep<S> {
+
+    /**
+     * Creates an {@link InputCountStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     */
+    public InputCountStep(Traversal.Admin<?,?> traversal) {
+        super(traversal);
+    }
+
+    @Override
+    public InputCountStep<S> clone() {
+        return (InputCountStep<S>) super.clone();
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the input count step.
+     */
+    @Override
+    public String toString() {
+        return "InputCountStep";
+    }
+}
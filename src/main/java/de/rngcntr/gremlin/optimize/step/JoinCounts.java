@@ -0,0 +1,149 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import de.rngcntr.gremlin.optimize.query.JoinAttribute;
+
+import java.util.*;
+
+/**
+ * Counts the results of the inner traversal of a {@link JoinStep} per combination of their join attribute values, so
+ * that the matches of a probed tuple are counted without enumerating them. Like
+ * {@link JoinAttribute#doMatch(Map, Map)}, the values are compared by equality, which compares graph elements by
+ * their ids, and missing values match any value.
+ *
+ * @author Florian Grieskamp
+ */
+final class JoinCounts {
+    private final List<JoinAttribute> keyAttributes;
+    private final Map<JoinKey,Long> groups = new HashMap<>();
+    private long tupleCount;
+    private boolean incompleteKeys;
+
+    /**
+     * Creates an empty set of counts.
+     *
+     * @param joinAttributes The attributes whose values form the groups.
+     */
+    JoinCounts(Collection<JoinAttribute> joinAttributes) {
+        this.keyAttributes = new ArrayList<>(joinAttributes);
+    }
+
+    /**
+     * Counts a result of the inner traversal into the group of it's join attribute values.
+     *
+     * @param tuple The labeled elements of the result.
+     * @param bulk The bulk of the result.
+     */
+    void add(Map<String,Object> tuple, long bulk) {
+        final Object[] values = new Object[keyAttributes.size()];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = keyAttributes.get(i).resolveRight(tuple);
+        }
+        final JoinKey key = new JoinKey(values);
+        incompleteKeys |= !key.isComplete();
+        groups.merge(key, bulk, Long::sum);
+        tupleCount += bulk;
+    }
+
+    /**
+     * Counts the results that match the supplied tuple.
+     *
+     * @param probe The tuple to find matches for.
+     * @return The number of matching results.
+     */
+    long countMatches(Map<String,Object> probe) {
+        final Object[] values = new Object[keyAttributes.size()];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = keyAttributes.get(i).resolveLeft(probe);
+        }
+        final JoinKey key = new JoinKey(values);
+        if (key.isComplete() && !incompleteKeys) {
+            return groups.getOrDefault(key, 0L);
+        }
+
+        // unbound attributes match any value, so all groups have to be checked
+        long matches = 0;
+        for (Map.Entry<JoinKey,Long> group : groups.entrySet()) {
+            if (group.getKey().matches(key)) {
+                matches += group.getValue();
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the number of counted results.
+     *
+     * @return The sum of the bulks of all counted results.
+     */
+    long getTupleCount() {
+        return tupleCount;
+    }
+
+    /**
+     * Gets the number of distinct combinations of join attribute values.
+     *
+     * @return The number of groups.
+     */
+    int getGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * The values of the join attributes of a tuple. Graphs may create a new element object for each read of the same
+     * element, so the values are compared by equality instead of identity.
+     */
+    private static final class JoinKey {
+        private final Object[] values;
+        private final int hash;
+
+        private JoinKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        private boolean isComplete() {
+            for (Object value : values) {
+                if (value == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(JoinKey other) {
+            for (int i = 0; i < values.length; ++i) {
+                if (values[i] != null && other.values[i] != null && !values[i].equals(other.values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof JoinKey)) return false;
+            final JoinKey other = (JoinKey) o;
+            return Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import de.rngcntr.gremlin.optimize.util.TraverserUtils;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Supplies a {@link JoinStep} with the results of it's inner traversal and with it's incoming traversers. The inner
+ * traversal is either iterated on demand by the calling thread or, once the feed is started, by a
+ * {@link TraversalFeed} on an executor. In the latter case, incoming traversers are pulled ahead while the calling
+ * thread waits for the inner traversal, and the inner traversal is cancelled once no further incoming traverser could
+ * probe it's remaining results.
+ *
+ * @param <E> The type of the incoming traversers.
+ * @author Florian Grieskamp
+ */
+final class JoinFeed<E> {
+    // the number of inner results that are buffered ahead of the probing step and the number of incoming traversers
+    // that are pulled ahead while waiting for the inner traversal
+    private static final int BUILD_QUEUE_CAPACITY = 1024;
+    private static final int PROBE_PREFETCH_SIZE = 1024;
+
+    private final Traversal.Admin<Map<String,Object>, Map<String,Object>> matchTraversal;
+    private final Iterator<Traverser.Admin<E>> starts;
+    private final Deque<Traverser.Admin<E>> prefetchedStarts = new ArrayDeque<>();
+    private TraversalFeed<Candidate> feed;
+
+    /**
+     * Creates a feed that iterates the inner traversal on the calling thread until it is started.
+     *
+     * @param matchTraversal The inner traversal of the join.
+     * @param starts The incoming traversers of the join.
+     */
+    JoinFeed(Traversal.Admin<Map<String,Object>, Map<String,Object>> matchTraversal,
+             Iterator<Traverser.Admin<E>> starts) {
+        this.matchTraversal = matchTraversal;
+        this.starts = starts;
+    }
+
+    /**
+     * Starts iterating the inner traversal on the given executor, unless it is already iterated there.
+     *
+     * @param executor The executor that iterates the inner traversal.
+     */
+    void start(Executor executor) {
+        if (feed == null) {
+            feed = new TraversalFeed<>(Collections.singletonList(matchTraversal), Candidate::of, BUILD_QUEUE_CAPACITY);
+            feed.start(executor);
+        }
+    }
+
+    boolean hasNextStart() {
+        return !prefetchedStarts.isEmpty() || starts.hasNext();
+    }
+
+    /**
+     * Gets the next incoming traverser, preferring the ones that have been pulled ahead.
+     *
+     * @return The next incoming traverser.
+     */
+    Traverser.Admin<E> nextStart() {
+        if (!prefetchedStarts.isEmpty()) {
+            return prefetchedStarts.poll();
+        }
+        if (feed != null && !feed.isExhausted() && !starts.hasNext()) {
+            // no further traverser probes the remaining results of the inner traversal
+            feed.cancel();
+        }
+        return starts.next();
+    }
+
+    /**
+     * Gets the next result of the inner traversal. If the feed is started, this may pull incoming traversers ahead
+     * while waiting for the result.
+     *
+     * @param prefetch Whether incoming traversers are pulled ahead while waiting.
+     * @return The next result or <code>null</code> if the inner traversal is exhausted.
+     */
+    Candidate nextCandidate(boolean prefetch) {
+        if (feed == null) {
+            return matchTraversal.hasNext() ? Candidate.of(matchTraversal.nextTraverser()) : null;
+        }
+        while (prefetch && prefetchedStarts.size() < PROBE_PREFETCH_SIZE) {
+            final Candidate candidate = feed.poll();
+            if (candidate != null || feed.isExhausted()) {
+                return candidate;
+            }
+            if (!starts.hasNext()) {
+                break;
+            }
+            prefetchedStarts.add(starts.next());
+        }
+        return feed.take();
+    }
+
+    /**
+     * Stops the inner traversal if it is iterated on the executor.
+     */
+    void cancel() {
+        if (feed != null) {
+            feed.cancel();
+        }
+    }
+
+    /**
+     * Stops the inner traversal and discards the traversers that have been pulled ahead. The feed iterates the inner
+     * traversal on the calling thread until it is started again.
+     */
+    void reset() {
+        if (feed != null && !feed.isExhausted()) {
+            feed.cancel();
+        }
+        feed = null;
+        prefetchedStarts.clear();
+    }
+
+    /**
+     * A result of the inner traversal, consisting of the labeled elements and the bulk of the traverser.
+     */
+    static final class Candidate {
+        private final Map<String,Object> tuple;
+        private final long bulk;
+
+        private Candidate(Map<String,Object> tuple, long bulk) {
+            this.tuple = tuple;
+            this.bulk = bulk;
+        }
+
+        private static Candidate of(Traverser.Admin<?> traverser) {
+            return new Candidate(TraverserUtils.mapHistory(traverser), traverser.bulk());
+        }
+
+        Map<String,Object> getTuple() {
+            return tuple;
+        }
+
+        long getBulk() {
+            return bulk;
+        }
+    }
+}
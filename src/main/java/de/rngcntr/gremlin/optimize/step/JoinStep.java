@@ -14,29 +14,41 @@
 
 package de.rngcntr.gremlin.optimize.step;
 
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
 import de.rngcntr.gremlin.optimize.query.JoinAttribute;
-import de.rngcntr.gremlin.optimize.traverser.FakePathTraverser;
+import de.rngcntr.gremlin.optimize.traverser.TupleTraverser;
 import de.rngcntr.gremlin.optimize.util.TraverserUtils;
 import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Scoping;
 import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
 import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
 import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
 import org.apache.tinkerpop.gremlin.util.iterator.EmptyIterator;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
  * This step provides support for the join operator in Gremlin. This implementation only supports full outer equality
- * joins on labeled elments, which are produced by <code>select()</code> steps in Gremlin. The implemented join strategy
- * is a nested loops join.<br>
+ * joins on labeled elments, which are produced by <code>select()</code> steps in Gremlin. The incoming traversers are
+ * probed against the collected results of the inner traversal in a nested loops join. A limited join collects these
+ * results lazily, as far as the probed traversers need them, and a join that only has to count it's matches groups
+ * them by their join attribute values instead (see {@link JoinCounts}). The inner traversal can be iterated
+ * concurrently to the incoming traversers (see {@link JoinFeed}).<br>
  * To apply a join on queries <code>a()</code> and <code>b()</code> the syntax is either <code>a().join(b())</code> or
  * <code>b().join(a())</code>.
  *
  * @author Florian Grieskamp
  */
-public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements TraversalParent {
+public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements TraversalParent, Scoping {
+    private static final OptimizerEvents EVENTS = OptimizerEvents.get();
+    private static final int PROBE_BATCH_SIZE = 1024;
+    // a rough shallow size of a HashMap and of each of it's entries, the mapped elements are shared between tuples
+    private static final long TUPLE_BYTES = 64;
+    private static final long TUPLE_ENTRY_BYTES = 40;
 
     private Iterator<Map<String,Object>> iterator = EmptyIterator.instance();
     private Traverser.Admin<E> currentStart;
@@ -46,6 +58,19 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
     private final Set<JoinAttribute> joinAttributes;
 
     private List<Map<String,Object>> joinTuples;
+    private long limit = -1;
+    private long emitted;
+
+    private boolean countOnly;
+    private JoinCounts counts;
+
+    private Executor executor;
+    private JoinFeed<E> feed;
+
+    private OptimizerEvents.JoinBuildSpan buildEvent;
+    private OptimizerEvents.JoinProbeSpan probeEvent;
+    private long probedRows;
+    private long joinedRows;
 
     /**
      * Creates a {@link JoinStep} that joins the incoming traversers with the tuples returned by the inner traversal.
@@ -58,17 +83,93 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
         this.initialized = false;
         this.matchTraversal = this.integrateChild(matchTraversal.asAdmin());
         this.joinAttributes = joinAttributes;
+        this.feed = new JoinFeed<>(this.matchTraversal, this.starts);
     }
 
     @Override
     public Set<TraverserRequirement> getRequirements() {
-        return this.getSelfAndChildRequirements(TraverserRequirement.PATH);
+        // the joined tuples only consist of labeled elements
+        return this.getSelfAndChildRequirements(TraverserRequirement.LABELED_PATH);
+    }
+
+    /**
+     * Gets the labels of the joined elements, which must not be retracted from the paths of both sides.
+     *
+     * @return The labels of the elements of all join attributes.
+     */
+    @Override
+    public Set<String> getScopeKeys() {
+        return joinAttributes.stream()
+                .flatMap(a -> a.getElements().stream())
+                .map(e -> String.valueOf(e.getId()))
+                .collect(Collectors.toSet());
     }
 
     public Set<JoinAttribute> getJoinAttributes() {
         return joinAttributes;
     }
 
+    /**
+     * Gets the number of tuples produced by the inner traversal.
+     *
+     * @return The number of join candidates or <code>-1</code> if the inner traversal has not been executed yet.
+     */
+    public long getBuildSize() {
+        if (!initialized) {
+            return -1;
+        }
+        return countOnly ? counts.getTupleCount() : joinTuples.size();
+    }
+
+    /**
+     * Limits the number of tuples that this step emits. Once the limit is reached, the step stops without consuming
+     * it's remaining input. The join candidates are collected lazily, so that the inner traversal is only executed as
+     * far as the first probed traversers need it. The limit must only be set if no subsequent step filters the joined
+     * tuples, otherwise results would be lost.
+     *
+     * @param limit The maximum number of emitted tuples or <code>-1</code> to emit all tuples.
+     */
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Lets this step count the matching tuples of the inner traversal instead of emitting them. The tuples of the
+     * inner traversal are grouped by their join attribute values and each incoming traverser is emitted once, with
+     * the number of it's matches as bulk. This must only be set if none of the inner traversal's elements is needed
+     * by subsequent steps, since they are not part of the emitted tuples.
+     *
+     * @param countOnly Whether the matches are counted instead of enumerated.
+     */
+    public void setCountOnly(boolean countOnly) {
+        this.countOnly = countOnly;
+    }
+
+    public boolean isCountOnly() {
+        return countOnly;
+    }
+
+    /**
+     * Lets this step execute the inner traversal on the given executor, while the incoming traversers are produced
+     * by the calling thread. The results of the inner traversal are handed over through a bounded queue, failures of
+     * the inner traversal are rethrown by this step and the inner traversal is stopped once this step is reset or
+     * reaches it's limit. The inner traversal must be safe to execute on another thread, which excludes graphs that
+     * bind transactions to threads.
+     *
+     * @param executor The executor or <code>null</code> to execute the inner traversal on the calling thread.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
     /**
      * Gets the inner traversal of the join.
      *
@@ -82,42 +183,196 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
 
     @Override
     protected Traverser.Admin<Map<String,Object>> processNextStart() {
+        if (executor != null && !initialized) {
+            // the inner traversal runs while the incoming traversers are produced
+            feed.start(executor);
+        }
+        if (countOnly) {
+            return processNextCount();
+        }
         while (true) {
             if (this.iterator.hasNext()) {
-                return new FakePathTraverser(currentStart.get(), this.iterator.next(), this.getNextStep(), 1L);
+                return new TupleTraverser(currentStart.get(), this.iterator.next(), this, 1L);
             } else {
                 closeIterator();
-                currentStart = this.starts.next();
+                if (limit >= 0 && emitted >= limit) {
+                    if (probeEvent != null) {
+                        finishProbeBatch();
+                    }
+                    finishBuild();
+                    feed.cancel();
+                    throw FastNoSuchElementException.instance();
+                }
+                if (probeEvent != null && !feed.hasNextStart()) {
+                    finishProbeBatch();
+                }
+                currentStart = feed.nextStart();
                 this.iterator = this.flatMap(currentStart);
             }
         }
     }
 
     /**
-     * The first call initializes the step by executing the nested traversal and collecting it's result.
-     * In addition, every call performs the inner loop of a nested loops join on the supplied traverser.
+     * Emits the next incoming traverser that has at least one match, using the number of matches as it's bulk.
+     *
+     * @return The traverser of the probed tuple.
+     */
+    private Traverser.Admin<Map<String,Object>> processNextCount() {
+        while (true) {
+            if (probeEvent != null && !feed.hasNextStart()) {
+                finishProbeBatch();
+            }
+            currentStart = feed.nextStart();
+            final Map<String,Object> probe = TraverserUtils.mapHistory(currentStart);
+            final long matches = countMatches(probe) * currentStart.bulk();
+            if (probeEvent != null) {
+                recordProbe(matches);
+            }
+            if (matches > 0) {
+                return new TupleTraverser(currentStart.get(), probe, this, matches);
+            }
+        }
+    }
+
+    /**
+     * The first call initializes the step by executing the nested traversal and collecting it's result, unless the
+     * step is limited. In addition, every call performs the inner loop of a nested loops join on the supplied
+     * traverser.
      *
      * @param traverser The input element that is checked against all join candidates from the inner traversal.
      * @return The joined mappings for the input traverser.
      */
     @Override
     protected Iterator<Map<String,Object>> flatMap(Traverser.Admin<E> traverser) {
-        if (!initialized) {
+        if (!initialized && limit < 0) {
             initialize();
         }
 
-        return doNestedLoopsJoin(traverser);
+        if (probeEvent == null && EVENTS.isEnabled()) {
+            probeEvent = EVENTS.beginJoinProbe();
+        }
+        final List<Map<String,Object>> results = limit < 0
+                ? doNestedLoopsJoin(traverser)
+                : doLimitedNestedLoopsJoin(traverser);
+        if (probeEvent != null) {
+            recordProbe(results.size());
+        }
+        return results.iterator();
+    }
+
+    /**
+     * Counts a probed traverser into the current probe batch and reports the batch once it is full.
+     *
+     * @param results The number of joined tuples produced by the probed traverser.
+     */
+    private void recordProbe(long results) {
+        ++probedRows;
+        joinedRows += results;
+        if (probedRows >= PROBE_BATCH_SIZE) {
+            finishProbeBatch();
+        }
+    }
+
+    private void finishProbeBatch() {
+        probeEvent.finish(probedRows, joinedRows);
+        probeEvent = null;
+        probedRows = 0;
+        joinedRows = 0;
     }
 
     /**
      * Executes the inner traversal and collects it's results.
      */
     private void initialize() {
-        joinTuples = new ArrayList<>();
-        while (matchTraversal.asAdmin().hasNext()) {
-            joinTuples.add(TraverserUtils.mapHistory(matchTraversal.asAdmin().nextTraverser()));
+        if (joinTuples == null) {
+            buildEvent = EVENTS.beginJoinBuild();
+            joinTuples = new ArrayList<>();
+        }
+        JoinFeed.Candidate candidate;
+        while ((candidate = feed.nextCandidate(true)) != null) {
+            joinTuples.add(candidate.getTuple());
+        }
+        initialized = true;
+        finishBuild();
+    }
+
+    /**
+     * Collects the next result of the inner traversal as a join candidate.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if a candidate was collected.</li>
+     *     <li><code>false</code> if the inner traversal is exhausted.</li>
+     * </ul>
+     */
+    private boolean collectNextCandidate() {
+        if (initialized) {
+            return false;
+        }
+        if (joinTuples == null) {
+            buildEvent = EVENTS.beginJoinBuild();
+            joinTuples = new ArrayList<>();
+        }
+        final JoinFeed.Candidate candidate = feed.nextCandidate(false);
+        if (candidate != null) {
+            joinTuples.add(candidate.getTuple());
+            return true;
         }
         initialized = true;
+        finishBuild();
+        return false;
+    }
+
+    private void finishBuild() {
+        if (buildEvent != null && EVENTS.isEnabled()) {
+            buildEvent.finish(countOnly ? counts.getTupleCount() : joinTuples.size(), estimateBuildBytes());
+        }
+        buildEvent = null;
+    }
+
+    /**
+     * Executes the inner traversal and counts it's results per combination of join attribute values.
+     */
+    private void initializeCounts() {
+        buildEvent = EVENTS.beginJoinBuild();
+        counts = new JoinCounts(joinAttributes);
+        JoinFeed.Candidate candidate;
+        while ((candidate = feed.nextCandidate(true)) != null) {
+            counts.add(candidate.getTuple(), candidate.getBulk());
+        }
+        initialized = true;
+        finishBuild();
+    }
+
+    /**
+     * Counts the tuples of the inner traversal that match the supplied tuple.
+     *
+     * @param probe The tuple to find matches for.
+     * @return The number of matching tuples.
+     */
+    private long countMatches(Map<String,Object> probe) {
+        if (!initialized) {
+            initializeCounts();
+        }
+        if (probeEvent == null && EVENTS.isEnabled()) {
+            probeEvent = EVENTS.beginJoinProbe();
+        }
+        return counts.countMatches(probe);
+    }
+
+    /**
+     * Estimates the memory occupied by the join candidates, excluding the elements they map to.
+     *
+     * @return The estimated number of bytes.
+     */
+    private long estimateBuildBytes() {
+        if (countOnly) {
+            return counts.getGroupCount() * (TUPLE_BYTES + TUPLE_ENTRY_BYTES * joinAttributes.size());
+        }
+        long bytes = 0;
+        for (Map<String,Object> tuple : joinTuples) {
+            bytes += TUPLE_BYTES + TUPLE_ENTRY_BYTES * tuple.size();
+        }
+        return bytes;
     }
 
     /**
@@ -126,18 +381,49 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
      * @param traverser The input element that is checked against all join candidates from the inner traversal.
      * @return The joined mappings for the input traverser.
      */
-    private Iterator<Map<String,Object>> doNestedLoopsJoin(Traverser.Admin<E> traverser) {
+    private List<Map<String,Object>> doNestedLoopsJoin(Traverser.Admin<E> traverser) {
         List<Map<String,Object>> results = new LinkedList<>();
+        final Map<String,Object> probe = TraverserUtils.mapHistory(traverser);
 
         for (Map<String,Object> candidate : joinTuples) {
-            if (match(TraverserUtils.mapHistory(traverser), candidate)) {
+            if (match(probe, candidate)) {
                 for (int i = 0; i < traverser.bulk(); ++i) {
-                    results.add(merge(candidate, TraverserUtils.mapHistory(traverser)));
+                    results.add(merge(candidate, probe));
                 }
             }
         }
 
-        return results.iterator();
+        return results;
+    }
+
+    /**
+     * Performs the inner loop of a nested loops join on the supplied traverser until the limit is reached. Join
+     * candidates are collected from the inner traversal once the loop has passed all candidates collected so far.
+     *
+     * @param traverser The input element that is checked against the join candidates from the inner traversal.
+     * @return The joined mappings for the input traverser, but no more than the remaining limit.
+     */
+    private List<Map<String,Object>> doLimitedNestedLoopsJoin(Traverser.Admin<E> traverser) {
+        final List<Map<String,Object>> results = new ArrayList<>();
+        final Map<String,Object> probe = TraverserUtils.mapHistory(traverser);
+        if (joinTuples == null) {
+            collectNextCandidate();
+        }
+
+        for (int i = 0; emitted < limit; ++i) {
+            if (i == joinTuples.size() && !collectNextCandidate()) {
+                break;
+            }
+            final Map<String,Object> candidate = joinTuples.get(i);
+            if (match(probe, candidate)) {
+                for (long b = 0; b < traverser.bulk() && emitted < limit; ++b) {
+                    results.add(merge(candidate, probe));
+                    ++emitted;
+                }
+            }
+        }
+
+        return results;
     }
 
     /**
@@ -176,6 +462,23 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
         return result;
     }
 
+    /**
+     * Resets the step and stops an inner traversal that is still executed by the executor. A partially collected
+     * inner traversal is executed again once the step is used the next time.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        feed.reset();
+        emitted = 0;
+        if (!initialized && executor != null) {
+            joinTuples = null;
+            counts = null;
+            buildEvent = null;
+            matchTraversal.reset();
+        }
+    }
+
     /**
      * Creates a copy of this step that also contains a copy of the nested match traversal.
      *
@@ -186,6 +489,17 @@ public class JoinStep<E> extends FlatMapStep<E,Map<String,Object>> implements Tr
         final JoinStep<E> clone = (JoinStep<E>) super.clone();
         clone.matchTraversal = this.matchTraversal.clone();
         clone.matchTraversal.reset();
+        if (!initialized) {
+            // a partially collected build side belongs to the original inner traversal
+            clone.joinTuples = null;
+            clone.counts = null;
+        }
+        clone.emitted = 0;
+        clone.feed = new JoinFeed<>(clone.matchTraversal, clone.starts);
+        clone.buildEvent = null;
+        clone.probeEvent = null;
+        clone.probedRows = 0;
+        clone.joinedRows = 0;
         return clone;
     }
 
@@ -0,0 +1,84 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.step;
+
+import de.rngcntr.gremlin.optimize.execution.NativeExecutor;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+
+import java.util.Iterator;
+
+/**
+ * This step starts a traversal with the results of a {@link NativeExecutor}. The pattern is matched without any
+ * Gremlin steps, so only the final results are wrapped into traversers. Subsequent steps, such as a trailing
+ * <code>range()</code> or <code>count()</code>, are executed by TinkerPop as usual.
+ *
+ * @author Florian Grieskamp
+ */
+public class NativeExecutionStep<E> extends AbstractStep<Object,E> {
+
+    private final NativeExecutor executor;
+    private Iterator<Object> results;
+
+    /**
+     * Creates a {@link NativeExecutionStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param executor The executor of the optimized plan.
+     */
+    public NativeExecutionStep(Traversal.Admin<?,?> traversal, NativeExecutor executor) {
+        super(traversal);
+        this.executor = executor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Traverser.Admin<E> processNextStart() {
+        if (results == null) {
+            results = executor.execute();
+        }
+        if (!results.hasNext()) {
+            throw FastNoSuchElementException.instance();
+        }
+        return this.getTraversal().getTraverserGenerator().generate((E) results.next(), (Step<E,?>) this, 1L);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        results = null;
+    }
+
+    @Override
+    public NativeExecutionStep<E> clone() {
+        final NativeExecutionStep<E> clone = (NativeExecutionStep<E>) super.clone();
+        clone.results = null;
+        return clone;
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the native execution step.
+     */
+    @Override
+    public String toString() {
+        return "NativeExecutionStep";
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+import java.util.NoSuchElementException;
+
+/**
+ * This step is placed at the end of an optimized traversal and passes all traversers through unchanged. As soon as
+ * the traversal is exhausted, all {@link ObservationStep}s of the traversal report their counts. Traversals that are
+ * not iterated completely do not report anything, because their counts would be incomplete.
+ *
+ * @author Florian Grieskamp
+ */
+public class ObservationReportStep<S> extends AbstractStep<S,S> {
+
+    private boolean reported;
+
+    /**
+     * Creates an {@link ObservationReportStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     */
+    public ObservationReportStep(Traversal.Admin<?,?> traversal) {
+        super(traversal);
+    }
+
+    @Override
+    protected Traverser.Admin<S> processNextStart() {
+        try {
+            return this.starts.next();
+        } catch (NoSuchElementException e) {
+            if (!reported) {
+                reported = true;
+                TraversalHelper.getStepsOfAssignableClassRecursively(ObservationStep.class, this.getTraversal())
+                        .forEach(ObservationStep::report);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        reported = false;
+    }
+
+    @Override
+    public ObservationReportStep<S> clone() {
+        final ObservationReportStep<S> clone = (ObservationReportStep<S>) super.clone();
+        clone.reported = false;
+        return clone;
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+/**
+ * This step passes all traversers through unchanged and counts them, including their bulk. It is placed behind each
+ * operator of an optimized traversal to observe the operator's actual output size. The counts are handed over to a
+ * {@link CardinalityObserver} by an {@link ObservationReportStep} once the whole traversal is exhausted, since nested
+ * traversals may be drained many times during a single execution.<br>
+ * The output size of operators that extend incoming traversers, i.e. dependent retrievals, is estimated per incoming
+ * traverser. The incoming traversers are counted by an {@link InputCountStep} at the start of the traversal, so that
+ * the reported estimation is based on the observed instead of the estimated number of incoming traversers.
+ *
+ * @author Florian Grieskamp
+ */
+public class ObservationStep<S> extends CountingStep<S> {
+
+    private final CardinalityObserver observer;
+    private final Object operator;
+    private final FeedbackKey key;
+    private final double estimatedSize;
+    private final boolean perInput;
+
+    /**
+     * Creates an {@link ObservationStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param observer The observer that receives the observation.
+     * @param operator The operator of the query plan that is observed.
+     * @param key The key of the observed operator.
+     * @param estimatedSize The uncorrected estimation of the observed operator's output size.
+     */
+    public ObservationStep(Traversal.Admin<?,?> traversal, CardinalityObserver observer, Object operator,
+                           FeedbackKey key, double estimatedSize) {
+        this(traversal, observer, operator, key, estimatedSize, false);
+    }
+
+    /**
+     * Creates an {@link ObservationStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param observer The observer that receives the observation.
+     * @param operator The operator of the query plan that is observed.
+     * @param key The key of the observed operator.
+     * @param estimatedSize The uncorrected estimation of the observed operator's output size.
+     * @param perInput <code>true</code> if the estimation is given per traverser that is counted by the
+     *                 {@link InputCountStep} of the traversal.
+     */
+    public ObservationStep(Traversal.Admin<?,?> traversal, CardinalityObserver observer, Object operator,
+                           FeedbackKey key, double estimatedSize, boolean perInput) {
+        super(traversal);
+        this.observer = observer;
+        this.operator = operator;
+        this.key = key;
+        this.estimatedSize = estimatedSize;
+        this.perInput = perInput;
+    }
+
+    /**
+     * Hands the number of traversers counted so far over to the observer.
+     */
+    public void report() {
+        observer.observe(key, getEstimatedSize(), getObservedSize());
+    }
+
+    /**
+     * Gets the uncorrected estimation of the observed operator's output size. Estimations per incoming traverser are
+     * multiplied with the number of traversers that entered the traversal so far.
+     *
+     * @return The estimated output size.
+     */
+    public double getEstimatedSize() {
+        if (!perInput) {
+            return estimatedSize;
+        }
+        final InputCountStep<?> inputCountStep = TraversalHelper.getFirstStepOfAssignableClass(
+                InputCountStep.class, this.getTraversal()).orElseThrow(() -> new IllegalStateException(
+                String.format("%s does not count the traversers that enter it's traversal", this)));
+        return estimatedSize * inputCountStep.getObservedSize();
+    }
+
+    /**
+     * Gets the observed operator of the query plan, which is either a
+     * {@link de.rngcntr.gremlin.optimize.retrieval.Retrieval} or a {@link de.rngcntr.gremlin.optimize.query.Join}.
+     *
+     * @return The operator.
+     */
+    public Object getOperator() {
+        return operator;
+    }
+
+    /**
+     * Gets the key of the observed operator.
+     *
+     * @return The key.
+     */
+    public FeedbackKey getKey() {
+        return key;
+    }
+
+    @Override
+    public ObservationStep<S> clone() {
+        return (ObservationStep<S>) super.clone();
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the observation step.
+     */
+    @Override
+    public String toString() {
+        return String.format("ObservationStep(%s, ~%.2f%s)", key, estimatedSize, perInput ? " per input" : "");
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * This step executes a scan and everything that depends on it in disjoint partitions. The scan traversal contains a
+ * {@link SharedScanStep} behind the scanned elements. For each partition, a copy of the scan traversal is executed on
+ * the executor. The scan itself is only executed by the first copy, whose scanned elements are taken by whichever
+ * partition is ready to process the next one. The results of all partitions are merged into the output of this step,
+ * in no particular order. The workers hand over their results through a bounded queue and are stopped once the step
+ * is reset or closed.
+ *
+ * @author Florian Grieskamp
+ */
+public class PartitionedScanStep<E> extends AbstractStep<E,E> implements TraversalParent, AutoCloseable {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private Traversal.Admin<?,E> scanTraversal;
+    private final int partitions;
+    private final Executor executor;
+    private TraversalFeed<Traverser.Admin<E>> feed;
+
+    /**
+     * Creates a {@link PartitionedScanStep}.
+     *
+     * @param traversal The traversal that this step belongs to.
+     * @param scanTraversal The traversal that starts with the scan and contains a {@link SharedScanStep}.
+     * @param partitions The number of partitions.
+     * @param executor The executor that runs the partitions.
+     */
+    public PartitionedScanStep(Traversal.Admin<?,?> traversal, Traversal.Admin<?,E> scanTraversal, int partitions,
+                               Executor executor) {
+        super(traversal);
+        if (!TraversalHelper.hasStepOfAssignableClass(SharedScanStep.class, scanTraversal)) {
+            throw new IllegalArgumentException("The scan traversal is not partitioned");
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException(
+                    String.format("The number of partitions must be positive but was %d", partitions));
+        }
+        this.scanTraversal = this.integrateChild(scanTraversal);
+        this.partitions = partitions;
+        this.executor = executor;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected Traverser.Admin<E> processNextStart() {
+        if (feed == null) {
+            final List<Traversal.Admin<?,E>> partitionTraversals = new ArrayList<>();
+            SharedScanStep source = null;
+            for (int partition = 0; partition < partitions; ++partition) {
+                final Traversal.Admin<?,E> partitionTraversal = scanTraversal.clone();
+                final SharedScanStep sharedScan = TraversalHelper.getFirstStepOfAssignableClass(SharedScanStep.class,
+                        partitionTraversal).get();
+                if (source == null) {
+                    source = sharedScan;
+                } else {
+                    sharedScan.shareScanOf(source);
+                }
+                partitionTraversals.add(partitionTraversal);
+            }
+            feed = new TraversalFeed<>(partitionTraversals, t -> (Traverser.Admin<E>) t, QUEUE_CAPACITY);
+            feed.start(executor);
+        }
+        final Traverser.Admin<E> traverser = feed.take();
+        if (traverser == null) {
+            throw FastNoSuchElementException.instance();
+        }
+        traverser.setSideEffects(this.getTraversal().getSideEffects());
+        return traverser;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public List<Traversal.Admin<?,E>> getGlobalChildren() {
+        return Collections.singletonList(scanTraversal);
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return this.getSelfAndChildRequirements();
+    }
+
+    /**
+     * Resets the step and stops all partitions that are still executed.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        close();
+    }
+
+    /**
+     * Stops all partitions that are still executed.
+     */
+    @Override
+    public void close() {
+        if (feed != null && !feed.isExhausted()) {
+            feed.cancel();
+        }
+        feed = null;
+    }
+
+    @Override
+    public PartitionedScanStep<E> clone() {
+        final PartitionedScanStep<E> clone = (PartitionedScanStep<E>) super.clone();
+        clone.scanTraversal = this.scanTraversal.clone();
+        clone.feed = null;
+        return clone;
+    }
+
+    @Override
+    public void setTraversal(Traversal.Admin<?,?> parentTraversal) {
+        super.setTraversal(parentTraversal);
+        this.integrateChild(scanTraversal);
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the partitioned scan step.
+     */
+    @Override
+    public String toString() {
+        return String.format("PartitionedScanStep(%d,%s)", partitions, scanTraversal);
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+
+/**
+ * This step hands the elements of a single scan to several copies of the same traversal, which are executed
+ * concurrently. Only the scan of one copy, the source, is executed. The shared scan steps of all other copies take
+ * their traversers from the source instead of their own scan, so that each scanned element is processed by exactly
+ * one of the copies.
+ *
+ * @author Florian Grieskamp
+ */
+public class SharedScanStep<E> extends AbstractStep<E,E> {
+
+    private SharedScanStep<E> source = this;
+
+    /**
+     * Creates a {@link SharedScanStep} that is the source of it's own scan.
+     *
+     * @param traversal The traversal that this step belongs to.
+     */
+    public SharedScanStep(Traversal.Admin<?,?> traversal) {
+        super(traversal);
+    }
+
+    @Override
+    protected Traverser.Admin<E> processNextStart() {
+        // the scan of the source is shared by all threads that execute a copy of the traversal
+        synchronized (source) {
+            return source.starts.next();
+        }
+    }
+
+    /**
+     * Lets this step take it's traversers from the scan of another step.
+     *
+     * @param source The shared scan step of the copy whose scan is executed.
+     */
+    public void shareScanOf(SharedScanStep<E> source) {
+        this.source = source;
+    }
+
+    public boolean isSource() {
+        return source == this;
+    }
+
+    @Override
+    public SharedScanStep<E> clone() {
+        final SharedScanStep<E> clone = (SharedScanStep<E>) super.clone();
+        clone.source = clone;
+        return clone;
+    }
+
+    /**
+     * Represents this step as a human readable text.
+     *
+     * @return A text representation of the shared scan step.
+     */
+    @Override
+    public String toString() {
+        return isSource() ? "SharedScanStep" : "SharedScanStep(shared)";
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalInterruptedException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Iterates one or more traversals on an {@link Executor} and hands over their results through a single bounded queue.
+ * Each traversal is iterated by a producer of it's own, which blocks once the queue is full, so that the producers
+ * never run further ahead of the consuming step than the capacity of the queue. A failure of a traversal is handed
+ * over like a result and rethrown by the consumer, while {@link #cancel()} interrupts all producers.
+ *
+ * @param <T> The type of the handed over results.
+ * @author Florian Grieskamp
+ */
+final class TraversalFeed<T> {
+    private static final Object END = new Object();
+
+    private final List<Traversal.Admin<?,?>> traversals;
+    private final Function<Traverser.Admin<?>, T> mapper;
+    private final BlockingQueue<Object> queue;
+    private final Set<Thread> producers = new HashSet<>();
+    private int activeProducers;
+    private boolean cancelled;
+    private int pendingTraversals;
+    private boolean exhausted;
+
+    /**
+     * Creates a feed that is not started yet.
+     *
+     * @param traversals The traversals. They must not be used by any other thread once the feed is started.
+     * @param mapper The function that is applied to each traverser by the producing thread.
+     * @param capacity The maximum number of results that are buffered.
+     */
+    TraversalFeed(List<? extends Traversal.Admin<?,?>> traversals, Function<Traverser.Admin<?>, T> mapper,
+                  int capacity) {
+        this.traversals = new ArrayList<>(traversals);
+        this.mapper = mapper;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.pendingTraversals = traversals.size();
+        this.exhausted = traversals.isEmpty();
+    }
+
+    /**
+     * Starts iterating the traversals.
+     *
+     * @param executor The executor that runs the producers.
+     */
+    void start(Executor executor) {
+        for (Traversal.Admin<?,?> traversal : traversals) {
+            executor.execute(() -> produce(traversal));
+        }
+    }
+
+    private void produce(Traversal.Admin<?,?> traversal) {
+        final Thread producer = Thread.currentThread();
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            producers.add(producer);
+            ++activeProducers;
+        }
+        try {
+            while (traversal.hasNext()) {
+                queue.put(mapper.apply(traversal.nextTraverser()));
+            }
+            queue.put(END);
+        } catch (InterruptedException | TraversalInterruptedException e) {
+            // the consumer is not interested in further results
+        } catch (Throwable t) {
+            try {
+                queue.put(new Failure(t));
+            } catch (InterruptedException e) {
+                // the consumer is not interested in the failure
+            }
+        } finally {
+            synchronized (this) {
+                producers.remove(producer);
+                --activeProducers;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the next result of the traversals if it is already available.
+     *
+     * @return The next result or <code>null</code> if no result is available at the moment or all traversals are
+     * exhausted.
+     */
+    T poll() {
+        while (!exhausted) {
+            final Object next = queue.poll();
+            if (next == null) {
+                return null;
+            } else if (next != END) {
+                return unwrap(next);
+            }
+            countEnd();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the next result of the traversals and waits for it if necessary.
+     *
+     * @return The next result or <code>null</code> if all traversals are exhausted.
+     * @throws TraversalInterruptedException If the consuming thread is interrupted while waiting.
+     */
+    T take() {
+        while (!exhausted) {
+            final Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new TraversalInterruptedException();
+            }
+            if (next != END) {
+                return unwrap(next);
+            }
+            countEnd();
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether all results of the traversals have been taken from the feed.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if all traversals are exhausted.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Stops all traversals and waits until they are no longer used by the producing threads. Results that have not
+     * been taken yet are discarded.
+     */
+    void cancel() {
+        exhausted = true;
+        synchronized (this) {
+            cancelled = true;
+            producers.forEach(Thread::interrupt);
+        }
+        queue.clear();
+        boolean interrupted = false;
+        synchronized (this) {
+            while (activeProducers > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void countEnd() {
+        if (--pendingTraversals == 0) {
+            exhausted = true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T unwrap(Object next) {
+        if (next instanceof Failure) {
+            // the remaining traversals would only produce an incomplete result
+            cancel();
+            final Throwable cause = ((Failure) next).cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("A concurrently executed traversal failed", cause);
+        }
+        return (T) next;
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.strategy;
+
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Barrier;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.NoOpBarrierStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.EmptyStep;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.optimization.LazyBarrierStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+import java.util.*;
+
+/**
+ * Inserts {@link NoOpBarrierStep}s after dependent vertex retrievals that are expected to reach the same vertices
+ * many times. The barrier bulks equal traversers, so that subsequent expansions are only evaluated once per vertex.
+ * Since traversers only merge if their paths are equal, barriers are only inserted into traversals that neither
+ * require paths nor keep any labels upstream of the barrier.
+ *
+ * @author Florian Grieskamp
+ */
+public class BarrierInsertionStrategy extends AbstractTraversalStrategy<TraversalStrategy.OptimizationStrategy> implements TraversalStrategy.OptimizationStrategy {
+
+    /**
+     * The minimum share of duplicates among the traversers of a retrieval that justifies a barrier.
+     */
+    public static final double MIN_DUPLICATE_RATE = 0.5;
+
+    /**
+     * The minimum size of inserted barriers.
+     */
+    public static final int MIN_BARRIER_SIZE = 16;
+
+    /**
+     * The maximum size of inserted barriers, which equals the size used by TinkerPop's {@link LazyBarrierStrategy}.
+     */
+    public static final int MAX_BARRIER_SIZE = 2500;
+
+    private final Map<String, PatternElement<?>> elementsByLabel;
+
+    /**
+     * Creates a strategy that decides about barriers based on the estimations of the given pattern elements.
+     *
+     * @param elements The estimated elements of the pattern graph.
+     */
+    public BarrierInsertionStrategy(Collection<PatternElement<?>> elements) {
+        this.elementsByLabel = new HashMap<>();
+        elements.forEach(e -> elementsByLabel.put(String.valueOf(e.getId()), e));
+    }
+
+    @Override
+    public Set<Class<? extends OptimizationStrategy>> applyPrior() {
+        return new HashSet<>(Collections.singletonList(RemoveRedundantSelectStrategy.class));
+    }
+
+    @Override
+    public Set<Class<? extends OptimizationStrategy>> applyPost() {
+        // the labels are needed to identify the retrieved elements
+        return new HashSet<>(Collections.singletonList(RemoveUnusedLabelsStrategy.class));
+    }
+
+    @Override
+    public void apply(Traversal.Admin<?, ?> traversal) {
+        if (!(traversal.getParent() instanceof EmptyStep) || requiresPath(traversal)) {
+            return;
+        }
+        final Set<String> selectedLabels = RemoveUnusedLabelsStrategy.getSelectedLabels(traversal);
+        final List<Step> steps = new ArrayList<>(traversal.getSteps());
+        for (int i = 0; i < steps.size(); i++) {
+            final Step<?,?> step = steps.get(i);
+            final OptionalInt barrierSize = estimateBarrierSize(step);
+            if (barrierSize.isPresent() && !(step.getNextStep() instanceof Barrier)
+                    && hasExpansionAfter(steps, i)) {
+                TraversalHelper.insertAfterStep(new NoOpBarrierStep<>(traversal, barrierSize.getAsInt()),
+                        step, traversal);
+            }
+            if (step.getLabels().stream().anyMatch(selectedLabels::contains)) {
+                // traversers carrying different values for a kept label can not be merged anymore
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimates the size of the barrier that should follow a step. A barrier is only worth it if the step completes a
+     * dependent vertex retrieval whose estimated result size clearly exceeds the number of distinct vertices that can
+     * be reached, i.e. the number of candidates of the vertex' direct retrieval.
+     *
+     * @param step The step that may be followed by a barrier.
+     * @return The size of the barrier or an empty optional if no barrier should follow the step.
+     */
+    private OptionalInt estimateBarrierSize(Step<?,?> step) {
+        for (String label : step.getLabels()) {
+            final PatternElement<?> element = elementsByLabel.get(label);
+            if (element == null || !element.isVertex()
+                    || !(element.getBestRetrieval() instanceof DependentRetrieval)) {
+                continue;
+            }
+            final double traversers = element.getBestRetrieval().getEstimatedSize();
+            final Optional<Double> candidates = element.getRetrievals().stream()
+                    .filter(r -> r instanceof DirectRetrieval)
+                    .map(Retrieval::getEstimatedSize)
+                    .findAny();
+            if (!candidates.isPresent() || !isFinitePositive(traversers) || !isFinitePositive(candidates.get())) {
+                continue;
+            }
+            // expected number of distinct vertices when drawing the traversers uniformly from the candidates
+            final double distinct = candidates.get() * (1.0 - Math.exp(-traversers / candidates.get()));
+            final double duplicateRate = 1.0 - distinct / traversers;
+            if (duplicateRate >= MIN_DUPLICATE_RATE) {
+                final long size = (long) Math.ceil(distinct);
+                return OptionalInt.of((int) Math.max(MIN_BARRIER_SIZE, Math.min(MAX_BARRIER_SIZE, size)));
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    private static boolean hasExpansionAfter(List<Step> steps, int index) {
+        for (int i = index + 1; i < steps.size(); i++) {
+            final Step<?,?> step = steps.get(i);
+            if (step instanceof VertexStep || step instanceof EdgeVertexStep || step instanceof TraversalParent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean requiresPath(Traversal.Admin<?,?> traversal) {
+        return TraversalHelper.getStepsOfAssignableClassRecursively(Step.class, traversal).stream()
+                .anyMatch(s -> ((Step<?,?>) s).getRequirements().contains(TraverserRequirement.PATH));
+    }
+
+    private static boolean isFinitePositive(double value) {
+        return value > 0 && !Double.isInfinite(value) && !Double.isNaN(value);
+    }
+}
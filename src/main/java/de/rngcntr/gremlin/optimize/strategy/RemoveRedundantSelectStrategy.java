@@ -36,7 +36,7 @@ public class RemoveRedundantSelectStrategy extends AbstractTraversalStrategy<Tra
                 String key = (String) s.getScopeKeys().iterator().next();
                 Step<?,?> previousStep = s.getPreviousStep();
                 if (previousStep.getLabels().stream().anyMatch(l -> l.equals(key))) {
-                    traversal.removeStep(s);
+                    s.getTraversal().removeStep(s);
                 }
             }
         });
@@ -51,7 +51,7 @@ public class RemoveUnusedLabelsStrategy extends AbstractTraversalStrategy<Traver
         });
     }
 
-    private static Set<String> getSelectedLabels(Traversal.Admin<?,?> traversal) {
+    static Set<String> getSelectedLabels(Traversal.Admin<?,?> traversal) {
         Set<String> selectedLabels = new HashSet<>();
         TraversalHelper.getStepsOfAssignableClassRecursively(Scoping.class, traversal).forEach(
                 s -> selectedLabels.addAll(s.getScopeKeys())
@@ -64,8 +64,14 @@ public class SkipEdgeStrategy extends AbstractTraversalStrategy<TraversalStrateg
             }
             if (previousStep instanceof VertexStep) {
                 VertexStep<?> previousVertexStep = (VertexStep<?>) previousStep;
+                if (!previousVertexStep.getLabels().isEmpty()) return; // the edge is used later on
                 if (previousVertexStep.returnsEdge() && previousVertexStep.getDirection().equals(direction)) {
+                    if (previousVertexStep.getEdgeLabels().length > 0) {
+                        if (!edgeLabels.isEmpty()) return; // both label restrictions must hold
+                        edgeLabels.addAll(Arrays.asList(previousVertexStep.getEdgeLabels()));
+                    }
                     VertexStep<Edge> newVertexStep = new VertexStep(currentSubTraversal, Vertex.class, direction, edgeLabels.toArray(new String[edgeLabels.size()]));
+                    evs.getLabels().forEach(newVertexStep::addLabel); // the labels of the reached vertex
                     TraversalHelper.insertAfterStep(newVertexStep, previousVertexStep.getPreviousStep(), currentSubTraversal);
                     currentSubTraversal.removeStep(previousVertexStep);
                     currentSubTraversal.removeStep(evs);
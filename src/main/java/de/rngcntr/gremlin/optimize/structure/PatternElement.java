@@ -40,6 +40,7 @@ public abstract class PatternElement<E extends Element> implements Comparable<Pa
     protected LabelFilter<E> labelFilter;
     protected Collection<PropertyFilter<E>> propertyFilters;
     protected List<Retrieval<E>> retrievals;
+    protected Retrieval<E> pinnedRetrieval;
     protected long id;
 
     /**
@@ -66,9 +67,12 @@ public abstract class PatternElement<E extends Element> implements Comparable<Pa
     }
 
     /**
-     * Initializes all dependent and direct retrieval strategies possible for this element.
+     * Initializes all dependent and direct retrieval strategies possible for this element. Retrievals of previous
+     * optimizations are discarded.
      */
     public void initializeRetrievals() {
+        pinnedRetrieval = null;
+        getRetrievals().clear();
         getRetrievals().add(generateDirectRetrieval());
         getRetrievals().addAll(generateDependentRetrievals());
     }
@@ -139,13 +143,28 @@ public abstract class PatternElement<E extends Element> implements Comparable<Pa
 
     /**
      * Gets the cheapest retrieval strategy in terms of estimated result size of all available retrievals for this
-     * element.
+     * element, unless a retrieval has been pinned.
      *
-     * @return The retrieval with the lowest estimated result size.
+     * @return The pinned retrieval or the retrieval with the lowest estimated result size.
      * @throws NoSuchElementException If the no retrievals are initialized for this element.
      */
     public Retrieval<E> getBestRetrieval() throws NoSuchElementException {
-        return Collections.min(getRetrievals());
+        return pinnedRetrieval != null ? pinnedRetrieval : Collections.min(getRetrievals());
+    }
+
+    /**
+     * Overrides the choice of the best retrieval until the retrievals of this element are initialized again. This is
+     * used by optimization goals that do not minimize the estimated result sizes of the retrievals.
+     *
+     * @param retrieval One of the retrievals of this element.
+     * @throws IllegalArgumentException If the retrieval does not belong to this element.
+     */
+    @SuppressWarnings("unchecked")
+    public void pinRetrieval(Retrieval<?> retrieval) {
+        if (getRetrievals().stream().noneMatch(r -> r == retrieval)) {
+            throw new IllegalArgumentException("Retrieval does not belong to element " + getId() + ": " + retrieval);
+        }
+        this.pinnedRetrieval = (Retrieval<E>) retrieval;
     }
 
     /**
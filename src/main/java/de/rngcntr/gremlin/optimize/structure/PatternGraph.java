@@ -14,24 +14,75 @@
 
 package de.rngcntr.gremlin.optimize.structure;
 
+import de.rngcntr.gremlin.optimize.execution.NativeExecutor;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.metrics.NoOpOptimizerMetrics;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerMetrics;
+import de.rngcntr.gremlin.optimize.metrics.QErrorTracker;
+import de.rngcntr.gremlin.optimize.metrics.QueryFingerprint;
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
+import de.rngcntr.gremlin.optimize.query.OptimizationGoal;
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.query.PipelinedPlanner;
+import de.rngcntr.gremlin.optimize.query.PlanNode;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.CachingStatisticsProvider;
 import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
 import de.rngcntr.gremlin.optimize.util.GremlinWriter;
 import de.rngcntr.gremlin.optimize.util.GremlinParser;
+import de.rngcntr.gremlin.optimize.util.JoinExecutors;
 import de.rngcntr.gremlin.optimize.util.Permutations;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalMetrics;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 public class PatternGraph {
+    private static final OptimizerEvents EVENTS = OptimizerEvents.get();
+
     private List<PatternElement<?>> elements;
     private Map<PatternElement<?>, String> elementsToReturn;
     private final Graph sourceGraph;
     private GraphTraversal<?, ?> originalTraversal;
+    private CardinalityFeedback feedback;
+    private QErrorTracker qErrorTracker;
+    private CardinalityObserver observer;
+    private double reoptimizationThreshold = Double.POSITIVE_INFINITY;
+    private final OptimizerMetrics metrics;
+    private QueryFingerprint queryFingerprint;
+    private boolean estimated;
+    private long rangeLow;
+    private long rangeHigh = -1;
+    private boolean count;
+    private ExecutionMode executionMode = ExecutionMode.TRAVERSAL;
+    private int batchSize = NativeExecutor.DEFAULT_BATCH_SIZE;
+    private Executor joinExecutor;
+    private int partitions = Runtime.getRuntime().availableProcessors();
+    private Executor partitionExecutor;
+    private Class<? extends GraphComputer> graphComputer;
+    private OptimizationGoal optimizationGoal;
 
     public PatternGraph(GraphTraversal<?,?> t) {
+        this(t, NoOpOptimizerMetrics.instance());
+    }
+
+    /**
+     * Creates a pattern graph that reports the durations of parsing and of all subsequent optimizations to the given
+     * listener.
+     *
+     * @param t The traversal to parse.
+     * @param metrics The listener that receives the optimizer metrics.
+     */
+    public PatternGraph(GraphTraversal<?,?> t, OptimizerMetrics metrics) {
+        this.metrics = metrics;
         elements = new ArrayList<>();
         elementsToReturn = new HashMap<>();
         sourceGraph = t.asAdmin().getGraph().orElse(null);
@@ -40,16 +91,134 @@ public class PatternGraph {
 
     private void buildGraphFromTraversal(GraphTraversal<?,?> t) {
         GremlinParser parser = new GremlinParser();
+        final OptimizerEvents.PhaseSpan parseEvent = EVENTS.beginPhase(OptimizerMetrics.Phase.PARSE);
+        final long parseStart = metrics.startPhase();
         parser.parse(t);
+        metrics.endPhase(OptimizerMetrics.Phase.PARSE, parseStart);
 
         elements = parser.getElements();
         elementsToReturn = parser.getElementsToReturn();
         originalTraversal = t;
+        rangeLow = parser.getRangeLow();
+        rangeHigh = parser.getRangeHigh();
+        count = parser.isCount();
+        optimizationGoal = hasLimit() ? OptimizationGoal.FIRST_RESULTS : OptimizationGoal.ALL_RESULTS;
+        parseEvent.finish(this);
+    }
+
+    public GraphTraversal<?,?> optimize(StatisticsProvider providedStats) {
+        // an execution that is stopped by a limit would report truncated result sizes
+        // the native execution has no steps to observe the operators
+        // the operators of partitioned scans are observed by each partition separately
+        // observation steps can not report back from a graph computer
+        observer = hasLimit() || executionMode != ExecutionMode.TRAVERSAL
+                ? null
+                : CardinalityObserver.combine(feedback, sampleQErrors());
+        final StatisticsProvider stats = estimate(providedStats);
+        final OptimizerEvents.PhaseSpan buildEvent = EVENTS.beginPhase(OptimizerMetrics.Phase.BUILD_TRAVERSAL);
+        final long buildStart = metrics.startPhase();
+        final GraphTraversal<?, ?> constructedTraversal;
+        if (executionMode == ExecutionMode.NATIVE) {
+            constructedTraversal = GremlinWriter.assembleNativeTraversal(this, GremlinWriter.buildPlan(this, null));
+        } else if (executionMode == ExecutionMode.COMPUTER) {
+            constructedTraversal = GremlinWriter.assembleComputerTraversal(this, GremlinWriter.buildPlan(this, null));
+        } else {
+            constructedTraversal = GremlinWriter.buildTraversal(this, stats);
+        }
+        metrics.endPhase(OptimizerMetrics.Phase.BUILD_TRAVERSAL, buildStart);
+        buildEvent.finish(this);
+        constructedTraversal.asAdmin().setStrategies(originalTraversal.asAdmin().getStrategies());
+        return constructedTraversal;
+    }
+
+    /**
+     * Optimizes the pattern graph without executing it and describes the chosen plan, including the estimated sizes
+     * of all operators and the alternative retrievals of each element.
+     *
+     * @param providedStats The statistics provider that is used for the estimations.
+     * @return The root node of the chosen plan.
+     */
+    public PlanNode explain(StatisticsProvider providedStats) {
+        observer = feedback;
+        return GremlinWriter.buildPlan(this, estimate(providedStats)).explain();
+    }
+
+    /**
+     * Optimizes the pattern graph, executes the optimized traversal with TinkerPop's profiling enabled and describes
+     * the chosen plan like {@link #explain(StatisticsProvider)}. Each node is additionally annotated with the observed
+     * result size and time of it's operator. If a feedback store is attached, it receives the observations as well.
+     *
+     * @param providedStats The statistics provider that is used for the estimations.
+     * @return The root node of the executed plan.
+     */
+    public PlanNode profile(StatisticsProvider providedStats) {
+        final CardinalityFeedback attachedFeedback = feedback;
+        if (attachedFeedback == null || hasLimit()) {
+            // observation steps are only generated if the plan reports to a feedback store, but truncated result
+            // sizes of a limited traversal must not correct subsequent estimations
+            feedback = new CardinalityFeedback();
+        }
+        observer = feedback;
+        try {
+            final PartialQueryPlan plan = GremlinWriter.buildPlan(this, estimate(providedStats));
+            final PlanNode root = plan.explain();
+            final GraphTraversal<?, ?> constructedTraversal = GremlinWriter.assembleTraversal(this, plan);
+            constructedTraversal.asAdmin().setStrategies(originalTraversal.asAdmin().getStrategies());
+            final TraversalMetrics metrics = constructedTraversal.profile().next();
+            root.annotate(constructedTraversal.asAdmin(), metrics);
+            return root;
+        } finally {
+            feedback = attachedFeedback;
+        }
+    }
+
+    /**
+     * Decides whether the next optimized traversal is sampled by the attached q-error tracker.
+     *
+     * @return The observer that records the q-errors of this query or <code>null</code> if the traversal is not
+     * sampled.
+     */
+    private CardinalityObserver sampleQErrors() {
+        if (qErrorTracker == null || !qErrorTracker.sample()) {
+            return null;
+        }
+        return qErrorTracker.observerFor(getQueryFingerprint());
     }
 
-    public GraphTraversal<?,?> optimize(StatisticsProvider stats) {
+    /**
+     * Estimates the result sizes of all retrievals until the best retrieval of each element is known.
+     *
+     * @param providedStats The statistics provider that is used for the estimations.
+     * @return The memoizing statistics provider that was used for this optimization.
+     */
+    private StatisticsProvider estimate(StatisticsProvider providedStats) {
+        // the estimation loop asks for the same statistics repeatedly, so they are memoized for this optimization
+        final CachingStatisticsProvider stats = CachingStatisticsProvider.perOptimization(providedStats);
+
+        if (metrics.isEnabled()) {
+            metrics.recordPatternSize(getVertices().size(), getEdges().size());
+        }
+
         // 1st step: initialization of the graph and estimation of direct retrievals
+        final OptimizerEvents.PhaseSpan initializationEvent =
+                EVENTS.beginPhase(OptimizerMetrics.Phase.INITIALIZE_RETRIEVALS);
+        final long initializationStart = metrics.startPhase();
+        estimated = false;
         elements.forEach(PatternElement::initializeRetrievals);
+        elements.forEach(e -> e.getRetrievals().forEach(r -> {
+            r.setFeedback(feedback);
+            r.setObserver(observer);
+        }));
+        metrics.endPhase(OptimizerMetrics.Phase.INITIALIZE_RETRIEVALS, initializationStart);
+        initializationEvent.finish(this);
+
+        final OptimizerEvents.PhaseSpan estimationEvent = EVENTS.beginPhase(OptimizerMetrics.Phase.ESTIMATION);
+        final long estimationStart = metrics.startPhase();
+        // all required statistics only depend on the element filters, so they can be fetched in a single batch
+        stats.prefetch(elements.stream()
+                .flatMap(e -> e.getRetrievals().stream())
+                .flatMap(r -> r.getRequiredStatistics().stream())
+                .collect(Collectors.toSet()));
         elements.forEach(e -> e.estimateDirectRetrievals(stats));
 
         PriorityQueue<PatternElement<?>> updateRequired = new PriorityQueue<>(elements);
@@ -57,7 +226,9 @@ public class PatternGraph {
         //updateRequired.remove(startingPoint);
 
         // n-th step
+        long iterations = 0;
         while (!updateRequired.isEmpty()) {
+            ++iterations;
             PatternElement<?> elementToUpdate = updateRequired.iterator().next();
             updateRequired.remove(elementToUpdate);
             double sizeBeforeUpdate = elementToUpdate.getBestRetrieval().getEstimatedSize();
@@ -68,10 +239,15 @@ public class PatternGraph {
                 updateRequired.addAll(elementToUpdate.getNeighbors(Direction.BOTH));
             }
         }
+        if (optimizationGoal == OptimizationGoal.FIRST_RESULTS) {
+            PipelinedPlanner.pinRetrievals(elements, stats);
+        }
+        metrics.endPhase(OptimizerMetrics.Phase.ESTIMATION, estimationStart);
+        metrics.recordEstimationIterations(iterations);
+        estimated = true;
+        estimationEvent.finish(this);
 
-        final GraphTraversal<?, ?> constructedTraversal = GremlinWriter.buildTraversal(this);
-        constructedTraversal.asAdmin().setStrategies(originalTraversal.asAdmin().getStrategies());
-        return constructedTraversal;
+        return stats;
     }
 
     public List<PatternElement<?>> getElements() {
@@ -100,6 +276,255 @@ public class PatternGraph {
         return sourceGraph;
     }
 
+    /**
+     * Attaches a feedback store that corrects the estimations of subsequent optimizations. The optimized traversal
+     * reports the observed result sizes of all it's operators to the store once it has been iterated completely.
+     *
+     * @param feedback The feedback store or <code>null</code> to disable feedback.
+     */
+    public void setFeedback(CardinalityFeedback feedback) {
+        this.feedback = feedback;
+    }
+
+    public CardinalityFeedback getFeedback() {
+        return feedback;
+    }
+
+    /**
+     * Attaches a tracker that records the deviation of estimated and actual result sizes for a sampled fraction of the
+     * optimized traversals. Traversals that are not sampled are optimized without any overhead.
+     *
+     * @param tracker The tracker or <code>null</code> to disable tracking.
+     */
+    public void setQErrorTracker(QErrorTracker tracker) {
+        this.qErrorTracker = tracker;
+    }
+
+    public QErrorTracker getQErrorTracker() {
+        return qErrorTracker;
+    }
+
+    /**
+     * Gets the observer that receives the actual result sizes of the most recently optimized traversal.
+     *
+     * @return The observer or <code>null</code> if the traversal does not observe it's result sizes.
+     */
+    public CardinalityObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * Enables adaptive execution. Whenever a join of the optimized traversal has executed it's inner traversal and the
+     * observed number of tuples deviates from the estimation by more than the given factor in either direction, the
+     * elements that are retrieved after the join are planned again with the observed size.
+     *
+     * @param threshold The factor that triggers a re-optimization or {@link Double#POSITIVE_INFINITY} to disable
+     *                  adaptive execution.
+     */
+    public void setReoptimizationThreshold(double threshold) {
+        this.reoptimizationThreshold = threshold;
+    }
+
+    public double getReoptimizationThreshold() {
+        return reoptimizationThreshold;
+    }
+
+    public OptimizerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the cost that subsequent optimizations minimize. Traversals that end in a <code>limit()</code> are
+     * optimized for {@link OptimizationGoal#FIRST_RESULTS} by default, all others for
+     * {@link OptimizationGoal#ALL_RESULTS}.
+     *
+     * @param goal The optimization goal.
+     */
+    public void setOptimizationGoal(OptimizationGoal goal) {
+        this.optimizationGoal = goal;
+    }
+
+    public OptimizationGoal getOptimizationGoal() {
+        return optimizationGoal;
+    }
+
+    /**
+     * Sets the engine that executes the traversals returned by subsequent optimizations. By default, the optimized
+     * plan is translated into Gremlin steps.
+     *
+     * @param executionMode The execution mode.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets the number of intermediate results that each retrieval processes at once if the pattern is executed
+     * natively. A batch size of <code>1</code> processes one intermediate result at a time.
+     *
+     * @param batchSize The batch size.
+     * @see NativeExecutor
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(String.format("The batch size must be positive but was %d", batchSize));
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the executor that runs the inner traversals of joins, so that both inputs of a join are produced
+     * concurrently. By default, both inputs are produced by the thread that iterates the optimized traversal. Since
+     * the inner traversals are executed by other threads, an executor must not be set for graphs that bind
+     * transactions to threads.
+     *
+     * @param joinExecutor The executor or <code>null</code> to disable concurrent joins.
+     * @see JoinExecutors#defaultExecutor()
+     */
+    public void setJoinExecutor(Executor joinExecutor) {
+        this.joinExecutor = joinExecutor;
+    }
+
+    public Executor getJoinExecutor() {
+        return joinExecutor;
+    }
+
+    /**
+     * Sets the number of partitions that each scan is split into if the pattern is executed in
+     * {@link ExecutionMode#PARTITIONED} mode. By default, scans are split into one partition per available processor.
+     *
+     * @param partitions The number of partitions.
+     */
+    public void setPartitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException(String.format("The number of partitions must be positive but was %d",
+                    partitions));
+        }
+        this.partitions = partitions;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Sets the executor that runs the partitions of scans if the pattern is executed in
+     * {@link ExecutionMode#PARTITIONED} mode.
+     *
+     * @param partitionExecutor The executor or <code>null</code> to use {@link JoinExecutors#defaultExecutor()}.
+     */
+    public void setPartitionExecutor(Executor partitionExecutor) {
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    public Executor getPartitionExecutor() {
+        return partitionExecutor != null ? partitionExecutor : JoinExecutors.defaultExecutor();
+    }
+
+    /**
+     * Sets the graph computer that executes the pattern if it is executed in {@link ExecutionMode#COMPUTER} mode.
+     *
+     * @param graphComputer The class of the graph computer or <code>null</code> to use the default graph computer of
+     *                      the source graph.
+     */
+    public void setGraphComputer(Class<? extends GraphComputer> graphComputer) {
+        this.graphComputer = graphComputer;
+    }
+
+    public Class<? extends GraphComputer> getGraphComputer() {
+        return graphComputer;
+    }
+
+    /**
+     * Checks whether the parsed traversal ends in a <code>limit()</code> or a bounded <code>range()</code>.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if the number of results is limited.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean hasLimit() {
+        return rangeHigh >= 0;
+    }
+
+    /**
+     * Checks whether the parsed traversal ends in a <code>count()</code>. Such traversals are written as counting
+     * plans, that do not enumerate the matches of the pattern wherever possible.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if only the number of matches is returned.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    /**
+     * Gets the lower bound of the trailing <code>range()</code> of the parsed traversal.
+     *
+     * @return The number of skipped results, which is <code>0</code> if there is no trailing range.
+     */
+    public long getRangeLow() {
+        return rangeLow;
+    }
+
+    /**
+     * Gets the upper bound of the trailing <code>range()</code> or <code>limit()</code> of the parsed traversal.
+     *
+     * @return The number of results after which the traversal stops or <code>-1</code> if it is not limited.
+     */
+    public long getRangeHigh() {
+        return rangeHigh;
+    }
+
+    /**
+     * Gets the fingerprint of the traversal that this pattern graph was parsed from.
+     *
+     * @return The fingerprint of the query.
+     */
+    public QueryFingerprint getQueryFingerprint() {
+        if (queryFingerprint == null) {
+            queryFingerprint = QueryFingerprint.of(originalTraversal.asAdmin().getBytecode());
+        }
+        return queryFingerprint;
+    }
+
+    /**
+     * Describes the plan chosen by the most recent estimation. The plan is determined by the best retrieval of each
+     * element, because the dependency trees and the order of their joins follow from these. Elements are identified by
+     * their position in the pattern instead of their identifiers, so that equal queries that are optimized into the
+     * same plan share the same fingerprint.
+     *
+     * @return The fingerprint of the plan or <code>null</code> if the pattern has not been estimated yet.
+     */
+    public String getPlanFingerprint() {
+        if (!estimated) {
+            return null;
+        }
+        final StringBuilder plan = new StringBuilder();
+        for (PatternElement<?> element : elements) {
+            final Retrieval<?> retrieval = element.getBestRetrieval();
+            if (retrieval instanceof DependentRetrieval) {
+                final DependentRetrieval<?> dependentRetrieval = (DependentRetrieval<?>) retrieval;
+                plan.append(elements.indexOf(dependentRetrieval.getSource()))
+                        .append(dependentRetrieval.getDirection());
+            } else {
+                plan.append('D');
+            }
+            plan.append(';');
+        }
+        return QueryFingerprint.hash(plan.toString());
+    }
+
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof PatternGraph)) return false;
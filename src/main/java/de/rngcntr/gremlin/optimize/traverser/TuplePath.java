@@ -0,0 +1,168 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.traverser;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Path;
+import org.apache.tinkerpop.gremlin.process.traversal.Pop;
+
+import java.util.*;
+
+/**
+ * An immutable path that only holds the bindings of a pattern, i.e. a single graph element per label. Unlike an
+ * {@link org.apache.tinkerpop.gremlin.process.traversal.step.util.ImmutablePath}, which is a linked list of all
+ * labeled objects, the bindings are kept in a single map that is shared between all paths that do not extend it.
+ * Binding a label that is already bound replaces it's element, which matches a lookup with {@link Pop#last}.
+ *
+ * @author Florian Grieskamp
+ */
+public class TuplePath implements Path {
+
+    private final Map<String, Object> bindings;
+    private final Object head;
+
+    /**
+     * Creates a path from the bindings of a pattern.
+     *
+     * @param bindings The graph elements of the bound pattern elements by their labels. The map must not be modified
+     *                 afterwards.
+     */
+    public TuplePath(Map<String, Object> bindings) {
+        this(bindings, null);
+    }
+
+    private TuplePath(Map<String, Object> bindings, Object head) {
+        this.bindings = bindings;
+        this.head = head;
+    }
+
+    /**
+     * Gets the bindings of this path.
+     *
+     * @return An unmodifiable view of the bound elements by their labels.
+     */
+    public Map<String, Object> getBindings() {
+        return Collections.unmodifiableMap(bindings);
+    }
+
+    @Override
+    public int size() {
+        return bindings.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A head() {
+        if (head == null) {
+            throw new IllegalStateException("The path has not been extended by any object");
+        }
+        return (A) head;
+    }
+
+    @Override
+    public Path extend(Object object, Set<String> labels) {
+        if (labels.isEmpty()) {
+            // unlabeled objects can never be selected
+            return head == object ? this : new TuplePath(bindings, object);
+        }
+        final Map<String, Object> extended = new HashMap<>(bindings);
+        labels.forEach(label -> extended.put(label, object));
+        return new TuplePath(extended, object);
+    }
+
+    @Override
+    public Path extend(Set<String> labels) {
+        if (labels.isEmpty()) {
+            return this;
+        }
+        if (head == null) {
+            throw new IllegalStateException("A path without objects can not be labeled");
+        }
+        return extend(head, labels);
+    }
+
+    @Override
+    public Path retract(Set<String> labels) {
+        if (labels.stream().noneMatch(bindings::containsKey)) {
+            return this;
+        }
+        final Map<String, Object> retracted = new HashMap<>(bindings);
+        retracted.keySet().removeAll(labels);
+        return new TuplePath(retracted, head);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A get(String label) {
+        if (!bindings.containsKey(label)) {
+            throw Path.Exceptions.stepWithProvidedLabelDoesNotExist(label);
+        }
+        return (A) bindings.get(label);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A get(Pop pop, String label) {
+        if (pop == Pop.all) {
+            return (A) (bindings.containsKey(label)
+                    ? Collections.singletonList(bindings.get(label))
+                    : Collections.emptyList());
+        }
+        return get(label);
+    }
+
+    @Override
+    public boolean hasLabel(String label) {
+        return bindings.containsKey(label);
+    }
+
+    @Override
+    public List<Object> objects() {
+        return new ArrayList<>(bindings.values());
+    }
+
+    @Override
+    public List<Set<String>> labels() {
+        final List<Set<String>> labels = new ArrayList<>(bindings.size());
+        bindings.keySet().forEach(label -> labels.add(Collections.singleton(label)));
+        return labels;
+    }
+
+    @Override
+    public void forEach(java.util.function.BiConsumer<Object, Set<String>> consumer) {
+        bindings.forEach((label, object) -> consumer.accept(object, Collections.singleton(label)));
+    }
+
+    @Override
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    public TuplePath clone() {
+        // the path is immutable
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TuplePath && bindings.equals(((TuplePath) other).bindings);
+    }
+
+    @Override
+    public int hashCode() {
+        return bindings.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return bindings.toString();
+    }
+}
@@ -23,6 +23,8 @@ import org.apache.tinkerpop.gremlin.process.traversal.Step;
 import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.step.filter.HasStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.RangeGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.CountGlobalStep;
 import org.apache.tinkerpop.gremlin.process.traversal.step.map.*;
 import org.apache.tinkerpop.gremlin.process.traversal.step.util.EmptyStep;
 import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
@@ -43,9 +45,19 @@ public class GremlinParser {
     private Map<PatternElement<?>, String> elementsToReturn;
     private Map<PatternElement<?>, String> matchResults;
     private boolean collectMatchResults = false;
+    private RangeGlobalStep<?> rangeStep;
+    private CountGlobalStep<?> countStep;
 
     public void parse(GraphTraversal<?,?> traversal) {
         this.traversal = traversal;
+        // a trailing range() or limit() is applied to the optimized traversal as a whole
+        rangeStep = traversal.asAdmin().getEndStep() instanceof RangeGlobalStep
+                ? (RangeGlobalStep<?>) traversal.asAdmin().getEndStep()
+                : null;
+        // a trailing count() only needs the number of matches instead of the matches themselves
+        countStep = traversal.asAdmin().getEndStep() instanceof CountGlobalStep
+                ? (CountGlobalStep<?>) traversal.asAdmin().getEndStep()
+                : null;
         elements = new ArrayList<>();
         stepLabelMap = new HashMap<>();
         currentStepStack = new Stack<>();
@@ -67,13 +79,29 @@ public class GremlinParser {
     }
 
     private boolean isLastStep() {
-        return currentStepStack.size() == 1 && currentStepStack.peek() == EmptyStep.instance();
+        return currentStepStack.size() == 1 && isEnd(currentStepStack.peek());
+    }
+
+    /**
+     * Checks whether a step ends a traversal. Besides the end of each traversal, this is the case for a trailing range
+     * or count step of the parsed traversal.
+     *
+     * @param step The step to check.
+     * @return <ul>
+     *     <li><code>true</code> if no further steps need to be parsed in the current traversal.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    private boolean isEnd(Step<?,?> step) {
+        return step instanceof EmptyStep
+                || (rangeStep != null && step == rangeStep)
+                || (countStep != null && step == countStep);
     }
 
     private Step<?,?> advance() {
         Step<?,?> currentStep = currentStepStack.pop();
 
-        if (currentStep instanceof EmptyStep) {
+        if (isEnd(currentStep)) {
             PatternElement<?> currentElement = currentElementStack.pop();
             if (currentStepStack.isEmpty()) {
                 // end of traversal
@@ -103,8 +131,39 @@ public class GremlinParser {
         return elementsToReturn;
     }
 
+    /**
+     * Gets the number of results that are skipped because of a trailing <code>range()</code> step.
+     *
+     * @return The lower bound of the range or <code>0</code> if the traversal has no trailing range step.
+     */
+    public long getRangeLow() {
+        return rangeStep == null ? 0L : rangeStep.getLowRange();
+    }
+
+    /**
+     * Gets the number of results after which a trailing <code>range()</code> or <code>limit()</code> step stops the
+     * traversal.
+     *
+     * @return The upper bound of the range or <code>-1</code> if the number of results is not limited.
+     */
+    public long getRangeHigh() {
+        return rangeStep == null ? -1L : rangeStep.getHighRange();
+    }
+
+    /**
+     * Checks whether the parsed traversal ends in a <code>count()</code> step.
+     *
+     * @return <ul>
+     *     <li><code>true</code> if only the number of matches is returned.</li>
+     *     <li><code>false</code> otherwise.</li>
+     * </ul>
+     */
+    public boolean isCount() {
+        return countStep != null;
+    }
+
     private void parseStep(Step<?,?> currentStep) {
-        if (currentStep instanceof EmptyStep) {
+        if (isEnd(currentStep)) {
             return;
         } else if (currentStep instanceof GraphStep<?,?>) {
             parseGraphStep((GraphStep<?, ?>) currentStep);
@@ -213,7 +272,7 @@ public class GremlinParser {
     }
 
     private void parseSelectStep(SelectStep<?,?> selectStep) {
-        if ((Step<?,?>) selectStep.getNextStep() != EmptyStep.instance()) {
+        if (!isEnd(selectStep.getNextStep())) {
             // TODO currently, selecting multiple step labels is only supported at the end of a query
             throw new IllegalArgumentException("Selecting multiple labels is only allowed at the end of a query");
         }
@@ -321,8 +380,52 @@ public class GremlinParser {
                     matchResults.put(currentElementStack.peek(), key.get());
                 }
             } else {
-                throw new IllegalArgumentException("Double assignment of step label " + key.get() + " is currently unsupported.");
+                // match() only keeps traversers that end at the element that is already bound to the label
+                mergeIntoBoundElement(stepLabelMap.get(key.get()));
             }
         }
     }
+
+    /**
+     * Replaces the current element by the given element, which closes a cycle in the pattern graph. This is only
+     * possible for vertices, because the current element is the newly created end of an edge.
+     *
+     * @param boundElement The element that the current element is identical to.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void mergeIntoBoundElement(PatternElement<?> boundElement) {
+        PatternElement<?> currentElement = currentElementStack.pop();
+        if (currentElement == boundElement) {
+            currentElementStack.push(boundElement);
+            return;
+        }
+        if (!(currentElement instanceof PatternVertex) || !(boundElement instanceof PatternVertex)) {
+            throw new IllegalArgumentException("Only vertices can be bound to a step label multiple times: "
+                    + boundElement);
+        }
+
+        PatternVertex currentVertex = (PatternVertex) currentElement;
+        PatternVertex boundVertex = (PatternVertex) boundElement;
+        for (Direction direction : Arrays.asList(Direction.IN, Direction.OUT)) {
+            currentVertex.getNeighbors(direction).forEach(e -> {
+                ((PatternEdge) e).setVertex(boundVertex, direction);
+                boundVertex.addEdge((PatternEdge) e, direction);
+            });
+        }
+        if (currentVertex.hasLabelFilter()) {
+            if (boundVertex.hasLabelFilter() && !boundVertex.getLabelFilter().equals(currentVertex.getLabelFilter())) {
+                throw new IllegalArgumentException("Conflicting labels for vertex " + boundVertex.getId());
+            }
+            boundVertex.setLabelFilter(currentVertex.getLabelFilter());
+        }
+        currentVertex.getPropertyFilters().forEach(f -> boundVertex.addPropertyFilter((PropertyFilter) f));
+
+        // pattern elements are equal if their filters are equal, so the vertex is removed by identity
+        elements.removeIf(e -> e == currentVertex);
+        stepLabelMap.replaceAll((label, element) -> element == currentVertex ? boundVertex : element);
+        if (matchResults.containsKey(currentVertex)) {
+            matchResults.put(boundVertex, matchResults.remove(currentVertex));
+        }
+        currentElementStack.push(boundVertex);
+    }
 }
\ No newline at end of file
@@ -14,27 +14,83 @@
 
 package de.rngcntr.gremlin.optimize.util;
 
+import de.rngcntr.gremlin.optimize.execution.ComputerExecutor;
+import de.rngcntr.gremlin.optimize.execution.NativeExecutor;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerEvents;
+import de.rngcntr.gremlin.optimize.metrics.OptimizerMetrics;
 import de.rngcntr.gremlin.optimize.query.DependencyTree;
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
 import de.rngcntr.gremlin.optimize.query.Join;
 import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
 import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.ComputerExecutionStep;
+import de.rngcntr.gremlin.optimize.step.NativeExecutionStep;
+import de.rngcntr.gremlin.optimize.step.ObservationReportStep;
+import de.rngcntr.gremlin.optimize.strategy.BarrierInsertionStrategy;
 import de.rngcntr.gremlin.optimize.strategy.FlattenMatchStepStrategy;
 import de.rngcntr.gremlin.optimize.strategy.RemoveRedundantSelectStrategy;
 import de.rngcntr.gremlin.optimize.strategy.RemoveUnusedLabelsStrategy;
 import de.rngcntr.gremlin.optimize.strategy.SkipEdgeStrategy;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
 import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.DefaultGraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
-import org.apache.tinkerpop.gremlin.structure.Graph;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
 public class GremlinWriter {
+    private static final OptimizerEvents EVENTS = OptimizerEvents.get();
 
     public static GraphTraversal<?,?> buildTraversal(PatternGraph pg) {
-        Set<PatternElement<?>> directlyRetrieved = new HashSet<>();
-        Set<DependencyTree> dependencyTrees = new HashSet<>();
+        return buildTraversal(pg, null);
+    }
+
+    /**
+     * Assembles the optimized traversal from the best retrievals of all pattern elements.
+     *
+     * @param pg The estimated pattern graph.
+     * @param stats The statistics provider that is used to re-optimize the plan during execution or <code>null</code>
+     *              to disable adaptive execution.
+     * @return The optimized traversal.
+     */
+    public static GraphTraversal<?,?> buildTraversal(PatternGraph pg, StatisticsProvider stats) {
+        final PartialQueryPlan plan = buildPlan(pg, stats);
+        // partitions produce their results in no particular order, so they would not help to find the first results
+        if (pg.getExecutionMode() == ExecutionMode.PARTITIONED && !pg.hasLimit()) {
+            partitionScans(plan, pg.getPartitions(), pg.getPartitionExecutor());
+        }
+        return assembleTraversal(pg, plan);
+    }
+
+    /**
+     * Partitions the scans of all dependency trees that start a traversal, i.e. the inputs of all joins. Trees that
+     * are executed after a join start from already bound elements and are not partitioned.
+     */
+    private static void partitionScans(PartialQueryPlan plan, int partitions, Executor executor) {
+        if (plan instanceof DependencyTree) {
+            ((DependencyTree) plan).setPartitioning(partitions, executor);
+        } else if (plan instanceof Join) {
+            partitionScans(((Join) plan).getLeft(), partitions, executor);
+            partitionScans(((Join) plan).getRight(), partitions, executor);
+        }
+    }
+
+    /**
+     * Arranges the best retrievals of all pattern elements into dependency trees and joins them.
+     *
+     * @param pg The estimated pattern graph.
+     * @param stats The statistics provider that is used to re-optimize the plan during execution or <code>null</code>
+     *              to disable adaptive execution.
+     * @return The query plan.
+     */
+    public static PartialQueryPlan buildPlan(PatternGraph pg, StatisticsProvider stats) {
+        // the join order follows the order of the pattern elements, so that equal patterns result in equal plans
+        Set<PatternElement<?>> directlyRetrieved = new LinkedHashSet<>();
+        Set<DependencyTree> dependencyTrees = new LinkedHashSet<>();
 
         // find all directly retrievable elements
         pg.getElements().stream()
@@ -47,27 +103,132 @@ public class GremlinWriter {
             dependencyTrees.add(dependencyTree);
         }
 
-        GraphTraversal<?,?> completeTraversal = joinTraversals(dependencyTrees, pg.getSourceGraph());
+        final PartialQueryPlan plan = joinPlans(dependencyTrees, pg, stats);
+        // branches that are neither returned nor joined only need to be counted
+        final Set<PatternElement<?>> requiredElements = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!pg.isCount()) {
+            requiredElements.addAll(pg.getElementsToReturn().keySet());
+        }
+        // counted branches are children of the traversers' steps, which can not leave the current vertex in OLAP
+        if (pg.getExecutionMode() != ExecutionMode.COMPUTER) {
+            plan.factorizeBranches(requiredElements);
+        }
+        return plan;
+    }
+
+    /**
+     * Translates a query plan into a traversal that returns the labeled elements of the pattern graph.
+     *
+     * @param pg The estimated pattern graph.
+     * @param plan The query plan as created by {@link #buildPlan(PatternGraph, StatisticsProvider)}.
+     * @return The optimized traversal.
+     */
+    public static GraphTraversal<?,?> assembleTraversal(PatternGraph pg, PartialQueryPlan plan) {
+        final GraphTraversal<?,?> completeTraversal = plan.asTraversal();
+        completeTraversal.asAdmin().setGraph(pg.getSourceGraph());
 
-        final GraphTraversal<?,?> assembledTraversal = GremlinWriter.selectLabels(completeTraversal, pg.getElementsToReturn());
-        FlattenMatchStepStrategy.instance().apply(assembledTraversal.asAdmin());
-        RemoveRedundantSelectStrategy.instance().apply(assembledTraversal.asAdmin());
-        RemoveUnusedLabelsStrategy.instance().apply(assembledTraversal.asAdmin());
-        SkipEdgeStrategy.instance().apply(assembledTraversal.asAdmin());
+        // counting plans do not need to project the matches
+        final GraphTraversal<?,?> assembledTraversal = pg.isCount()
+                ? completeTraversal
+                : GremlinWriter.selectLabels(completeTraversal, pg.getElementsToReturn());
+        applyStrategy(FlattenMatchStepStrategy.instance(), assembledTraversal,
+                OptimizerMetrics.Phase.FLATTEN_MATCH_STEP_STRATEGY, pg);
+        applyStrategy(RemoveRedundantSelectStrategy.instance(), assembledTraversal,
+                OptimizerMetrics.Phase.REMOVE_REDUNDANT_SELECT_STRATEGY, pg);
+        applyStrategy(new BarrierInsertionStrategy(pg.getElements()), assembledTraversal,
+                OptimizerMetrics.Phase.BARRIER_INSERTION_STRATEGY, pg);
+        applyStrategy(RemoveUnusedLabelsStrategy.instance(), assembledTraversal,
+                OptimizerMetrics.Phase.REMOVE_UNUSED_LABELS_STRATEGY, pg);
+        applyStrategy(SkipEdgeStrategy.instance(), assembledTraversal,
+                OptimizerMetrics.Phase.SKIP_EDGE_STRATEGY, pg);
+        if (pg.hasLimit() || pg.getRangeLow() > 0) {
+            assembledTraversal.range(pg.getRangeLow(), pg.getRangeHigh());
+        }
+        if (pg.isCount()) {
+            assembledTraversal.count();
+        }
+        if (pg.getObserver() != null) {
+            assembledTraversal.asAdmin().addStep(new ObservationReportStep<>(assembledTraversal.asAdmin()));
+        }
         return assembledTraversal;
     }
 
-    private static GraphTraversal<?,?> joinTraversals(Set<DependencyTree> dependencyTrees, Graph g) {
+    /**
+     * Translates a query plan into a traversal that executes the plan natively, without Gremlin steps for the
+     * retrievals and joins of the plan.
+     *
+     * @param pg The estimated pattern graph.
+     * @param plan The query plan as created by {@link #buildPlan(PatternGraph, StatisticsProvider)}.
+     * @return The traversal that starts with a {@link NativeExecutionStep}.
+     */
+    public static GraphTraversal<?,?> assembleNativeTraversal(PatternGraph pg, PartialQueryPlan plan) {
+        final GraphTraversal.Admin<Object,Object> assembledTraversal = new DefaultGraphTraversal<>(pg.getSourceGraph());
+        final NativeExecutor executor = new NativeExecutor(pg.getSourceGraph(), pg.getElements(),
+                pg.getElementsToReturn(), plan, pg.getBatchSize());
+        assembledTraversal.addStep(new NativeExecutionStep<>(assembledTraversal, executor));
+        if (pg.hasLimit() || pg.getRangeLow() > 0) {
+            assembledTraversal.range(pg.getRangeLow(), pg.getRangeHigh());
+        }
+        if (pg.isCount()) {
+            assembledTraversal.count();
+        }
+        return assembledTraversal;
+    }
+
+    /**
+     * Creates a traversal that executes a query plan on a graph computer.
+     *
+     * @param pg The estimated pattern graph.
+     * @param plan The query plan as created by {@link #buildPlan(PatternGraph, StatisticsProvider)}.
+     * @return A traversal that emits the results of the plan.
+     */
+    public static GraphTraversal<?,?> assembleComputerTraversal(PatternGraph pg, PartialQueryPlan plan) {
+        final GraphTraversal.Admin<Object,Object> assembledTraversal = new DefaultGraphTraversal<>(pg.getSourceGraph());
+        final ComputerExecutor executor = new ComputerExecutor(pg.getSourceGraph(), pg.getGraphComputer(),
+                pg.getElementsToReturn(), plan);
+        assembledTraversal.addStep(new ComputerExecutionStep<>(assembledTraversal, executor));
+        if (pg.hasLimit() || pg.getRangeLow() > 0) {
+            assembledTraversal.range(pg.getRangeLow(), pg.getRangeHigh());
+        }
+        if (pg.isCount()) {
+            assembledTraversal.count();
+        }
+        return assembledTraversal;
+    }
+
+    private static void applyStrategy(TraversalStrategy<?> strategy, GraphTraversal<?,?> traversal,
+                                      OptimizerMetrics.Phase phase, PatternGraph pg) {
+        final OptimizerEvents.PhaseSpan event = EVENTS.beginPhase(phase);
+        final long start = pg.getMetrics().startPhase();
+        strategy.apply(traversal.asAdmin());
+        pg.getMetrics().endPhase(phase, start);
+        event.finish(pg);
+    }
+
+    private static PartialQueryPlan joinPlans(Set<DependencyTree> dependencyTrees, PatternGraph pg,
+                                              StatisticsProvider stats) {
         Iterator<DependencyTree> depTreeIterator = dependencyTrees.iterator();
         assert depTreeIterator.hasNext();
         PartialQueryPlan leftSide = depTreeIterator.next();
         while (depTreeIterator.hasNext()) {
             PartialQueryPlan rightSide = depTreeIterator.next();
-            leftSide = new Join(leftSide, rightSide);
+            final Join join = new Join(leftSide, rightSide);
+            join.setFeedback(pg.getFeedback());
+            join.setObserver(pg.getObserver());
+            join.setExecutor(pg.getJoinExecutor());
+            if (stats != null) {
+                join.setReoptimization(stats, pg.getReoptimizationThreshold());
+            }
+            leftSide = join;
+        }
+        if (leftSide instanceof Join && pg.hasLimit()) {
+            // only the last join can stop early, since the results of earlier joins are filtered by later ones
+            ((Join) leftSide).setLimit(pg.getRangeHigh());
+        }
+        if (leftSide instanceof Join && pg.isCount()) {
+            ((Join) leftSide).setFactorizedCounting(Collections.newSetFromMap(new IdentityHashMap<>()));
         }
-        final GraphTraversal<?,?> joinedTraversal = leftSide.asTraversal();
-        joinedTraversal.asAdmin().setGraph(g);
-        return joinedTraversal;
+        return leftSide;
     }
 
     public static GraphTraversal<?,?> selectElements(GraphTraversal<?,?> t, Collection<PatternElement<?>> elements, boolean alwaysMap) {
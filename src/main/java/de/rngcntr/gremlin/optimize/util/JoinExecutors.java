@@ -0,0 +1,62 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides the executor that runs the inner traversals of concurrent joins and the partitions of partitioned scans by
+ * default.
+ *
+ * @author Florian Grieskamp
+ */
+public class JoinExecutors {
+
+    private JoinExecutors() {
+        // utility class
+    }
+
+    /**
+     * Gets a shared executor that starts a new virtual thread for each task if the Java runtime supports virtual
+     * threads. On older runtimes, tasks are executed by a cached pool of daemon threads.
+     *
+     * @return The executor.
+     */
+    public static Executor defaultExecutor() {
+        return Holder.DEFAULT;
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // virtual threads are not available before Java 21
+            return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                    .setNameFormat("gremlin-optimizer-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+    }
+
+    private static final class Holder {
+        private static final Executor DEFAULT = createDefaultExecutor();
+    }
+}
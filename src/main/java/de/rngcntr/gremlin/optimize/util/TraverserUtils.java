@@ -14,6 +14,8 @@
 
 package de.rngcntr.gremlin.optimize.util;
 
+import de.rngcntr.gremlin.optimize.traverser.TuplePath;
+import org.apache.tinkerpop.gremlin.process.traversal.Path;
 import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
 
 import java.util.HashMap;
@@ -22,8 +24,15 @@ import java.util.Map;
 public class TraverserUtils {
 
     public static <E> Map<String, Object> mapHistory(Traverser<E> t) {
-        Map<String, Object> returnMap = new HashMap<>();
-        t.path().forEach((o,ls) -> ls.forEach(l -> returnMap.put(l, o)));
+        final Path path = t.path();
+        Map<String, Object> returnMap;
+        if (path instanceof TuplePath) {
+            returnMap = new HashMap<>(((TuplePath) path).getBindings());
+        } else {
+            final Map<String, Object> pathMap = new HashMap<>();
+            path.forEach((o,ls) -> ls.forEach(l -> pathMap.put(l, o)));
+            returnMap = pathMap;
+        }
 
         if (t.get() instanceof Map) {
             Map<?,?> content = (Map<?,?>) t.get();
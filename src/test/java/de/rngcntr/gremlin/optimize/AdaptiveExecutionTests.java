@@ -0,0 +1,108 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.query.AdaptivePlanner;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.step.AdaptiveStep;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveExecutionTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<AdaptiveStep> adaptiveSteps(GraphTraversal<?,?> traversal) {
+        return TraversalHelper.getStepsOfAssignableClassRecursively(AdaptiveStep.class, traversal.asAdmin());
+    }
+
+    @Test
+    public void testQError() {
+        assertEquals(1.0, AdaptivePlanner.qError(5, 5));
+        assertEquals(4.0, AdaptivePlanner.qError(1, 4));
+        assertEquals(4.0, AdaptivePlanner.qError(4, 1));
+        assertEquals(4.0, AdaptivePlanner.qError(0.1, 4));
+        assertEquals(1.0, AdaptivePlanner.qError(0, 0));
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        GraphTraversal<?,?> optimizedTraversal = new PatternGraph(chainTraversal(g)).optimize(misleadingStatistics());
+        assertTrue(adaptiveSteps(optimizedTraversal).isEmpty());
+    }
+
+    @Test
+    public void testReoptimizationOnDeviation() {
+        GraphTraversal<?,?> traversal = chainTraversal(g);
+        List<?> unoptimizedResults = traversal.asAdmin().clone().toList();
+
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.setReoptimizationThreshold(2.0);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(misleadingStatistics());
+        assertFalse(adaptiveSteps(optimizedTraversal).isEmpty());
+
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+        assertTrue(adaptiveSteps(optimizedTraversal).stream().anyMatch(AdaptiveStep::isReplanned));
+    }
+
+    @Test
+    public void testNoReoptimizationWithinThreshold() {
+        GraphTraversal<?,?> traversal = chainTraversal(g);
+        List<?> unoptimizedResults = traversal.asAdmin().clone().toList();
+
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.setReoptimizationThreshold(1000.0);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(misleadingStatistics());
+
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+        assertTrue(adaptiveSteps(optimizedTraversal).stream().noneMatch(AdaptiveStep::isReplanned));
+    }
+
+    @Test
+    public void testReoptimizationKeepsEstimations() {
+        GraphTraversal<?,?> traversal = chainTraversal(g);
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.setReoptimizationThreshold(2.0);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(misleadingStatistics());
+        Map<Retrieval<?>, Double> estimations = new HashMap<>();
+        pg.getElements().forEach(e -> e.getRetrievals().forEach(r -> estimations.put(r, r.getEstimatedSize())));
+
+        // repeated executions replan with the same estimations
+        optimizedTraversal.toList();
+        optimizedTraversal.asAdmin().reset();
+        optimizedTraversal.toList();
+        assertTrue(adaptiveSteps(optimizedTraversal).stream().anyMatch(AdaptiveStep::isReplanned));
+        estimations.forEach((r, estimation) -> assertEquals(estimation, r.getEstimatedSize(), r.toString()));
+    }
+}
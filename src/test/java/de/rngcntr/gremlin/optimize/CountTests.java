@@ -0,0 +1,109 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize;
+
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.modernStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    /*
+        pairs of persons that created the same software, which has more matches than persons and software
+     */
+    private GraphTraversal<?,?> coCreatorTraversal() {
+        return g.V().hasLabel("person").as("a")
+                .out("created").hasLabel("software").as("s")
+                .in("created").hasLabel("person").as("b")
+                .select("a", "s", "b");
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<JoinStep> joinSteps(GraphTraversal<?,?> traversal) {
+        return TraversalHelper.getStepsOfAssignableClassRecursively(JoinStep.class, traversal.asAdmin());
+    }
+
+    private static long optimizedCount(Supplier<GraphTraversal<?,?>> traversal, StatisticsProvider stats) {
+        PatternGraph pg = new PatternGraph(traversal.get().count());
+        assertTrue(pg.isCount());
+        return (Long) pg.optimize(stats).next();
+    }
+
+    @Test
+    public void testCountMatchesUnoptimizedCount() {
+        for (Supplier<GraphTraversal<?,?>> traversal : Arrays.<Supplier<GraphTraversal<?,?>>>asList(
+                () -> chainTraversal(g), this::coCreatorTraversal,
+                () -> g.V().hasLabel("person").out("created"),
+                () -> g.V().hasLabel("person").has("name", "nobody"))) {
+            long expected = traversal.get().count().next();
+            assertEquals(expected, optimizedCount(traversal, misleadingStatistics()));
+            assertEquals(expected, optimizedCount(traversal, modernStatistics()));
+        }
+    }
+
+    @Test
+    public void testCountOfMatchStep() {
+        Supplier<GraphTraversal<?,?>> traversal = () -> g.V().hasLabel("person").as("a").match(
+                __.as("a").out("created").hasLabel("software").as("s"),
+                __.as("s").in("created").hasLabel("person").as("b"));
+        assertEquals(traversal.get().count().next().longValue(), optimizedCount(traversal, misleadingStatistics()));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testJoinsCountInsteadOfEnumerating() {
+        PatternGraph pg = new PatternGraph(coCreatorTraversal().count());
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(misleadingStatistics());
+        List<JoinStep> joins = joinSteps(optimizedTraversal);
+        assertFalse(joins.isEmpty());
+        // the software is part of the last join's attributes, so only the last join can count
+        assertTrue(joins.get(joins.size() - 1).isCountOnly());
+        assertEquals(coCreatorTraversal().count().next(), optimizedTraversal.next());
+
+        // the same pattern enumerates it's matches without a count
+        joinSteps(new PatternGraph(coCreatorTraversal()).optimize(misleadingStatistics()))
+                .forEach(j -> assertFalse(j.isCountOnly()));
+    }
+
+    @Test
+    public void testCountInTheMiddleIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternGraph(g.V().hasLabel("person").count().is(4)));
+        assertFalse(new PatternGraph(chainTraversal(g)).isCount());
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize;
+
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.query.PlanNode;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExplainTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    private static List<PlanNode> flatten(PlanNode node) {
+        final List<PlanNode> nodes = new ArrayList<>();
+        nodes.add(node);
+        node.getChildren().forEach(c -> nodes.addAll(flatten(c)));
+        return nodes;
+    }
+
+    private static List<PlanNode> ofKind(PlanNode root, PlanNode.Kind kind) {
+        return flatten(root).stream().filter(n -> n.getKind() == kind).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testExplain() {
+        PatternGraph pg = new PatternGraph(chainTraversal(g));
+        PlanNode root = pg.explain(misleadingStatistics());
+
+        assertEquals(PlanNode.Kind.JOIN, root.getKind());
+        assertTrue(root.getAlternatives().isEmpty());
+        List<PlanNode> directRetrievals = ofKind(root, PlanNode.Kind.DIRECT_RETRIEVAL);
+        // all elements are retrieved directly, only the vertices are estimated to be cheap
+        assertEquals(5, directRetrievals.size());
+        assertEquals(3, directRetrievals.stream().filter(n -> n.getEstimatedSize() == 1.0).count());
+        assertFalse(ofKind(root, PlanNode.Kind.DEPENDENT_RETRIEVAL).isEmpty());
+
+        for (PlanNode node : directRetrievals) {
+            // the optimizer chooses the cheapest retrieval
+            assertFalse(node.getAlternatives().isEmpty());
+            node.getAlternatives().forEach(a -> assertTrue(a.getEstimatedSize() >= node.getEstimatedSize()));
+        }
+        for (PlanNode node : flatten(root)) {
+            assertFalse(node.isProfiled());
+            assertEquals(-1, node.getActualSize());
+            assertEquals(-1, node.getDuration(TimeUnit.NANOSECONDS));
+            assertTrue(Double.isNaN(node.getQError()));
+        }
+        assertFalse(root.toString().contains("Actual"));
+    }
+
+    @Test
+    public void testExplainDoesNotExecute() {
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        PatternGraph pg = new PatternGraph(chainTraversal(g));
+        pg.setFeedback(feedback);
+        pg.explain(misleadingStatistics());
+        assertEquals(0, feedback.size());
+    }
+
+    @Test
+    public void testProfile() {
+        PatternGraph pg = new PatternGraph(chainTraversal(g));
+        PlanNode root = pg.profile(misleadingStatistics());
+
+        // one result per pair of a person knowing a creator
+        assertTrue(root.isProfiled());
+        assertEquals(2, root.getActualSize());
+
+        List<PlanNode> vertexRetrievals = ofKind(root, PlanNode.Kind.DIRECT_RETRIEVAL).stream()
+                .filter(n -> n.getEstimatedSize() == 1.0)
+                .collect(Collectors.toList());
+        assertEquals(3, vertexRetrievals.size());
+        // both person vertices match all 4 persons, the software vertex matches both softwares
+        assertEquals(10, vertexRetrievals.stream().mapToLong(PlanNode::getActualSize).sum());
+        vertexRetrievals.forEach(n -> assertEquals(n.getActualSize(), n.getQError()));
+
+        for (PlanNode node : flatten(root)) {
+            if (node.getKind() == PlanNode.Kind.EMPTY) {
+                continue;
+            }
+            assertTrue(node.isProfiled());
+            assertTrue(node.getQError() >= 1.0);
+            assertTrue(node.getDuration(TimeUnit.NANOSECONDS) >= 0);
+        }
+        assertTrue(root.toString().contains("Actual"));
+        assertNull(pg.getFeedback());
+    }
+
+    @Test
+    public void testProfileReportsToAttachedFeedback() {
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        PatternGraph pg = new PatternGraph(chainTraversal(g));
+        pg.setFeedback(feedback);
+        pg.profile(misleadingStatistics());
+        assertSame(feedback, pg.getFeedback());
+        assertTrue(feedback.size() > 0);
+    }
+}
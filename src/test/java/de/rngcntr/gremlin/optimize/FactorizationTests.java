@@ -0,0 +1,181 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.query.PlanNode;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.BranchCountStep;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.testutils.statistics.MockedStatUtils;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class FactorizationTests {
+    private GraphTraversalSource g;
+
+    /*
+        every person has many posts and many friends, so the branches of a person multiply
+     */
+    @BeforeEach
+    public void initializeGraph() {
+        Graph graph = TinkerGraph.open();
+        g = graph.traversal();
+        for (int p = 0; p < 3; ++p) {
+            Vertex person = g.addV("person").property("name", "p" + p).next();
+            for (int i = 0; i < 4 + p; ++i) {
+                Vertex post = g.addV("post").next();
+                g.addE("wrote").from(person).to(post).iterate();
+            }
+            for (int i = 0; i < 3 + p; ++i) {
+                Vertex friend = g.addV("friend").next();
+                g.addE("knows").from(person).to(friend).iterate();
+            }
+        }
+    }
+
+    /*
+        persons are rare, so they are retrieved directly and their posts and friends depend on them
+     */
+    private static StatisticsProvider statistics() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        MockedStatUtils.withTotalEstimation(stats, Vertex.class, 100_000L);
+        MockedStatUtils.withTotalEstimation(stats, Edge.class, 100_000L);
+        MockedStatUtils.withLabelEstimation(stats, "person", 3L);
+        MockedStatUtils.withLabelEstimation(stats, "post", 50_000L);
+        MockedStatUtils.withLabelEstimation(stats, "friend", 50_000L);
+        MockedStatUtils.withLabelEstimation(stats, "wrote", 50_000L);
+        MockedStatUtils.withLabelEstimation(stats, "knows", 50_000L);
+        MockedStatUtils.withConnectivityEstimation(stats, "person", "wrote", 15L);
+        MockedStatUtils.withConnectivityEstimation(stats, "wrote", "post", 15L);
+        MockedStatUtils.withConnectivityEstimation(stats, "person", "knows", 12L);
+        MockedStatUtils.withConnectivityEstimation(stats, "knows", "friend", 12L);
+        return stats;
+    }
+
+    private GraphTraversal<?,?> branchTraversal() {
+        return g.V().hasLabel("person").as("p").match(
+                __.as("p").out("wrote").hasLabel("post").as("x"),
+                __.as("p").out("knows").hasLabel("friend").as("f"));
+    }
+
+    private static long branchCountSteps(GraphTraversal<?,?> traversal) {
+        return TraversalHelper.getStepsOfAssignableClassRecursively(BranchCountStep.class, traversal.asAdmin()).size();
+    }
+
+    @Test
+    public void testUnreturnedBranchesAreFactorized() {
+        Supplier<GraphTraversal<?,?>> traversal = () -> branchTraversal().select("p");
+        GraphTraversal<?,?> optimizedTraversal = new PatternGraph(traversal.get()).optimize(statistics());
+        assertTrue(branchCountSteps(optimizedTraversal) > 0);
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(optimizedTraversal.toList()));
+    }
+
+    @Test
+    public void testReturnedBranchesAreMatched() {
+        Supplier<GraphTraversal<?,?>> traversal = () -> branchTraversal().select("p", "x", "f");
+        GraphTraversal<?,?> optimizedTraversal = new PatternGraph(traversal.get()).optimize(statistics());
+        assertEquals(0, branchCountSteps(optimizedTraversal));
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(optimizedTraversal.toList()));
+
+        // only the branch of the friends is not returned
+        traversal = () -> branchTraversal().select("p", "x");
+        optimizedTraversal = new PatternGraph(traversal.get()).optimize(statistics());
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(optimizedTraversal.toList()));
+    }
+
+    @Test
+    public void testCountIsNeverFlattened() {
+        PatternGraph pg = new PatternGraph(branchTraversal().select("p", "x", "f").count());
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(statistics());
+        assertTrue(branchCountSteps(optimizedTraversal) > 0);
+        assertEquals(branchTraversal().count().next(), optimizedTraversal.next());
+    }
+
+    @Test
+    public void testBranchesWithoutMatchesFilterTheRoot() {
+        g.addV("person").property("name", "lonely").iterate();
+        Supplier<GraphTraversal<?,?>> traversal = () -> branchTraversal().select("p");
+        GraphTraversal<?,?> optimizedTraversal = new PatternGraph(traversal.get()).optimize(statistics());
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(optimizedTraversal.toList()));
+    }
+
+    @Test
+    public void testFactorizedBranchesAreObservedCompletely() {
+        PatternGraph pg = new PatternGraph(branchTraversal().select("p"));
+        Map<Long, String> labels = new HashMap<>();
+        pg.getElements().forEach(e -> labels.put(e.getId(), e.getLabelFilter().getLabel()));
+        PlanNode root = pg.profile(statistics());
+
+        // the observed sizes of all branches sum up over all persons
+        Map<String, Long> expectedSizes = new HashMap<>();
+        expectedSizes.put("person", 3L);
+        expectedSizes.put("wrote", 15L);
+        expectedSizes.put("post", 15L);
+        expectedSizes.put("knows", 12L);
+        expectedSizes.put("friend", 12L);
+        List<PlanNode> retrievals = new ArrayList<>();
+        collectRetrievals(root, retrievals);
+        assertEquals(expectedSizes.size(), retrievals.size());
+        for (PlanNode retrieval : retrievals) {
+            long id = Long.parseLong(retrieval.getDescription().split(" ")[0]);
+            assertEquals(expectedSizes.get(labels.get(id)), retrieval.getActualSize(), retrieval.getDescription());
+        }
+
+        // a reset traversal does not carry over the counts of it's previous execution
+        pg.setFeedback(new CardinalityFeedback());
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(statistics());
+        optimizedTraversal.toList();
+        optimizedTraversal.asAdmin().reset();
+        optimizedTraversal.toList();
+        List<ObservationStep> observationSteps = TraversalHelper.getStepsOfAssignableClassRecursively(
+                ObservationStep.class, optimizedTraversal.asAdmin());
+        for (ObservationStep<?> observationStep : observationSteps) {
+            if (observationStep.getOperator() instanceof Retrieval) {
+                PatternElement<?> element = ((Retrieval<?>) observationStep.getOperator()).getElement();
+                assertEquals(expectedSizes.get(labels.get(element.getId())), observationStep.getObservedSize());
+            }
+        }
+    }
+
+    private static void collectRetrievals(PlanNode node, List<PlanNode> retrievals) {
+        if (node.getKind() == PlanNode.Kind.DIRECT_RETRIEVAL || node.getKind() == PlanNode.Kind.DEPENDENT_RETRIEVAL) {
+            retrievals.add(node);
+        }
+        node.getChildren().forEach(c -> collectRetrievals(c, retrievals));
+    }
+}
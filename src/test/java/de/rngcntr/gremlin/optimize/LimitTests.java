@@ -0,0 +1,138 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityFeedback;
+import de.rngcntr.gremlin.optimize.query.OptimizationGoal;
+import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<JoinStep> joinSteps(GraphTraversal<?,?> traversal) {
+        return TraversalHelper.getStepsOfAssignableClassRecursively(JoinStep.class, traversal.asAdmin());
+    }
+
+    @Test
+    public void testTrailingLimitIsApplied() {
+        HashMultiset<?> allResults = HashMultiset.create(chainTraversal(g).toList());
+        for (OptimizationGoal goal : OptimizationGoal.values()) {
+            PatternGraph pg = new PatternGraph(chainTraversal(g).limit(1));
+            pg.setOptimizationGoal(goal);
+            List<?> results = pg.optimize(misleadingStatistics()).toList();
+            assertEquals(1, results.size(), goal.name());
+            assertTrue(allResults.containsAll(results), goal.name());
+        }
+    }
+
+    @Test
+    public void testTrailingRangeIsApplied() {
+        HashMultiset<?> allResults = HashMultiset.create(chainTraversal(g).toList());
+
+        PatternGraph pg = new PatternGraph(chainTraversal(g).range(1, 5));
+        assertTrue(pg.hasLimit());
+        assertEquals(1, pg.getRangeLow());
+        assertEquals(5, pg.getRangeHigh());
+        List<?> results = pg.optimize(misleadingStatistics()).toList();
+        assertEquals(allResults.size() - 1, results.size());
+        assertTrue(allResults.containsAll(results));
+
+        // skipping results does not limit them
+        pg = new PatternGraph(g.V().hasLabel("person").range(1, -1));
+        assertFalse(pg.hasLimit());
+        assertEquals(OptimizationGoal.ALL_RESULTS, pg.getOptimizationGoal());
+        assertEquals(3, pg.optimize(misleadingStatistics()).toList().size());
+    }
+
+    @Test
+    public void testLimitWithoutSelect() {
+        List<?> results = new PatternGraph(g.V().hasLabel("person").out("created").limit(2))
+                .optimize(misleadingStatistics()).toList();
+        assertEquals(2, results.size());
+        assertTrue(g.V().hasLabel("person").out("created").toList().containsAll(results));
+    }
+
+    @Test
+    public void testLimitInTheMiddleIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternGraph(g.V().hasLabel("person").limit(2).out("created")));
+    }
+
+    @Test
+    public void testFirstResultsAvoidsJoins() {
+        PatternGraph limited = new PatternGraph(chainTraversal(g).limit(1));
+        assertEquals(OptimizationGoal.FIRST_RESULTS, limited.getOptimizationGoal());
+        assertTrue(joinSteps(limited.optimize(misleadingStatistics())).isEmpty());
+
+        PatternGraph unlimited = new PatternGraph(chainTraversal(g));
+        assertEquals(OptimizationGoal.ALL_RESULTS, unlimited.getOptimizationGoal());
+        assertFalse(joinSteps(unlimited.optimize(misleadingStatistics())).isEmpty());
+
+        // the goal also applies to traversals without a limit
+        HashMultiset<?> allResults = HashMultiset.create(chainTraversal(g).toList());
+        PatternGraph pipelined = new PatternGraph(chainTraversal(g));
+        pipelined.setOptimizationGoal(OptimizationGoal.FIRST_RESULTS);
+        GraphTraversal<?,?> optimizedTraversal = pipelined.optimize(misleadingStatistics());
+        assertTrue(joinSteps(optimizedTraversal).isEmpty());
+        assertEquals(allResults, HashMultiset.create(optimizedTraversal.toList()));
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testLastJoinStopsEarly() {
+        PatternGraph pg = new PatternGraph(chainTraversal(g).limit(1));
+        pg.setOptimizationGoal(OptimizationGoal.ALL_RESULTS);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(misleadingStatistics());
+        assertEquals(1, optimizedTraversal.toList().size());
+
+        List<JoinStep> joins = joinSteps(optimizedTraversal);
+        JoinStep lastJoin = joins.get(joins.size() - 1);
+        assertEquals(1, lastJoin.getLimit());
+        // the build side of the last join has not been collected completely
+        assertEquals(-1, lastJoin.getBuildSize());
+        joins.subList(0, joins.size() - 1).forEach(j -> assertEquals(-1, j.getLimit()));
+    }
+
+    @Test
+    public void testLimitedTraversalsDoNotReportFeedback() {
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 1.0, 1, TimeUnit.HOURS);
+        PatternGraph pg = new PatternGraph(chainTraversal(g).limit(1));
+        pg.setFeedback(feedback);
+        pg.optimize(misleadingStatistics()).toList();
+        assertNull(pg.getObserver());
+        assertEquals(0, feedback.size());
+    }
+}
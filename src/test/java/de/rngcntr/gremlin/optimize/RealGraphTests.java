@@ -16,13 +16,19 @@ package de.rngcntr.gremlin.optimize;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
 import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.ComputerExecutionStep;
+import de.rngcntr.gremlin.optimize.step.PartitionedScanStep;
 import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.util.JoinExecutors;
 import org.apache.tinkerpop.gremlin.process.traversal.P;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.tinkergraph.process.computer.TinkerGraphComputer;
 import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -162,7 +168,21 @@ public class RealGraphTests {
                                         __.as("b").in("created").as("c"),
                                         __.as("c").has("name", "peter")
                                 )
-                                .select("a"))
+                                .select("a")),
+                Arguments.of(4, (Function<GraphTraversalSource, GraphTraversal<?,?>>) g ->
+                        g.V().as("a")
+                                .match(
+                                        __.as("a").out("created").as("b"),
+                                        __.as("b").in("created").as("a")
+                                )),
+                Arguments.of(1, (Function<GraphTraversalSource, GraphTraversal<?,?>>) g ->
+                        g.V().as("a")
+                                .match(
+                                        __.as("a").out("knows").as("b"),
+                                        __.as("a").out("created").as("c"),
+                                        __.as("b").out("created").hasLabel("software").as("c")
+                                )
+                                .select("a", "b", "c"))
         );
     }
 
@@ -172,4 +192,59 @@ public class RealGraphTests {
         StatisticsProvider stats = mock(StatisticsProvider.class);
         assertSameResultAfterOptimization(t.apply(g), stats, numExpectedResults);
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @MethodSource("testedTraversals")
+    public void testNativeExecutionWithDefaultStatistics(int numExpectedResults, Function<GraphTraversalSource, GraphTraversal<?,?>> t){
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        Multiset<?> unoptimizedResults = HashMultiset.create(t.apply(g).toList());
+        PatternGraph pg = new PatternGraph(t.apply(g));
+        pg.setExecutionMode(ExecutionMode.NATIVE);
+        Multiset<?> nativeResults = HashMultiset.create(pg.optimize(stats).toList());
+        Assertions.assertEquals(numExpectedResults, nativeResults.size());
+        Assertions.assertEquals(unoptimizedResults, nativeResults);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testedTraversals")
+    public void testConcurrentJoinsWithDefaultStatistics(int numExpectedResults, Function<GraphTraversalSource, GraphTraversal<?,?>> t){
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        Multiset<?> unoptimizedResults = HashMultiset.create(t.apply(g).toList());
+        PatternGraph pg = new PatternGraph(t.apply(g));
+        pg.setJoinExecutor(JoinExecutors.defaultExecutor());
+        Multiset<?> concurrentResults = HashMultiset.create(pg.optimize(stats).toList());
+        Assertions.assertEquals(numExpectedResults, concurrentResults.size());
+        Assertions.assertEquals(unoptimizedResults, concurrentResults);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testedTraversals")
+    public void testPartitionedExecutionWithDefaultStatistics(int numExpectedResults, Function<GraphTraversalSource, GraphTraversal<?,?>> t){
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        Multiset<?> unoptimizedResults = HashMultiset.create(t.apply(g).toList());
+        PatternGraph pg = new PatternGraph(t.apply(g));
+        pg.setExecutionMode(ExecutionMode.PARTITIONED);
+        pg.setPartitions(3);
+        GraphTraversal<?,?> partitionedTraversal = pg.optimize(stats);
+        Assertions.assertFalse(TraversalHelper.getStepsOfAssignableClassRecursively(PartitionedScanStep.class,
+                partitionedTraversal.asAdmin()).isEmpty());
+        Multiset<?> partitionedResults = HashMultiset.create(partitionedTraversal.toList());
+        Assertions.assertEquals(numExpectedResults, partitionedResults.size());
+        Assertions.assertEquals(unoptimizedResults, partitionedResults);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testedTraversals")
+    public void testComputerExecutionWithDefaultStatistics(int numExpectedResults, Function<GraphTraversalSource, GraphTraversal<?,?>> t){
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        Multiset<?> unoptimizedResults = HashMultiset.create(t.apply(g).toList());
+        PatternGraph pg = new PatternGraph(t.apply(g));
+        pg.setExecutionMode(ExecutionMode.COMPUTER);
+        pg.setGraphComputer(TinkerGraphComputer.class);
+        GraphTraversal<?,?> computerTraversal = pg.optimize(stats);
+        Assertions.assertTrue(computerTraversal.asAdmin().getStartStep() instanceof ComputerExecutionStep);
+        Multiset<?> computerResults = HashMultiset.create(computerTraversal.toList());
+        Assertions.assertEquals(numExpectedResults, computerResults.size());
+        Assertions.assertEquals(unoptimizedResults, computerResults);
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.execution;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.ComputerExecutionStep;
+import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.util.GremlinWriter;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.process.computer.TinkerGraphComputer;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.modernStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComputerExecutorTests {
+    private Graph graph;
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        graph = TinkerFactory.createModern();
+        g = graph.traversal();
+    }
+
+    private List<Supplier<GraphTraversal<?,?>>> traversals() {
+        return Arrays.asList(
+                () -> chainTraversal(g),
+                () -> g.V().hasLabel("person").as("a")
+                        .outE("created").as("e")
+                        .inV().hasLabel("software").as("s")
+                        .in("created").hasLabel("person").as("b")
+                        .select("a", "e", "s", "b"),
+                () -> g.V().hasLabel("person").has("age", P.gt(30)).as("a")
+                        .out("created").hasLabel("software").as("s")
+                        .select("a", "s"),
+                () -> g.V().hasLabel("person").as("a").match(
+                        __.as("a").out("knows").hasLabel("person").as("b"),
+                        __.as("b").out("created").hasLabel("software").as("s"),
+                        __.as("a").out("created").as("s")));
+    }
+
+    private static GraphTraversal<?,?> optimizeOnComputer(GraphTraversal<?,?> traversal, StatisticsProvider stats) {
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.setExecutionMode(ExecutionMode.COMPUTER);
+        pg.setGraphComputer(TinkerGraphComputer.class);
+        return pg.optimize(stats);
+    }
+
+    @Test
+    public void testComputerResultsMatchUnoptimizedResults() {
+        for (Supplier<GraphTraversal<?,?>> traversal : traversals()) {
+            HashMultiset<?> expected = HashMultiset.create(traversal.get().toList());
+            assertEquals(expected, HashMultiset.create(
+                    optimizeOnComputer(traversal.get(), misleadingStatistics()).toList()));
+            assertEquals(expected, HashMultiset.create(
+                    optimizeOnComputer(traversal.get(), modernStatistics()).toList()));
+        }
+    }
+
+    @Test
+    public void testComputerExecutionReplacesJoinSteps() {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(0);
+        assertFalse(TraversalHelper.getStepsOfAssignableClassRecursively(JoinStep.class,
+                new PatternGraph(traversal.get()).optimize(misleadingStatistics()).asAdmin()).isEmpty());
+
+        GraphTraversal<?,?> computerTraversal = optimizeOnComputer(traversal.get(), misleadingStatistics());
+        assertTrue(computerTraversal.asAdmin().getStartStep() instanceof ComputerExecutionStep);
+        assertEquals(1, computerTraversal.asAdmin().getSteps().size());
+    }
+
+    @Test
+    public void testTrailingStepsAreApplied() {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(1);
+        HashMultiset<?> allResults = HashMultiset.create(traversal.get().toList());
+
+        List<?> limited = optimizeOnComputer(traversal.get().limit(2), misleadingStatistics()).toList();
+        assertEquals(2, limited.size());
+        assertTrue(allResults.containsAll(limited));
+
+        assertEquals((long) allResults.size(),
+                optimizeOnComputer(traversal.get().count(), misleadingStatistics()).next());
+    }
+
+    private static PlanVertexProgram compileProgram(GraphTraversal<?,?> traversal, StatisticsProvider stats,
+                                                    Vertex hub) {
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.explain(stats);
+        PartialQueryPlan plan = GremlinWriter.buildPlan(pg, null);
+        Map<PatternElement<?>, Integer> slots = new HashMap<>();
+        plan.getElements().forEach(e -> slots.put(e, slots.size()));
+        return new PlanVertexProgram(plan, slots, hub);
+    }
+
+    @Test
+    public void testResultsStayAtTheVertices() throws Exception {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(1);
+        PlanVertexProgram program = compileProgram(traversal.get(), misleadingStatistics(), g.V().next());
+        Graph resultGraph = graph.compute(TinkerGraphComputer.class).program(program).submit().get().graph();
+
+        // the joined tuples are kept by the software vertices that they were joined at
+        Map<Object, Long> resultsPerVertex = new HashMap<>();
+        resultGraph.vertices().forEachRemaining(v -> {
+            long results = IteratorUtils.count(PlanVertexProgram.results(v));
+            if (results > 0) {
+                resultsPerVertex.put(v.id(), results);
+            }
+        });
+        assertEquals((long) traversal.get().toList().size(), resultsPerVertex.values().stream().mapToLong(l -> l).sum());
+        assertTrue(resultsPerVertex.size() > 1);
+        assertFalse(graph.vertices().next().keys().contains(PlanVertexProgram.RESULTS));
+    }
+
+    @Test
+    public void testPlanVertexProgramStateCanBeRestored() {
+        PlanVertexProgram program = compileProgram(traversals().get(3).get(), misleadingStatistics(), g.V().next());
+
+        Configuration configuration = new BaseConfiguration();
+        program.storeState(configuration);
+        PlanVertexProgram restored = VertexProgram.createVertexProgram(graph, configuration);
+        assertEquals(program.toString(), restored.toString());
+    }
+
+    @Test
+    public void testEmptyGraphHasNoResults() {
+        g.V().drop().iterate();
+        assertFalse(optimizeOnComputer(traversals().get(0).get(), misleadingStatistics()).hasNext());
+    }
+}
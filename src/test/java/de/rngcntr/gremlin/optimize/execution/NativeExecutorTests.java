@@ -0,0 +1,179 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package de.rngcntr.gremlin.optimize.execution;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.query.ExecutionMode;
+import de.rngcntr.gremlin.optimize.query.PartialQueryPlan;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.step.JoinStep;
+import de.rngcntr.gremlin.optimize.step.NativeExecutionStep;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.util.GremlinWriter;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.chainTraversal;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.misleadingStatistics;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.modernStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeExecutorTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    private List<Supplier<GraphTraversal<?,?>>> traversals() {
+        return Arrays.asList(
+                () -> chainTraversal(g),
+                () -> g.V().hasLabel("person").as("a")
+                        .outE("created").as("e")
+                        .inV().hasLabel("software").as("s")
+                        .in("created").hasLabel("person").as("b")
+                        .select("a", "e", "s", "b"),
+                () -> g.V().hasLabel("person").has("age", P.gt(30)).as("a")
+                        .out("created").hasLabel("software").as("s")
+                        .select("a", "s"),
+                () -> g.V().hasLabel("person").as("a").match(
+                        __.as("a").out("knows").hasLabel("person").as("b"),
+                        __.as("b").out("created").hasLabel("software").as("s"),
+                        __.as("a").out("created").as("s")));
+    }
+
+    private static GraphTraversal<?,?> optimizeNatively(GraphTraversal<?,?> traversal, StatisticsProvider stats) {
+        PatternGraph pg = new PatternGraph(traversal);
+        pg.setExecutionMode(ExecutionMode.NATIVE);
+        return pg.optimize(stats);
+    }
+
+    @Test
+    public void testNativeResultsMatchUnoptimizedResults() {
+        for (Supplier<GraphTraversal<?,?>> traversal : traversals()) {
+            HashMultiset<?> expected = HashMultiset.create(traversal.get().toList());
+            assertEquals(expected, HashMultiset.create(optimizeNatively(traversal.get(), misleadingStatistics()).toList()));
+            assertEquals(expected, HashMultiset.create(
+                    optimizeNatively(traversal.get(), modernStatistics()).toList()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 64})
+    public void testBatchedResultsMatchUnoptimizedResults(int batchSize) {
+        for (Supplier<GraphTraversal<?,?>> traversal : traversals()) {
+            HashMultiset<?> expected = HashMultiset.create(traversal.get().toList());
+            for (StatisticsProvider stats : Arrays.asList(misleadingStatistics(), modernStatistics())) {
+                PatternGraph pg = new PatternGraph(traversal.get());
+                pg.setExecutionMode(ExecutionMode.NATIVE);
+                pg.setBatchSize(batchSize);
+                assertEquals(expected, HashMultiset.create(pg.optimize(stats).toList()));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBatchSizeIsRejected() {
+        PatternGraph pg = new PatternGraph(traversals().get(0).get());
+        assertThrows(IllegalArgumentException.class, () -> pg.setBatchSize(0));
+    }
+
+    @Test
+    public void testNativeExecutionReplacesPatternSteps() {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(0);
+        assertFalse(TraversalHelper.getStepsOfAssignableClassRecursively(JoinStep.class,
+                new PatternGraph(traversal.get()).optimize(misleadingStatistics()).asAdmin()).isEmpty());
+
+        GraphTraversal<?,?> nativeTraversal = optimizeNatively(traversal.get(), misleadingStatistics());
+        assertTrue(nativeTraversal.asAdmin().getStartStep() instanceof NativeExecutionStep);
+        assertEquals(1, nativeTraversal.asAdmin().getSteps().size());
+    }
+
+    @Test
+    public void testTrailingStepsAreApplied() {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(1);
+        HashMultiset<?> allResults = HashMultiset.create(traversal.get().toList());
+
+        List<?> limited = optimizeNatively(traversal.get().limit(2), misleadingStatistics()).toList();
+        assertEquals(2, limited.size());
+        assertTrue(allResults.containsAll(limited));
+
+        assertEquals((long) allResults.size(),
+                optimizeNatively(traversal.get().count(), misleadingStatistics()).next());
+    }
+
+    @Test
+    public void testNativeTraversalCanBeIteratedAgain() {
+        GraphTraversal<?,?> nativeTraversal = optimizeNatively(traversals().get(0).get(), misleadingStatistics());
+        GraphTraversal<?,?> clone = nativeTraversal.asAdmin().clone();
+        assertEquals(HashMultiset.create(nativeTraversal.toList()), HashMultiset.create(clone.toList()));
+    }
+
+    @Test
+    public void testJoinsAreCollectedForEachExecution() {
+        Supplier<GraphTraversal<?,?>> traversal = traversals().get(0);
+        GraphTraversal<?,?> nativeTraversal = optimizeNatively(traversal.get(), misleadingStatistics());
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(nativeTraversal.toList()));
+
+        // the inner side of the join must not be reused by the next execution
+        Vertex marko = g.V().has("name", "marko").next();
+        Vertex peter = g.V().has("name", "peter").next();
+        g.addE("knows").from(marko).to(peter).iterate();
+        nativeTraversal.asAdmin().reset();
+        assertEquals(HashMultiset.create(traversal.get().toList()), HashMultiset.create(nativeTraversal.toList()));
+    }
+
+    @Test
+    public void testBatchedScansAreStreamed() {
+        PatternGraph pg = new PatternGraph(g.V().hasLabel("person").has("age", P.gt(30)).as("a").select("a"));
+        pg.explain(modernStatistics());
+        PartialQueryPlan plan = GremlinWriter.buildPlan(pg, null);
+
+        // the scan of all vertices is only consumed until the first match
+        AtomicInteger scanned = new AtomicInteger();
+        Graph graph = Mockito.mock(Graph.class);
+        Mockito.when(graph.vertices()).thenAnswer(invocation -> IteratorUtils.map(g.getGraph().vertices(), v -> {
+            scanned.incrementAndGet();
+            return v;
+        }));
+        NativeExecutor executor = new NativeExecutor(graph, pg.getElements(), pg.getElementsToReturn(), plan, 2);
+        Iterator<Object> results = executor.execute();
+        assertTrue(results.hasNext());
+        assertEquals(4, scanned.get());
+
+        assertEquals(HashMultiset.create(g.V().hasLabel("person").has("age", P.gt(30)).toList()),
+                HashMultiset.create(IteratorUtils.list(results)));
+    }
+}
@@ -0,0 +1,216 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.feedback;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.structure.PatternVertex;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.overestimatedCreatorStatistics;
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.overestimatedPersonStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardinalityFeedbackTests {
+
+    private static final Ticker FROZEN_TICKER = new Ticker() {
+        @Override
+        public long read() {
+            return 0L;
+        }
+    };
+
+    private static PatternVertex vertex(String label) {
+        PatternVertex v = new PatternVertex();
+        v.setLabelFilter(new LabelFilter<>(Vertex.class, label));
+        return v;
+    }
+
+    @Test
+    public void testUnknownKey() {
+        CardinalityFeedback feedback = new CardinalityFeedback();
+        assertEquals(1.0, feedback.getCorrection(FeedbackKey.direct(vertex("A"))));
+        assertEquals(0, feedback.size());
+    }
+
+    @Test
+    public void testKeysDependOnFiltersOnly() {
+        assertEquals(FeedbackKey.direct(vertex("A")), FeedbackKey.direct(vertex("A")));
+        assertNotEquals(FeedbackKey.direct(vertex("A")), FeedbackKey.direct(vertex("B")));
+        assertEquals(FeedbackKey.dependent(vertex("A"), vertex("B"), Direction.OUT),
+                FeedbackKey.dependent(vertex("A"), vertex("B"), Direction.OUT));
+        assertNotEquals(FeedbackKey.dependent(vertex("A"), vertex("B"), Direction.OUT),
+                FeedbackKey.dependent(vertex("A"), vertex("B"), Direction.IN));
+        assertNotEquals(FeedbackKey.direct(vertex("A")), FeedbackKey.dependent(vertex("A"), vertex("B"), Direction.OUT));
+    }
+
+    @Test
+    public void testSmoothing() {
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 0.5, 1, TimeUnit.HOURS, FROZEN_TICKER);
+        FeedbackKey key = FeedbackKey.direct(vertex("A"));
+
+        feedback.observe(key, 10, 1000);
+        assertEquals(100.0, feedback.getCorrection(key), 1e-6);
+
+        // the second observation is weighted geometrically with the first one
+        feedback.observe(key, 10, 10);
+        assertEquals(10.0, feedback.getCorrection(key), 1e-6);
+    }
+
+    @Test
+    public void testLimits() {
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 0.5, 1, TimeUnit.HOURS, FROZEN_TICKER);
+
+        feedback.observe(FeedbackKey.direct(vertex("A")), Retrieval.IMPOSSIBLE, 10);
+        assertEquals(0, feedback.size());
+
+        feedback.observe(FeedbackKey.direct(vertex("A")), 0.1, 0);
+        assertEquals(1.0, feedback.getCorrection(FeedbackKey.direct(vertex("A"))), 1e-6);
+
+        feedback.observe(FeedbackKey.direct(vertex("B")), 1, 1e12);
+        assertEquals(1e6, feedback.getCorrection(FeedbackKey.direct(vertex("B"))), 1e-3);
+    }
+
+    @Test
+    public void testDecay() {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 1.0, 1, TimeUnit.MINUTES, ticker);
+        FeedbackKey key = FeedbackKey.direct(vertex("A"));
+
+        feedback.observe(key, 1, 100);
+        assertEquals(100.0, feedback.getCorrection(key), 1e-6);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals(10.0, feedback.getCorrection(key), 1e-6);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertEquals(Math.sqrt(10.0), feedback.getCorrection(key), 1e-6);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        CardinalityFeedback feedback = new CardinalityFeedback(10, 0.5, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 100; ++i) {
+            feedback.observe(FeedbackKey.direct(vertex("A" + i)), 1, 2);
+        }
+        assertTrue(feedback.size() <= 10);
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new CardinalityFeedback(10, 0.0, 1, TimeUnit.HOURS));
+        assertThrows(IllegalArgumentException.class, () -> new CardinalityFeedback(10, 0.5, 0, TimeUnit.HOURS));
+    }
+
+    @Test
+    public void testEstimationsAreCorrectedByExecutions() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        GraphTraversal<?,?> traversal = g.V().hasLabel("person").as("a")
+                .out("created").hasLabel("software").as("b")
+                .select("a", "b");
+        List<?> unoptimizedResults = traversal.asAdmin().clone().toList();
+
+        // the number of persons is overestimated by a factor of 100
+        StatisticsProvider stats = overestimatedPersonStatistics();
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 1.0, 1, TimeUnit.HOURS, FROZEN_TICKER);
+
+        PatternGraph firstPattern = new PatternGraph(traversal.asAdmin().clone());
+        firstPattern.setFeedback(feedback);
+        GraphTraversal<?,?> optimizedTraversal = firstPattern.optimize(stats);
+        assertEquals(400.0, directRetrievalOf(firstPattern, "person").getEstimatedSize(), 1e-6);
+        assertEquals(0, feedback.size());
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+        assertTrue(feedback.size() > 0);
+
+        PatternGraph secondPattern = new PatternGraph(traversal.asAdmin().clone());
+        secondPattern.setFeedback(feedback);
+        optimizedTraversal = secondPattern.optimize(stats);
+        Retrieval<?> corrected = directRetrievalOf(secondPattern, "person");
+        assertEquals(400.0, corrected.getUncorrectedEstimatedSize(), 1e-6);
+        assertEquals(4.0, corrected.getEstimatedSize(), 1e-6);
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+    }
+
+    @Test
+    public void testDependentCorrectionsExcludeTheirSourcesMisestimation() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        GraphTraversal<?,?> traversal = g.V().hasLabel("person").as("a")
+                .outE("created").hasLabel("created").as("e")
+                .inV().hasLabel("software").as("b")
+                .select("a", "e", "b");
+
+        // only the number of persons is overestimated, each person is estimated to have created one software
+        StatisticsProvider stats = overestimatedCreatorStatistics();
+        CardinalityFeedback feedback = new CardinalityFeedback(100, 1.0, 1, TimeUnit.HOURS, FROZEN_TICKER);
+
+        PatternGraph firstPattern = new PatternGraph(traversal.asAdmin().clone());
+        firstPattern.setFeedback(feedback);
+        firstPattern.optimize(stats).iterate();
+        assertEquals(0.01, feedback.getCorrection(directRetrievalOf(firstPattern, "person").getFeedbackKey()), 1e-6);
+
+        // the dependent retrievals were estimated correctly for the persons that were actually found
+        PatternGraph secondPattern = new PatternGraph(traversal.asAdmin().clone());
+        secondPattern.setFeedback(feedback);
+        secondPattern.optimize(stats);
+        for (String label : new String[]{"created", "software"}) {
+            Retrieval<?> dependent = bestRetrievalOf(secondPattern, label);
+            assertTrue(dependent instanceof DependentRetrieval, label);
+            assertEquals(1.0, feedback.getCorrection(dependent.getFeedbackKey()), 1e-6, label);
+            assertEquals(4.0, dependent.getEstimatedSize(), 1e-6, label);
+        }
+    }
+
+    private static Retrieval<?> bestRetrievalOf(PatternGraph pg, String label) {
+        for (PatternElement<?> element : pg.getElements()) {
+            if (element.hasLabelFilter() && label.equals(element.getLabelFilter().getLabel())) {
+                return element.getBestRetrieval();
+            }
+        }
+        throw new IllegalArgumentException("No element with label " + label);
+    }
+
+    private static Retrieval<?> directRetrievalOf(PatternGraph pg, String label) {
+        for (PatternElement<?> element : pg.getElements()) {
+            if (element.hasLabelFilter() && label.equals(element.getLabelFilter().getLabel())) {
+                for (Retrieval<?> retrieval : element.getRetrievals()) {
+                    if (retrieval instanceof DirectRetrieval) {
+                        return retrieval;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("No direct retrieval for " + label);
+    }
+}
@@ -18,6 +18,7 @@ import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -28,7 +29,9 @@ import org.mockito.Mockito;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LabelFilterTests {
 
@@ -60,6 +63,9 @@ public class LabelFilterTests {
 
         assertEquals(equal, a.equals(b));
         assertEquals(equal, b.equals(a));
+        if (equal) {
+            assertEquals(a.hashCode(), b.hashCode());
+        }
     }
 
     private static Stream<Arguments> provideSampleFiltersForEqualsCheck() {
@@ -99,4 +105,13 @@ public class LabelFilterTests {
         Mockito.verify(t, Mockito.times(1)).hasLabel(testLabel);
         Mockito.verifyNoMoreInteractions(t);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTestOnElement() {
+        Vertex marko = TinkerFactory.createModern().traversal().V().has("name", "marko").next();
+
+        assertTrue(new LabelFilter<>(Vertex.class, "person").test(marko));
+        assertFalse(new LabelFilter<>(Vertex.class, "software").test(marko));
+        assertTrue(LabelFilter.empty(Vertex.class).test(marko));
+    }
+}
@@ -19,6 +19,8 @@ import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -34,6 +36,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PropertyFilterTests {
 
@@ -65,6 +69,9 @@ public class PropertyFilterTests {
 
         assertEquals(equal, a.equals(b));
         assertEquals(equal, b.equals(a));
+        if (equal) {
+            assertEquals(a.hashCode(), b.hashCode());
+        }
     }
 
     private static Stream<Arguments> provideSampleFiltersForEqualsCheck() {
@@ -115,4 +122,13 @@ public class PropertyFilterTests {
         Mockito.verify(t, Mockito.times(1)).has(testKey, testPredicate);
         Mockito.verifyNoMoreInteractions(t);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTestOnElement() {
+        Vertex marko = TinkerFactory.createModern().traversal().V().has("name", "marko").next();
+
+        assertTrue(new PropertyFilter<>(Vertex.class, "age", P.gt(20)).test(marko));
+        assertFalse(new PropertyFilter<>(Vertex.class, "age", P.gt(30)).test(marko));
+        assertFalse(new PropertyFilter<>(Vertex.class, "lang", P.eq("java")).test(marko));
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.log;
+
+import com.google.common.collect.HashMultiset;
+import org.apache.tinkerpop.gremlin.jsr223.JavaTranslator;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryLogTests {
+    private GraphTraversalSource g;
+
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerFactory.createModern().traversal();
+    }
+
+    private List<GraphTraversal<?,?>> traversals() {
+        return Arrays.asList(
+                g.V().hasLabel("person").has("age", P.lt(30)).as("a")
+                        .out("knows").as("b")
+                        .select("a", "b"),
+                g.V().as("a")
+                        .match(
+                                __.as("a").out("created").as("b"),
+                                __.as("b").in("created").as("a")
+                        ));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (QueryLogWriter writer = new QueryLogWriter(bytes)) {
+            for (GraphTraversal<?,?> traversal : traversals()) {
+                assertFalse(writer.execute(traversal).isEmpty());
+            }
+            writer.record(g.V().count().asAdmin().getBytecode(), 42L, 1000L);
+        }
+
+        List<QueryLogEntry> entries;
+        try (QueryLogReader reader = new QueryLogReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            entries = reader.readAll();
+        }
+
+        assertEquals(3, entries.size());
+        List<GraphTraversal<?,?>> expected = traversals();
+        for (int i = 0; i < expected.size(); ++i) {
+            QueryLogEntry entry = entries.get(i);
+            assertEquals(expected.get(i).asAdmin().getBytecode(), entry.getBytecode());
+            assertTrue(entry.getDurationNanos() > 0);
+            assertTrue(entry.getTimestampMillis() > 0);
+            Traversal.Admin<?,?> replayed = JavaTranslator.of(g).translate(entry.getBytecode());
+            assertEquals(HashMultiset.create(expected.get(i).toList()), HashMultiset.create(replayed.toList()));
+        }
+        assertEquals(42L, entries.get(2).getTimestampMillis());
+        assertEquals(1000L, entries.get(2).getDurationNanos());
+    }
+
+    @Test
+    public void testEmptyLog() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new QueryLogWriter(bytes).close();
+        try (QueryLogReader reader = new QueryLogReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testInvalidHeader() {
+        assertThrows(IOException.class, () -> new QueryLogReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+        assertThrows(IOException.class, () -> new QueryLogReader(new ByteArrayInputStream(new byte[0])));
+    }
+}
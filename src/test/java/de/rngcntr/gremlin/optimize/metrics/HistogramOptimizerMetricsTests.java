@@ -0,0 +1,125 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.modernStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramOptimizerMetricsTests {
+
+    @Test
+    public void testEmptyHistogram() {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LogHistogram histogram = new LogHistogram();
+        for (long value = 1; value <= 100; ++value) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testLargeValuesHaveBoundedError() {
+        for (long value : new long[]{128, 1_000, 123_456, 987_654_321, Long.MAX_VALUE / 3}) {
+            LogHistogram histogram = new LogHistogram();
+            histogram.record(value);
+            histogram.record(Long.MAX_VALUE);
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value);
+            assertTrue(reported <= value + value / 50, String.valueOf(value));
+            assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        }
+    }
+
+    @Test
+    public void testInvalidValues() {
+        LogHistogram histogram = new LogHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    @Test
+    public void testReset() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        histogram.record(7);
+        assertEquals(7, histogram.getMin());
+        assertEquals(7, histogram.getMax());
+    }
+
+    @Test
+    public void testNoOpIsDisabled() {
+        OptimizerMetrics metrics = NoOpOptimizerMetrics.instance();
+        assertFalse(metrics.isEnabled());
+        assertEquals(0L, metrics.startPhase());
+    }
+
+    @Test
+    public void testOptimizationIsRecorded() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        HistogramOptimizerMetrics metrics = new HistogramOptimizerMetrics();
+        StatisticsProvider stats = modernStatistics();
+
+        for (int i = 0; i < 3; ++i) {
+            PatternGraph pg = new PatternGraph(g.V().hasLabel("person").as("a")
+                    .out("created").hasLabel("software").as("b")
+                    .select("a", "b"), metrics);
+            pg.optimize(stats).toList();
+        }
+
+        for (OptimizerMetrics.Phase phase : OptimizerMetrics.Phase.values()) {
+            assertEquals(3, metrics.getPhaseDurations(phase).getCount(), phase.toString());
+        }
+        assertEquals(2, metrics.getPatternVertices().getMax());
+        assertEquals(1, metrics.getPatternEdges().getMax());
+        assertEquals(3, metrics.getEstimationIterations().getCount());
+        assertTrue(metrics.getEstimationIterations().getMin() >= 3);
+
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        metrics.dump(new PrintStream(dump));
+        for (OptimizerMetrics.Phase phase : OptimizerMetrics.Phase.values()) {
+            assertTrue(dump.toString().contains(phase.toString()));
+        }
+
+        metrics.reset();
+        assertEquals(0, metrics.getPhaseDurations(OptimizerMetrics.Phase.PARSE).getCount());
+    }
+}
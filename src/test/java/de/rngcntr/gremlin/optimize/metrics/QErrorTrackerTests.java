@@ -0,0 +1,176 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.metrics;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.feedback.CardinalityObserver;
+import de.rngcntr.gremlin.optimize.feedback.FeedbackKey;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.step.ObservationStep;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.structure.PatternVertex;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.overestimatedPersonStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QErrorTrackerTests {
+
+    private static PatternVertex vertex(String label) {
+        PatternVertex v = new PatternVertex();
+        v.setLabelFilter(new LabelFilter<>(Vertex.class, label));
+        return v;
+    }
+
+    private static GraphTraversal<?,?> createdSoftware(GraphTraversalSource g) {
+        return g.V().hasLabel("person").as("a")
+                .out("created").hasLabel("software").as("b")
+                .select("a", "b");
+    }
+
+    @Test
+    public void testSampledTraversalsRecordQErrors() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        GraphTraversal<?,?> traversal = createdSoftware(g);
+        List<?> unoptimizedResults = traversal.asAdmin().clone().toList();
+        QErrorTracker tracker = new QErrorTracker(1.0, 1, TimeUnit.MINUTES);
+
+        PatternGraph pg = new PatternGraph(traversal.asAdmin().clone());
+        pg.setQErrorTracker(tracker);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(overestimatedPersonStatistics());
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+
+        QueryFingerprint fingerprint = QueryFingerprint.of(traversal.asAdmin().getBytecode());
+        assertEquals(1, tracker.getQueries().size());
+        Map<FeedbackKey, QErrorHistogram> histograms = tracker.getHistograms(fingerprint);
+        assertFalse(histograms.isEmpty());
+
+        // 400 persons are estimated while there are only 4
+        QErrorHistogram persons = histograms.get(FeedbackKey.direct(vertex("person")));
+        assertNotNull(persons);
+        assertEquals(1, persons.getCount());
+        assertEquals(100.0, persons.getValueAtPercentile(50), 100.0 * 0.2);
+    }
+
+    @Test
+    public void testUnsampledTraversalsAreNotObserved() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        QErrorTracker tracker = new QErrorTracker(0.0, 1, TimeUnit.MINUTES);
+
+        PatternGraph pg = new PatternGraph(createdSoftware(g));
+        pg.setQErrorTracker(tracker);
+        GraphTraversal<?,?> optimizedTraversal = pg.optimize(overestimatedPersonStatistics());
+        assertNull(pg.getObserver());
+        assertTrue(TraversalHelper.getStepsOfAssignableClassRecursively(ObservationStep.class,
+                optimizedTraversal.asAdmin()).isEmpty());
+        optimizedTraversal.toList();
+        assertTrue(tracker.getQueries().isEmpty());
+    }
+
+    @Test
+    public void testFingerprintIgnoresValues() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        QueryFingerprint marko = QueryFingerprint.of(g.V().has("person", "name", "marko")
+                .out("knows").has("age", P.gt(30)).as("a").select("a").asAdmin().getBytecode());
+        QueryFingerprint josh = QueryFingerprint.of(g.V().has("person", "name", "josh")
+                .out("knows").has("age", P.gt(20)).as("a").select("a").asAdmin().getBytecode());
+        QueryFingerprint otherPredicate = QueryFingerprint.of(g.V().has("person", "name", "josh")
+                .out("knows").has("age", P.lt(20)).as("a").select("a").asAdmin().getBytecode());
+        QueryFingerprint otherLabel = QueryFingerprint.of(g.V().has("person", "name", "josh")
+                .out("created").has("age", P.gt(20)).as("a").select("a").asAdmin().getBytecode());
+
+        assertEquals(marko, josh);
+        assertEquals(marko.getId(), josh.getId());
+        assertNotEquals(marko, otherPredicate);
+        assertNotEquals(marko, otherLabel);
+        assertFalse(marko.getText().contains("marko"));
+
+        QueryFingerprint nestedMarko = QueryFingerprint.of(g.V().match(
+                __.as("a").has("name", "marko"), __.as("a").out().as("b")).asAdmin().getBytecode());
+        QueryFingerprint nestedJosh = QueryFingerprint.of(g.V().match(
+                __.as("a").has("name", "josh"), __.as("a").out().as("b")).asAdmin().getBytecode());
+        assertEquals(nestedMarko, nestedJosh);
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        QErrorHistogram histogram = new QErrorHistogram(TimeUnit.MINUTES.toNanos(1), Ticker.systemTicker());
+        assertEquals(0, histogram.getCount());
+        assertEquals(1.0, histogram.getValueAtPercentile(90));
+
+        for (int i = 0; i < 90; ++i) {
+            histogram.record(1.0);
+        }
+        for (int i = 0; i < 10; ++i) {
+            histogram.record(1000.0);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1.0, histogram.getValueAtPercentile(90), 0.2);
+        assertEquals(1000.0, histogram.getValueAtPercentile(91), 1000.0 * 0.2);
+        assertEquals(1000.0, histogram.getValueAtPercentile(100), 1000.0 * 0.2);
+
+        histogram.record(1e300);
+        assertTrue(histogram.getValueAtPercentile(100) >= 1 << 20);
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(Double.NaN));
+    }
+
+    @Test
+    public void testRollingWindows() {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        QErrorTracker tracker = new QErrorTracker(1.0, 1, TimeUnit.MINUTES, 10, ticker);
+        QueryFingerprint fingerprint = QueryFingerprint.of(__.V().asAdmin().getBytecode());
+        FeedbackKey key = FeedbackKey.direct(vertex("A"));
+        CardinalityObserver observer = tracker.observerFor(fingerprint);
+
+        observer.observe(key, 1, 100);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        observer.observe(key, 10, 10);
+        QErrorHistogram histogram = tracker.getHistograms(fingerprint).get(key);
+        assertEquals(2, histogram.getCount());
+
+        // the first q-error was recorded in the previous window, which is dropped now
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(1, histogram.getCount());
+        assertEquals(1.0, histogram.getValueAtPercentile(100), 0.2);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void testInvalidSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> new QErrorTracker(1.5, 1, TimeUnit.MINUTES));
+        assertThrows(IllegalArgumentException.class, () -> new QErrorTracker(Double.NaN, 1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import com.google.common.collect.HashMultiset;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.structure.PatternGraph;
+import de.rngcntr.gremlin.optimize.testutils.statistics.LatencyStatisticsProvider;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static de.rngcntr.gremlin.optimize.testutils.ModernGraphUtils.modernStatistics;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchedStatisticsTests {
+
+    @Test
+    public void testDefaultBatchImplementation() {
+        StatisticsProvider stats = modernStatistics();
+        List<StatisticsRequest> requests = Arrays.asList(
+                StatisticsRequest.totals(Vertex.class),
+                StatisticsRequest.withLabel(new LabelFilter<>(Edge.class, "created")),
+                StatisticsRequest.connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "created")));
+        Map<StatisticsRequest, CompletableFuture<Double>> answers = stats.estimateAll(requests);
+        assertEquals(3, answers.size());
+        assertEquals(6, answers.get(requests.get(0)).join());
+        assertEquals(4, answers.get(requests.get(1)).join());
+        assertEquals(4, answers.get(requests.get(2)).join());
+    }
+
+    @Test
+    public void testPrefetchUsesSingleBatch() {
+        LatencyStatisticsProvider remoteStats = new LatencyStatisticsProvider(modernStatistics(), 20);
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.perOptimization(remoteStats);
+        List<StatisticsRequest> requests = Arrays.asList(
+                StatisticsRequest.totals(Vertex.class),
+                StatisticsRequest.totals(Edge.class),
+                StatisticsRequest.withLabel(new LabelFilter<>(Vertex.class, "person")));
+        cachingStats.prefetch(requests);
+        cachingStats.prefetch(requests);
+
+        assertEquals(4, cachingStats.withLabel(new LabelFilter<>(Vertex.class, "person")));
+        assertEquals(6, cachingStats.totals(Edge.class));
+        assertEquals(1, remoteStats.getBatchCalls());
+        assertEquals(0, remoteStats.getScalarCalls());
+    }
+
+    @Test
+    public void testFailedBatchFallsBackToScalarRequests() {
+        StatisticsProvider stats = new LatencyStatisticsProvider(modernStatistics(), 0) {
+            @Override
+            public Map<StatisticsRequest, CompletableFuture<Double>> estimateAll(Collection<StatisticsRequest> requests) {
+                CompletableFuture<Double> failure = new CompletableFuture<>();
+                failure.completeExceptionally(new IllegalStateException("unavailable"));
+                return Collections.singletonMap(StatisticsRequest.totals(Vertex.class), failure);
+            }
+        };
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.perOptimization(stats);
+        cachingStats.prefetch(Collections.singleton(StatisticsRequest.totals(Vertex.class)));
+        assertEquals(6, cachingStats.totals(Vertex.class));
+    }
+
+    @Test
+    public void testOptimizationFetchesStatisticsInOneRoundTrip() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        GraphTraversal<?,?> traversal = g.V().hasLabel("person").as("a")
+                .out("created").hasLabel("software").as("b")
+                .select("a", "b");
+        List<?> unoptimizedResults = traversal.asAdmin().clone().toList();
+
+        LatencyStatisticsProvider remoteStats = new LatencyStatisticsProvider(modernStatistics(), 20);
+        GraphTraversal<?,?> optimizedTraversal = new PatternGraph(traversal).optimize(remoteStats);
+
+        assertEquals(1, remoteStats.getBatchCalls());
+        assertEquals(0, remoteStats.getScalarCalls());
+        assertEquals(HashMultiset.create(unoptimizedResults), HashMultiset.create(optimizedTraversal.toList()));
+    }
+}
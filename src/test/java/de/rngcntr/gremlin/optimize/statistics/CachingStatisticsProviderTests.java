@@ -0,0 +1,110 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import com.google.common.base.Ticker;
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.rngcntr.gremlin.optimize.testutils.statistics.MockedStatUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CachingStatisticsProviderTests {
+
+    @Test
+    public void testRequestInterning() {
+        assertSame(StatisticsRequest.withLabel(new LabelFilter<>(Vertex.class, "A")),
+                StatisticsRequest.withLabel(new LabelFilter<>(Vertex.class, "A")));
+        assertSame(StatisticsRequest.withProperty(new LabelFilter<>(Vertex.class, "A"), new PropertyFilter<>(Vertex.class, "k", P.eq(1))),
+                StatisticsRequest.withProperty(new LabelFilter<>(Vertex.class, "A"), new PropertyFilter<>(Vertex.class, "k", P.eq(1))));
+        assertNotEquals(StatisticsRequest.withLabel(new LabelFilter<>(Vertex.class, "A")),
+                StatisticsRequest.withLabel(new LabelFilter<>(Edge.class, "A")));
+        assertNotEquals(StatisticsRequest.totals(Vertex.class), StatisticsRequest.totals(Edge.class));
+    }
+
+    @Test
+    public void testMemoization() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        withLabelEstimation(stats, "A", 5.0);
+        withConnectivityEstimation(stats, "A", "B", 7.0);
+
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.perOptimization(stats);
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(5.0, cachingStats.withLabel(new LabelFilter<>(Vertex.class, "A")));
+            assertEquals(7.0, cachingStats.connections(new LabelFilter<>(Vertex.class, "A"), new LabelFilter<>(Edge.class, "B")));
+        }
+
+        verify(stats, times(1)).withLabel(any());
+        verify(stats, times(1)).connections(any(), any());
+        assertEquals(2, cachingStats.getCacheStats().missCount());
+        assertEquals(18, cachingStats.getCacheStats().hitCount());
+        assertEquals(0.9, cachingStats.getCacheStats().hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testDistinctFilters() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        withLabelEstimation(stats, "A", 5.0);
+        withLabelEstimation(stats, "B", 3.0);
+
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.perOptimization(stats);
+        assertEquals(5.0, cachingStats.withLabel(new LabelFilter<>(Vertex.class, "A")));
+        assertEquals(3.0, cachingStats.withLabel(new LabelFilter<>(Vertex.class, "B")));
+        assertEquals(5.0, cachingStats.withLabel(new LabelFilter<>(Edge.class, "A")));
+        verify(stats, times(3)).withLabel(any());
+    }
+
+    @Test
+    public void testTimeToLive() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        withTotalEstimation(stats, Vertex.class, 10.0);
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.shared(stats, 1, TimeUnit.MINUTES, 100, ticker);
+        cachingStats.totals(Vertex.class);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        cachingStats.totals(Vertex.class);
+        verify(stats, times(1)).totals(any());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals(10.0, cachingStats.totals(Vertex.class));
+        verify(stats, times(2)).totals(any());
+    }
+
+    @Test
+    public void testInvalidation() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        CachingStatisticsProvider cachingStats = CachingStatisticsProvider.perOptimization(stats);
+        cachingStats.totals(Edge.class);
+        cachingStats.invalidateAll();
+        cachingStats.totals(Edge.class);
+        verify(stats, times(2)).totals(any());
+    }
+}
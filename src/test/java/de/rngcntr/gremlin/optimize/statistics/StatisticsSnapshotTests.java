@@ -0,0 +1,182 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.statistics;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.testutils.statistics.GraphStatisticsProvider;
+import de.rngcntr.gremlin.optimize.testutils.statistics.LatencyStatisticsProvider;
+import de.rngcntr.gremlin.optimize.testutils.statistics.MockedStatUtils;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatisticsSnapshotTests {
+
+    private static StatisticsSnapshot createSnapshot() {
+        StatisticsSnapshot.Builder builder = StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 4)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 2)
+                .withLabel(new LabelFilter<>(Edge.class, "knows"), 2)
+                .withProperty(new LabelFilter<>(Vertex.class, "person"),
+                        new PropertyFilter<>(Vertex.class, "name", P.eq("marko")), 1)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "knows"), 2)
+                .connections(LabelFilter.empty(Vertex.class), LabelFilter.empty(Edge.class), 6);
+        for (int i = 0; i < 1000; ++i) {
+            builder.withLabel(new LabelFilter<>(Vertex.class, "generated" + i), i);
+        }
+        return builder.build();
+    }
+
+    private static void assertSnapshotContents(StatisticsProvider stats) {
+        assertEquals(6, stats.totals(Vertex.class));
+        assertEquals(6, stats.totals(Edge.class));
+        assertEquals(4, stats.withLabel(new LabelFilter<>(Vertex.class, "person")));
+        assertEquals(2, stats.withLabel(new LabelFilter<>(Vertex.class, "software")));
+        assertEquals(2, stats.withLabel(new LabelFilter<>(Edge.class, "knows")));
+        assertEquals(1, stats.withProperty(new LabelFilter<>(Vertex.class, "person"),
+                new PropertyFilter<>(Vertex.class, "name", P.eq("marko"))));
+        assertEquals(2, stats.connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "knows")));
+        assertEquals(6, stats.connections(LabelFilter.empty(Vertex.class), LabelFilter.empty(Edge.class)));
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i, stats.withLabel(new LabelFilter<>(Vertex.class, "generated" + i)));
+        }
+    }
+
+    @Test
+    public void testBuiltSnapshot() {
+        StatisticsSnapshot snapshot = createSnapshot();
+        assertEquals(1008, snapshot.size());
+        assertSnapshotContents(snapshot);
+    }
+
+    @Test
+    public void testMissingValues() {
+        StatisticsSnapshot snapshot = createSnapshot();
+        // missing values are derived from coarser ones
+        assertEquals(6, snapshot.withLabel(new LabelFilter<>(Edge.class, "person")));
+        assertEquals(6, snapshot.withLabel(LabelFilter.empty(Vertex.class)));
+        assertEquals(4, snapshot.withProperty(new LabelFilter<>(Vertex.class, "person"),
+                new PropertyFilter<>(Vertex.class, "name", P.eq("josh"))));
+        assertEquals(4, snapshot.connections(new LabelFilter<>(Edge.class, "knows"), new LabelFilter<>(Vertex.class, "person")));
+        assertEquals(0, StatisticsSnapshot.builder().build().totals(Vertex.class));
+    }
+
+    @Test
+    public void testStoredZeroIsNotMissing() {
+        StatisticsSnapshot snapshot = StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 4)
+                .withProperty(new LabelFilter<>(Vertex.class, "person"),
+                        new PropertyFilter<>(Vertex.class, "name", P.eq("nobody")), 0)
+                .build();
+        assertEquals(0, snapshot.withProperty(new LabelFilter<>(Vertex.class, "person"),
+                new PropertyFilter<>(Vertex.class, "name", P.eq("nobody"))));
+        assertEquals(4, snapshot.withProperty(new LabelFilter<>(Vertex.class, "person"),
+                new PropertyFilter<>(Vertex.class, "name", P.eq("josh"))));
+    }
+
+    @Test
+    public void testMissingValuesAreAnsweredByFallback() {
+        StatisticsProvider fallback = Mockito.mock(StatisticsProvider.class);
+        MockedStatUtils.withPropertyEstimation(fallback, "person", "name", 1);
+        MockedStatUtils.withConnectivityEstimation(fallback, "knows", "person", 2);
+        StatisticsProvider stats = createSnapshot().withFallback(fallback);
+
+        assertSnapshotContents(stats);
+        assertEquals(1, stats.withProperty(new LabelFilter<>(Vertex.class, "person"),
+                new PropertyFilter<>(Vertex.class, "name", P.eq("josh"))));
+        assertEquals(2, stats.connections(new LabelFilter<>(Edge.class, "knows"), new LabelFilter<>(Vertex.class, "person")));
+        Mockito.verify(fallback, Mockito.never()).totals(Mockito.any());
+    }
+
+    @Test
+    public void testWriteAndLoad(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("stats.bin");
+        createSnapshot().write(file);
+        assertSnapshotContents(StatisticsSnapshot.load(file));
+    }
+
+    @Test
+    public void testOverwrite(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("stats.bin");
+        StatisticsSnapshot.builder().totals(Vertex.class, 1).build().write(file);
+        StatisticsSnapshot.builder().totals(Vertex.class, 2).build().write(file);
+        assertEquals(2, StatisticsSnapshot.load(file).totals(Vertex.class));
+        assertEquals(1, Files.list(directory).count());
+    }
+
+    @Test
+    public void testCaptureRoundTrip(@TempDir Path directory) throws IOException {
+        StatisticsProvider graphStats = new GraphStatisticsProvider(TinkerFactory.createModern());
+        LatencyStatisticsProvider remoteStats = new LatencyStatisticsProvider(graphStats, 1);
+        List<LabelFilter<?>> labels = Arrays.asList(
+                new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Vertex.class, "software"),
+                new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Edge.class, "knows"),
+                LabelFilter.empty(Vertex.class), LabelFilter.empty(Edge.class));
+        List<PropertyFilter<?>> properties = Arrays.asList(
+                new PropertyFilter<>(Vertex.class, "name", P.eq("marko")),
+                new PropertyFilter<>(Vertex.class, "age", P.gt(30)),
+                new PropertyFilter<>(Edge.class, "weight", P.gte(0.5)));
+
+        Path file = directory.resolve("stats.bin");
+        StatisticsSnapshot.capture(remoteStats, labels, properties).write(file);
+        StatisticsSnapshot snapshot = StatisticsSnapshot.load(file);
+        assertEquals(1, remoteStats.getBatchCalls());
+        assertEquals(0, remoteStats.getScalarCalls());
+
+        assertEquals(graphStats.totals(Vertex.class), snapshot.totals(Vertex.class));
+        assertEquals(graphStats.totals(Edge.class), snapshot.totals(Edge.class));
+        for (LabelFilter<?> label : labels) {
+            assertEquals(graphStats.withLabel(label), snapshot.withLabel(label));
+            for (PropertyFilter<?> property : properties) {
+                if (property.getFilteredType() == label.getFilteredType()) {
+                    StatisticsRequest request = StatisticsRequest.withProperty(label, property);
+                    assertEquals(request.evaluate(graphStats), request.evaluate(snapshot), request::toString);
+                }
+            }
+            for (LabelFilter<?> other : labels) {
+                if (other.getFilteredType() != label.getFilteredType()) {
+                    StatisticsRequest request = StatisticsRequest.connections(label, other);
+                    assertEquals(request.evaluate(graphStats), request.evaluate(snapshot), request::toString);
+                }
+            }
+        }
+        // the real statistics contain zeros, which the snapshot answers as such
+        assertEquals(0, snapshot.connections(new LabelFilter<>(Edge.class, "created"),
+                new LabelFilter<>(Vertex.class, "person")));
+    }
+
+    @Test
+    public void testInvalidFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("stats.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> StatisticsSnapshot.load(file));
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import de.rngcntr.gremlin.optimize.query.JoinAttribute;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.reference.ReferenceFactory;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoinCountsTests {
+
+    @Test
+    public void testDetachedElementsAreGroupedByEquality() {
+        Graph graph = TinkerFactory.createModern();
+        Vertex marko = graph.vertices(1).next();
+        Vertex josh = graph.vertices(4).next();
+
+        // every detachment creates a new element object
+        JoinCounts counts = new JoinCounts(makeJoinAttributes("0"));
+        counts.add(makeMap("0", ReferenceFactory.detach(marko), "1", 1), 1L);
+        counts.add(makeMap("0", ReferenceFactory.detach(marko), "1", 2), 2L);
+        counts.add(makeMap("0", ReferenceFactory.detach(josh), "1", 3), 1L);
+
+        assertEquals(2, counts.getGroupCount());
+        assertEquals(4L, counts.getTupleCount());
+        assertEquals(3L, counts.countMatches(makeMap("0", ReferenceFactory.detach(marko), "2", 4)));
+        assertEquals(1L, counts.countMatches(makeMap("0", ReferenceFactory.detach(josh), "2", 4)));
+    }
+
+    @Test
+    public void testMissingValuesMatchAnyValue() {
+        JoinCounts counts = new JoinCounts(makeJoinAttributes("0", "1"));
+        counts.add(makeMap("0", 0, "1", 0), 1L);
+        counts.add(makeMap("0", 0, "1", 1), 2L);
+        counts.add(makeMap("0", 1), 4L);
+
+        assertEquals(3, counts.getGroupCount());
+        assertEquals(1L, counts.countMatches(makeMap("0", 0, "1", 0)));
+        assertEquals(3L, counts.countMatches(makeMap("0", 0)));
+        assertEquals(5L, counts.countMatches(makeMap("1", 0)));
+        assertEquals(4L, counts.countMatches(makeMap("0", 1, "1", 1)));
+        assertEquals(0L, counts.countMatches(makeMap("0", 2, "1", 0)));
+    }
+
+    private static Set<JoinAttribute> makeJoinAttributes(String... ids) {
+        Set<JoinAttribute> attributes = new HashSet<>();
+        for (String id : ids) {
+            PatternElement<?> pe = Mockito.mock(PatternElement.class);
+            Mockito.when(pe.getId()).thenReturn(Long.parseLong(id));
+            attributes.add(new JoinAttribute(pe));
+        }
+        return attributes;
+    }
+
+    private static Map<String, Object> makeMap(String k0, Object v0) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(k0, v0);
+        return map;
+    }
+
+    private static Map<String, Object> makeMap(String k0, Object v0, String k1, Object v1) {
+        Map<String, Object> map = makeMap(k0, v0);
+        map.put(k1, v1);
+        return map;
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoinFeedTests {
+
+    @Test
+    public void testUnstartedFeedIteratesOnDemand() {
+        Traversal.Admin<Map<String,Object>, Map<String,Object>> inner = innerTraversal(
+                __.inject(makeMap("0", 0), makeMap("0", 1)));
+        inner.addStart(inner.getTraverserGenerator().generate(makeMap("0", 2), inner.getStartStep(), 3L));
+        JoinFeed<Integer> feed = new JoinFeed<>(inner, starts(1, 2));
+
+        List<Object> values = new ArrayList<>();
+        long bulk = 0;
+        JoinFeed.Candidate candidate;
+        while ((candidate = feed.nextCandidate(true)) != null) {
+            values.add(candidate.getTuple().get("0"));
+            bulk += candidate.getBulk();
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), new HashSet<>(values));
+        assertEquals(5L, bulk);
+
+        // no incoming traverser is pulled ahead
+        assertEquals(1, (int) feed.nextStart().get());
+        assertEquals(2, (int) feed.nextStart().get());
+        assertFalse(feed.hasNextStart());
+    }
+
+    @Test
+    public void testStartedFeedPullsStartsAheadWhileWaiting() throws InterruptedException {
+        // the inner traversal is blocked until the last incoming traverser has been pulled
+        CountDownLatch lastStartPulled = new CountDownLatch(1);
+        Traversal.Admin<Map<String,Object>, Map<String,Object>> inner = innerTraversal(
+                __.inject(makeMap("0", 0)).map(t -> {
+                    try {
+                        lastStartPulled.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return t.get();
+                }));
+        Iterator<Traverser.Admin<Integer>> starts = starts(1, 2, 3);
+        JoinFeed<Integer> feed = new JoinFeed<>(inner, new Iterator<Traverser.Admin<Integer>>() {
+            @Override
+            public boolean hasNext() {
+                return starts.hasNext();
+            }
+
+            @Override
+            public Traverser.Admin<Integer> next() {
+                final Traverser.Admin<Integer> next = starts.next();
+                if (!starts.hasNext()) {
+                    lastStartPulled.countDown();
+                }
+                return next;
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            feed.start(executor);
+            assertEquals(0, feed.nextCandidate(true).getTuple().get("0"));
+            assertNull(feed.nextCandidate(true));
+
+            // the pulled traversers keep their order
+            assertTrue(feed.hasNextStart());
+            assertEquals(1, (int) feed.nextStart().get());
+            assertEquals(2, (int) feed.nextStart().get());
+            assertEquals(3, (int) feed.nextStart().get());
+            assertFalse(feed.hasNextStart());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExhaustedStartsCancelStartedFeed() throws InterruptedException {
+        // the inner traversal never ends
+        Traversal.Admin<Map<String,Object>, Map<String,Object>> inner = innerTraversal(
+                __.inject(0).flatMap(t -> Stream.iterate(0, i -> i + 1).map(i -> makeMap("0", i)).iterator()));
+        JoinFeed<Integer> feed = new JoinFeed<>(inner, starts(1));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            feed.start(executor);
+            assertNotNull(feed.nextCandidate(false));
+            assertEquals(1, (int) feed.nextStart().get());
+            // no further traverser probes the remaining results
+            assertThrows(NoSuchElementException.class, feed::nextStart);
+            assertNull(feed.nextCandidate(false));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Traversal.Admin<Map<String,Object>, Map<String,Object>> innerTraversal(Traversal<?,?> traversal) {
+        return (Traversal.Admin<Map<String,Object>, Map<String,Object>>) traversal.asAdmin();
+    }
+
+    private static Iterator<Traverser.Admin<Integer>> starts(Integer... values) {
+        Traversal.Admin<Integer,Integer> traversal = __.inject(values).asAdmin();
+        List<Traverser.Admin<Integer>> starts = new ArrayList<>();
+        while (traversal.hasNext()) {
+            starts.add(traversal.nextTraverser());
+        }
+        return starts.iterator();
+    }
+
+    private static Map<String, Object> makeMap(String k0, Object v0) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(k0, v0);
+        return map;
+    }
+}
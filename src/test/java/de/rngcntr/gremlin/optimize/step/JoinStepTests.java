@@ -14,14 +14,22 @@
 
 package de.rngcntr.gremlin.optimize.step;
 
+import com.google.common.collect.HashMultiset;
 import de.rngcntr.gremlin.optimize.query.JoinAttribute;
 import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import de.rngcntr.gremlin.optimize.traverser.TuplePath;
 import org.apache.tinkerpop.gremlin.process.traversal.Path;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
 import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
 import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
 import org.apache.tinkerpop.gremlin.process.traversal.step.util.ImmutablePath;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
 import org.apache.tinkerpop.gremlin.process.traversal.util.DefaultTraversalSideEffects;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.reference.ReferenceFactory;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -30,10 +38,15 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class JoinStepTests {
 
@@ -150,6 +163,131 @@ public class JoinStepTests {
         assertEquals(clonedMatchTraversal, clone.getLocalChildren().get(0));
     }
 
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testConcurrentInnerTraversal() throws InterruptedException {
+        // more inner tuples than the handover queue can buffer
+        int innerSize = 3000;
+        Supplier<Traversal<?,?>> innerTraversal = () -> __.inject(0).flatMap(t -> IntStream.range(0, innerSize)
+                .mapToObj(i -> makeMap("0", i % 10, "1", i))
+                .iterator());
+        Map[] probes = new Map[20];
+        for (int i = 0; i < probes.length; ++i) {
+            probes[i] = makeMap("0", i, "2", i);
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<?> sequentialResults = joinTraversal(probes, innerTraversal.get(), null).toList();
+            List<?> concurrentResults = joinTraversal(probes, innerTraversal.get(), executor).toList();
+            assertEquals(innerSize, sequentialResults.size());
+            assertEquals(HashMultiset.create(sequentialResults), HashMultiset.create(concurrentResults));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testFailureOfConcurrentInnerTraversalIsRethrown() {
+        Traversal<?,?> failingTraversal = __.inject(makeMap("0", 0)).map(t -> {
+            throw new IllegalStateException("inner failure");
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Traversal.Admin<?,?> traversal = joinTraversal(new Map[]{makeMap("0", 0)}, failingTraversal, executor);
+            IllegalStateException e = assertThrows(IllegalStateException.class, traversal::toList);
+            assertEquals("inner failure", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testLimitCancelsConcurrentInnerTraversal() throws InterruptedException {
+        // the inner traversal never ends
+        Traversal<?,?> innerTraversal = __.inject(0).flatMap(t -> Stream.iterate(0, i -> i + 1)
+                .map(i -> makeMap("0", 0, "1", i))
+                .iterator());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Traversal.Admin<?,?> traversal = joinTraversal(new Map[]{makeMap("0", 0)}, innerTraversal, executor);
+            ((JoinStep<?>) traversal.getEndStep()).setLimit(5);
+            assertEquals(5, traversal.toList().size());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testLimitIsRestoredByReset() {
+        Traversal<?,?> innerTraversal = __.inject(makeMap("0", 0, "1", 1), makeMap("0", 0, "1", 2),
+                makeMap("0", 0, "1", 3));
+        Traversal.Admin<?,?> traversal = joinTraversal(new Map[]{makeMap("0", 0)}, innerTraversal, null);
+        ((JoinStep<?>) traversal.getEndStep()).setLimit(2);
+        assertEquals(2, traversal.toList().size());
+
+        // injected starts are not repeated after a reset
+        traversal.reset();
+        traversal.getStartStep().addStart(traversal.getTraverserGenerator()
+                .generate(makeMap("0", 0), (Step) traversal.getStartStep(), 1L));
+        assertEquals(2, traversal.toList().size());
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testJoinedTuplesAreTuplePaths() {
+        Traversal<?,?> innerTraversal = __.inject(makeMap("0", 0, "1", 1));
+        Traversal.Admin<?,?> traversal = joinTraversal(new Map[]{makeMap("0", 0, "2", 2)}, innerTraversal, null);
+        JoinStep<?> joinStep = (JoinStep<?>) traversal.getEndStep();
+
+        assertTrue(joinStep.getRequirements().contains(TraverserRequirement.LABELED_PATH));
+        assertFalse(joinStep.getRequirements().contains(TraverserRequirement.PATH));
+        assertEquals(Collections.singleton("0"), joinStep.getScopeKeys());
+
+        Traverser.Admin<?> result = traversal.nextTraverser();
+        assertTrue(result.path() instanceof TuplePath);
+        assertEquals(makeMap("0", 0, "1", 1, "2", 2), ((TuplePath) result.path()).getBindings());
+        assertFalse(traversal.hasNext());
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testDetachedElementsAreJoinedByEquality() {
+        Graph graph = TinkerFactory.createModern();
+        Vertex marko = graph.vertices(1).next();
+        Vertex josh = graph.vertices(4).next();
+        // every detachment creates a new element object, like graphs that create objects for each read
+        Supplier<Traversal<?,?>> innerTraversal = () -> __.inject(
+                makeMap("0", ReferenceFactory.detach(marko), "1", 1),
+                makeMap("0", ReferenceFactory.detach(marko), "1", 2),
+                makeMap("0", ReferenceFactory.detach(josh), "1", 3));
+        Map[] probes = new Map[]{makeMap("0", ReferenceFactory.detach(marko), "2", 4)};
+        assertNotSame(probes[0].get("0"), ReferenceFactory.detach(marko));
+
+        assertEquals(2, joinTraversal(probes, innerTraversal.get(), null).toList().size());
+
+        Traversal.Admin<?,?> countingTraversal = joinTraversal(probes, innerTraversal.get(), null);
+        ((JoinStep<?>) countingTraversal.getEndStep()).setCountOnly(true);
+        assertEquals(2L, countingTraversal.nextTraverser().bulk());
+        assertFalse(countingTraversal.hasNext());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Traversal.Admin<?,?> joinTraversal(Map[] probes, Traversal<?,?> innerTraversal, Executor executor) {
+        Traversal.Admin<?,?> traversal = __.inject(probes).asAdmin();
+        JoinStep<?> joinStep = new JoinStep(traversal, innerTraversal, makeJoinAttributes(Collections.singletonList("0")));
+        joinStep.setExecutor(executor);
+        traversal.addStep(joinStep);
+        return traversal;
+    }
+
     private static Map<String, Object> makeMap(String k0, Object v0) {
         Map<String, Object> map = new HashMap<>();
         map.put(k0, v0);
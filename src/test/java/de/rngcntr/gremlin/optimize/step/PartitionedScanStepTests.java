@@ -0,0 +1,132 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import com.google.common.collect.HashMultiset;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.DefaultGraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedScanStepTests {
+    private GraphTraversalSource g;
+
+    /*
+        a chain of vertices, each of which knows it's successor
+     */
+    @BeforeEach
+    public void initializeGraph() {
+        g = TinkerGraph.open().traversal();
+        Vertex previous = g.addV("person").next();
+        for (int i = 1; i < 5000; ++i) {
+            Vertex next = g.addV("person").next();
+            g.addE("knows").from(previous).to(next).iterate();
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testPartitionedResultsEqualScanResults() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Traversal.Admin<?,?> partitioned = partitionedTraversal(4, executor);
+            assertEquals(HashMultiset.create(g.V().hasLabel("person").out("knows").toList()),
+                    HashMultiset.create(partitioned.toList()));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCloseStopsPartitions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Traversal.Admin<?,?> partitioned = partitionedTraversal(2, executor);
+            // the results do not fit into the handover queue, so the partitions block until they are closed
+            assertNotNull(partitioned.next());
+            partitioned.close();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testScanIsExecutedOnce() throws InterruptedException {
+        AtomicInteger scanned = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Traversal.Admin<?,?> partitioned = partitionedTraversal(4, executor, scanned);
+            assertEquals(4999, partitioned.toList().size());
+            assertEquals(5000, scanned.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMorePartitionsThanThreads() throws InterruptedException {
+        // the partitions that are started last find the scan exhausted
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Traversal.Admin<?,?> partitioned = partitionedTraversal(8, executor);
+            assertEquals(HashMultiset.create(g.V().hasLabel("person").out("knows").toList()),
+                    HashMultiset.create(partitioned.toList()));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRequiresSharedScan() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartitionedScanStep<>(__.start().asAdmin(), g.V().asAdmin(), 2, Runnable::run));
+        assertThrows(IllegalArgumentException.class,
+                () -> partitionedTraversal(0, Runnable::run, new AtomicInteger()));
+    }
+
+    private Traversal.Admin<?,?> partitionedTraversal(int partitions, Executor executor) {
+        return partitionedTraversal(partitions, executor, new AtomicInteger());
+    }
+
+    private Traversal.Admin<?,?> partitionedTraversal(int partitions, Executor executor, AtomicInteger scanned) {
+        GraphTraversal.Admin<Vertex,Vertex> scan = new DefaultGraphTraversal<>();
+        scan.addStep(new GraphStep<>(scan, Vertex.class, true));
+        scan.sideEffect(t -> scanned.incrementAndGet());
+        scan.addStep(new SharedScanStep<>(scan));
+        scan.out("knows");
+
+        GraphTraversal.Admin<Object,Object> partitioned = new DefaultGraphTraversal<>(g.getGraph());
+        partitioned.addStep(new PartitionedScanStep<>(partitioned, scan, partitions, executor));
+        return partitioned;
+    }
+}
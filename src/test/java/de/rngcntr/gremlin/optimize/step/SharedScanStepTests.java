@@ -0,0 +1,70 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.step;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedScanStepTests {
+
+    @Test
+    public void testSharedScanIsDisjointAndComplete() {
+        GraphTraversalSource g = TinkerFactory.createModern().traversal();
+        Traversal.Admin<Vertex,Vertex> source = scanTraversal();
+        Traversal.Admin<Vertex,Vertex> copy = scanTraversal();
+        SharedScanStep<Vertex> sourceStep = sharedScan(source);
+        sharedScan(copy).shareScanOf(sourceStep);
+        source.addStarts(source.getTraverserGenerator().generateIterator(g.V(), sourceStep, 1L));
+
+        // the copy takes the elements from the scan of the source
+        Set<Object> ids = new HashSet<>();
+        assertTrue(ids.add(copy.next().id()));
+        assertTrue(ids.add(copy.next().id()));
+        source.toList().forEach(v -> assertTrue(ids.add(v.id())));
+        assertFalse(copy.hasNext());
+        assertEquals(6, ids.size());
+    }
+
+    @Test
+    public void testCloneIsSourceOfItsOwnScan() {
+        Traversal.Admin<Vertex,Vertex> source = scanTraversal();
+        Traversal.Admin<Vertex,Vertex> copy = scanTraversal();
+        SharedScanStep<Vertex> copyStep = sharedScan(copy);
+        copyStep.shareScanOf(sharedScan(source));
+        assertFalse(copyStep.isSource());
+        assertEquals("SharedScanStep(shared)", copyStep.toString());
+        assertTrue(copyStep.clone().isSource());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static SharedScanStep<Vertex> sharedScan(Traversal.Admin<Vertex,Vertex> traversal) {
+        return (SharedScanStep) traversal.getEndStep();
+    }
+
+    private static Traversal.Admin<Vertex,Vertex> scanTraversal() {
+        Traversal.Admin<Vertex,Vertex> traversal = __.<Vertex>start().asAdmin();
+        traversal.addStep(new SharedScanStep<>(traversal));
+        return traversal;
+    }
+}
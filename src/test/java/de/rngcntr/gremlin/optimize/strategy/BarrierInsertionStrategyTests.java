@@ -0,0 +1,152 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.strategy;
+
+import de.rngcntr.gremlin.optimize.retrieval.Retrieval;
+import de.rngcntr.gremlin.optimize.retrieval.dependent.DependentRetrieval;
+import de.rngcntr.gremlin.optimize.retrieval.direct.DirectRetrieval;
+import de.rngcntr.gremlin.optimize.structure.PatternElement;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.NoOpBarrierStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BarrierInsertionStrategyTests {
+
+    @Test
+    public void testInsertBarrierAfterHighFanout() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 10000, 100),
+                makeDependentElement(3, 100000, 1000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").out().as("3").asAdmin();
+        strategy.apply(traversal);
+
+        List<Step> steps = traversal.getSteps();
+        assertEquals(4, steps.size());
+        NoOpBarrierStep<?> barrier = (NoOpBarrierStep<?>) steps.get(2);
+        assertTrue(steps.get(1).getLabels().contains("2"));
+        assertEquals(100, getBarrierSize(barrier));
+        // the last element is not expanded any further
+        assertEquals(1, TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal).size());
+    }
+
+    @Test
+    public void testNoBarrierForFewDuplicates() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 100, 10000),
+                makeDependentElement(3, 1000, 100000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").out().as("3").asAdmin();
+        strategy.apply(traversal);
+
+        assertTrue(TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal).isEmpty());
+    }
+
+    @Test
+    public void testBarrierSizeIsBounded() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 1e8, 1e6),
+                makeDependentElement(3, 100, 2),
+                makeDependentElement(4, 1000, 100000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").out().as("3").out().as("4").asAdmin();
+        strategy.apply(traversal);
+
+        List<NoOpBarrierStep> barriers = TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal);
+        assertEquals(2, barriers.size());
+        assertEquals(BarrierInsertionStrategy.MAX_BARRIER_SIZE, getBarrierSize(barriers.get(0)));
+        assertEquals(BarrierInsertionStrategy.MIN_BARRIER_SIZE, getBarrierSize(barriers.get(1)));
+    }
+
+    @Test
+    public void testNoBarrierAfterKeptLabel() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 10000, 100),
+                makeDependentElement(3, 100000, 1000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").out().as("3").select("1").asAdmin();
+        strategy.apply(traversal);
+
+        assertTrue(TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal).isEmpty());
+    }
+
+    @Test
+    public void testNoBarrierIfPathIsRequired() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 10000, 100),
+                makeDependentElement(3, 100000, 1000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").out().as("3").path().asAdmin();
+        strategy.apply(traversal);
+
+        assertTrue(TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal).isEmpty());
+    }
+
+    @Test
+    public void testKeepExistingBarrier() {
+        BarrierInsertionStrategy strategy = new BarrierInsertionStrategy(Arrays.asList(
+                makeDirectElement(1, 10),
+                makeDependentElement(2, 10000, 100),
+                makeDependentElement(3, 100000, 1000)));
+        Traversal.Admin<?,?> traversal = __.V().as("1").out().as("2").barrier(7).out().as("3").asAdmin();
+        strategy.apply(traversal);
+
+        List<NoOpBarrierStep> barriers = TraversalHelper.getStepsOfClass(NoOpBarrierStep.class, traversal);
+        assertEquals(1, barriers.size());
+        assertEquals(7, getBarrierSize(barriers.get(0)));
+    }
+
+    private static int getBarrierSize(NoOpBarrierStep<?> barrier) {
+        // the size is only exposed by the string representation, e.g. NoOpBarrierStep(100)
+        String representation = barrier.toString();
+        return Integer.parseInt(representation.substring(representation.indexOf('(') + 1, representation.indexOf(')')));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static PatternElement<?> makeDirectElement(long id, double candidates) {
+        PatternElement element = Mockito.mock(PatternElement.class);
+        Retrieval directRetrieval = Mockito.mock(DirectRetrieval.class);
+        Mockito.when(directRetrieval.getEstimatedSize()).thenReturn(candidates);
+        Mockito.when(element.getId()).thenReturn(id);
+        Mockito.when(element.isVertex()).thenReturn(true);
+        Mockito.when(element.getBestRetrieval()).thenReturn(directRetrieval);
+        Mockito.when(element.getRetrievals()).thenReturn((Collection) Arrays.asList(directRetrieval));
+        return element;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static PatternElement<?> makeDependentElement(long id, double traversers, double candidates) {
+        PatternElement element = Mockito.mock(PatternElement.class);
+        Retrieval directRetrieval = Mockito.mock(DirectRetrieval.class);
+        Retrieval dependentRetrieval = Mockito.mock(DependentRetrieval.class);
+        Mockito.when(directRetrieval.getEstimatedSize()).thenReturn(candidates);
+        Mockito.when(dependentRetrieval.getEstimatedSize()).thenReturn(traversers);
+        Mockito.when(element.getId()).thenReturn(id);
+        Mockito.when(element.isVertex()).thenReturn(true);
+        Mockito.when(element.getBestRetrieval()).thenReturn(dependentRetrieval);
+        Mockito.when(element.getRetrievals()).thenReturn((Collection) Arrays.asList(directRetrieval, dependentRetrieval));
+        return element;
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.strategy;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SkipEdgeStrategyTests {
+
+    @Test
+    public void testSkipUnlabeledEdge() {
+        Traversal.Admin<?,?> traversal = __.outE("knows").inV().asAdmin();
+        SkipEdgeStrategy.instance().apply(traversal);
+
+        List<Step> steps = traversal.getSteps();
+        assertEquals(1, steps.size());
+        VertexStep<?> vertexStep = (VertexStep<?>) steps.get(0);
+        assertTrue(vertexStep.returnsVertex());
+        assertEquals(Direction.OUT, vertexStep.getDirection());
+        assertArrayEquals(new String[]{"knows"}, vertexStep.getEdgeLabels());
+    }
+
+    @Test
+    public void testKeepVertexLabels() {
+        Traversal.Admin<?,?> traversal = __.inE().hasLabel("created").outV().as("a").asAdmin();
+        SkipEdgeStrategy.instance().apply(traversal);
+
+        List<Step> steps = traversal.getSteps();
+        assertEquals(1, steps.size());
+        assertEquals(Direction.IN, ((VertexStep<?>) steps.get(0)).getDirection());
+        assertEquals(Collections.singleton("a"), steps.get(0).getLabels());
+    }
+
+    @Test
+    public void testKeepLabeledEdge() {
+        Traversal.Admin<?,?> traversal = __.outE("knows").as("e").inV().asAdmin();
+        SkipEdgeStrategy.instance().apply(traversal);
+
+        List<Step> steps = traversal.getSteps();
+        assertEquals(2, steps.size());
+        assertTrue(steps.get(1) instanceof EdgeVertexStep);
+    }
+}
@@ -14,8 +14,11 @@
 
 package de.rngcntr.gremlin.optimize.structure;
 
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -107,8 +110,11 @@ public class PatternGraphTests {
 
     @Test
     public void testUnsupportedStepRaisesException() {
-        GraphTraversal<?,?> t = g.V().limit(1);
+        GraphTraversal<?,?> t = g.V().dedup();
         assertThrows(IllegalArgumentException.class, () -> new PatternGraph(t));
+        // a limit is only supported at the end of a traversal
+        GraphTraversal<?,?> limited = g.V().limit(1).out();
+        assertThrows(IllegalArgumentException.class, () -> new PatternGraph(limited));
     }
 
     @Test
@@ -162,4 +168,40 @@ public class PatternGraphTests {
             assertEquals(basePattern, otherPattern);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCycleCreation() {
+        PatternGraph pg = new PatternGraph(g.V().hasLabel("a").as("a").match(
+                __.as("a").out("e1").hasLabel("b").as("b"),
+                __.as("b").out("e2").hasLabel("c").as("c"),
+                __.as("c").out("e3").as("a")));
+        assertVertexAndEdgeCount(pg, 3, 3);
+        PatternVertex a = pg.getVertices().get(0);
+        assertLabelsExactlyMatch(a, "a");
+        assertEquals(1, a.getNeighbors(Direction.IN).size());
+        assertEquals(1, a.getNeighbors(Direction.OUT).size());
+        assertSame(a, pg.getEdges().get(2).getNeighbors(Direction.OUT).get(0));
+    }
+
+    @Test
+    public void testConflictingCycleLabels() {
+        assertThrows(IllegalArgumentException.class, () -> new PatternGraph(g.V().hasLabel("a").as("a").match(
+                __.as("a").out("e").hasLabel("b").as("a"))));
+        assertThrows(IllegalArgumentException.class, () -> new PatternGraph(g.V().as("a").match(
+                __.as("a").outE("e").as("a"))));
+    }
+
+    @Test
+    public void testRepeatedOptimization() {
+        StatisticsProvider stats = mock(StatisticsProvider.class);
+        PatternGraph pg = new PatternGraph(g.V().hasLabel("a").out("e").hasLabel("b"));
+        pg.optimize(stats);
+        List<Integer> retrievalCounts = new ArrayList<>();
+        pg.getElements().forEach(e -> retrievalCounts.add(e.getRetrievals().size()));
+
+        pg.optimize(stats);
+        for (int i = 0; i < retrievalCounts.size(); ++i) {
+            assertEquals(retrievalCounts.get(i), pg.getElements().get(i).getRetrievals().size());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.testutils;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsSnapshot;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Patterns and statistics for the modern graph of
+ * {@link org.apache.tinkerpop.gremlin.tinkergraph.structure.TinkerFactory}, which are shared by several tests.
+ */
+public class ModernGraphUtils {
+
+    /*
+        vertex counts are underestimated and edge counts are overestimated, so all vertices are retrieved directly
+     */
+    public static StatisticsProvider misleadingStatistics() {
+        return StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 1)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 1)
+                .withLabel(new LabelFilter<>(Edge.class, "created"), 400)
+                .withLabel(new LabelFilter<>(Edge.class, "knows"), 400)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "created"), 400)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "software"), 400)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "person"), 400)
+                .connections(new LabelFilter<>(Vertex.class, "software"), new LabelFilter<>(Edge.class, "created"), 400)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "knows"), 400)
+                .connections(new LabelFilter<>(Edge.class, "knows"), new LabelFilter<>(Vertex.class, "person"), 400)
+                .build();
+    }
+
+    /*
+        the exact counts of the modern graph, values that are not stored are derived by the snapshot
+     */
+    public static StatisticsProvider modernStatistics() {
+        return StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 4)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 2)
+                .withLabel(new LabelFilter<>(Edge.class, "created"), 4)
+                .withLabel(new LabelFilter<>(Edge.class, "knows"), 2)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "created"), 4)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "software"), 4)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "knows"), 2)
+                .connections(new LabelFilter<>(Edge.class, "knows"), new LabelFilter<>(Vertex.class, "person"), 2)
+                .build();
+    }
+
+    /*
+        the number of persons is overestimated by a factor of 100
+     */
+    public static StatisticsProvider overestimatedPersonStatistics() {
+        return StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 400)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 2)
+                .withLabel(new LabelFilter<>(Edge.class, "created"), 4)
+                .build();
+    }
+
+    /*
+        the number of persons is overestimated by a factor of 100, but each person is correctly estimated to have
+        created one software
+     */
+    public static StatisticsProvider overestimatedCreatorStatistics() {
+        return StatisticsSnapshot.builder()
+                .totals(Vertex.class, 6)
+                .totals(Edge.class, 6)
+                .withLabel(new LabelFilter<>(Vertex.class, "person"), 400)
+                .withLabel(new LabelFilter<>(Vertex.class, "software"), 2000)
+                .withLabel(new LabelFilter<>(Edge.class, "created"), 4000)
+                .connections(new LabelFilter<>(Vertex.class, "person"), new LabelFilter<>(Edge.class, "created"), 400)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "person"), 400)
+                .connections(new LabelFilter<>(Edge.class, "created"), new LabelFilter<>(Vertex.class, "software"),
+                        4000)
+                .connections(new LabelFilter<>(Vertex.class, "software"), new LabelFilter<>(Edge.class, "created"),
+                        4000)
+                .build();
+    }
+
+    /*
+        persons, the persons that they know and the software that these persons created
+     */
+    public static GraphTraversal<?,?> chainTraversal(GraphTraversalSource g) {
+        return g.V().hasLabel("person").as("a")
+                .out("knows").hasLabel("person").as("c")
+                .out("created").hasLabel("software").as("b")
+                .select("a", "c", "b");
+    }
+}
@@ -0,0 +1,76 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.testutils.statistics;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Answers statistics exactly by scanning all elements of a graph on every request.
+ */
+public class GraphStatisticsProvider implements StatisticsProvider {
+    private final Graph graph;
+
+    public GraphStatisticsProvider(Graph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public <E extends Element> double totals(Class<E> clazz) {
+        return IteratorUtils.count(elements(clazz));
+    }
+
+    @Override
+    public <E extends Element> double withLabel(LabelFilter<E> label) {
+        return count(elements(label.getFilteredType()), label::test);
+    }
+
+    @Override
+    public <E extends Element> double withProperty(LabelFilter<E> label, PropertyFilter<E> property) {
+        return count(elements(label.getFilteredType()), e -> label.test(e) && property.test(e));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel,
+                                                                       LabelFilter<E2> toLabel) {
+        LabelFilter<Vertex> outLabel = (LabelFilter<Vertex>) (fromLabel.getFilteredType() == Vertex.class
+                ? fromLabel : LabelFilter.empty(Vertex.class));
+        LabelFilter<Vertex> inLabel = (LabelFilter<Vertex>) (toLabel.getFilteredType() == Vertex.class
+                ? toLabel : LabelFilter.empty(Vertex.class));
+        LabelFilter<Edge> edgeLabel = (LabelFilter<Edge>) (fromLabel.getFilteredType() == Edge.class ? fromLabel
+                : toLabel.getFilteredType() == Edge.class ? toLabel : LabelFilter.empty(Edge.class));
+        return count(graph.edges(),
+                e -> edgeLabel.test(e) && outLabel.test(e.outVertex()) && inLabel.test(e.inVertex()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Element> Iterator<E> elements(Class<E> clazz) {
+        return (Iterator<E>) (Vertex.class.isAssignableFrom(clazz) ? graph.vertices() : graph.edges());
+    }
+
+    private static <E> double count(Iterator<E> elements, Predicate<E> predicate) {
+        return IteratorUtils.count(IteratorUtils.filter(elements, predicate::test));
+    }
+}
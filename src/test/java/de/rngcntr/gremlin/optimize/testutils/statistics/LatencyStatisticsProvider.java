@@ -0,0 +1,95 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.testutils.statistics;
+
+import de.rngcntr.gremlin.optimize.filter.LabelFilter;
+import de.rngcntr.gremlin.optimize.filter.PropertyFilter;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsProvider;
+import de.rngcntr.gremlin.optimize.statistics.StatisticsRequest;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a remote statistics service by delaying every round trip to a local statistics provider.
+ */
+public class LatencyStatisticsProvider implements StatisticsProvider {
+    private final StatisticsProvider delegate;
+    private final long latencyMillis;
+    private final AtomicInteger scalarCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+
+    public LatencyStatisticsProvider(StatisticsProvider delegate, long latencyMillis) {
+        this.delegate = delegate;
+        this.latencyMillis = latencyMillis;
+    }
+
+    private void roundTrip() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public <E extends Element> double totals(Class<E> clazz) {
+        scalarCalls.incrementAndGet();
+        roundTrip();
+        return delegate.totals(clazz);
+    }
+
+    @Override
+    public <E extends Element> double withLabel(LabelFilter<E> label) {
+        scalarCalls.incrementAndGet();
+        roundTrip();
+        return delegate.withLabel(label);
+    }
+
+    @Override
+    public <E extends Element> double withProperty(LabelFilter<E> label, PropertyFilter<E> property) {
+        scalarCalls.incrementAndGet();
+        roundTrip();
+        return delegate.withProperty(label, property);
+    }
+
+    @Override
+    public <E1 extends Element, E2 extends Element> double connections(LabelFilter<E1> fromLabel, LabelFilter<E2> toLabel) {
+        scalarCalls.incrementAndGet();
+        roundTrip();
+        return delegate.connections(fromLabel, toLabel);
+    }
+
+    @Override
+    public Map<StatisticsRequest, CompletableFuture<Double>> estimateAll(Collection<StatisticsRequest> requests) {
+        batchCalls.incrementAndGet();
+        CompletableFuture<Void> response = CompletableFuture.runAsync(this::roundTrip);
+        Map<StatisticsRequest, CompletableFuture<Double>> answers = new HashMap<>();
+        requests.forEach(r -> answers.put(r, response.thenApply(v -> r.evaluate(delegate))));
+        return answers;
+    }
+
+    public int getScalarCalls() {
+        return scalarCalls.get();
+    }
+
+    public int getBatchCalls() {
+        return batchCalls.get();
+    }
+}
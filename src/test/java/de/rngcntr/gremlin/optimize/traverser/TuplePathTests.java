@@ -0,0 +1,98 @@
+// Copyright 2020 Florian Grieskamp
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package de.rngcntr.gremlin.optimize.traverser;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Path;
+import org.apache.tinkerpop.gremlin.process.traversal.Pop;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TuplePathTests {
+
+    @Test
+    public void testExtendKeepsOriginal() {
+        TuplePath path = new TuplePath(Collections.singletonMap("a", 1));
+        Path extended = path.extend(2, Collections.singleton("b"));
+
+        assertEquals(1, path.size());
+        assertFalse(path.hasLabel("b"));
+        assertEquals(2, extended.size());
+        assertEquals(1, (int) extended.get("a"));
+        assertEquals(2, (int) extended.get("b"));
+        assertEquals(2, (int) extended.head());
+    }
+
+    @Test
+    public void testExtendReplacesBinding() {
+        Path path = new TuplePath(Collections.singletonMap("a", 1)).extend(2, Collections.singleton("a"));
+
+        assertEquals(1, path.size());
+        assertEquals(2, (int) path.get("a"));
+        assertEquals(2, (int) path.get(Pop.last, "a"));
+        assertEquals(Collections.singletonList(2), path.get(Pop.all, "a"));
+        assertEquals(Collections.emptyList(), path.get(Pop.all, "b"));
+    }
+
+    @Test
+    public void testExtendLabelsHead() {
+        Path path = new TuplePath(Collections.emptyMap())
+                .extend(1, Collections.emptySet())
+                .extend(Collections.singleton("a"));
+
+        assertEquals(1, (int) path.get("a"));
+        assertThrows(IllegalStateException.class,
+                () -> new TuplePath(Collections.emptyMap()).extend(Collections.singleton("a")));
+    }
+
+    @Test
+    public void testRetract() {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("a", 1);
+        bindings.put("b", 2);
+        TuplePath path = new TuplePath(bindings);
+        Path retracted = path.retract(Collections.singleton("a"));
+
+        assertFalse(retracted.hasLabel("a"));
+        assertTrue(retracted.hasLabel("b"));
+        assertTrue(path.hasLabel("a"));
+        assertSame(path, path.retract(Collections.singleton("c")));
+    }
+
+    @Test
+    public void testMissingLabel() {
+        Path path = new TuplePath(Collections.singletonMap("a", 1));
+        assertThrows(IllegalArgumentException.class, () -> path.get("b"));
+    }
+
+    @Test
+    public void testEquality() {
+        TuplePath path = new TuplePath(Collections.singletonMap("a", 1));
+        TuplePath other = new TuplePath(new HashMap<>(Collections.singletonMap("a", 1)));
+
+        assertEquals(path, other);
+        assertEquals(path.hashCode(), other.hashCode());
+        assertNotEquals(path, path.extend(2, Collections.singleton("b")));
+        assertSame(path, path.clone());
+    }
+
+    @Test
+    public void testBindingsAreUnmodifiable() {
+        TuplePath path = new TuplePath(new HashMap<>(Collections.singletonMap("a", 1)));
+        assertThrows(UnsupportedOperationException.class, () -> path.getBindings().put("b", 2));
+    }
+}